@@ -4,6 +4,7 @@ import edu.vanderbilt.crawler.app.App
 import edu.vanderbilt.crawler.utils.KtLogger
 import edu.vanderbilt.crawler.utils.debug
 import edu.vanderbilt.imagecrawler.platform.Cache
+import edu.vanderbilt.imagecrawler.platform.HttpFetcher
 import edu.vanderbilt.imagecrawler.platform.Platform
 import edu.vanderbilt.imagecrawler.platform.PlatformImage
 import java.io.InputStream
@@ -37,6 +38,8 @@ object AndroidPlatform : Platform, KtLogger {
     /**
      * Creates an input stream for the passed [uri]. This method supports
      * both normal URLs and any URL located in the application assets.
+     * Web URLs are fetched by the platform's [httpFetcher] (by default
+     * the shared [HttpFetcher]).
      */
     override fun mapUriToInputStream(uri: String): InputStream? {
         val assetsPrefix = AndroidPlatform.ASSETS_URI_PREFIX + "/"
@@ -68,19 +71,26 @@ object AndroidPlatform : Platform, KtLogger {
                             inputStream.available())
                 }
             }
-            else -> {
+            HttpFetcher.isHttpUri(uri) -> {
+                val response = httpFetcher.fetch(uri)
                 if (item == null) {
-                    // Must be a web page URL so return a normal input stream.
-                    URL(uri).openStream()
+                    // Must be a web page URL so return the response.
+                    response
                 } else {
-                    // Must be an image URL so return the wrapped observer stream.
+                    // Must be an image URL so return the wrapped observer
+                    // stream, sized by the response (without a second request).
+                    // The content length of an encoded response counts the
+                    // encoded bytes rather than the decoded bytes that are
+                    // read, so the size is unknown (-1).
                     cache.ObserverInputStream(
-                            URL(uri).openStream(),
+                            response,
                             Cache.Operation.DOWNLOAD,
                             item,
-                            URL(uri).openConnection().contentLength)
+                            if (response.contentEncoding != null) -1
+                            else response.contentLength.toInt())
                 }
             }
+            else -> URL(uri).openStream()
         }
     }
 }
@@ -0,0 +1,78 @@
+package edu.vanderbilt.imagecrawler.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Spliterator;
+import java.util.concurrent.TimeUnit;
+
+import edu.vanderbilt.imagecrawler.utils.Array;
+
+/**
+ * Measures adding to, streaming over, and splitting an {@link Array}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayBenchmark {
+    @Param({"1000", "100000"})
+    int size;
+
+    private Array<Integer> mArray;
+
+    @Setup
+    public void setup() {
+        mArray = new Array<>();
+        for (int i = 0; i < size; i++) {
+            mArray.add(i);
+        }
+    }
+
+    @Benchmark
+    public Array<Integer> add() {
+        Array<Integer> array = new Array<>();
+        for (int i = 0; i < size; i++) {
+            array.add(i);
+        }
+        return array;
+    }
+
+    @Benchmark
+    public long sequentialStream() {
+        return mArray.stream().mapToLong(Integer::longValue).sum();
+    }
+
+    @Benchmark
+    public long parallelStream() {
+        return mArray.parallelStream().mapToLong(Integer::longValue).sum();
+    }
+
+    /**
+     * Recursively splits the spliterator down to single elements,
+     * which is what a parallel stream does in the worst case.
+     */
+    @Benchmark
+    public int spliteratorSplit() {
+        return split(mArray.spliterator());
+    }
+
+    private static int split(Spliterator<Integer> spliterator) {
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        if (prefix == null) {
+            return 1;
+        }
+        return split(prefix) + split(spliterator);
+    }
+}
@@ -0,0 +1,77 @@
+package edu.vanderbilt.imagecrawler.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import edu.vanderbilt.imagecrawler.utils.Array;
+import edu.vanderbilt.imagecrawler.utils.ArrayCollector;
+import edu.vanderbilt.imagecrawler.utils.BoundedFutures;
+import edu.vanderbilt.imagecrawler.utils.FuturesCollector;
+
+/**
+ * Measures the collectors used by the crawlers to gather results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectorBenchmark {
+    @Param({"100", "10000"})
+    int size;
+
+    @Benchmark
+    public Array<Integer> arrayCollector() {
+        return IntStream.range(0, size)
+                .boxed()
+                .collect(ArrayCollector.toArray());
+    }
+
+    @Benchmark
+    public Array<Integer> parallelArrayCollector() {
+        return IntStream.range(0, size)
+                .parallel()
+                .boxed()
+                .collect(ArrayCollector.toArray());
+    }
+
+    @Benchmark
+    public int futuresCollector() {
+        return IntStream.range(0, size)
+                .mapToObj(CompletableFuture::completedFuture)
+                .collect(FuturesCollector.toFuture())
+                .join()
+                .size();
+    }
+
+    @Benchmark
+    public int futuresCollectorAsync() {
+        return IntStream.range(0, size)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> i))
+                .collect(FuturesCollector.toFuture())
+                .join()
+                .size();
+    }
+
+    @Benchmark
+    public int boundedFuturesAsync() {
+        return BoundedFutures
+                .sum(IntStream.range(0, size).boxed(),
+                     32,
+                     i -> CompletableFuture.supplyAsync(() -> 1))
+                .join();
+    }
+}
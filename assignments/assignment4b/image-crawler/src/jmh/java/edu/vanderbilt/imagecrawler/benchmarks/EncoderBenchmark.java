@@ -0,0 +1,141 @@
+package edu.vanderbilt.imagecrawler.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import edu.vanderbilt.imagecrawler.platform.ImageEncoder;
+import edu.vanderbilt.imagecrawler.platform.ImageFormat;
+import edu.vanderbilt.imagecrawler.platform.JavaPlatform;
+import edu.vanderbilt.imagecrawler.platform.Platform;
+import edu.vanderbilt.imagecrawler.platform.PlatformImage;
+import edu.vanderbilt.imagecrawler.utils.ByteBufferInputStream;
+
+/**
+ * Compares how long each output encoder takes to encode the images
+ * of the local web-pages corpus (found in the working directory) that
+ * have the source {@code format}, and how long it takes to decode
+ * what was written. The number of bytes each encoder writes is
+ * printed when the trial starts, e.g.
+ * <pre>
+ *     ./gradlew :image-crawler:jmh -Pjmh='EncoderBenchmark -p format=png'
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncoderBenchmark {
+    /**
+     * An encoder specification accepted by {@link ImageEncoder#parse}.
+     */
+    @Param({"png", "png:0", "png:1", "png:6", "png:9", "source", "raw"})
+    public String encoder;
+
+    /**
+     * The source format of the corpus images to encode.
+     */
+    @Param({"png", "jpg"})
+    public String format;
+
+    private final JavaPlatform mPlatform = new JavaPlatform();
+
+    private ImageEncoder mEncoder;
+
+    private List<PlatformImage> mImages;
+
+    private List<byte[]> mEncodings;
+
+    @Setup
+    public void setup() throws IOException {
+        File dir = new File(Platform.LOCAL_WEB_PAGES_DIR_NAME);
+        ImageFormat sourceFormat = ImageFormat.fromName(format);
+        List<File> files = new ArrayList<>();
+        findImages(dir, sourceFormat, files);
+        if (files.isEmpty()) {
+            throw new IllegalStateException(
+                    "No " + format + " images found in " + dir.getAbsolutePath());
+        }
+
+        mEncoder = ImageEncoder.parse(encoder).resolve(format);
+        mImages = new ArrayList<>();
+        for (File file : files) {
+            try (InputStream inputStream = new FileInputStream(file)) {
+                mImages.add(mPlatform.newImage(inputStream, null));
+            }
+        }
+
+        mEncodings = new ArrayList<>();
+        long bytes = 0;
+        for (PlatformImage image : mImages) {
+            byte[] encoding = encode(image);
+            mEncodings.add(encoding);
+            bytes += encoding.length;
+        }
+        System.out.printf("%n%s encoding of %d %s images: %d bytes%n",
+                          encoder, mImages.size(), format, bytes);
+    }
+
+    @Benchmark
+    public void encode(Blackhole blackhole) throws IOException {
+        for (PlatformImage image : mImages) {
+            blackhole.consume(encode(image));
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        for (byte[] encoding : mEncodings) {
+            blackhole.consume(mPlatform.newImage(
+                    new ByteBufferInputStream(ByteBuffer.wrap(encoding)), null));
+        }
+    }
+
+    private byte[] encode(PlatformImage image) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        image.writeImage(outputStream, mEncoder);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Recursively adds the files below {@code dir} whose extension
+     * names {@code format} to {@code files}.
+     */
+    private static void findImages(File dir, ImageFormat format, List<File> files) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+
+        for (File child : children) {
+            String name = child.getName();
+            if (child.isDirectory()) {
+                findImages(child, format, files);
+            } else if (ImageFormat.fromName(
+                    name.substring(name.lastIndexOf('.') + 1)) == format) {
+                files.add(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package edu.vanderbilt.imagecrawler.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import edu.vanderbilt.imagecrawler.utils.Crawler;
+import edu.vanderbilt.imagecrawler.utils.WebPageCrawler;
+
+import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.IMAGE;
+import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.PAGE;
+
+/**
+ * Compares the jsoup and streaming page parsers on large generated
+ * pages. Each page mixes hyperlinks and images with the text,
+ * tables, scripts, styles, and comments of a typical page, and is
+ * read from memory so that only parsing is measured. Run it with the
+ * GC profiler to compare how much each parser allocates per page,
+ * e.g.
+ * <pre>
+ *     ./gradlew :image-crawler:jmh -Pjmh='HtmlParser -prof gc'
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HtmlParserBenchmark {
+    private static final int PAGES = 8;
+
+    private static final String BASE_URI = "http://www.example.com/site/index.html";
+
+    @Param({"JSOUP", "STREAMING"})
+    public WebPageCrawler.Parser parser;
+
+    /**
+     * The number of hyperlinks (and half as many images) on
+     * each page.
+     */
+    @Param({"2000"})
+    public int links;
+
+    private Crawler mCrawler;
+
+    private byte[][] mPages;
+
+    private int mNext;
+
+    @Setup
+    public void setup() {
+        mPages = new byte[PAGES][];
+        for (int i = 0; i < PAGES; i++) {
+            mPages[i] = page(i, links);
+        }
+        mCrawler = WebPageCrawler.Factory.newWebPageCrawler(
+                parser,
+                uri -> new ByteArrayInputStream(mPages[mNext++ % PAGES]));
+    }
+
+    /**
+     * Parses a page and streams its hyperlinks and images.
+     */
+    @Benchmark
+    public void getPage(Blackhole blackhole) {
+        mCrawler.getPage(BASE_URI)
+                .streamPageElementsAsStrings(PAGE, IMAGE)
+                .forEach(blackhole::consume);
+    }
+
+    /**
+     * Generates a page with the given number of hyperlinks (and half
+     * as many images), deterministically for each page number.
+     */
+    private static byte[] page(int page, int links) {
+        Random random = new Random(page);
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html lang=\"en\"><head>\n")
+                .append("<meta charset=\"utf-8\"><title>Page ").append(page).append("</title>\n")
+                .append("<link rel=\"stylesheet\" href=\"/css/site.css\">\n")
+                .append("<style>body { font: 14px sans-serif } .nav a { color: #80ffff }</style>\n")
+                .append("<script>var links = document.querySelectorAll('a');\n")
+                .append("for (var i = 0; i < links.length; i++) { if (links[i].href < '<a') {} }</script>\n")
+                .append("</head>\n<body class=\"page\" data-page=\"").append(page).append("\">\n");
+        for (int i = 0; i < links; i++) {
+            if (i % 50 == 0) {
+                html.append("<!-- section ").append(i / 50).append(" -->\n")
+                        .append("<div class=\"section\"><h2 id=\"s").append(i / 50)
+                        .append("\">Section ").append(i / 50).append("</h2>\n<table>\n");
+            }
+            html.append("<tr><td class=\"item\"><a href=\"")
+                    .append(random.nextBoolean() ? "/site/" : "../")
+                    .append("section").append(random.nextInt(100))
+                    .append("/page-").append(i).append(".html?ref=p").append(page)
+                    .append("&amp;pos=").append(i).append("\" title=\"Page ").append(i)
+                    .append("\">Page ").append(i).append("</a></td>\n<td>");
+            if (i % 2 == 0) {
+                html.append("<img src=\"/images/").append(random.nextInt(10_000))
+                        .append(".png\" alt=\"Image ").append(i)
+                        .append("\" width=\"64\" height=\"64\">");
+            }
+            html.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do ")
+                    .append("eiusmod tempor &amp; incididunt ut labore et dolore.</td></tr>\n");
+            if (i % 50 == 49 || i == links - 1) {
+                html.append("</table></div>\n");
+            }
+        }
+        html.append("<script src=\"/js/site.js\"></script>\n</body></html>\n");
+        return html.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,100 @@
+package edu.vanderbilt.imagecrawler.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import edu.vanderbilt.imagecrawler.utils.DiskVisitedSet;
+import edu.vanderbilt.imagecrawler.utils.VisitedSet;
+
+/**
+ * Measures how long each of the sets that crawlers use to record
+ * visited uris takes to record a large crawl. Each distinct uri is
+ * offered four times, like a crawl that finds most pages through
+ * several links. Each invocation fills a new set, so the benchmark
+ * runs in single shot mode. Run it with the GC profiler to see how
+ * much each set allocates, e.g.
+ * <pre>
+ *     ./gradlew :image-crawler:jmh -Pjmh='VisitedSet -prof gc'
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VisitedSetBenchmark {
+    private static final int OFFERS_PER_URI = 4;
+
+    @Param({"STRINGS", "FINGERPRINTS", "BLOOM", "DISK"})
+    public String type;
+
+    @Param({"1000000"})
+    public int uris;
+
+    /**
+     * The in-memory buffer size of the DISK set.
+     */
+    @Param({"262144"})
+    public int spillThreshold;
+
+    private File mDir;
+
+    private VisitedSet mVisited;
+
+    @Setup(Level.Invocation)
+    public void setup() throws IOException {
+        mDir = Files.createTempDirectory("visited").toFile();
+        mVisited = type.equals("DISK")
+                ? new DiskVisitedSet(mDir, spillThreshold, uris, true)
+                : VisitedSet.Factory.newVisitedSet(VisitedSet.Type.valueOf(type), uris, true);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        if (mVisited instanceof DiskVisitedSet) {
+            ((DiskVisitedSet) mVisited).close();
+        }
+        FileUtils.deleteQuietly(mDir);
+    }
+
+    /**
+     * @return The number of uris added to the set.
+     */
+    @Benchmark
+    public int putIfAbsent() {
+        int added = 0;
+        for (int i = 0; i < uris; i++) {
+            // Revisit recent uris, which are the most common
+            // duplicates in a breadth-first crawl.
+            for (int offer = 0; offer < OFFERS_PER_URI; offer++) {
+                int index = Math.max(0, i - offer * 1000);
+                if (mVisited.putIfAbsent(uri(offer == 0 ? i : index))) {
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    private static String uri(int i) {
+        return "http://host" + (i % 100) + ".example.com/section" + (i / 1000) + "/page-" + i + ".html";
+    }
+}
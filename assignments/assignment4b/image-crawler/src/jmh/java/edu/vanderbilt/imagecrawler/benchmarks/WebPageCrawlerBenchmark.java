@@ -0,0 +1,96 @@
+package edu.vanderbilt.imagecrawler.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import edu.vanderbilt.imagecrawler.platform.JavaPlatform;
+import edu.vanderbilt.imagecrawler.platform.Platform;
+import edu.vanderbilt.imagecrawler.utils.Crawler;
+import edu.vanderbilt.imagecrawler.utils.WebPageCrawler;
+
+/**
+ * Measures fetching and parsing every page of the local web-pages
+ * corpus (found in the working directory) with {@link
+ * WebPageCrawler#getPage(String)} and extracting its hyperlinks and
+ * images, either as streams or as the older arrays, with each page
+ * parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebPageCrawlerBenchmark {
+    @Param({"JSOUP", "STREAMING"})
+    public WebPageCrawler.Parser parser;
+
+    private WebPageCrawler mCrawler;
+
+    private List<String> mUris;
+
+    @Setup
+    public void setup() {
+        File dir = new File(Platform.LOCAL_WEB_PAGES_DIR_NAME);
+        mUris = new ArrayList<>();
+        findPages(dir, dir, mUris);
+        if (mUris.isEmpty()) {
+            throw new IllegalStateException("No pages found in " + dir.getAbsolutePath());
+        }
+
+        mCrawler = WebPageCrawler.Factory.newWebPageCrawler(
+                parser, new JavaPlatform()::mapUriToInputStream);
+    }
+
+    @Benchmark
+    public void getPage(Blackhole blackhole) {
+        for (String uri : mUris) {
+            Crawler.Page page = mCrawler.getPage(uri);
+            page.streamPageElementsAsStrings(Crawler.Type.PAGE).forEach(blackhole::consume);
+            page.streamPageElementsAsUris(Crawler.Type.IMAGE).forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void getPageArrays(Blackhole blackhole) {
+        for (String uri : mUris) {
+            Crawler.Page page = mCrawler.getPage(uri);
+            blackhole.consume(page.getPageElementsAsStrings(Crawler.Type.PAGE));
+            blackhole.consume(page.getPageElementsAsUris(Crawler.Type.IMAGE));
+        }
+    }
+
+    /**
+     * Adds the project root uri of each html page below {@code dir}.
+     */
+    private static void findPages(File root, File dir, List<String> uris) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+
+        for (File child : children) {
+            if (child.isDirectory()) {
+                findPages(root, child, uris);
+            } else if (child.getName().endsWith(".html")) {
+                String path = root.toURI().relativize(child.toURI()).getPath();
+                uris.add(Platform.PROJECT_URI_PREFIX + "/" + path);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * Creates caches in temporary directories so that benchmarks never
+ * load or modify the application's cache (i.e., the JavaCache
+ * singleton and its "./image-cache" directory and index).
+ */
+final class BenchmarkCaches {
+    private BenchmarkCaches() {
+    }
+
+    /**
+     * Creates a cache (and its index) in a new temporary directory.
+     *
+     * @param options The cache storage options; the index file is
+     *                placed in the temporary directory.
+     * @return A new cache.
+     */
+    static Cache newCache(CacheOptions.Builder options) {
+        try {
+            File dir = Files.createTempDirectory("jmh-cache").toFile();
+            return new Cache(new File(dir, "image-cache"),
+                             options.indexFile(new File(dir, "image-cache.index")).build(),
+                             false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes a cache created by {@link #newCache} and deletes its
+     * temporary directory.
+     */
+    static void delete(Cache cache) {
+        try {
+            cache.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        FileUtils.deleteQuietly(cache.getCacheDir().getParentFile());
+    }
+}
@@ -0,0 +1,96 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Cache.addItem() and Cache.getItem() calls made for
+ * every image during a crawl.  The benchmark uses a cache (with an
+ * index, like the crawler's) in a temporary directory that is
+ * deleted when the benchmark finishes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+    private static final String TAG = "jmh_cache_benchmark";
+
+    private static final int KEYS = 1024;
+
+    private Cache mCache;
+
+    private String[] mUris;
+
+    private int mNext;
+
+    @Setup
+    public void setup() {
+        mCache = BenchmarkCaches.newCache(CacheOptions.newBuilder());
+        mUris = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            mUris[i] = "http://example.com/images/image" + i + ".png";
+            mCache.addItem(mUris[i], TAG);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkCaches.delete(mCache);
+    }
+
+    private String nextUri() {
+        mNext = (mNext + 1) % KEYS;
+        return mUris[mNext];
+    }
+
+    @Benchmark
+    public Cache.Item getItem() {
+        return mCache.getItem(nextUri(), TAG);
+    }
+
+    /**
+     * addItem() for an item that is already cached, which is the
+     * common case when a crawl is rerun.
+     */
+    @Benchmark
+    public boolean addExistingItem() {
+        return mCache.addItem(nextUri(), TAG);
+    }
+
+    /**
+     * addItem() for a new item, which also creates its empty cache
+     * file.  The item is removed again so that each invocation adds
+     * a new item.
+     */
+    @Benchmark
+    public boolean addNewItem(NewItemState state) {
+        boolean added = mCache.addItem(state.mUri, TAG);
+        mCache.remove(mCache.getItem(state.mUri, TAG).getKey());
+        return added;
+    }
+
+    @State(Scope.Thread)
+    public static class NewItemState {
+        String mUri;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            mUri = "http://example.com/new/" + System.nanoTime() + ".png";
+        }
+    }
+}
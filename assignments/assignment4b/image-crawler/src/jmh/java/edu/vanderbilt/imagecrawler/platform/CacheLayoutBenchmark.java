@@ -0,0 +1,167 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long each cache layout takes to create, look up and
+ * list (as a full cache rebuild does) a large number of empty items.
+ * Every 1000th key is longer than the file name limit of common file
+ * systems, and the items that can't be created are counted. Each
+ * invocation handles all the items, so the benchmark runs in single
+ * shot mode, e.g.
+ * <pre>
+ *     ./gradlew :image-crawler:jmh -Pjmh='CacheLayout -p items=1000000'
+ * </pre>
+ * The items are created in the system temp directory, which can be
+ * changed with {@code -jvmArgs -Djava.io.tmpdir=<dir>}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CacheLayoutBenchmark {
+    @Param({"FLAT", "HASHED"})
+    public String layoutType;
+
+    @Param({"100000"})
+    public int items;
+
+    private CacheLayout mLayout;
+
+    private List<String> mKeys;
+
+    /**
+     * The keys in random lookup order.
+     */
+    private List<String> mShuffled;
+
+    /**
+     * A directory containing all the items, which is used by the
+     * lookup and list benchmarks.
+     */
+    private File mDir;
+
+    @Setup
+    public void setup() throws IOException {
+        mLayout = Cache.newCacheLayout(CacheLayout.Type.valueOf(layoutType));
+        mKeys = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            String uri = "www.example.com/images/" + (i / 1000) + "/photo" + i + ".jpg";
+            if (i % 1000 == 999) {
+                uri += "?" + new String(new char[300]).replace('\0', 'q');
+            }
+            mKeys.add(Cache.NOTAG + "-" + URLEncoder.encode(uri, "UTF-8"));
+        }
+        mShuffled = new ArrayList<>(mKeys);
+        Collections.shuffle(mShuffled, new Random(0));
+
+        mDir = Files.createTempDirectory("layout").toFile();
+        int created = mKeys.size() - create(mLayout, mDir, mKeys);
+        int found = lookup();
+        int listed = list();
+        if (found != created || listed != found) {
+            throw new IllegalStateException(
+                    layoutType + ": created " + created
+                            + " found " + found + " listed " + listed);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(mDir);
+    }
+
+    /**
+     * Creates all the items in an empty directory.
+     *
+     * @return The number of items that could not be created.
+     */
+    @Benchmark
+    public int create(EmptyDir emptyDir) {
+        return create(mLayout, emptyDir.mDir, mKeys);
+    }
+
+    /**
+     * Checks that each item exists, in random order.
+     *
+     * @return The number of items found.
+     */
+    @Benchmark
+    public int lookup() {
+        int found = 0;
+        for (String key : mShuffled) {
+            if (mLayout.mapKeyToFile(mDir, key).exists()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Lists and decodes the keys of all items.
+     *
+     * @return The number of items listed.
+     */
+    @Benchmark
+    public int list() {
+        return Cache.traverseCache(mDir, file ->
+                !mLayout.isMetadataFile(file) && mLayout.mapFileToKey(file) != null ? 1 : 0);
+    }
+
+    private static int create(CacheLayout layout, File dir, List<String> keys) {
+        int failed = 0;
+        for (String key : keys) {
+            try {
+                if (!layout.createFile(layout.mapKeyToFile(dir, key), key)) {
+                    failed++;
+                }
+            } catch (IOException e) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * A new empty directory for each {@link #create} invocation.
+     */
+    @State(Scope.Thread)
+    public static class EmptyDir {
+        File mDir;
+
+        @Setup(Level.Invocation)
+        public void setup() throws IOException {
+            mDir = Files.createTempDirectory("layout").toFile();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            FileUtils.deleteQuietly(mDir);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the SYNCHRONIZED and CONCURRENT CacheMap implementations
+ * under contention from several threads performing the lookups and
+ * computeIfAbsent() calls that Cache.getItem() and Cache.addItem()
+ * make during a crawl.  Lives in the platform package because the
+ * map implementations are package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class CacheMapBenchmark {
+    private static final int KEYS = 4096;
+
+    @Param({"SYNCHRONIZED", "CONCURRENT"})
+    CacheMap.Type mapType;
+
+    /**
+     * The (empty) cache that owns the items.
+     */
+    private Cache mCache;
+
+    private CacheMap<String, Cache.Item> mMap;
+
+    private String[] mKeys;
+
+    private Cache.Item[] mItems;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        mCache = BenchmarkCaches.newCache(CacheOptions.newBuilder());
+        mKeys = new String[KEYS];
+        mItems = new Cache.Item[KEYS];
+
+        for (int i = 0; i < KEYS; i++) {
+            mKeys[i] = "jmh-http%3A%2F%2Fexample.com%2Fimage" + i + ".png";
+            mItems[i] = mCache.new Item(mKeys[i], null, i);
+        }
+    }
+
+    /**
+     * Starts each iteration with a half-filled map, since the
+     * computeIfAbsent() calls of the previous iteration filled it.
+     */
+    @Setup(Level.Iteration)
+    public void fillHalf() {
+        mMap = Cache.newCacheMap(mapType);
+        for (int i = 0; i < KEYS; i++) {
+            // Only populate half the keys so that computeIfAbsent()
+            // sees a mix of hits and (one time) misses.
+            if (i % 2 == 0) {
+                mMap.put(mKeys[i], mItems[i]);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkCaches.delete(mCache);
+    }
+
+    @Benchmark
+    public Cache.Item get() {
+        return mMap.get(mKeys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    public Cache.Item computeIfAbsent() {
+        int i = ThreadLocalRandom.current().nextInt(KEYS);
+        return mMap.computeIfAbsent(mKeys[i], key -> mItems[i]);
+    }
+
+    /**
+     * A crawl-like mix where most accesses are lookups.
+     */
+    @Benchmark
+    public Cache.Item mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(KEYS);
+        return random.nextInt(10) == 0
+                ? mMap.computeIfAbsent(mKeys[i], key -> mItems[i])
+                : mMap.get(mKeys[i]);
+    }
+}
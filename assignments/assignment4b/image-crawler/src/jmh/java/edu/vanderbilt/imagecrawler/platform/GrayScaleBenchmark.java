@@ -0,0 +1,94 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import edu.vanderbilt.imagecrawler.transforms.Transform;
+
+/**
+ * Measures JavaImage's grayscale transform for the raster layouts
+ * handled by the primitive fast path (INT_ARGB and 3BYTE_BGR) and one
+ * that falls back to the generic getRGB()/setRGB() path (BYTE_GRAY),
+ * both sequentially and split into parallel row bands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrayScaleBenchmark {
+    @Param({"INT_ARGB", "3BYTE_BGR", "BYTE_GRAY"})
+    String imageType;
+
+    @Param({"256", "2048"})
+    int size;
+
+    /**
+     * The image's parallel transform threshold, where 0 disables the
+     * parallel path.
+     */
+    @Param({"0", "1000"})
+    long parallelThreshold;
+
+    private JavaImage mImage;
+
+    /**
+     * The (empty) cache that owns the item the image reports its
+     * progress to.
+     */
+    private Cache mCache;
+
+    @Setup
+    public void setup() {
+        BufferedImage image = new BufferedImage(size, size, toBufferedImageType(imageType));
+        Random random = new Random(42);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+
+        mImage = new JavaImage(image);
+        mCache = BenchmarkCaches.newCache(CacheOptions.newBuilder());
+        mImage.mCacheItem = mCache.new Item("jmh-grayscale", null, 0);
+        mImage.setParallelTransformThreshold(parallelThreshold);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkCaches.delete(mCache);
+    }
+
+    @Benchmark
+    public PlatformImage grayScale() {
+        return mImage.applyTransform(Transform.Type.GRAY_SCALE_TRANSFORM, null);
+    }
+
+    private static int toBufferedImageType(String name) {
+        switch (name) {
+            case "INT_ARGB":
+                return BufferedImage.TYPE_INT_ARGB;
+            case "3BYTE_BGR":
+                return BufferedImage.TYPE_3BYTE_BGR;
+            case "BYTE_GRAY":
+                return BufferedImage.TYPE_BYTE_GRAY;
+            default:
+                throw new IllegalArgumentException("Unsupported image type: " + name);
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package edu.vanderbilt.imagecrawler.crawlers;
 
-import java.net.URL;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
@@ -8,6 +7,7 @@ import edu.vanderbilt.imagecrawler.crawlers.framework.ImageCrawler;
 import edu.vanderbilt.imagecrawler.platform.Cache;
 import edu.vanderbilt.imagecrawler.transforms.Transform;
 import edu.vanderbilt.imagecrawler.utils.Array;
+import edu.vanderbilt.imagecrawler.utils.CrawlUri;
 import edu.vanderbilt.imagecrawler.utils.Crawler;
 import edu.vanderbilt.imagecrawler.utils.FuturesCollector;
 import edu.vanderbilt.imagecrawler.utils.Image;
@@ -229,7 +229,7 @@ public class CompletableFuturesCrawler1
      * images were downloaded, stored, and transformed for all the
      * {@code urls} on the page
      */
-    private CompletableFuture<Integer> processImages(Array<URL> urls) {
+    private CompletableFuture<Integer> processImages(Array<CrawlUri> urls) {
         // Return a completable future containing the # of images that
         // were downloaded, stored, and transformed.  This method
         // should contain one or more streams that use aggregate
@@ -269,7 +269,7 @@ public class CompletableFuturesCrawler1
      * and return a CompletableFuture that completes when the image
      * finishes being downloaded and stored in the cache.
      */
-    private CompletableFuture<Image> downloadAndStoreImageAsync(URL url) {
+    private CompletableFuture<Image> downloadAndStoreImageAsync(CrawlUri url) {
         // Asynchronously download/store an Image from the url
         // parameter.
         return CompletableFuture.supplyAsync(() -> getOrDownloadImage(url));
@@ -0,0 +1,280 @@
+package edu.vanderbilt.imagecrawler.crawlers;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import edu.vanderbilt.imagecrawler.crawlers.framework.ImageCrawler;
+import edu.vanderbilt.imagecrawler.utils.Array;
+import edu.vanderbilt.imagecrawler.utils.BoundedFutures;
+import edu.vanderbilt.imagecrawler.utils.CrawlUri;
+import edu.vanderbilt.imagecrawler.utils.Crawler;
+import edu.vanderbilt.imagecrawler.utils.ExceptionUtils;
+import edu.vanderbilt.imagecrawler.utils.FuturesCollector;
+import edu.vanderbilt.imagecrawler.utils.Image;
+
+import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.PAGE;
+
+/**
+ * This implementation strategy uses Java 8 completable futures and
+ * two dedicated thread pools (rather than the common fork-join pool)
+ * to perform an "image crawl" starting from a root Uri.
+ * <p>
+ * Blocking operations (fetching pages and downloading images) run in
+ * a bounded I/O stage and image transforms run in a CPU stage that
+ * is sized to the number of cores.  The I/O stage uses one virtual
+ * thread per request when the JDK supports them (limited by a
+ * semaphore to the configured I/O pool size), and otherwise falls
+ * back to a fixed-size thread pool.  Unlike the strategies that rely
+ * on BlockingTask.callInManagedBlock(), the number of threads never
+ * grows beyond the configured pool sizes.
+ */
+public class DedicatedExecutorsCrawler
+       extends ImageCrawler {
+    /**
+     * Stores a completed future with value of 0.
+     */
+    private final CompletableFuture<Integer> mZero =
+        CompletableFuture.completedFuture(0);
+
+    /**
+     * Executor that runs blocking page fetches and image downloads.
+     */
+    private ExecutorService mIoExecutor;
+
+    /**
+     * Limits the number of concurrent I/O requests when the I/O
+     * executor creates a new (virtual) thread per request, or null
+     * when the I/O executor is a fixed-size pool.
+     */
+    private Semaphore mIoPermits;
+
+    /**
+     * Executor that runs CPU-bound image transforms.
+     */
+    private ExecutorService mCpuExecutor;
+
+    /**
+     * Limits the number of images in flight across all the pages
+     * being crawled.
+     */
+    private BoundedFutures.Limiter mImageLimiter;
+
+    /**
+     * Perform the web crawl.
+     *
+     * @param pageUri The URL that we're crawling at this point
+     * @param depth The current depth of the recursive processing
+     * @return The number of images downloaded/stored.
+     */
+    @Override
+    protected int performCrawl(String pageUri,
+                               int depth) {
+        mCpuExecutor = Executors.newFixedThreadPool
+            (mCpuPoolSize, newThreadFactory("crawler-cpu-"));
+        mIoExecutor = newIoExecutor();
+        mImageLimiter = new BoundedFutures.Limiter(mImagePermits);
+
+        try {
+            // Perform the crawl asynchronously, wait until all the
+            // processing is done, and return the result.
+            return performCrawlAsync(pageUri, depth).join();
+        } finally {
+            mIoExecutor.shutdownNow();
+            mCpuExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Perform the web crawl by using completable futures to
+     * asynchronously (1) download/store images on this page and (2)
+     * crawl other hyperlinks accessible via this page.
+     *
+     * @param pageUri The URL that we're crawling at this point
+     * @param depth The current depth of the recursive processing
+     * @return A future to the the number of images downloaded/stored
+     */
+    private CompletableFuture<Integer> performCrawlAsync(String pageUri,
+                                                         int depth) {
+        throwExceptionIfCancelled();
+
+        log(">> Depth: " + depth + " [" + pageUri + "]" + " (" + Thread.currentThread().getId() + ")");
+
+        // Return 0 if we've reached the depth limit of the web
+        // crawling.
+        if (depth > mMaxDepth) {
+            log("Exceeded max depth of " + mMaxDepth);
+            return mZero;
+        }
+
+        // Atomically check to see if we've already visited this URL
+        // and add the new url to the cache we don't try to revisit
+        // it again unnecessarily.
+        else if (!mUniqueUris.putIfAbsent(pageUri)) {
+            log("Already processed " + pageUri);
+
+            // Return 0 if we've already examined this url.
+            return mZero;
+        } else {
+            // Fetch the page in the I/O stage and then concurrently
+            // process its images and crawl its hyperlinks.
+            return supplyIoAsync(() -> mWebPageCrawler.getPage(pageUri))
+                .thenCompose(page ->
+                             processImages(getImagesOnPage(page))
+                             .thenCombine(crawlHyperLinksOnPage(page,
+                                                                depth + 1),
+                                          Integer::sum))
+                .exceptionally(e -> {
+                        // If cancelled just rethrow the exception.
+                        if (e instanceof Exception) {
+                            ExceptionUtils.rethrowIfCancelled((Exception) e);
+                        }
+
+                        System.err.println("Exception for '"
+                                           + pageUri
+                                           + "': "
+                                           + e.getMessage());
+                        return 0;
+                    });
+        }
+    }
+
+    /**
+     * Recursively crawl through hyperlinks that are in a {@code
+     * page}.
+     *
+     * @param page The page containing HTML
+     * @param depth The depth of the level of web page traversal
+     * @return A completable future to an integer that counts how many
+     *         images were in each hyperlink on the page
+     */
+    private CompletableFuture<Integer> crawlHyperLinksOnPage(Crawler.Page page,
+                                                             int depth) {
+        return page
+            .streamPageElementsAsStrings(PAGE)
+            .map(url -> performCrawlAsync(url, depth))
+            .collect(FuturesCollector.toFuture())
+            .thenApply(counts -> counts
+                       .stream()
+                       .mapToInt(Integer::intValue)
+                       .sum());
+    }
+
+    /**
+     * Download, store, and transform each image in the {@code urls}
+     * array, downloading in the I/O stage and transforming in the CPU
+     * stage.  At most {@code mImagePermits} images of all the pages
+     * being crawled are in flight at once, so concurrently crawled
+     * pages with many images don't hold every decoded image in
+     * memory at the same time.
+     *
+     * @param urls Array of urls corresponding to images on the page
+     * @return A completable future to an integer that counts how many
+     *         images were downloaded, stored, and transformed
+     */
+    private CompletableFuture<Integer> processImages(Array<CrawlUri> urls) {
+        return BoundedFutures
+            .sum(urls.stream(),
+                 mImageLimiter,
+                 url -> supplyIoAsync(() -> getOrDownloadImage(url))
+                 .thenCompose(this::transformImageAsync));
+    }
+
+    /**
+     * Apply all the configured transforms to {@code image} in the CPU
+     * stage.
+     *
+     * @param image An image that's been downloaded and stored (or
+     *              null if the download failed)
+     * @return A completable future to the number of transformed
+     *         images
+     */
+    private CompletableFuture<Integer> transformImageAsync(Image image) {
+        if (image == null) {
+            return mZero;
+        }
+
+        return mTransforms
+            .stream()
+            // Only apply transforms whose result is not already in
+            // the cache.
+            .filter(transform -> createNewCacheItem(image, transform))
+            .map(transform -> CompletableFuture
+                 .supplyAsync(() -> applyTransform(transform, image),
+                              mCpuExecutor))
+            .collect(FuturesCollector.toFuture())
+            .thenApply(images -> (int) images
+                       .stream()
+                       .filter(result -> result != null)
+                       .count());
+    }
+
+    /**
+     * Runs the blocking {@code supplier} in the I/O stage.
+     *
+     * @param supplier A supplier that performs blocking I/O
+     * @return A completable future to the supplier's result
+     */
+    private <T> CompletableFuture<T> supplyIoAsync(Supplier<T> supplier) {
+        if (mIoPermits == null) {
+            return CompletableFuture.supplyAsync(supplier, mIoExecutor);
+        }
+
+        // Each request gets its own (virtual) thread, so bound the
+        // number of requests that may run concurrently.
+        return CompletableFuture.supplyAsync(() -> {
+                mIoPermits.acquireUninterruptibly();
+                try {
+                    return supplier.get();
+                } finally {
+                    mIoPermits.release();
+                }
+            }, mIoExecutor);
+    }
+
+    /**
+     * Factory method that creates the I/O stage executor, which uses
+     * virtual threads if they are requested and supported by the JDK
+     * and otherwise a fixed-size thread pool.
+     */
+    private ExecutorService newIoExecutor() {
+        if (mUseVirtualThreads) {
+            try {
+                // Use reflection since virtual threads are not
+                // available in all the JDKs this project targets.
+                Method factory = Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor");
+                ExecutorService executor =
+                    (ExecutorService) factory.invoke(null);
+                mIoPermits = new Semaphore(mIoPoolSize);
+                log("Using virtual threads for I/O (limit " + mIoPoolSize + ")");
+                return executor;
+            } catch (Exception e) {
+                log("Virtual threads are not supported: " + e);
+            }
+        }
+
+        mIoPermits = null;
+        log("Using a fixed pool of " + mIoPoolSize + " I/O threads");
+        return Executors.newFixedThreadPool(mIoPoolSize,
+                                            newThreadFactory("crawler-io-"));
+    }
+
+    /**
+     * @return A thread factory that creates named daemon threads.
+     */
+    private static ThreadFactory newThreadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable,
+                                       prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
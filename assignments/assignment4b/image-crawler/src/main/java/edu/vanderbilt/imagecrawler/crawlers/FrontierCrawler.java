@@ -0,0 +1,297 @@
+package edu.vanderbilt.imagecrawler.crawlers;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import edu.vanderbilt.imagecrawler.crawlers.framework.ImageCrawler;
+import edu.vanderbilt.imagecrawler.transforms.Transform;
+import edu.vanderbilt.imagecrawler.utils.Array;
+import edu.vanderbilt.imagecrawler.utils.CrawlUri;
+import edu.vanderbilt.imagecrawler.utils.CrawlFrontier;
+import edu.vanderbilt.imagecrawler.utils.Crawler;
+import edu.vanderbilt.imagecrawler.utils.DiskVisitedSet;
+import edu.vanderbilt.imagecrawler.utils.ExceptionUtils;
+import edu.vanderbilt.imagecrawler.utils.Image;
+import edu.vanderbilt.imagecrawler.utils.UriUtils;
+import edu.vanderbilt.imagecrawler.utils.VisitedSet;
+
+import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.PAGE;
+
+/**
+ * This implementation strategy replaces the recursive crawl of the
+ * other strategies with an explicit {@link CrawlFrontier} that a
+ * fixed pool of worker threads drains to perform an "image crawl"
+ * starting from a root Uri.
+ * <p>
+ * Each worker repeatedly takes the best scored page from the
+ * frontier (by default the shallowest), queues the page's unvisited
+ * hyperlinks, and then downloads, stores, and transforms the page's
+ * images.  The frontier hands out at most {@code mMaxRequestsPerHost}
+ * pages of the same host at a time, and the amount of in-flight work
+ * never exceeds one page per worker.  Since hyperlinks are queued
+ * before a page's images are processed, idle workers can start on
+ * them right away.
+ * <p>
+ * Images are often served by other hosts than their pages, so every
+ * fetch (of a page or of an image that isn't cached yet) also takes
+ * one of {@code mMaxRequestsPerHost} permits of its own host.  A
+ * host therefore never sees more than that many concurrent requests
+ * from the crawl, no matter how many workers fetch from it.
+ * <p>
+ * When a spill directory is configured, the crawl keeps its state on
+ * disk rather than on the heap: the frontier holds at most {@code
+ * mSpillThreshold} queued pages in memory, and visited uris are
+ * recorded in a {@link DiskVisitedSet} instead of {@code
+ * mUniqueUris}, so heap use stays flat no matter how many pages are
+ * crawled.
+ */
+public class FrontierCrawler
+       extends ImageCrawler {
+    /**
+     * Perform the web crawl.
+     *
+     * @param pageUri The URL that we're crawling at this point
+     * @param depth The current depth of the recursive processing
+     * @return The number of images downloaded/stored.
+     */
+    @Override
+    protected int performCrawl(String pageUri,
+                               int depth) {
+        throwExceptionIfCancelled();
+
+        if (depth > mMaxDepth) {
+            log("Exceeded max depth of " + mMaxDepth);
+            return 0;
+        }
+
+        File spillDir = null;
+        DiskVisitedSet diskVisited = null;
+        CrawlFrontier frontier;
+        VisitedSet visited;
+        if (mSpillDir != null) {
+            spillDir = newSpillDir();
+            diskVisited = new DiskVisitedSet(new File(spillDir, "visited"),
+                                             mSpillThreshold,
+                                             mExpectedUris,
+                                             mCanonicalUris);
+            visited = diskVisited;
+            frontier = new CrawlFrontier(mFrontierScorer,
+                                         mMaxRequestsPerHost,
+                                         new File(spillDir, "frontier"),
+                                         mSpillThreshold);
+        } else {
+            visited = mUniqueUris;
+            frontier = new CrawlFrontier(mFrontierScorer, mMaxRequestsPerHost);
+        }
+
+        AtomicInteger images = new AtomicInteger();
+        Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+        ExecutorService workers = Executors.newFixedThreadPool
+            (mIoPoolSize, newThreadFactory("crawler-frontier-"));
+
+        try {
+            if (!visited.putIfAbsent(pageUri)) {
+                log("Already processed " + pageUri);
+                return 0;
+            }
+            frontier.add(pageUri, depth);
+
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < mIoPoolSize; i++) {
+                futures.add(workers.submit(() -> drain(frontier, visited, hostPermits, images)));
+            }
+
+            // Wait until the frontier is empty and all workers are
+            // idle (or one of them failed).
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            return images.get();
+        } catch (ExecutionException e) {
+            // Rethrow the worker's exception (e.g. a cancellation).
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            frontier.close();
+            workers.shutdownNow();
+            if (diskVisited != null) {
+                log(diskVisited.toString());
+                diskVisited.close();
+                FileUtils.deleteQuietly(spillDir);
+            }
+        }
+    }
+
+    /**
+     * Crawls pages from the {@code frontier} until it is empty,
+     * fetching from each host only while holding one of its {@code
+     * hostPermits}, and adding the number of processed images to
+     * {@code images}.  If
+     * the crawl fails, the frontier is closed so that all the other
+     * workers stop as well.
+     */
+    private Void drain(CrawlFrontier frontier,
+                       VisitedSet visited,
+                       Map<String, Semaphore> hostPermits,
+                       AtomicInteger images) throws InterruptedException {
+        try {
+            CrawlFrontier.Task task;
+            while ((task = frontier.take()) != null) {
+                try {
+                    images.addAndGet(crawlPage(frontier, visited, hostPermits, task));
+                } finally {
+                    frontier.done(task);
+                }
+            }
+            return null;
+        } catch (RuntimeException | Error e) {
+            frontier.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Queue the unvisited hyperlinks on the {@code task}'s page and
+     * then download, store, and transform the page's images.
+     *
+     * @return The number of images processed
+     */
+    private int crawlPage(CrawlFrontier frontier,
+                          VisitedSet visited,
+                          Map<String, Semaphore> hostPermits,
+                          CrawlFrontier.Task task) {
+        throwExceptionIfCancelled();
+
+        log(">> Depth: " + task.depth + " [" + task.uri + "]" + " (" + Thread.currentThread().getId() + ")");
+
+        try {
+            // Get the HTML page associated with the task's uri.
+            Crawler.Page page = callWithHostPermit
+                (hostPermits, task.uri, () -> mWebPageCrawler.getPage(task.uri));
+
+            // Atomically check and record each hyperlink so that
+            // every page is queued only once.
+            if (task.depth < mMaxDepth) {
+                page.streamPageElementsAsStrings(PAGE)
+                    .filter(visited::putIfAbsent)
+                    .forEach(url -> frontier.add(url, task.depth + 1));
+            }
+
+            return processImages(getImagesOnPage(page), hostPermits);
+        } catch (Exception e) {
+            // If cancelled just rethrow the exception.
+            ExceptionUtils.rethrowIfCancelled(e);
+
+            System.err.println("Exception for '"
+                               + task.uri
+                               + "': "
+                               + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Download, store, and transform each image in the {@code urls}
+     * array.
+     *
+     * @param urls An array of URLs to images to process
+     * @param hostPermits The permits of each host fetched from
+     * @return A count of the number of images processed
+     */
+    private int processImages(Array<CrawlUri> urls,
+                              Map<String, Semaphore> hostPermits) {
+        int transformedImages = 0;
+
+        for (CrawlUri url : urls) {
+            // Only downloads need a permit of the image's host. An
+            // image cached concurrently is merely read while holding
+            // one.
+            Image rawImage = getCache().containsKey(url.toString(), null)
+                ? getOrDownloadImage(url)
+                : callWithHostPermit(hostPermits,
+                                     url.toString(),
+                                     () -> getOrDownloadImage(url));
+            if (rawImage == null) {
+                continue;
+            }
+
+            // Only apply transforms whose result is not already in
+            // the cache.
+            for (Transform transform : mTransforms) {
+                if (createNewCacheItem(rawImage, transform)
+                    && applyTransform(transform, rawImage) != null) {
+                    transformedImages++;
+                }
+            }
+        }
+
+        return transformedImages;
+    }
+
+    /**
+     * Calls {@code fetch} while holding one of the {@code
+     * mMaxRequestsPerHost} permits of {@code uri}'s host.  Waiting
+     * for a permit can't deadlock, since a permit is only held for
+     * a single fetch.
+     *
+     * @return The result of {@code fetch}
+     */
+    private <T> T callWithHostPermit(Map<String, Semaphore> hostPermits,
+                                     String uri,
+                                     Supplier<T> fetch) {
+        Semaphore permits = hostPermits.computeIfAbsent
+            (UriUtils.getHost(uri), key -> new Semaphore(mMaxRequestsPerHost, true));
+
+        permits.acquireUninterruptibly();
+        try {
+            return fetch.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return A new empty sub-directory of the spill directory for
+     * this crawl's state.
+     */
+    private File newSpillDir() {
+        try {
+            FileUtils.forceMkdir(mSpillDir);
+            return Files.createTempDirectory(mSpillDir.toPath(), "crawl").toFile();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return A thread factory that creates named daemon threads.
+     */
+    private static ThreadFactory newThreadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable,
+                                       prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,10 +1,9 @@
 package edu.vanderbilt.imagecrawler.crawlers;
 
-import java.net.URL;
-
 import edu.vanderbilt.imagecrawler.crawlers.framework.ImageCrawler;
 import edu.vanderbilt.imagecrawler.transforms.Transform;
 import edu.vanderbilt.imagecrawler.utils.Array;
+import edu.vanderbilt.imagecrawler.utils.CrawlUri;
 import edu.vanderbilt.imagecrawler.utils.Crawler;
 import edu.vanderbilt.imagecrawler.utils.ExceptionUtils;
 import edu.vanderbilt.imagecrawler.utils.Image;
@@ -122,11 +121,11 @@ public class SequentialLoopsCrawler
      * @param urls An array of URLs to images to process
      * @return A count of the number of images processed
      */
-    private int processImages(Array<URL> urls) {
+    private int processImages(Array<CrawlUri> urls) {
         // Create the results array.
         int transformedImages = 0;
 
-        for (URL url : urls) {
+        for (CrawlUri url : urls) {
             // Get the Image for this URL either (1) returning the
             // image from a local cache if it's been downloaded
             // already or (2) downloading the image via its URL and
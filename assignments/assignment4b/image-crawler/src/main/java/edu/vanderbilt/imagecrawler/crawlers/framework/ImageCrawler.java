@@ -1,9 +1,10 @@
 package edu.vanderbilt.imagecrawler.crawlers.framework;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.URL;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -13,18 +14,26 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import edu.vanderbilt.imagecrawler.crawlers.CompletableFuturesCrawler1;
+import edu.vanderbilt.imagecrawler.crawlers.DedicatedExecutorsCrawler;
+import edu.vanderbilt.imagecrawler.crawlers.FrontierCrawler;
 import edu.vanderbilt.imagecrawler.crawlers.SequentialLoopsCrawler;
 import edu.vanderbilt.imagecrawler.platform.Cache;
 import edu.vanderbilt.imagecrawler.platform.Controller;
+import edu.vanderbilt.imagecrawler.platform.HttpFetcher;
+import edu.vanderbilt.imagecrawler.platform.ImageEncoder;
+import edu.vanderbilt.imagecrawler.platform.ImageMemoryCache;
 import edu.vanderbilt.imagecrawler.platform.PlatformImage;
 import edu.vanderbilt.imagecrawler.transforms.Transform;
 import edu.vanderbilt.imagecrawler.transforms.TransformDecoratorWithImage;
 import edu.vanderbilt.imagecrawler.utils.Array;
 import edu.vanderbilt.imagecrawler.utils.ArrayCollector;
 import edu.vanderbilt.imagecrawler.utils.BlockingTask;
-import edu.vanderbilt.imagecrawler.utils.ConcurrentHashSet;
+import edu.vanderbilt.imagecrawler.utils.ByteBufferInputStream;
+import edu.vanderbilt.imagecrawler.utils.CrawlFrontier;
+import edu.vanderbilt.imagecrawler.utils.CrawlUri;
 import edu.vanderbilt.imagecrawler.utils.Crawler;
 import edu.vanderbilt.imagecrawler.utils.Image;
+import edu.vanderbilt.imagecrawler.utils.VisitedSet;
 import edu.vanderbilt.imagecrawler.utils.WebPageCrawler;
 
 /**
@@ -46,7 +55,7 @@ public abstract class ImageCrawler
     /**
      * A cache of unique URIs that have already been processed.
      */
-    protected ConcurrentHashSet<String> mUniqueUris;
+    protected VisitedSet mUniqueUris;
 
     /**
      * A web page crawler that parses web pages.
@@ -58,6 +67,61 @@ public abstract class ImageCrawler
      */
     protected int mMaxDepth;
 
+    /**
+     * The maximum number of concurrent I/O requests (from options).
+     */
+    protected int mIoPoolSize;
+
+    /**
+     * The number of transform threads (from options).
+     */
+    protected int mCpuPoolSize;
+
+    /**
+     * Whether I/O may run in virtual threads (from options).
+     */
+    protected boolean mUseVirtualThreads;
+
+    /**
+     * The maximum number of in-flight images across all pages (from
+     * options).
+     */
+    protected int mImagePermits;
+
+    /**
+     * Maximum number of concurrent requests per host (used by
+     * frontier based crawlers).
+     */
+    protected int mMaxRequestsPerHost;
+
+    /**
+     * Scores the pages queued by frontier based crawlers.
+     */
+    protected CrawlFrontier.Scorer mFrontierScorer;
+
+    /**
+     * Directory for the crawl state that doesn't fit in memory (or
+     * null), and the amount of that state kept in memory.
+     */
+    protected File mSpillDir;
+    protected int mSpillThreshold;
+
+    /**
+     * Number of distinct uris the crawl is expected to visit.
+     */
+    protected long mExpectedUris;
+
+    /**
+     * Whether visited uris are recorded in canonical form.
+     */
+    protected boolean mCanonicalUris;
+
+    /**
+     * The encoder used to write downloaded images and transforms
+     * that don't have their own encoder (from options).
+     */
+    protected ImageEncoder mOutputEncoder;
+
     /**
      * The root URL or pathname to start the search (from options).
      */
@@ -131,22 +195,58 @@ public abstract class ImageCrawler
         // The maximum depth for this crawl.
         mMaxDepth = controller.options.maxDepth;
 
+        // Pool sizes for crawlers that use dedicated executors.
+        mIoPoolSize = controller.options.ioPoolSize;
+        mCpuPoolSize = controller.options.cpuPoolSize;
+        mUseVirtualThreads = controller.options.virtualThreads;
+        mImagePermits = controller.options.imagePermits;
+
+        // Scheduling options for frontier based crawlers.
+        mMaxRequestsPerHost = controller.options.maxRequestsPerHost;
+        mFrontierScorer = controller.options.frontierScorer;
+        mSpillDir = controller.options.spillDir;
+        mSpillThreshold = controller.options.spillThreshold;
+        mExpectedUris = controller.options.expectedUris;
+        mCanonicalUris = controller.options.canonicalUris;
+
+        // The encoder used to write images to the cache.
+        mOutputEncoder = controller.options.outputEncoder;
+
         // A Function lambda the constructs a new platform
         // dependant image.
         mNewImageFunction = controller::newImage;
 
-        // Setup a new WebPageCrawler passing it the platform
-        // dependant url to input stream mapping function (used for
-        // access local web pages in app resources or assets).
+        // Setup a new WebPageCrawler that reads pages with the
+        // selected parser, passing it the platform dependant url to
+        // input stream mapping function (used for access local web
+        // pages in app resources or assets) and the platform's http
+        // fetcher.
         mWebPageCrawler =
-                new WebPageCrawler(controller::mapUriToInputStream);
+                WebPageCrawler.Factory.newWebPageCrawler(
+                        controller.options.pageParser,
+                        controller::mapUriToInputStream,
+                        controller.getHttpFetcher());
 
         // Use the cache implementation provided by the application's
         // controller.
         mImageCache = controller.getCache();
 
+        // Install (or remove) the in-memory tier of decoded images
+        // that sits in front of the file cache. An existing tier with
+        // the same budget is kept so that recrawls can reuse it.
+        long memoryCacheSize = controller.options.memoryCacheSize;
+        ImageMemoryCache memoryCache = mImageCache.getMemoryCache();
+        if (memoryCacheSize <= 0) {
+            mImageCache.setMemoryCache(null);
+        } else if (memoryCache == null
+                   || memoryCache.getMaxBytes() != memoryCacheSize) {
+            mImageCache.setMemoryCache(new ImageMemoryCache(memoryCacheSize));
+        }
+
         // Initialize the cache of processed Uris.
-        mUniqueUris = new ConcurrentHashSet<>();
+        mUniqueUris = VisitedSet.Factory.newVisitedSet(controller.options.visitedSet,
+                                                       mExpectedUris,
+                                                       mCanonicalUris);
 
         // Save controller for calling log method.
         mController = controller;
@@ -204,6 +304,15 @@ public abstract class ImageCrawler
                     + totalImages
                     + " total image(s)");
 
+            // Report the memory used to record visited uris.
+            log(mUniqueUris.toString());
+
+            // Report the in-memory tier statistics (if enabled).
+            ImageMemoryCache memoryCache = mImageCache.getMemoryCache();
+            if (memoryCache != null) {
+                log(memoryCache.toString());
+            }
+
             // Always reset the start time to 0 so that it can be
             // used as a flag to see if the crawler is currently
             // running. This allows a single crawler instance to
@@ -237,18 +346,16 @@ public abstract class ImageCrawler
     /**
      * Return an array of all the IMG SRC URLs in this document.
      */
-    protected Array<URL> getImagesOnPage(Crawler.Page page) {
+    protected Array<CrawlUri> getImagesOnPage(Crawler.Page page) {
         log("Getting images on page ...");
 
         // Return an array of all the IMG SRC URLs in this page.
         return page
-                // Select all the image elements in the page.
-                .getPageElementsAsUrls(Crawler.Type.IMAGE)
-
-                // Convert the elements to a stream.
-                .stream()
+                // Stream the image elements in the page.
+                .streamPageElementsAsUris(Crawler.Type.IMAGE)
 
-                // Remove duplicate image URL strings.
+                // Remove duplicate image uris (by string comparison,
+                // so no host names are resolved).
                 .distinct()
 
                 // Trigger intermediate operations and return an array.
@@ -259,7 +366,7 @@ public abstract class ImageCrawler
      * Factory method that retrieves the image associated with the @a
      * url and creates an Image to encapsulate it.
      */
-    private Image downloadImage(URL url) {
+    private Image downloadImage(CrawlUri url) {
         // Before downloading the next image, check for cancellation
         // and throw and exception if cancelled.
         throwExceptionIfCancelled();
@@ -273,6 +380,18 @@ public abstract class ImageCrawler
         try (InputStream inputStream =
                      mMapUriToInputStream.apply(url.toString())) {
 
+            // Web images are fetched with their response metadata. A
+            // text response (e.g. an HTML error page sent with a 200
+            // status) isn't decoded as an image.
+            if (inputStream instanceof HttpFetcher.Response) {
+                HttpFetcher.Response response = (HttpFetcher.Response) inputStream;
+                log("Fetched %s", response);
+                String contentType = response.getContentType();
+                if (contentType != null && contentType.startsWith("text/")) {
+                    throw new IOException("Not an image: " + response);
+                }
+            }
+
             // Get the reserved cache item.
             Cache.Item item = mImageCache.getItem(url.toString(), null);
             if (item == null) {
@@ -281,21 +400,30 @@ public abstract class ImageCrawler
 
             // Call platform dependant lambda image creating function to
             // create a new platform image from the input stream.
-            Image image = new Image(url,
-                    mNewImageFunction.apply(inputStream, item));
+            PlatformImage platformImage =
+                    mNewImageFunction.apply(inputStream, item);
+            Image image = new Image(url, platformImage);
 
             // Save the image into the cache.
             try (OutputStream outputStream =
                          item.getOutputStream(
                                  Cache.Operation.WRITE,
                                  image.size())) {
-                image.writeImage(outputStream);
+                item.setFormat(image.writeImage(outputStream, mOutputEncoder));
+            }
+
+            // Keep the decoded image in memory for later cache hits.
+            ImageMemoryCache memoryCache = mImageCache.getMemoryCache();
+            if (memoryCache != null) {
+                memoryCache.put(item.getKey(), platformImage);
             }
 
             return image;
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             // "Try-with-resources" will clean up the istream
-            // automatically.
+            // automatically. The platform mapping function reports
+            // fetch failures (e.g. timeouts and error statuses) as
+            // UncheckedIOExceptions.
 
             System.out.println("Error downloading url " + url + ": " + e);
             e.printStackTrace();
@@ -312,7 +440,7 @@ public abstract class ImageCrawler
      * This call ensures the common fork/join thread pool is expanded
      * to handle the blocking image download.
      */
-    private Image blockingDownload(URL url) {
+    private Image blockingDownload(CrawlUri url) {
         log("Performing blockingDownload: %s", url);
 
         return BlockingTask.callInManagedBlock(() -> downloadImage(url));
@@ -324,7 +452,11 @@ public abstract class ImageCrawler
     protected TransformDecoratorWithImage
     makeTransformDecoratorWithImage(Transform transform,
                                     Image image) {
-        return new TransformDecoratorWithImage(transform, image);
+        return new TransformDecoratorWithImage(transform,
+                                               image,
+                                               transform.getEncoder() != null
+                                                   ? transform.getEncoder()
+                                                   : mOutputEncoder);
     }
 
     /**
@@ -343,6 +475,21 @@ public abstract class ImageCrawler
         Cache.Item item = mImageCache.getItem(
                 image.getSourceUrl().toString(), transform.getName());
 
+        // If identical image contents have already been transformed
+        // by this transform (under another url), the cache makes the
+        // item share that result, which then only needs to be decoded.
+        if (item != null && mImageCache.reuseTransformed(item)) {
+            log("Reusing transformed image contents for: %s", image.getSourceUrl());
+            try (InputStream inputStream =
+                         new ByteBufferInputStream(item.readBuffer())) {
+                return new Image(image.getSourceUrl(),
+                                 mNewImageFunction.apply(inputStream, item));
+            } catch (IOException e) {
+                log("Reading reused transform failed: " + image.getSourceUrl());
+                return null;
+            }
+        }
+
         return makeTransformDecoratorWithImage(transform, image).run(item);
     }
 
@@ -393,7 +540,7 @@ public abstract class ImageCrawler
      *
      * @return true if the {@code url} already exists in file system, else false.
      */
-    private boolean createNewCacheItem(URL url,
+    private boolean createNewCacheItem(CrawlUri url,
                                        String cacheGroupId) {
 
         log("Checking if URL is cached: %s", url.toString());
@@ -417,7 +564,7 @@ public abstract class ImageCrawler
      *
      * @return The url to get from cache or by downloading.
      */
-    protected Image getOrDownloadImage(URL url) {
+    protected Image getOrDownloadImage(CrawlUri url) {
         log("Getting image: %s", url.toString());
 
         // Attempt to create a new cache item for this image. If a cache item
@@ -428,17 +575,39 @@ public abstract class ImageCrawler
         } else {
             // The image was already cached, so get the cached item.
             Cache.Item item = mImageCache.getItem(url.toString(), null);
+            if (item == null) {
+                // The item was evicted (or found to be stale) since it
+                // was looked up, so download the image again unless
+                // another thread has already started to.
+                log("Image %s was removed from the cache", url.toString());
+                return createNewCacheItem(url, null) ? blockingDownload(url) : null;
+            }
+
+            // Return the already decoded image if it's still in memory.
+            ImageMemoryCache memoryCache = mImageCache.getMemoryCache();
+            if (memoryCache != null) {
+                PlatformImage platformImage = memoryCache.get(item.getKey());
+                if (platformImage != null) {
+                    log("Image %s was already decoded in memory", url.toString());
+                    return new Image(url, platformImage);
+                }
+            }
 
             // Does the following:
-            // 1. Get the cached item's input stream.
-            // 2. Convert the input stream to a byte array.
-            // 3. Creates a platform dependant image from the byte array.
+            // 1. Reads (or memory maps) the cached item's bytes in one call.
+            // 2. Wraps the bytes in an input stream without copying them.
+            // 3. Creates a platform dependant image from the input stream.
             // 4. Decorates the the platform dependant image in an Image object.
-            // 5. The try block automatically will close the input stream.
-            // 6. Returns the Image decorator object or null if an exception occurred.
-            try (InputStream inputStream = item.getInputStream(Cache.Operation.READ)) {
+            // 5. Returns the Image decorator object or null if an exception occurred.
+            try (InputStream inputStream =
+                         new ByteBufferInputStream(item.readBuffer())) {
                 log("Image %s was already cached, loading image bytes ...", url.toString());
-                return new Image(url, mNewImageFunction.apply(inputStream, item));
+                PlatformImage platformImage =
+                        mNewImageFunction.apply(inputStream, item);
+                if (memoryCache != null) {
+                    memoryCache.put(item.getKey(), platformImage);
+                }
+                return new Image(url, platformImage);
             } catch (IOException e) {
                 log("Download image failed: " + url);
                 return null;
@@ -515,7 +684,9 @@ public abstract class ImageCrawler
      */
     public enum Type {
         SEQUENTIAL_LOOPS(SequentialLoopsCrawler.class),
-        COMPLETABLE_FUTURES1(CompletableFuturesCrawler1.class);
+        COMPLETABLE_FUTURES1(CompletableFuturesCrawler1.class),
+        DEDICATED_EXECUTORS(DedicatedExecutorsCrawler.class),
+        FRONTIER(FrontierCrawler.class);
 
         public final Class<? extends ImageCrawler> clazz;
 
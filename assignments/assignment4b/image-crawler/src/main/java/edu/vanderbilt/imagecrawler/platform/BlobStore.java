@@ -0,0 +1,340 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A content addressed store that keeps a single copy of each distinct
+ * item contents (a blob) no matter how many cache items contain it.
+ * Blobs are named by the SHA-1 digest of their contents (40 hex
+ * digits) and are spread over shard directories like the hashed cache
+ * layout, e.g. "3f/a2/3fa2...".
+ * <p>
+ * The store counts the references to each blob and deletes a blob
+ * when its last reference is released. Reference counts are not
+ * persisted; the cache rebuilds them at startup from the digests
+ * recorded for its items. The store also remembers which blob was
+ * produced by transforming which source blob with which transform, so
+ * that a transform of contents that have already been transformed can
+ * reuse the existing result.
+ */
+class BlobStore {
+    /**
+     * Name of the directory holding blobs that are being written.
+     */
+    static final String TEMP_DIR = "tmp";
+
+    /**
+     * Length of a digest (hex SHA-1).
+     */
+    private static final int DIGEST_LENGTH = 40;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Directory containing the blob shards.
+     */
+    private final File mDir;
+
+    /**
+     * Directory holding blobs that are being written.
+     */
+    private final File mTempDir;
+
+    /**
+     * Number of references to each stored blob. All changes to a
+     * blob's count, and the creation and deletion of its file, are
+     * performed atomically for that blob by the map's compute methods.
+     */
+    private final Map<String, Integer> mReferences = new ConcurrentHashMap<>();
+
+    /**
+     * Digest of the blob produced by applying a transform to a
+     * source blob, keyed by {@link #derivedKey}.
+     */
+    private final Map<String, String> mDerived = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param dir Directory containing the blobs.
+     */
+    BlobStore(File dir) {
+        mDir = dir;
+        mTempDir = new File(dir, TEMP_DIR);
+    }
+
+    /**
+     * Prepares the store for use by a newly loaded cache, discarding
+     * all references and any blobs left partially written by a
+     * previous run.
+     */
+    synchronized void load() throws IOException {
+        mReferences.clear();
+        mDerived.clear();
+        FileUtils.forceMkdir(mDir);
+        if (mTempDir.isDirectory()) {
+            FileUtils.cleanDirectory(mTempDir);
+        }
+        FileUtils.forceMkdir(mTempDir);
+    }
+
+    /**
+     * @return The file containing the blob with the passed {@code digest}.
+     */
+    File getFile(String digest) {
+        File shard = new File(new File(mDir, digest.substring(0, 2)),
+                              digest.substring(2, 4));
+        return new File(shard, digest);
+    }
+
+    /**
+     * @return A new empty file that a blob can be written to before
+     * it is {@link #store stored}.
+     */
+    File newTempFile() throws IOException {
+        return File.createTempFile("blob", ".tmp", mTempDir);
+    }
+
+    /**
+     * @return A new digest for computing the digest of blob contents.
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return The lower case hex string of a digest.
+     */
+    static String toHex(byte[] digest) {
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * @return true if {@code value} is a well formed digest.
+     */
+    static boolean isDigest(@Nullable String value) {
+        if (value == null || value.length() != DIGEST_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores the contents of {@code temp} as the blob with the passed
+     * {@code digest} and adds a reference to it. If the blob already
+     * exists, {@code temp} is simply deleted.
+     *
+     * @param temp   A file returned by {@link #newTempFile}.
+     * @param digest The digest of the file's contents.
+     */
+    void store(File temp, String digest) throws IOException {
+        File file = getFile(digest);
+        IOException[] failure = new IOException[1];
+        mReferences.compute(digest, (key, count) -> {
+            if (count != null) {
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+                return count + 1;
+            }
+
+            try {
+                FileUtils.forceMkdir(file.getParentFile());
+                // An unreferenced blob left by a crash is replaced.
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Unable to store blob " + file);
+                }
+            } catch (IOException e) {
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+                failure[0] = e;
+                return null;
+            }
+            return 1;
+        });
+
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    /**
+     * Adds a reference to a blob that was stored by a previous run.
+     * Used while the cache is loading its items.
+     */
+    void addReference(String digest) {
+        mReferences.merge(digest, 1, Integer::sum);
+    }
+
+    /**
+     * Adds a reference to an existing blob.
+     *
+     * @return false if the blob does not exist.
+     */
+    boolean acquire(String digest) {
+        return mReferences.computeIfPresent(digest, (key, count) -> count + 1) != null;
+    }
+
+    /**
+     * Releases a reference to a blob, deleting the blob if it was
+     * the last reference.
+     */
+    void release(String digest) {
+        mReferences.computeIfPresent(digest, (key, count) -> {
+            if (count > 1) {
+                return count - 1;
+            }
+            //noinspection ResultOfMethodCallIgnored
+            getFile(digest).delete();
+            return null;
+        });
+    }
+
+    /**
+     * @return The number of references to a blob (0 if it does not exist).
+     */
+    int getReferenceCount(String digest) {
+        Integer count = mReferences.get(digest);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * @return The number of stored blobs.
+     */
+    int getBlobCount() {
+        return mReferences.size();
+    }
+
+    /**
+     * Records that applying the transform named {@code tag} to the
+     * source blob {@code sourceDigest} produced the blob {@code digest}.
+     */
+    void putDerived(String sourceDigest, String tag, String digest) {
+        mDerived.put(derivedKey(sourceDigest, tag), digest);
+    }
+
+    /**
+     * Looks up the result of applying the transform named {@code tag}
+     * to the source blob {@code sourceDigest} and adds a reference to
+     * it.
+     *
+     * @return The digest of the result or null if there is none.
+     */
+    @Nullable
+    String acquireDerived(String sourceDigest, String tag) {
+        String key = derivedKey(sourceDigest, tag);
+        String digest = mDerived.get(key);
+        if (digest == null) {
+            return null;
+        }
+
+        if (!acquire(digest)) {
+            // The result has since been deleted.
+            mDerived.remove(key, digest);
+            return null;
+        }
+        return digest;
+    }
+
+    /**
+     * Deletes all blob files that have no references, which can be
+     * left behind if the application terminates after storing a blob
+     * but before recording the item that refers to it.
+     *
+     * @return The number of deleted blobs.
+     */
+    int sweep() {
+        return Cache.traverseCache(mDir, file -> {
+            if (file.getParentFile().equals(mTempDir)
+                    || mReferences.containsKey(file.getName())) {
+                return 0;
+            }
+
+            AtomicBoolean deleted = new AtomicBoolean();
+            mReferences.compute(file.getName(), (key, count) -> {
+                if (count == null) {
+                    deleted.set(file.delete());
+                }
+                return count;
+            });
+            return deleted.get() ? 1 : 0;
+        });
+    }
+
+    /**
+     * Deletes all blobs and references.
+     */
+    synchronized void clear() throws IOException {
+        mReferences.clear();
+        mDerived.clear();
+        FileUtils.cleanDirectory(mDir);
+        FileUtils.forceMkdir(mTempDir);
+    }
+
+    /**
+     * Reads a reference file written by {@link #writeReference}.
+     *
+     * @return The referenced digest followed by the source digest (or
+     * null), or null if the file is not a reference file.
+     */
+    @Nullable
+    static String[] readReference(File file) throws IOException {
+        // A reference is at most two digests, a space and a newline.
+        if (file.length() > DIGEST_LENGTH * 2 + 2) {
+            return null;
+        }
+
+        String[] digests =
+                FileUtils.readFileToString(file, StandardCharsets.US_ASCII).trim().split(" ");
+        if (digests.length > 2
+                || !isDigest(digests[0])
+                || (digests.length == 2 && !isDigest(digests[1]))) {
+            return null;
+        }
+        return new String[]{digests[0], digests.length == 2 ? digests[1] : null};
+    }
+
+    /**
+     * Writes a reference file that records the blob holding an item's
+     * contents and the source blob that it was transformed from.
+     */
+    static void writeReference(File file,
+                               String digest,
+                               @Nullable String sourceDigest) throws IOException {
+        FileUtils.writeStringToFile(file,
+                                    sourceDigest != null
+                                    ? digest + " " + sourceDigest + "\n"
+                                    : digest + "\n",
+                                    StandardCharsets.US_ASCII);
+    }
+
+    private static String derivedKey(String sourceDigest, String tag) {
+        return sourceDigest + "/" + tag;
+    }
+}
@@ -3,6 +3,10 @@ package edu.vanderbilt.imagecrawler.platform;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -16,10 +20,15 @@ import java.io.UnsupportedEncodingException;
 import java.lang.ref.WeakReference;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
@@ -32,11 +41,22 @@ import edu.vanderbilt.imagecrawler.utils.Options;
  * to provide thread-safe cache operations. Supports observers that
  * are be notified when the state of any cached item changes.
  */
-public class Cache {
+public class Cache implements Closeable {
     /**
      * The Default tag when no tag is specified.
      */
     public static final String NOTAG = "__notag__";
+    /**
+     * Items at least this large are memory mapped by
+     * {@link Item#readBuffer()}; smaller items are read with a single
+     * pre-sized read.
+     */
+    public static final int MAP_THRESHOLD = 256 * 1024;
+    /**
+     * The maximum number of READ progress notifications sent for
+     * each {@link Item#readAllBytes()} call.
+     */
+    private static final int READ_PROGRESS_UPDATES = 4;
     /**
      * Default states parameter for startWatching function.
      */
@@ -70,7 +90,44 @@ public class Cache {
     /**
      * Map for handling concurrent access.
      */
-    private final CacheMap<String, Cache.Item> cacheMap = new SynchronizedCacheMap();
+    private final CacheMap<String, Cache.Item> cacheMap;
+    /**
+     * Optional on-disk index of the cached items used to reload the
+     * cache without scanning the cache directory.
+     */
+    private final CacheIndex index;
+    /**
+     * Maps item keys to files in the cache directory.
+     */
+    private final CacheLayout layout;
+    /**
+     * Optional store that packs small items into shared segment
+     * files rather than storing each item in a file of its own.
+     */
+    private final PackStore packStore;
+    /**
+     * Items larger than this are never packed.
+     */
+    private final int packThreshold;
+    /**
+     * Optional store that keeps a single copy of identical item
+     * contents, which the item files then refer to.
+     */
+    private final BlobStore blobStore;
+    /**
+     * Delivers observer events on a dedicated thread when the cache
+     * uses {@link DispatchMode#ASYNCHRONOUS} dispatch (otherwise null).
+     */
+    private final ObserverEventBus eventBus;
+    /**
+     * Evicts items in the background when the cache is configured
+     * with a byte budget or an item TTL (otherwise null).
+     */
+    private final CacheEvictor evictor;
+    /**
+     * Optional in-memory tier holding decoded images.
+     */
+    private volatile ImageMemoryCache memoryCache;
     /**
      * Optional list of state change observers.
      */
@@ -92,23 +149,205 @@ public class Cache {
      * @param cacheDir The platform dependent root cache directory.
      */
     public Cache(File cacheDir) {
+        this(cacheDir, CacheOptions.newBuilder().build());
+    }
+
+    /**
+     * Constructor that binds the cache implementation to a
+     * platform specific root directory and uses the specified
+     * {@code mapType} implementation to map keys to items.
+     *
+     * @param cacheDir The platform dependent root cache directory.
+     * @param mapType  The CacheMap implementation to use.
+     */
+    public Cache(File cacheDir, CacheMap.Type mapType) {
+        this(cacheDir, CacheOptions.newBuilder().mapType(mapType).build());
+    }
+
+    /**
+     * Constructor that binds the cache implementation to a
+     * platform specific root directory and configures how the
+     * cache stores its items using the specified {@code options}.
+     * A cache directory created with a different layout must first
+     * be converted by calling {@link #migrateLayout}.
+     *
+     * @param cacheDir The platform dependent root cache directory.
+     * @param options  The cache storage options.
+     */
+    public Cache(File cacheDir, CacheOptions options) {
+        this(cacheDir, options, true);
+    }
+
+    /**
+     * Constructor that optionally skips the singleton check, which
+     * allows tests and benchmarks to use caches of their own that
+     * are independent of the application's cache directory.
+     *
+     * @param cacheDir  The platform dependent root cache directory.
+     * @param options   The cache storage options.
+     * @param singleton True if this is the application's cache.
+     */
+    Cache(File cacheDir, CacheOptions options, boolean singleton) {
         // Ensure that this class remains a singleton.
-        synchronized (lock) {
-            if (created) {
-                throw new RuntimeException(
-                        "The cache must be implemented as a singleton.");
+        if (singleton) {
+            synchronized (lock) {
+                if (created) {
+                    throw new RuntimeException(
+                            "The cache must be implemented as a singleton.");
+                }
+                created = true;
             }
-            created = true;
         }
 
         this.cacheDir = cacheDir;
+        this.cacheMap = newCacheMap(options.mapType);
+        this.index = options.indexFile != null
+                ? new CacheIndex(options.indexFile)
+                : null;
+        this.layout = newCacheLayout(options.layoutType);
+        this.packStore = options.packDir != null
+                ? new PackStore(options.packDir, options.packSegmentSize)
+                : null;
+        this.packThreshold = options.packThreshold;
+        this.blobStore = options.blobDir != null
+                ? new BlobStore(options.blobDir)
+                : null;
+        this.eventBus = options.dispatchMode == DispatchMode.ASYNCHRONOUS
+                ? new ObserverEventBus(this::deliverEvent,
+                                       options.eventBufferSize,
+                                       options.progressInterval)
+                : null;
+        this.evictor = options.maxBytes > 0
+                || !options.tagBudgets.isEmpty()
+                || options.itemTtl > 0
+                ? new CacheEvictor(options.maxBytes,
+                                   options.tagBudgets,
+                                   options.itemTtl)
+                : null;
+
+        try {
+            if (packStore != null) {
+                packStore.load();
+            }
+            if (blobStore != null) {
+                blobStore.load();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        // Ensure that the cache directory exits and immediately
+        // load all previously cached items, preferably from the
+        // index. An index is ignored when the cache directory
+        // had to be created.
+        boolean created = cacheDir.mkdirs();
+        if (index == null || created || !loadFromIndex()) {
+            loadFromDisk();
+        }
+
+        if (evictor != null) {
+            evictor.start(this::evict, options.evictionInterval);
+        }
+    }
+
+    /**
+     * Factory method that constructs the CacheMap implementation
+     * matching the specified {@code mapType}.
+     */
+    static CacheMap<String, Item> newCacheMap(CacheMap.Type mapType) {
+        switch (mapType) {
+            case CONCURRENT:
+                return new ConcurrentCacheMap();
+            case SYNCHRONIZED:
+            default:
+                return new SynchronizedCacheMap();
+        }
+    }
+
+    /**
+     * Factory method that constructs the CacheLayout implementation
+     * matching the specified {@code layoutType}.
+     */
+    static CacheLayout newCacheLayout(CacheLayout.Type layoutType) {
+        switch (layoutType) {
+            case HASHED:
+                return new HashedCacheLayout();
+            case FLAT:
+            default:
+                return new FlatCacheLayout();
+        }
+    }
 
-        // Ensure that the cache directory exits and
-        // immediately load all previously cached files
-        // from storage.
-        //noinspection ResultOfMethodCallIgnored
-        cacheDir.mkdirs();
-        loadFromDisk();
+    /**
+     * Converts the items in the cache directory [cacheDir] from the
+     * [from] layout to the [to] layout by moving each item file (and
+     * writing any metadata the new layout requires). Files that are
+     * not valid items in the [from] layout are left for the next
+     * cache load to sweep. Item keys and contents are unchanged, so
+     * a cache index remains valid. This method must not be called
+     * while a cache is using the directory.
+     *
+     * @return The number of migrated items.
+     */
+    public static int migrateLayout(File cacheDir,
+                                    CacheLayout.Type from,
+                                    CacheLayout.Type to) throws IOException {
+        CacheLayout source = newCacheLayout(from);
+        CacheLayout target = newCacheLayout(to);
+
+        // List the files before moving any so that the traversal
+        // never visits a file that has already been migrated.
+        List<File> files = new ArrayList<>();
+        traverseCache(cacheDir, file -> {
+            if (!source.isMetadataFile(file)) {
+                files.add(file);
+            }
+            return 0;
+        });
+
+        int migrated = 0;
+        for (File file : files) {
+            String key = source.mapFileToKey(file);
+            if (key == null) {
+                continue;
+            }
+
+            File dest = target.mapKeyToFile(cacheDir, key);
+            if (dest.equals(file)) {
+                continue;
+            }
+
+            // Create the destination (and its metadata) and then
+            // atomically replace it with the item's contents.
+            target.createFile(dest, key);
+            if (!file.renameTo(dest)) {
+                //noinspection ResultOfMethodCallIgnored
+                dest.delete();
+                if (!file.renameTo(dest)) {
+                    throw new IOException("Unable to move " + file + " to " + dest);
+                }
+            }
+            source.deleteFile(file);
+            migrated++;
+        }
+
+        deleteEmptyDirectories(cacheDir);
+        return migrated;
+    }
+
+    /**
+     * Deletes all empty sub-directories of [dir].
+     */
+    private static void deleteEmptyDirectories(File dir) {
+        File[] files = dir.listFiles(File::isDirectory);
+        if (files != null) {
+            for (File subDir : files) {
+                deleteEmptyDirectories(subDir);
+                // Only succeeds if the directory is empty.
+                //noinspection ResultOfMethodCallIgnored
+                subDir.delete();
+            }
+        }
     }
 
     /**
@@ -187,33 +426,30 @@ public class Cache {
     }
 
     /**
-     * Maps an item's encoded cache key to its associated File object.
-     * The current cache design uses the encoded key as the item's file
-     * name.
+     * Maps an item's encoded cache key to its associated File object
+     * as determined by the cache's {@link CacheLayout}.
      *
      * @param key Encoded cache key.
      * @return The item's associated File object on disk.
      */
     public File mapKeyToFile(String key) {
-        return new File(getCacheDir(), key);
+        return layout.mapKeyToFile(getCacheDir(), key);
     }
 
     /**
-     * Maps a cache file to it's associated encoded cache key.
-     * The current cache design uses the encoded key as the item's file
-     * name.
+     * Maps a cache file to it's associated encoded cache key as
+     * determined by the cache's {@link CacheLayout}.
      *
      * @param file A cache file.
      * @return The item's associated encoded cache key.
      */
     public String mapFileToKey(File file) {
-        // Make sure that the file has the required name format.
-        String[] parts = file.getName().split("-", 2);
-        if (parts.length != 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
+        String key = layout.mapFileToKey(file);
+        if (key == null) {
             fatal("Detected invalid cache file: " + file);
         }
 
-        return file.getName();
+        return key;
     }
 
     /**
@@ -262,6 +498,26 @@ public class Cache {
         }
     }
 
+    /**
+     * Installs (or removes when {@code memoryCache} is null) the
+     * in-memory tier that holds decoded images in front of this
+     * file based cache.
+     *
+     * @param memoryCache The in-memory tier or null.
+     */
+    public void setMemoryCache(@Nullable ImageMemoryCache memoryCache) {
+        this.memoryCache = memoryCache;
+    }
+
+    /**
+     * @return The in-memory tier holding decoded images or null if
+     * none has been installed.
+     */
+    @Nullable
+    public ImageMemoryCache getMemoryCache() {
+        return memoryCache;
+    }
+
     /**
      * Gets a previously cached item.
      *
@@ -271,7 +527,11 @@ public class Cache {
      */
     public Item getItem(@NotNull String uri, @Nullable String tag) {
         String cacheKey = getEncodedKey(uri, tag);
-        return cacheMap.get(cacheKey);
+        Item item = verify(cacheMap.get(cacheKey));
+        if (item != null) {
+            item.touch();
+        }
+        return item;
     }
 
     /**
@@ -297,6 +557,9 @@ public class Cache {
         // Build the unique encoded key from the uri and tag pair.
         String key = getEncodedKey(uri, tag);
 
+        // Remove any stale item that was loaded from the index.
+        verify(cacheMap.get(key));
+
         // Add the item to the hash map if it doesn't already exist.
         // The ConcurrentHashMap implementation will only call the
         // newItem function to create a new item if there is no
@@ -333,7 +596,7 @@ public class Cache {
      * @return {@code true} if a match was found, {@code false} if not found.
      */
     public boolean containsKey(@NotNull String uri, @Nullable String tag) {
-        return cacheMap.containsKey(getEncodedKey(uri, tag));
+        return verify(cacheMap.get(getEncodedKey(uri, tag))) != null;
     }
 
     /**
@@ -347,14 +610,44 @@ public class Cache {
     public Item remove(@NotNull String key) {
         Item item = cacheMap.remove(key);
         if (item != null) {
-            //noinspection ResultOfMethodCallIgnored
-            item.file.delete();
-            notifyObservers(item, Operation.DELETE, -1f);
+            removed(item);
         }
 
         return item;
     }
 
+    /**
+     * Removes the passed item only if it is still the item cached
+     * under its key (i.e., it has not been removed and replaced by a
+     * new item for the same key), and deletes the item's file object.
+     *
+     * @param item The item to remove.
+     * @return {@code true} if the item was removed.
+     */
+    private boolean remove(@NotNull Item item) {
+        if (!cacheMap.remove(item.key, item)) {
+            return false;
+        }
+
+        removed(item);
+        return true;
+    }
+
+    /**
+     * Deletes the data of an item that has been removed from the
+     * cacheMap and notifies observers.
+     */
+    private void removed(Item item) {
+        deleteData(item);
+        if (memoryCache != null) {
+            memoryCache.remove(item.key);
+        }
+        if (index != null) {
+            index.remove(item.key);
+        }
+        notifyObservers(item, Operation.DELETE, -1f);
+    }
+
     /**
      * Removes all cache items (and their associated File objects)
      * that were create with the specified group [tag].
@@ -375,13 +668,15 @@ public class Cache {
      * Removes all cached items and their associated files.
      */
     public void clear() {
+        if (memoryCache != null) {
+            memoryCache.clear();
+        }
 
         if (false) {
             cacheMap.forEach((key, value) -> {
                 Item item = cacheMap.remove(key);
                 if (item != null) {
-                    //noinspection ResultOfMethodCallIgnored
-                    if (!item.file.delete()) {
+                    if (!deleteData(item)) {
                         fatal("Unable to delete file: " + item.file);
                     } else {
                         System.out.println("Deleted file: " + item.file);
@@ -393,8 +688,7 @@ public class Cache {
             cacheMap.forEach((key, value) -> {
                 Item item = cacheMap.get(key);
                 if (item != null) {
-                    //noinspection ResultOfMethodCallIgnored
-                    if (!item.file.delete()) {
+                    if (!deleteData(item)) {
                         fatal("Unable to delete file: " + item.file);
                     } else {
                         System.out.println("Deleted file: " + item.file);
@@ -405,11 +699,26 @@ public class Cache {
             cacheMap.clear();
         }
 
+        try {
+            if (packStore != null) {
+                packStore.clear();
+            }
+            if (blobStore != null) {
+                blobStore.clear();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (index != null) {
+            rewriteIndex();
+        }
+
         // Sanity check.
-        File[] files = cacheDir.listFiles();
-        if (files != null && files.length > 0) {
-            warn("Cache cleared, but " + files.length + " files still " +
-                    "exist in cache directory $cacheDir");
+        int files = traverseCache(cacheDir, file -> 1);
+        if (files > 0) {
+            warn("Cache cleared, but " + files + " files still " +
+                    "exist in cache directory " + cacheDir);
         }
     }
 
@@ -434,6 +743,16 @@ public class Cache {
      */
     public int loadFromDisk() {
         cacheMap.clear();
+        if (memoryCache != null) {
+            memoryCache.clear();
+        }
+        if (blobStore != null) {
+            try {
+                blobStore.load();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
 
         int swept = sweepCache();
         if (swept > 0) {
@@ -441,16 +760,406 @@ public class Cache {
         }
 
         int loaded = traverseCache(cacheDir, file -> {
+            if (layout.isMetadataFile(file)) {
+                return 0;
+            }
+
             Item item = newItemFromFile(file);
+            if (blobStore != null && !loadReference(item)) {
+                return 0;
+            }
+            if (index != null || evictor != null) {
+                item.size = (int) item.getDataFile().length();
+                item.created = file.lastModified();
+                item.lastAccess = item.created;
+            }
             cacheMap.put(item.key, item);
             notifyObservers(item, Operation.LOAD, 1f);
             return 1;
         });
 
         info("Loaded " + loaded + " cache items from disk.");
+
+        if (packStore != null) {
+            info("Loaded " + loadPackedItems() + " packed cache items.");
+        }
+
+        if (blobStore != null) {
+            int blobs = blobStore.sweep();
+            if (blobs > 0) {
+                info("Swept " + blobs + " unreferenced blobs from cache.");
+            }
+        }
+
+        if (index != null) {
+            rewriteIndex();
+        }
+
         return loaded;
     }
 
+    /**
+     * Creates cache entries in the cacheMap for all the items recorded
+     * in the cache index without accessing their files. Each item is
+     * verified against its file the first time it is used (see
+     * {@link #verify}). Items that were created but never written are
+     * deleted, just as {@link #sweepCache} deletes empty files.
+     *
+     * @return false if the index is missing or inconsistent and the
+     * cache must be loaded by scanning the cache directory.
+     */
+    private boolean loadFromIndex() {
+        Map<String, CacheIndex.Entry> entries;
+        try {
+            entries = index.load();
+        } catch (IOException e) {
+            warn("Unable to read cache index " + index.getFile() + ": " + e);
+            entries = null;
+        }
+
+        if (entries == null) {
+            info("Rebuilding missing or inconsistent cache index "
+                    + index.getFile());
+            return false;
+        }
+
+        cacheMap.clear();
+        if (memoryCache != null) {
+            memoryCache.clear();
+        }
+
+        int loaded = 0;
+        int swept = 0;
+        for (CacheIndex.Entry entry : entries.values()) {
+            if (entry.size == 0) {
+                //noinspection ResultOfMethodCallIgnored
+                layout.deleteFile(getCacheFile(entry.key));
+                index.remove(entry.key);
+                if (packStore != null) {
+                    try {
+                        packStore.remove(entry.key);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                swept++;
+                continue;
+            }
+
+            Item item = new Item(entry.key, getCacheFile(entry.key), System.nanoTime());
+            item.size = entry.size;
+            item.created = entry.time;
+            item.lastAccess = entry.time;
+            item.format = entry.format;
+            item.verified = false;
+            if (blobStore != null && entry.digest != null) {
+                addReference(item, entry.digest, entry.sourceDigest);
+            }
+            cacheMap.put(item.key, item);
+            notifyObservers(item, Operation.LOAD, 1f);
+            loaded++;
+        }
+
+        if (swept > 0) {
+            info("Swept " + swept + " unwritten items from cache.");
+        }
+
+        if (packStore != null) {
+            loaded += loadPackedItems();
+        }
+
+        if (index.needsCompaction()) {
+            rewriteIndex();
+        }
+
+        info("Loaded " + loaded + " cache items from index.");
+        return true;
+    }
+
+    /**
+     * Replaces the cache index with one that records the current
+     * contents of the cacheMap. If the index can't be written, it
+     * is deleted so that the next load will scan the cache directory.
+     */
+    private void rewriteIndex() {
+        List<CacheIndex.Entry> entries = new ArrayList<>(cacheMap.size());
+        cacheMap.forEach((key, item) -> entries.add(item.getIndexEntry()));
+        try {
+            index.rewrite(entries);
+        } catch (IOException e) {
+            warn("Unable to write cache index " + index.getFile() + ": " + e);
+        }
+    }
+
+    /**
+     * Verifies that an item loaded from the cache index still matches
+     * its file. A stale item (one whose file is missing or has changed
+     * size) is removed from the cache.
+     *
+     * @param item An item or null.
+     * @return The passed item if it is valid, otherwise the item that
+     * has replaced it in the cache (usually null).
+     */
+    @Nullable
+    private Item verify(@Nullable Item item) {
+        if (item == null || item.verified) {
+            return item;
+        }
+
+        //noinspection SynchronizationOnLocalVariableOrMethodParameter
+        synchronized (item) {
+            if (!item.verified) {
+                long length = item.packed
+                        ? packStore.size(item.key)
+                        : item.getDataFile().length();
+                if (length == item.size) {
+                    item.verified = true;
+                } else if (remove(item)) {
+                    warn("Removed stale indexed item: " + item.file);
+                }
+            }
+        }
+
+        return item.verified ? item : cacheMap.get(item.key);
+    }
+
+    /**
+     * Records the size of an item in the cache index once its contents
+     * have been written, and makes the item eligible for eviction.
+     *
+     * @param item The item that was written.
+     * @param size The number of bytes written.
+     */
+    private void itemWritten(Item item, int size) {
+        item.size = size;
+        item.busy = false;
+        if (index != null && cacheMap.get(item.key) == item) {
+            index.put(item.getIndexEntry());
+        }
+        if (evictor != null) {
+            evictor.written(item.getTag(), size);
+        }
+    }
+
+    /**
+     * Runs an eviction pass, removing the items that exceed the
+     * cache's byte budgets or TTL. Observers receive a DELETE
+     * notification for each evicted item. Passes run automatically
+     * in the background, so this method only needs to be called to
+     * evict items immediately.
+     *
+     * @return The number of evicted items.
+     */
+    public int evict() {
+        if (evictor == null) {
+            return 0;
+        }
+
+        List<Item> items = new ArrayList<>(cacheMap.size());
+        cacheMap.forEach((key, item) -> items.add(item));
+
+        int evicted = 0;
+        for (Item item : evictor.select(items, System.currentTimeMillis())) {
+            //noinspection SynchronizationOnLocalVariableOrMethodParameter
+            synchronized (item) {
+                // The item may have been reopened for writing or
+                // replaced since it was selected.
+                if (!item.busy && remove(item)) {
+                    evicted++;
+                }
+            }
+        }
+
+        if (evicted > 0) {
+            info("Evicted " + evicted + " cache items.");
+        }
+        return evicted;
+    }
+
+    /**
+     * Creates cache entries for the items in the pack store that
+     * don't already have one, and marks all packed items as such.
+     *
+     * @return The number of created cache entries.
+     */
+    private int loadPackedItems() {
+        int loaded = 0;
+        for (String key : packStore.keys()) {
+            Item item = cacheMap.get(key);
+            if (item == null) {
+                item = new Item(key, getCacheFile(key), System.nanoTime());
+                item.size = packStore.size(key);
+                cacheMap.put(key, item);
+                notifyObservers(item, Operation.LOAD, 1f);
+                loaded++;
+            }
+            item.packed = true;
+        }
+        return loaded;
+    }
+
+    /**
+     * Deletes the stored contents (packed record or file) of an item.
+     *
+     * @param item The item to delete.
+     * @return false if the contents exist but could not be deleted.
+     */
+    private boolean deleteData(Item item) {
+        if (item.packed) {
+            try {
+                packStore.remove(item.key);
+                return true;
+            } catch (IOException e) {
+                warn("Unable to remove packed item " + item + ": " + e);
+                return false;
+            }
+        }
+
+        String digest = item.digest;
+        if (digest != null) {
+            blobStore.release(digest);
+        }
+
+        // Unwritten items have no file when a pack store is used.
+        return layout.deleteFile(item.file)
+                || (packStore != null && !item.file.exists());
+    }
+
+    /**
+     * Reads the blob reference stored in an item file that was found
+     * in the cache directory. A file that does not hold a reference
+     * is an item whose contents are stored in the file itself (e.g.,
+     * one written before blobs were enabled).
+     *
+     * @param item An item loaded from its file.
+     * @return false if the item refers to a missing blob, in which
+     * case the item file is deleted.
+     */
+    private boolean loadReference(Item item) {
+        String[] digests;
+        try {
+            digests = BlobStore.readReference(item.file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (digests == null) {
+            return true;
+        }
+
+        if (!blobStore.getFile(digests[0]).isFile()) {
+            warn("Removing cache item with missing contents: " + item.file);
+            //noinspection ResultOfMethodCallIgnored
+            layout.deleteFile(item.file);
+            return false;
+        }
+
+        addReference(item, digests[0], digests[1]);
+        return true;
+    }
+
+    /**
+     * Records that a loaded item refers to the blob {@code digest},
+     * which was transformed from the blob {@code sourceDigest}.
+     */
+    private void addReference(Item item,
+                              String digest,
+                              @Nullable String sourceDigest) {
+        item.digest = digest;
+        item.sourceDigest = sourceDigest;
+        blobStore.addReference(digest);
+        if (sourceDigest != null) {
+            blobStore.putDerived(sourceDigest, item.getTag(), digest);
+        }
+    }
+
+    /**
+     * Makes an item whose contents are stored in a new blob refer to
+     * that blob, and releases the blob it previously referred to. The
+     * blob must already have been stored with a reference for this
+     * item.
+     */
+    private void setReference(Item item, String digest) throws IOException {
+        // The source item (if any) holds the contents that this
+        // item's contents were transformed from.
+        Item source = getSourceItem(item);
+        String sourceDigest = source != null ? source.digest : null;
+
+        try {
+            BlobStore.writeReference(item.file, digest, sourceDigest);
+        } catch (IOException e) {
+            blobStore.release(digest);
+            throw e;
+        }
+
+        String previous = item.digest;
+        item.digest = digest;
+        item.sourceDigest = sourceDigest;
+        if (previous != null) {
+            blobStore.release(previous);
+        }
+        if (sourceDigest != null) {
+            blobStore.putDerived(sourceDigest, item.getTag(), digest);
+        }
+    }
+
+    /**
+     * Returns the untagged item holding the contents that a tagged
+     * (transformed) item was produced from.
+     *
+     * @return The source item or null if the item is untagged or its
+     * source is not cached.
+     */
+    @Nullable
+    private Item getSourceItem(Item item) {
+        String[] parts = item.key.split("-", 2);
+        if (parts[0].equals(NOTAG)) {
+            return null;
+        }
+        return cacheMap.get(NOTAG + "-" + parts[1]);
+    }
+
+    /**
+     * Makes a newly added tagged (transformed) item share the contents
+     * of an existing item that was produced by applying the same
+     * transform (tag) to identical source contents, so that the
+     * transform doesn't need to be applied again. This only has an
+     * effect when the cache stores contents by digest (see
+     * {@link CacheOptions#blobDir}).
+     *
+     * @param item A tagged item that has not been written yet.
+     * @return true if the item now holds the reused contents, false
+     * if the transform must be applied and written to the item.
+     */
+    public boolean reuseTransformed(@NotNull Item item) {
+        if (blobStore == null) {
+            return false;
+        }
+
+        Item source = getSourceItem(item);
+        String sourceDigest = source != null ? source.digest : null;
+        if (sourceDigest == null) {
+            return false;
+        }
+
+        String digest = blobStore.acquireDerived(sourceDigest, item.getTag());
+        if (digest == null) {
+            return false;
+        }
+
+        try {
+            setReference(item, digest);
+        } catch (IOException e) {
+            warn("Unable to reuse transformed contents for " + item + ": " + e);
+            return false;
+        }
+
+        itemWritten(item, (int) item.getDataFile().length());
+        notifyObservers(item, Operation.WRITE, 1f);
+        notifyObservers(item, Operation.CLOSE, 1f);
+        return true;
+    }
+
     /**
      * Notifies all interested {@link Observer}s when the {@code progress}
      * of the current {@link Operation} being performed on a {@link Item}
@@ -466,6 +1175,19 @@ public class Cache {
             addSimulatedDelay(operation);
         }
 
+        if (eventBus != null) {
+            eventBus.publish(item, operation, progress);
+        } else {
+            deliverEvent(operation, item, progress);
+        }
+    }
+
+    /**
+     * Delivers an event to all interested {@link Observer}s. Called
+     * on the notifying thread or, when events are dispatched
+     * asynchronously, on the event bus thread.
+     */
+    private void deliverEvent(Operation operation, Item item, Float progress) {
         synchronized (observers) {
             observers.stream()
                     .filter(o -> o.filter.contains(operation))
@@ -478,6 +1200,67 @@ public class Cache {
         }
     }
 
+    /**
+     * Waits until all observer events that were published before this
+     * call have been delivered. Returns immediately when events are
+     * delivered synchronously.
+     */
+    public void flushObserverEvents() {
+        if (eventBus != null) {
+            try {
+                eventBus.flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return The number of item progress events that were replaced by
+     * a later progress event before they were delivered (always 0 when
+     * events are delivered synchronously).
+     */
+    public long getCoalescedEventCount() {
+        return eventBus != null ? eventBus.getCoalescedCount() : 0;
+    }
+
+    /**
+     * @return The number of item progress events that could not be
+     * queued for delivery because the event buffer was full (always 0
+     * when events are delivered synchronously). The latest progress of
+     * an item is still delivered.
+     */
+    public long getDroppedEventCount() {
+        return eventBus != null ? eventBus.getDroppedCount() : 0;
+    }
+
+    /**
+     * Releases the resources held by this cache: stops the background
+     * eviction passes, delivers any pending observer events and stops
+     * the event delivery thread, and closes the pack store and the
+     * index. The cached items remain on disk, but the cache must not
+     * be used once it has been closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (evictor != null) {
+                evictor.stop();
+            }
+            if (eventBus != null) {
+                eventBus.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (packStore != null) {
+            packStore.close();
+        }
+        if (index != null) {
+            index.close();
+        }
+    }
+
     /**
      * Notifies all observers of the current contents of the cache.
      * This method is called when ever an {@code Observer} calls
@@ -537,27 +1320,36 @@ public class Cache {
         // Construct a new item passing in the encoded key, associated
         // file object, and the current creation time.
         Item item = new Item(key, getCacheFile(key), System.nanoTime());
+        item.busy = true;
+
+        // When small items are packed, the item's file is only
+        // created if its contents turn out to be too large to pack.
+        if (packStore == null) {
+            // Since it's impossible to guarantee the integrity of the
+            // underlying externally accessible file system, ensure that
+            // if an orphaned file matching the the uri/tag pair already
+            // exists in the cache directory, delete it.
+            if (item.file.exists()) {
+                //noinspection ResultOfMethodCallIgnored
+                layout.deleteFile(item.file);
+                warn("Orphaned file matching a new item found and deleted: "
+                        + item.file);
+            }
 
-        // Since it's impossible to guarantee the integrity of the
-        // underlying externally accessible file system, ensure that
-        // if an orphaned file matching the the uri/tag pair already
-        // exists in the cache directory, delete it.
-        if (item.file.exists()) {
-            //noinspection ResultOfMethodCallIgnored
-            item.file.delete();
-            warn("Orphaned file matching a new item found and deleted: "
-                    + item.file);
+            // Create a new empty file for this item.
+            try {
+                if (!layout.createFile(item.file, key)) {
+                    throw new IOException(
+                            "Unable to create new cache item file: " + item.file);
+                }
+            } catch (Exception e) {
+                // Wrap IOException and throw.
+                throw new RuntimeException(e);
+            }
         }
 
-        // Create a new empty file for this item.
-        try {
-            if (!item.file.createNewFile()) {
-                throw new IOException(
-                        "Unable to create new cache item file: " + item.file);
-            }
-        } catch (Exception e) {
-            // Wrap IOException and throw.
-            throw new RuntimeException(e);
+        if (index != null) {
+            index.put(item.getIndexEntry());
         }
 
         info("Thread [" + Thread.currentThread().getId() +
@@ -647,12 +1439,17 @@ public class Cache {
      */
     private int sweepCache() {
         return traverseCache(cacheDir, file -> {
+            // Metadata is deleted along with its item.
+            if (layout.isMetadataFile(file)) {
+                return 0;
+            }
+
             // Delete any empty files that may have been orphaned
             // if a previous application invocation terminated
             // abnormally.
             if (file.length() == 0L) {
                 info("Removing orphaned empty file from the cache: " + file);
-                if (!file.delete() || file.exists()) {
+                if (!layout.deleteFile(file) || file.exists()) {
                     fatal("Unable to delete cache file: " + file);
                 }
 
@@ -672,7 +1469,7 @@ public class Cache {
                     fatal("Only cache files can be swept.");
                 }
 
-                if (!file.delete() || file.exists()) {
+                if (!layout.deleteFile(file) || file.exists()) {
                     fatal("Unable to delete cache file: " + file);
                 }
 
@@ -735,6 +1532,23 @@ public class Cache {
         CLOSE
     }
 
+    /**
+     * How observer events are delivered.
+     */
+    public enum DispatchMode {
+        /**
+         * Each event is delivered to all observers by the thread that
+         * caused it before that thread continues.
+         */
+        SYNCHRONOUS,
+        /**
+         * Events are queued and delivered in order by a dedicated
+         * thread, and item progress events are coalesced (see
+         * {@link CacheOptions#dispatchMode}).
+         */
+        ASYNCHRONOUS
+    }
+
     /**
      * An observer interface with a single event function that
      * can be notified about any desired cache [State] changes.
@@ -768,17 +1582,84 @@ public class Cache {
         int size = 0;
         long timeStamp = 0L;
 
+        /**
+         * The format of the encoded image stored in this item, or
+         * null if it has not been written or detected yet.
+         */
+        volatile ImageFormat format;
+
+        /**
+         * The wall clock time (ms) when this item was created, which
+         * is recorded in the cache index.
+         */
+        long created;
+
+        /**
+         * False for items loaded from the cache index until their
+         * files have been checked by {@link Cache#verify}.
+         */
+        volatile boolean verified = true;
+
+        /**
+         * True if the item's contents are stored in the cache's pack
+         * store rather than in the item's file.
+         */
+        volatile boolean packed;
+
+        /**
+         * The digest of the blob holding this item's contents, or
+         * null if the contents are stored in the item's file (or
+         * have not been written).
+         */
+        volatile String digest;
+
+        /**
+         * The digest of the blob that this item's contents were
+         * transformed from, or null if it is not known.
+         */
+        volatile String sourceDigest;
+
+        /**
+         * The wall clock time (ms) when this item was last returned
+         * by {@link Cache#getItem}.
+         */
+        volatile long lastAccess;
+
+        /**
+         * Approximately how many times this item has been returned by
+         * {@link Cache#getItem} recently. Increments may be lost under
+         * contention, and the count is halved by each eviction pass.
+         */
+        volatile int hits;
+
+        /**
+         * True while this item is being written, which prevents it
+         * from being evicted.
+         */
+        volatile boolean busy;
+
         public Item(String key, File file, long timeStamp) {
             this.key = key;
             this.file = file;
             this.timeStamp = timeStamp;
+            this.created = System.currentTimeMillis();
+            this.lastAccess = created;
+        }
+
+        /**
+         * Records a use of this item for the eviction policy.
+         */
+        void touch() {
+            lastAccess = System.currentTimeMillis();
+            //noinspection NonAtomicOperationOnVolatileField
+            hits++;
         }
 
         /**
-         * Builds a cache key from the item key and tag. The cache key is the
-         * file name of the File object associated with this item.
+         * Returns the file name of the File object associated with this
+         * item, which is the item key in the default (flat) cache layout.
          *
-         * @return
+         * @return The item's file name.
          */
         public String getCacheKey() {
             return file.getName();
@@ -798,6 +1679,49 @@ public class Cache {
             }
         }
 
+        /**
+         * Returns the format of the encoded image stored in this
+         * item.  For items loaded from disk, the format is detected
+         * (once) from the file's header.
+         *
+         * @return The image format or null if it is not known.
+         */
+        public ImageFormat getFormat() {
+            ImageFormat itemFormat = format;
+            if (itemFormat == null && packed) {
+                try {
+                    byte[] data = packStore.read(key);
+                    itemFormat = data != null
+                            ? ImageFormat.detect(data, data.length)
+                            : null;
+                } catch (IOException e) {
+                    itemFormat = null;
+                }
+                format = itemFormat;
+            } else if (itemFormat == null && file != null && getDataFile().length() > 0) {
+                itemFormat = ImageFormat.detect(getDataFile());
+                format = itemFormat;
+            }
+            return itemFormat;
+        }
+
+        /**
+         * Records the format of the encoded image that was written to
+         * this item.
+         *
+         * @param format The format that was written.
+         */
+        public void setFormat(ImageFormat format) {
+            this.format = format;
+        }
+
+        /**
+         * @return The cache that contains this item.
+         */
+        public Cache getCache() {
+            return Cache.this;
+        }
+
         /**
          * @return The original item key used when the item was first created.
          */
@@ -830,11 +1754,27 @@ public class Cache {
             return timeStamp;
         }
 
+        /**
+         * Returns the file that holds this item's contents, which is
+         * either the item file or the blob that the item file refers
+         * to (see {@link CacheOptions#blobDir}).
+         *
+         * @return The file holding the item's contents.
+         */
+        File getDataFile() {
+            String itemDigest = digest;
+            return itemDigest != null ? blobStore.getFile(itemDigest) : file;
+        }
+
         /**
          * @return The current size of the item file or 0 if no file exists.
          */
         public int getSize() {
-            return file.exists() ? (int) file.length() : 0;
+            if (packed) {
+                return Math.max(packStore.size(key), 0);
+            }
+            File dataFile = getDataFile();
+            return dataFile.exists() ? (int) dataFile.length() : 0;
         }
 
         /**
@@ -846,7 +1786,12 @@ public class Cache {
         public InputStream getInputStream(Operation operation) {
             try {
                 return new ObserverInputStream(
-                        new FileInputStream(file), operation, this, size);
+                        packed
+                                ? new ByteArrayInputStream(readPacked())
+                                : new FileInputStream(getDataFile()),
+                        operation,
+                        this,
+                        size);
             } catch (Exception e) {
                 return null;
             }
@@ -860,8 +1805,140 @@ public class Cache {
          */
         public OutputStream getOutputStream(Operation operation, int size)
                 throws FileNotFoundException {
+            synchronized (this) {
+                busy = true;
+            }
+
+            OutputStream outputStream;
+            if (packStore != null) {
+                outputStream = new PackOutputStream(this);
+            } else if (blobStore != null) {
+                try {
+                    outputStream = new BlobOutputStream(this);
+                } catch (IOException e) {
+                    throw new FileNotFoundException(
+                            "Unable to create blob for " + this + ": " + e);
+                }
+            } else {
+                outputStream = new FileOutputStream(file);
+            }
+
             return new ObserverOutputStream(
-                    new FileOutputStream(file), operation, this, size);
+                    outputStream,
+                    operation,
+                    this,
+                    size);
+        }
+
+        /**
+         * Reads the entire contents of this item using a single
+         * pre-sized buffer. Observers receive at most a few READ
+         * progress notifications followed by a CLOSE notification
+         * rather than one notification per read call.
+         *
+         * @return The item contents.
+         */
+        public byte[] readAllBytes() throws IOException {
+            ImageCrawler.throwExceptionIfCancelled();
+
+            if (packed) {
+                byte[] data = readPacked();
+                progress(Operation.READ, 1f, data.length);
+                progress(Operation.CLOSE, 1f, data.length);
+                return data;
+            }
+
+            File dataFile = getDataFile();
+            try (FileChannel channel =
+                         FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+                long length = channel.size();
+                if (length > Integer.MAX_VALUE) {
+                    throw new IOException("Item is too large to read: " + dataFile);
+                }
+
+                ByteBuffer buffer = ByteBuffer.allocate((int) length);
+                int reported = 0;
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        // The file was truncated while reading.
+                        break;
+                    }
+
+                    // Coalesce progress into READ_PROGRESS_UPDATES steps.
+                    int step = (int) ((long) buffer.position()
+                            * READ_PROGRESS_UPDATES / length);
+                    if (step > reported) {
+                        reported = step;
+                        progress(Operation.READ,
+                                (float) buffer.position() / length,
+                                (int) length);
+                    }
+                }
+
+                progress(Operation.CLOSE, 1f, (int) length);
+
+                return buffer.position() == length
+                        ? buffer.array()
+                        : Arrays.copyOf(buffer.array(), buffer.position());
+            }
+        }
+
+        /**
+         * Memory maps the entire contents of this item. The mapping
+         * remains valid after this method returns (even though the
+         * underlying channel is closed) and is released when the
+         * returned buffer is garbage collected.
+         *
+         * @return A read-only buffer containing the item contents.
+         */
+        public ByteBuffer mapReadOnly() throws IOException {
+            ImageCrawler.throwExceptionIfCancelled();
+
+            // Packed items can't be mapped on their own.
+            if (packed) {
+                return ByteBuffer.wrap(readAllBytes()).asReadOnlyBuffer();
+            }
+
+            try (FileChannel channel =
+                         FileChannel.open(getDataFile().toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buffer =
+                        channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                progress(Operation.READ, 1f, buffer.capacity());
+                progress(Operation.CLOSE, 1f, buffer.capacity());
+                return buffer;
+            }
+        }
+
+        /**
+         * Returns the entire contents of this item as a read-only
+         * buffer, memory mapping items of at least {@link Cache#MAP_THRESHOLD}
+         * bytes and reading smaller items (where mapping costs more
+         * than it saves) with {@link #readAllBytes()}.
+         *
+         * @return A read-only buffer containing the item contents.
+         */
+        public ByteBuffer readBuffer() throws IOException {
+            return !packed && getDataFile().length() >= MAP_THRESHOLD
+                    ? mapReadOnly()
+                    : ByteBuffer.wrap(readAllBytes()).asReadOnlyBuffer();
+        }
+
+        /**
+         * Reads the contents of a packed item.
+         */
+        private byte[] readPacked() throws IOException {
+            byte[] data = packStore.read(key);
+            if (data == null) {
+                throw new FileNotFoundException("Packed item not found: " + this);
+            }
+            return data;
+        }
+
+        /**
+         * @return The cache index entry describing this item.
+         */
+        CacheIndex.Entry getIndexEntry() {
+            return new CacheIndex.Entry(key, size, created, format, digest, sourceDigest);
         }
 
         public void progress(Operation operation, Float progress, int bytes) {
@@ -906,6 +1983,116 @@ public class Cache {
         }
     }
 
+    /**
+     * An output stream that buffers the contents written to an item
+     * and packs them into the pack store when closed, or spills them
+     * to the item's own file once they exceed the pack threshold.
+     */
+    private class PackOutputStream extends OutputStream {
+        private final Item item;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private OutputStream fileStream;
+
+        PackOutputStream(Item item) {
+            this.item = item;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (fileStream != null) {
+                fileStream.write(b);
+            } else {
+                buffer.write(b);
+                if (buffer.size() > packThreshold) {
+                    spill();
+                }
+            }
+        }
+
+        @Override
+        public void write(@NotNull byte[] b, int off, int len) throws IOException {
+            if (fileStream != null) {
+                fileStream.write(b, off, len);
+            } else {
+                buffer.write(b, off, len);
+                if (buffer.size() > packThreshold) {
+                    spill();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileStream != null) {
+                fileStream.close();
+            } else if (buffer != null) {
+                packStore.put(item.key, buffer.toByteArray(), buffer.size());
+                item.packed = true;
+            }
+            buffer = null;
+        }
+
+        private void spill() throws IOException {
+            // An existing (orphaned) file is simply overwritten.
+            layout.createFile(item.file, item.key);
+            fileStream = new BufferedOutputStream(new FileOutputStream(item.file));
+            buffer.writeTo(fileStream);
+            buffer = null;
+        }
+    }
+
+    /**
+     * An output stream that writes the contents of an item to a new
+     * blob while computing their digest. When closed, the blob is
+     * stored by digest (or discarded if identical contents are already
+     * stored) and the item file is updated to refer to it.
+     */
+    private class BlobOutputStream extends OutputStream {
+        private final Item item;
+        private final File temp;
+        private final MessageDigest digest = BlobStore.newDigest();
+        private OutputStream fileStream;
+
+        BlobOutputStream(Item item) throws IOException {
+            this.item = item;
+            this.temp = blobStore.newTempFile();
+            this.fileStream = new BufferedOutputStream(new FileOutputStream(temp));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            fileStream.write(b);
+            digest.update((byte) b);
+        }
+
+        @Override
+        public void write(@NotNull byte[] b, int off, int len) throws IOException {
+            fileStream.write(b, off, len);
+            digest.update(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileStream == null) {
+                return;
+            }
+
+            try {
+                fileStream.close();
+            } catch (IOException e) {
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+                throw e;
+            } finally {
+                fileStream = null;
+            }
+
+            String hex = BlobStore.toHex(digest.digest());
+            blobStore.store(temp, hex);
+            setReference(item, hex);
+        }
+    }
+
     /**
      * A filtered input stream implementation that notifies observers
      * when the item's file is written to.
@@ -931,7 +2118,9 @@ public class Cache {
          *                  this instance is to be created without an underlying stream.
          * @param operation
          * @param item
-         * @param size
+         * @param size      the number of bytes that will be read, or -1 if
+         *                  unknown (progress is then only reported when
+         *                  the stream is closed).
          */
         public ObserverInputStream(InputStream in,
                                    Operation operation,
@@ -945,8 +2134,8 @@ public class Cache {
         }
 
         @Override
-        public int available() {
-            return size - bytesRead;
+        public int available() throws IOException {
+            return size >= 0 ? size - bytesRead : super.available();
         }
 
         @Override
@@ -960,7 +2149,7 @@ public class Cache {
             int bytes = super.read();
             if (bytes != -1) {
                 bytesRead++;
-                notify(operation, (float) bytesRead / size);
+                notifyProgress();
             } else {
                 log("EOF total = " + size + " read = " + bytesRead);
             }
@@ -974,13 +2163,19 @@ public class Cache {
             int read = super.read(b, off, len);
             if (read != -1) {
                 bytesRead += read;
-                notify(operation, (float) bytesRead / size);
+                notifyProgress();
             } else {
                 log("EOF total = " + size + " read = " + bytesRead);
             }
             return read;
         }
 
+        private void notifyProgress() {
+            if (size > 0) {
+                notify(operation, (float) bytesRead / size);
+            }
+        }
+
         private void notify(Operation operation, Float progress) {
             if (Thread.interrupted()) {
                 // Wrap interrupted exception in runtime exception to avoid
@@ -1042,7 +2237,12 @@ public class Cache {
 
         @Override
         public void close() throws IOException {
-            super.close();
+            try {
+                super.close();
+                itemWritten(item, bytesWritten);
+            } finally {
+                item.busy = false;
+            }
             notify(Operation.CLOSE, 1f);
         }
 
@@ -0,0 +1,234 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which items a size and age bounded {@link Cache} must evict,
+ * and runs the cache's eviction passes on a background thread.
+ * <p>
+ * Items older than the item TTL are always evicted. Then, while the
+ * cache exceeds its total byte budget or a tag exceeds its budget,
+ * items are evicted in the following order: items that have been
+ * used at most once recently before items that have been used
+ * repeatedly (so that a crawl that touches many items once can't
+ * flush the items that are in regular use), and least recently used
+ * first within each group. Use counts are halved after each pass so
+ * that they reflect recent use. Items that are being written are
+ * never evicted, but their sizes count towards the budgets.
+ */
+class CacheEvictor {
+    /**
+     * Items used more than this many times (since the use counts
+     * were last halved) are evicted after all other items.
+     */
+    private static final int FREQUENT_HITS = 1;
+
+    /**
+     * Tag whose bytes are tracked by {@link #mEstimatedBytes}.
+     */
+    private static final String ALL_TAGS = "";
+
+    /**
+     * The total byte budget (0 for none).
+     */
+    private final long mMaxBytes;
+
+    /**
+     * The byte budget of each tag.
+     */
+    private final Map<String, Long> mTagBudgets;
+
+    /**
+     * The maximum item age (ms) (0 for none).
+     */
+    private final long mItemTtl;
+
+    /**
+     * Runs the eviction passes (created by {@link #start} and
+     * cleared by {@link #stop}).
+     */
+    private volatile ScheduledExecutorService mExecutor;
+
+    /**
+     * The eviction pass run by the executor.
+     */
+    private Runnable mPass;
+
+    /**
+     * True while an immediate eviction pass is scheduled.
+     */
+    private final AtomicBoolean mTriggered = new AtomicBoolean();
+
+    /**
+     * The bytes of all items and of each budgeted tag counted by the
+     * last pass plus the bytes written since.
+     */
+    private final Map<String, AtomicLong> mEstimatedBytes = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param maxBytes   The total byte budget (0 for none).
+     * @param tagBudgets The byte budget of each tag.
+     * @param itemTtl    The maximum item age (ms) (0 for none).
+     */
+    CacheEvictor(long maxBytes, Map<String, Long> tagBudgets, long itemTtl) {
+        mMaxBytes = maxBytes;
+        mTagBudgets = tagBudgets;
+        mItemTtl = itemTtl;
+        mEstimatedBytes.put(ALL_TAGS, new AtomicLong());
+        for (String tag : tagBudgets.keySet()) {
+            mEstimatedBytes.put(tag, new AtomicLong());
+        }
+    }
+
+    /**
+     * Starts running {@code pass} every {@code intervalMs} ms on a
+     * background thread.
+     */
+    synchronized void start(Runnable pass, long intervalMs) {
+        mPass = pass;
+        mExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Cache-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mExecutor.scheduleWithFixedDelay(this::runPass,
+                                         intervalMs,
+                                         intervalMs,
+                                         TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops running eviction passes and waits for a running pass to
+     * finish.
+     */
+    void stop() throws InterruptedException {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = mExecutor;
+            mExecutor = null;
+        }
+
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Records that {@code bytes} were written to an item with the
+     * passed {@code tag} and schedules an immediate pass if that may
+     * have exceeded the total budget or the tag's budget.
+     */
+    void written(String tag, int bytes) {
+        long total = mEstimatedBytes.get(ALL_TAGS).addAndGet(bytes);
+        if (mMaxBytes > 0 && total > mMaxBytes) {
+            trigger();
+        }
+
+        AtomicLong tagBytes = mEstimatedBytes.get(tag);
+        if (tagBytes != null && tagBytes.addAndGet(bytes) > mTagBudgets.get(tag)) {
+            trigger();
+        }
+    }
+
+    /**
+     * Schedules an immediate eviction pass unless one is pending.
+     */
+    private void trigger() {
+        ScheduledExecutorService executor = mExecutor;
+        if (executor != null && mTriggered.compareAndSet(false, true)) {
+            executor.execute(this::runPass);
+        }
+    }
+
+    private void runPass() {
+        mTriggered.set(false);
+        try {
+            mPass.run();
+        } catch (RuntimeException e) {
+            System.out.println("CacheEvictor[WARNING]: Eviction failed: " + e);
+        }
+    }
+
+    /**
+     * Selects the items to evict from all the items in the cache and
+     * halves the use count of each item.
+     *
+     * @param items The cached items.
+     * @param now   The current time (ms since the epoch).
+     * @return The items to evict in the order they should be evicted.
+     */
+    List<Cache.Item> select(Collection<Cache.Item> items, long now) {
+        List<Cache.Item> evicted = new ArrayList<>();
+        List<Cache.Item> candidates = new ArrayList<>(items.size());
+        Map<String, Long> tagBytes = new HashMap<>();
+        long totalBytes = 0;
+
+        for (Cache.Item item : items) {
+            if (item.busy) {
+                totalBytes += item.size;
+                tagBytes.merge(item.getTag(), (long) item.size, Long::sum);
+            } else if (mItemTtl > 0 && now - item.created > mItemTtl) {
+                evicted.add(item);
+            } else {
+                totalBytes += item.size;
+                tagBytes.merge(item.getTag(), (long) item.size, Long::sum);
+                candidates.add(item);
+            }
+        }
+
+        if (isOverBudget(totalBytes, tagBytes)) {
+            candidates.sort(Comparator
+                                    .comparing((Cache.Item item) -> item.hits > FREQUENT_HITS)
+                                    .thenComparingLong(item -> item.lastAccess));
+
+            for (Cache.Item item : candidates) {
+                String tag = item.getTag();
+                Long budget = mTagBudgets.get(tag);
+                long bytes = tagBytes.getOrDefault(tag, 0L);
+                if ((mMaxBytes > 0 && totalBytes > mMaxBytes)
+                        || (budget != null && bytes > budget)) {
+                    evicted.add(item);
+                    totalBytes -= item.size;
+                    tagBytes.put(tag, bytes - item.size);
+                }
+            }
+        }
+
+        // Restart the estimates from the bytes that remain.
+        mEstimatedBytes.get(ALL_TAGS).set(totalBytes);
+        for (String tag : mTagBudgets.keySet()) {
+            mEstimatedBytes.get(tag).set(tagBytes.getOrDefault(tag, 0L));
+        }
+
+        for (Cache.Item item : items) {
+            item.hits >>= 1;
+        }
+
+        return evicted;
+    }
+
+    private boolean isOverBudget(long totalBytes, Map<String, Long> tagBytes) {
+        if (mMaxBytes > 0 && totalBytes > mMaxBytes) {
+            return true;
+        }
+        for (Map.Entry<String, Long> entry : mTagBudgets.entrySet()) {
+            if (tagBytes.getOrDefault(entry.getKey(), 0L) > entry.getValue()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,484 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the items in a {@link Cache} that allows
+ * the cache to be reloaded at startup without listing and stat'ing
+ * every file in the cache directory.
+ * <p>
+ * The journal is an 8 byte header (magic and version) followed by
+ * PUT and REMOVE records.  A PUT record holds an item's key, size,
+ * creation time (ms since the epoch), image format and, when the
+ * cache deduplicates item contents, the digest of the item's blob and
+ * of the blob it was transformed from; the item's tag is the key's
+ * prefix and is not stored separately.  Each record ends
+ * with a CRC32 so that a record torn by a crash can be detected.  The
+ * journal is replayed (last record for a key wins) from a copy of
+ * the file read into memory and is rewritten with one PUT per live
+ * item whenever it is compacted.  The file is never memory mapped
+ * because a mapped file can't be truncated or replaced on Windows
+ * until the mapping is garbage collected.
+ * <p>
+ * Records are appended without forcing them to storage, so the
+ * journal may lag the cache directory after a system crash.  The
+ * cache therefore verifies each loaded item against its file the
+ * first time the item is used.
+ */
+class CacheIndex implements Closeable {
+    /**
+     * Journal file header magic ("CIDX").
+     */
+    static final int MAGIC = 0x43494458;
+
+    /**
+     * Journal format version.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Record types.
+     */
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    /**
+     * Header length (magic + version).
+     */
+    private static final int HEADER_LENGTH = 8;
+
+    /**
+     * Size of the fixed fields of a PUT record following the key
+     * (size, time, format, digest length, source digest length).
+     */
+    private static final int PUT_FIELDS_LENGTH = 4 + 8 + 1 + 1 + 1;
+
+    /**
+     * The journal is only compacted once it has at least this many
+     * redundant (overwritten or removed) records.
+     */
+    private static final int MIN_REDUNDANT_RECORDS = 2000;
+
+    /**
+     * The journal file.
+     */
+    private final File mFile;
+
+    /**
+     * Channel used to append records or null if the journal has
+     * not been loaded or rewritten yet.
+     */
+    private FileChannel mChannel;
+
+    /**
+     * The number of records in the journal that no longer describe
+     * a live item.
+     */
+    private int mRedundantRecords;
+
+    /**
+     * Constructor.
+     *
+     * @param file The journal file.
+     */
+    CacheIndex(File file) {
+        mFile = file;
+    }
+
+    /**
+     * @return The journal file.
+     */
+    File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Replays the journal and opens it for appending.  A record that
+     * was torn by a crash at the end of the journal is discarded.
+     *
+     * @return The live entries in the order they were first added,
+     * or null if the journal does not exist or is inconsistent, in
+     * which case the caller must rebuild it with {@link #rewrite}.
+     */
+    @Nullable
+    synchronized Map<String, Entry> load() throws IOException {
+        closeChannel();
+        mRedundantRecords = 0;
+
+        if (!mFile.isFile()) {
+            return null;
+        }
+
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        long validLength;
+
+        try (FileChannel channel =
+                     FileChannel.open(mFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH || size > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // Keep reading until the whole journal is buffered.
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+
+            int records = 0;
+            validLength = buffer.position();
+            while (buffer.hasRemaining()) {
+                Entry entry;
+                byte type;
+                try {
+                    type = buffer.get(buffer.position());
+                    entry = readRecord(buffer);
+                } catch (BufferUnderflowException e) {
+                    // A torn record at the end of the journal.
+                    break;
+                }
+
+                if (entry == null) {
+                    // A complete record with a bad checksum or type
+                    // means the journal is corrupt.
+                    return null;
+                }
+
+                records++;
+                if (type == PUT) {
+                    entries.put(entry.key, entry);
+                } else {
+                    entries.remove(entry.key);
+                }
+                validLength = buffer.position();
+            }
+
+            mRedundantRecords = records - entries.size();
+        }
+
+        mChannel = FileChannel.open(mFile.toPath(), StandardOpenOption.WRITE);
+        mChannel.truncate(validLength);
+        mChannel.position(validLength);
+
+        return entries;
+    }
+
+    /**
+     * @return true if the journal contains enough redundant records
+     * to be worth rewriting.
+     */
+    synchronized boolean needsCompaction() {
+        return mRedundantRecords >= MIN_REDUNDANT_RECORDS;
+    }
+
+    /**
+     * Atomically replaces the journal with one that contains a single
+     * PUT record for each of the passed {@code entries} and opens it
+     * for appending.  The journal is deleted if it can't be written.
+     *
+     * @param entries The live cache entries.
+     */
+    synchronized void rewrite(Collection<Entry> entries) throws IOException {
+        closeChannel();
+
+        try {
+            writeJournal(entries);
+        } catch (IOException e) {
+            discard();
+            throw e;
+        }
+
+        mRedundantRecords = 0;
+        mChannel = FileChannel.open(mFile.toPath(), StandardOpenOption.WRITE);
+        mChannel.position(mChannel.size());
+    }
+
+    private void writeJournal(Collection<Entry> entries) throws IOException {
+        File temp = new File(mFile.getPath() + ".tmp");
+        try (FileChannel channel = new FileOutputStream(temp).getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            buffer.putInt(MAGIC).putInt(VERSION);
+            for (Entry entry : entries) {
+                ByteBuffer record = encode(PUT, entry);
+                if (record.remaining() > buffer.remaining()) {
+                    write(channel, buffer);
+                }
+                if (record.remaining() > buffer.remaining()) {
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                } else {
+                    buffer.put(record);
+                }
+            }
+            write(channel, buffer);
+            channel.force(true);
+        }
+
+        // Unlike File.renameTo(), Files.move() replaces an existing
+        // index on all platforms.
+        try {
+            Files.move(temp.toPath(),
+                       mFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(),
+                       mFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Appends a PUT record for the passed entry.
+     */
+    void put(Entry entry) {
+        append(PUT, entry);
+    }
+
+    /**
+     * Appends a REMOVE record for the item with the passed key.
+     */
+    void remove(String key) {
+        append(REMOVE, new Entry(key, 0, 0L, null));
+    }
+
+    /**
+     * Closes the journal.  Records can no longer be appended until
+     * the journal is reloaded or rewritten.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closeChannel();
+    }
+
+    /**
+     * Appends a single record to the journal.  Appending is silently
+     * skipped if the journal is not open, and the journal is deleted
+     * if the record can't be written.
+     */
+    private synchronized void append(byte type, Entry entry) {
+        if (mChannel == null) {
+            return;
+        }
+
+        ByteBuffer record = encode(type, entry);
+        try {
+            while (record.hasRemaining()) {
+                mChannel.write(record);
+            }
+            // Items are PUT empty when created and again once written,
+            // so a non-empty PUT replaces an earlier record and a
+            // REMOVE makes both itself and an earlier record redundant.
+            if (type == REMOVE) {
+                mRedundantRecords += 2;
+            } else if (entry.size > 0) {
+                mRedundantRecords++;
+            }
+        } catch (IOException e) {
+            // A journal that is missing records can't be trusted, so
+            // discard it and let the next load rebuild it.
+            discard();
+        }
+    }
+
+    /**
+     * Closes and deletes the journal.
+     */
+    private void discard() {
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            // Ignore; the journal is being deleted anyway.
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        mFile.delete();
+    }
+
+    private void closeChannel() throws IOException {
+        if (mChannel != null) {
+            mChannel.close();
+            mChannel = null;
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Encodes a record as: type (1), key length (2), UTF-8 key,
+     * [size (4), time (8), format ordinal or -1 (1), digest length (1),
+     * ASCII digest, source digest length (1), ASCII source digest] for
+     * PUT records, and a CRC32 (4) of all the preceding record bytes.
+     */
+    private static ByteBuffer encode(byte type, Entry entry) {
+        byte[] key = entry.key.getBytes(StandardCharsets.UTF_8);
+        if (key.length > 0xffff) {
+            throw new IllegalArgumentException(
+                    "Cache key is too long to index: " + entry.key);
+        }
+
+        byte[] digest = toBytes(entry.digest);
+        byte[] sourceDigest = toBytes(entry.sourceDigest);
+
+        ByteBuffer record = ByteBuffer.allocate(
+                1 + 2 + key.length
+                        + (type == PUT
+                           ? PUT_FIELDS_LENGTH + digest.length + sourceDigest.length
+                           : 0)
+                        + 4);
+        record.put(type).putShort((short) key.length).put(key);
+        if (type == PUT) {
+            record.putInt(entry.size)
+                    .putLong(entry.time)
+                    .put((byte) (entry.format != null ? entry.format.ordinal() : -1))
+                    .put((byte) digest.length)
+                    .put(digest)
+                    .put((byte) sourceDigest.length)
+                    .put(sourceDigest);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Decodes the record at the buffer's position (see {@link #encode}).
+     *
+     * @return The decoded entry or null if the record is corrupt.
+     * @throws BufferUnderflowException if the record is truncated.
+     */
+    @Nullable
+    private static Entry readRecord(ByteBuffer buffer) {
+        int start = buffer.position();
+        byte type = buffer.get();
+        if (type != PUT && type != REMOVE) {
+            return null;
+        }
+
+        byte[] key = new byte[buffer.getShort() & 0xffff];
+        buffer.get(key);
+
+        int size = 0;
+        long time = 0L;
+        int format = -1;
+        byte[] digest = new byte[0];
+        byte[] sourceDigest = new byte[0];
+        if (type == PUT) {
+            size = buffer.getInt();
+            time = buffer.getLong();
+            format = buffer.get();
+            digest = new byte[buffer.get() & 0xff];
+            buffer.get(digest);
+            sourceDigest = new byte[buffer.get() & 0xff];
+            buffer.get(sourceDigest);
+        }
+
+        byte[] bytes = new byte[buffer.position() - start];
+        int expected = buffer.getInt();
+
+        CRC32 crc = new CRC32();
+        ByteBuffer record = buffer.duplicate();
+        record.position(start);
+        record.get(bytes);
+        crc.update(bytes, 0, bytes.length);
+        if ((int) crc.getValue() != expected) {
+            return null;
+        }
+
+        ImageFormat[] formats = ImageFormat.values();
+        if (format < -1 || format >= formats.length) {
+            return null;
+        }
+
+        return new Entry(new String(key, StandardCharsets.UTF_8),
+                         size,
+                         time,
+                         format >= 0 ? formats[format] : null,
+                         fromBytes(digest),
+                         fromBytes(sourceDigest));
+    }
+
+    /**
+     * Encodes an optional digest (at most 255 ASCII characters).
+     */
+    private static byte[] toBytes(@Nullable String digest) {
+        if (digest == null) {
+            return new byte[0];
+        }
+
+        byte[] bytes = digest.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > 0xff) {
+            throw new IllegalArgumentException("Digest is too long to index: " + digest);
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes an optional digest written by {@link #toBytes}.
+     */
+    @Nullable
+    private static String fromBytes(byte[] bytes) {
+        return bytes.length > 0 ? new String(bytes, StandardCharsets.US_ASCII) : null;
+    }
+
+    /**
+     * The indexed state of a single cache item.
+     */
+    static class Entry {
+        final String key;
+        final int size;
+        final long time;
+        final ImageFormat format;
+        final String digest;
+        final String sourceDigest;
+
+        Entry(String key, int size, long time, @Nullable ImageFormat format) {
+            this(key, size, time, format, null, null);
+        }
+
+        Entry(String key,
+              int size,
+              long time,
+              @Nullable ImageFormat format,
+              @Nullable String digest,
+              @Nullable String sourceDigest) {
+            this.key = key;
+            this.size = size;
+            this.time = time;
+            this.format = format;
+            this.digest = digest;
+            this.sourceDigest = sourceDigest;
+        }
+    }
+}
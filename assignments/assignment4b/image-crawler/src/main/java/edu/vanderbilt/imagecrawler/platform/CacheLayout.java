@@ -0,0 +1,73 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Defines how the Cache class in Cache.java maps item keys to files
+ * in the cache directory and back again.
+ */
+public interface CacheLayout {
+    /**
+     * Supported CacheLayout implementations that can be selected when
+     * constructing a Cache.
+     */
+    enum Type {
+        /**
+         * Each item file is named by its encoded key and stored
+         * directly in the cache directory (FlatCacheLayout).
+         */
+        FLAT,
+        /**
+         * Each item file is named by a fixed length hash of its key
+         * and stored in a two level shard directory, with the key
+         * stored in a small metadata file (HashedCacheLayout).
+         */
+        HASHED
+    }
+
+    /**
+     * Maps an item key to the item's file.
+     *
+     * @param cacheDir The root cache directory.
+     * @param key      The item's encoded cache key.
+     * @return The item's file (which may not exist).
+     */
+    File mapKeyToFile(File cacheDir, String key);
+
+    /**
+     * Maps an item file back to the item's key.
+     *
+     * @param file An item file.
+     * @return The item's encoded cache key or null if the file is not
+     * a valid item file.
+     */
+    @Nullable
+    String mapFileToKey(File file);
+
+    /**
+     * @return true if {@code file} holds layout metadata rather than
+     * item contents.
+     */
+    boolean isMetadataFile(File file);
+
+    /**
+     * Creates a new empty item file (and any metadata) for the item
+     * with the passed key.
+     *
+     * @param file The file returned by {@link #mapKeyToFile}.
+     * @param key  The item's encoded cache key.
+     * @return false if the file already exists.
+     */
+    boolean createFile(File file, String key) throws IOException;
+
+    /**
+     * Deletes an item file and any metadata.
+     *
+     * @param file An item file.
+     * @return true if the item file was deleted.
+     */
+    boolean deleteFile(File file);
+}
@@ -11,6 +11,22 @@ import java.util.function.Function;
  * in Cache.java.
  */
 public interface CacheMap<K, V> {
+    /**
+     * Supported CacheMap implementations that can be selected when
+     * constructing a Cache.
+     */
+    enum Type {
+        /**
+         * A HashMap guarded by a single monitor (SynchronizedCacheMap).
+         */
+        SYNCHRONIZED,
+        /**
+         * A ConcurrentHashMap with lock-free lookups and striped
+         * locking for additions (ConcurrentCacheMap).
+         */
+        CONCURRENT
+    }
+
     /**
      * Clears all entries in the map.
      */
@@ -64,6 +80,16 @@ public interface CacheMap<K, V> {
      */
     V remove(K key);
 
+    /**
+     * Removes the entry that matches the specified {@code key} only
+     * if it is currently mapped to {@code value}.
+     *
+     * @param key   The entry's key.
+     * @param value The value expected to be mapped to the key.
+     * @return {@code true} if the entry was removed.
+     */
+    boolean remove(K key, V value);
+
     /**
      * Checks if the map contains the specified key.
      *
@@ -0,0 +1,410 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable data class containing the storage options of a
+ * {@link Cache}. Like {@link edu.vanderbilt.imagecrawler.utils.Options},
+ * all fields are final and are accessed directly.
+ */
+public class CacheOptions {
+    /**
+     * The CacheMap implementation used to map keys to items.
+     * <p>
+     * Default: SYNCHRONIZED.
+     */
+    public final CacheMap.Type mapType;
+
+    /**
+     * The file in which the cache maintains an index of its items so
+     * that it can be reloaded without scanning the cache directory
+     * (null for no index). The index file must not be located in the
+     * cache directory.
+     * <p>
+     * Default: null.
+     */
+    public final File indexFile;
+
+    /**
+     * The layout of the item files in the cache directory.
+     * <p>
+     * Default: FLAT.
+     */
+    public final CacheLayout.Type layoutType;
+
+    /**
+     * The directory in which small items are appended to shared
+     * segment files rather than being stored in files of their own
+     * (null to store every item in its own file). Packed items have
+     * no item file, so this option can't be used by platforms that
+     * access item files directly. The directory must not be located
+     * in the cache directory.
+     * <p>
+     * Default: null.
+     */
+    public final File packDir;
+
+    /**
+     * Items larger than this number of bytes are stored in files of
+     * their own even when {@code packDir} is set.
+     * <p>
+     * Default: 64 KB.
+     */
+    public final int packThreshold;
+
+    /**
+     * A new segment file is started once the current one reaches
+     * this size.
+     * <p>
+     * Default: 64 MB.
+     */
+    public final long packSegmentSize;
+
+    /**
+     * The directory in which item contents are stored once per
+     * distinct content (by digest) no matter how many uri/tag keys
+     * contain them, with each item file holding a reference to the
+     * contents (null to store contents in the item files). A
+     * transform of contents that have already been transformed by
+     * the same transform reuses the existing result. Like
+     * {@code packDir}, this option can't be used by platforms that
+     * access item files directly, and it can't be combined with
+     * {@code packDir}. The directory must not be located in the
+     * cache directory.
+     * <p>
+     * Default: null.
+     */
+    public final File blobDir;
+
+    /**
+     * How observer events are delivered. With ASYNCHRONOUS dispatch,
+     * the threads using the cache only queue events, and a dedicated
+     * thread delivers them, so slow observers don't slow down a
+     * crawl. Progress events (DOWNLOAD, READ, WRITE and TRANSFORM
+     * events with a progress value) are then coalesced so that only
+     * the latest progress of each item is delivered, at most once per
+     * {@code progressInterval}. All other events are always delivered.
+     * <p>
+     * Default: SYNCHRONOUS.
+     */
+    public final Cache.DispatchMode dispatchMode;
+
+    /**
+     * The number of events that can be queued for asynchronous
+     * delivery (rounded up to a power of two).
+     * <p>
+     * Default: 4096.
+     */
+    public final int eventBufferSize;
+
+    /**
+     * The minimum time (ms) between two asynchronously delivered
+     * progress events for the same item and operation.
+     * <p>
+     * Default: 50 ms.
+     */
+    public final long progressInterval;
+
+    /**
+     * The maximum total number of bytes of all cached items (0 for no
+     * limit). When the cache grows beyond this size, items are
+     * evicted in the background, least recently and least frequently
+     * used first, with a DELETE notification for each evicted item.
+     * Items that are being written are never evicted. When contents
+     * are shared by blobs, each item counts the full size of its
+     * contents.
+     * <p>
+     * Default: 0.
+     */
+    public final long maxBytes;
+
+    /**
+     * The maximum total number of bytes of the cached items with each
+     * tag ({@link Cache#NOTAG} for the default group). Tags without a
+     * budget are only limited by {@code maxBytes}.
+     * <p>
+     * Default: empty.
+     */
+    public final Map<String, Long> tagBudgets;
+
+    /**
+     * The maximum age (ms) of a cached item (0 for no limit). Older
+     * items are evicted in the background.
+     * <p>
+     * Default: 0.
+     */
+    public final long itemTtl;
+
+    /**
+     * The time (ms) between two background eviction passes when
+     * {@code maxBytes}, {@code tagBudgets} or {@code itemTtl} is set.
+     * A pass is also run as soon as a write exceeds a budget.
+     * <p>
+     * Default: 60 s.
+     */
+    public final long evictionInterval;
+
+    private CacheOptions(Builder builder) {
+        mapType = builder.mMapType;
+        indexFile = builder.mIndexFile;
+        layoutType = builder.mLayoutType;
+        packDir = builder.mPackDir;
+        packThreshold = builder.mPackThreshold;
+        packSegmentSize = builder.mPackSegmentSize;
+        blobDir = builder.mBlobDir;
+        dispatchMode = builder.mDispatchMode;
+        eventBufferSize = builder.mEventBufferSize;
+        progressInterval = builder.mProgressInterval;
+        maxBytes = builder.mMaxBytes;
+        tagBudgets = Collections.unmodifiableMap(new HashMap<>(builder.mTagBudgets));
+        itemTtl = builder.mItemTtl;
+        evictionInterval = builder.mEvictionInterval;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * {@code CacheOptions} builder static inner class with default values set.
+     */
+    public static final class Builder {
+        private CacheMap.Type mMapType = CacheMap.Type.SYNCHRONIZED;
+        private File mIndexFile = null;
+        private CacheLayout.Type mLayoutType = CacheLayout.Type.FLAT;
+        private File mPackDir = null;
+        private int mPackThreshold = 64 * 1024;
+        private long mPackSegmentSize = 64L * 1024 * 1024;
+        private File mBlobDir = null;
+        private Cache.DispatchMode mDispatchMode = Cache.DispatchMode.SYNCHRONOUS;
+        private int mEventBufferSize = 4096;
+        private long mProgressInterval = 50;
+        private long mMaxBytes = 0;
+        private final Map<String, Long> mTagBudgets = new HashMap<>();
+        private long mItemTtl = 0;
+        private long mEvictionInterval = 60_000;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the {@code mapType} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code mapType} to set
+         * @return a reference to this Builder
+         */
+        public Builder mapType(CacheMap.Type val) {
+            if (val != null) {
+                mMapType = val;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the {@code indexFile} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code indexFile} to set (null for no index)
+         * @return a reference to this Builder
+         */
+        public Builder indexFile(File val) {
+            mIndexFile = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code layoutType} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code layoutType} to set
+         * @return a reference to this Builder
+         */
+        public Builder layoutType(CacheLayout.Type val) {
+            if (val != null) {
+                mLayoutType = val;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the {@code packDir} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code packDir} to set (null to store every item in its own file)
+         * @return a reference to this Builder
+         */
+        public Builder packDir(File val) {
+            mPackDir = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code packThreshold} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code packThreshold} to set
+         * @return a reference to this Builder
+         */
+        public Builder packThreshold(int val) {
+            if (val < 0) {
+                throw new IllegalArgumentException("packThreshold must be >= 0");
+            }
+            mPackThreshold = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code packSegmentSize} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code packSegmentSize} to set
+         * @return a reference to this Builder
+         */
+        public Builder packSegmentSize(long val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("packSegmentSize must be > 0");
+            }
+            mPackSegmentSize = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code blobDir} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code blobDir} to set (null to store contents in the item files)
+         * @return a reference to this Builder
+         */
+        public Builder blobDir(File val) {
+            mBlobDir = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code dispatchMode} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code dispatchMode} to set
+         * @return a reference to this Builder
+         */
+        public Builder dispatchMode(Cache.DispatchMode val) {
+            if (val != null) {
+                mDispatchMode = val;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the {@code eventBufferSize} and returns a reference to this Builder so
+         * that the methods can be chained together.
+         *
+         * @param val the {@code eventBufferSize} to set
+         * @return a reference to this Builder
+         */
+        public Builder eventBufferSize(int val) {
+            if (val < 2 || val > 1 << 24) {
+                throw new IllegalArgumentException("eventBufferSize must be in [2, 2^24]");
+            }
+            mEventBufferSize = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code progressInterval} and returns a reference to this Builder so
+         * that the methods can be chained together.
+         *
+         * @param val the {@code progressInterval} to set (ms)
+         * @return a reference to this Builder
+         */
+        public Builder progressInterval(long val) {
+            if (val < 0) {
+                throw new IllegalArgumentException("progressInterval must be >= 0");
+            }
+            mProgressInterval = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code maxBytes} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code maxBytes} to set (0 for no limit)
+         * @return a reference to this Builder
+         */
+        public Builder maxBytes(long val) {
+            if (val < 0) {
+                throw new IllegalArgumentException("maxBytes must be >= 0");
+            }
+            mMaxBytes = val;
+            return this;
+        }
+
+        /**
+         * Sets the byte budget of the items with the passed {@code tag} and returns
+         * a reference to this Builder so that the methods can be chained together.
+         *
+         * @param tag the tag (null for the default group)
+         * @param val the budget to set (0 to remove the budget)
+         * @return a reference to this Builder
+         */
+        public Builder tagBudget(String tag, long val) {
+            if (val < 0) {
+                throw new IllegalArgumentException("tag budget must be >= 0");
+            }
+            String key = tag != null ? tag : Cache.NOTAG;
+            if (val == 0) {
+                mTagBudgets.remove(key);
+            } else {
+                mTagBudgets.put(key, val);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the {@code itemTtl} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code itemTtl} to set (ms, 0 for no limit)
+         * @return a reference to this Builder
+         */
+        public Builder itemTtl(long val) {
+            if (val < 0) {
+                throw new IllegalArgumentException("itemTtl must be >= 0");
+            }
+            mItemTtl = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code evictionInterval} and returns a reference to this Builder so
+         * that the methods can be chained together.
+         *
+         * @param val the {@code evictionInterval} to set (ms)
+         * @return a reference to this Builder
+         */
+        public Builder evictionInterval(long val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("evictionInterval must be > 0");
+            }
+            mEvictionInterval = val;
+            return this;
+        }
+
+        /**
+         * Returns a {@code CacheOptions} built from the parameters previously set.
+         *
+         * @return a {@code CacheOptions} built with parameters of this
+         * {@code CacheOptions.Builder}
+         */
+        public CacheOptions build() {
+            if (mPackDir != null && mBlobDir != null) {
+                throw new IllegalStateException("packDir and blobDir can't both be set");
+            }
+            return new CacheOptions(this);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A CacheMap implementation that wraps a ConcurrentHashMap and uses
+ * an array of lock stripes (rather than a single monitor) to
+ * serialize only those threads that are adding or replacing entries
+ * whose keys hash to the same stripe.  Lookups never lock.
+ * <p>
+ * Unlike ConcurrentHashMap.computeIfAbsent(), the mapper function is
+ * not run while holding a hash bin lock, so a mapper that performs
+ * file I/O (e.g., Cache.newItem()) only delays threads that are
+ * adding a key in the same stripe.  The mapper is still guaranteed
+ * to be called at most once for each absent key.
+ */
+class ConcurrentCacheMap
+      implements CacheMap<String, Cache.Item> {
+    /**
+     * The default number of lock stripes.
+     */
+    private static final int DEFAULT_STRIPES =
+        ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors() * 4);
+
+    /**
+     * The wrapped concurrent map.
+     */
+    private final ConcurrentHashMap<String, Cache.Item> mMap;
+
+    /**
+     * The lock stripes used to serialize updates to the same key.
+     */
+    private final Object[] mLocks;
+
+    /**
+     * Constructor initializes the map with the default number of
+     * lock stripes.
+     */
+    ConcurrentCacheMap() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructor initializes the map with (at least) {@code stripes}
+     * lock stripes.
+     *
+     * @param stripes The minimum number of lock stripes to use.
+     */
+    ConcurrentCacheMap(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be > 0");
+        }
+
+        mMap = new ConcurrentHashMap<>();
+        mLocks = new Object[ceilingPowerOfTwo(stripes)];
+        for (int i = 0; i < mLocks.length; i++) {
+            mLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Clears all entries in the map.
+     */
+    @Override
+    public void clear() {
+        mMap.clear();
+    }
+
+    /**
+     * Associates the specified value with the specified key in this
+     * map.  If the map previously contained a mapping for the key,
+     * the old value is replaced.
+     *
+     * @param key   key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     * <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     */
+    @Override
+    public Cache.Item put(String key, Cache.Item value) {
+        synchronized (lockFor(key)) {
+            return mMap.put(key, value);
+        }
+    }
+
+    /**
+     * Attempts to add a new entry to the map identified by the passed
+     * {@code key}. If the the map doesn't already contain an entry
+     * with a matching key, the {@code mapper} is called (at most once
+     * per key) while holding only the lock stripe for {@code key},
+     * and its result is added to the map. If an entry with the
+     * specified {@code key} already exists, the entry's value is
+     * returned without taking any lock.
+     *
+     * @param key    The key for the new entry.
+     * @param mapper A lambda that maps the provided key to an
+     *               entry value to be added to the map.
+     * @return The added value if it was added, or an existing value if a
+     * entry with the specified key already existed.
+     */
+    @Override
+    public Cache.Item computeIfAbsent(String key,
+                                      Function<? super String, ? extends Cache.Item> mapper) {
+        // Fast path: most calls find an existing item.
+        Cache.Item item = mMap.get(key);
+        if (item != null) {
+            return item;
+        }
+
+        synchronized (lockFor(key)) {
+            // Recheck now that we own the stripe for this key.
+            item = mMap.get(key);
+            if (item == null) {
+                item = mapper.apply(key);
+                if (item != null) {
+                    mMap.put(key, item);
+                }
+            }
+            return item;
+        }
+    }
+
+    /**
+     * Returns a data value from the map that matches
+     * the specified {@code key} or null if no matching
+     * key was found.
+     *
+     * @param key The key to lookup.
+     */
+    @Override
+    public Cache.Item get(String key) {
+        return mMap.get(key);
+    }
+
+    /**
+     * Removes the entry that matches the specified {@code key}
+     * and returns the removed entries data object.
+     *
+     * @param key The entry's key.
+     * @return The removed entry data value, or null if the cache
+     * does not contain an entry with a matching key.
+     */
+    @Override
+    public Cache.Item remove(String key) {
+        synchronized (lockFor(key)) {
+            return mMap.remove(key);
+        }
+    }
+
+    /**
+     * Removes the entry that matches the specified {@code key} only
+     * if it is currently mapped to {@code value}.
+     *
+     * @param key   The entry's key.
+     * @param value The value expected to be mapped to the key.
+     * @return {@code true} if the entry was removed.
+     */
+    @Override
+    public boolean remove(String key, Cache.Item value) {
+        synchronized (lockFor(key)) {
+            return mMap.remove(key, value);
+        }
+    }
+
+    /**
+     * Checks if the map contains the specified key.
+     *
+     * @param key The key to lookup.
+     * @return {@code true} if a matching key is found,
+     * {@code false} if not found.
+     */
+    @Override
+    public boolean containsKey(String key) {
+        return mMap.containsKey(key);
+    }
+
+    /**
+     * @return Number of entries in the map.
+     */
+    @Override
+    public int size() {
+        return mMap.size();
+    }
+
+    /**
+     * Enumerates all entries in the map and calls the {@code action}
+     * BiConsumer passing in each entry's key and value as parameters.
+     * The traversal is weakly consistent, so the {@code action} may
+     * safely add or remove entries.
+     *
+     * @param action A BiConsumer that receives a the each entry's
+     *               key and value.
+     */
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Cache.Item> action) {
+        mMap.forEach(action);
+    }
+
+    /**
+     * @return The lock stripe that guards updates to {@code key}.
+     */
+    private Object lockFor(String key) {
+        // Spread the higher bits downward since the stripe count
+        // is a power of two.
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return mLocks[h & (mLocks.length - 1)];
+    }
+
+    /**
+     * @return The smallest power of two that is >= {@code value}.
+     */
+    private static int ceilingPowerOfTwo(int value) {
+        int n = 1;
+        while (n < value) {
+            n <<= 1;
+        }
+        return n;
+    }
+}
@@ -4,12 +4,16 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
 
 import edu.vanderbilt.imagecrawler.transforms.Transform;
+import edu.vanderbilt.imagecrawler.utils.CrawlFrontier;
 import edu.vanderbilt.imagecrawler.utils.Options;
+import edu.vanderbilt.imagecrawler.utils.VisitedSet;
+import edu.vanderbilt.imagecrawler.utils.WebPageCrawler;
 
 /**
  * This class contains the crawler options and transforms, as well as
@@ -86,7 +90,11 @@ public class Controller {
      * @return A new platform dependant image object.
      */
     public PlatformImage newImage(InputStream inputStream, Cache.Item item) {
-        return platform.newImage(inputStream, item);
+        PlatformImage image = platform.newImage(inputStream, item);
+        if (image != null) {
+            image.setParallelTransformThreshold(options.parallelTransformThreshold);
+        }
+        return image;
     }
 
     /**
@@ -98,6 +106,13 @@ public class Controller {
         return platform.mapUriToInputStream(uri);
     }
 
+    /**
+     * @return The platform's fetcher for http and https uris.
+     */
+    public HttpFetcher getHttpFetcher() {
+        return platform.getHttpFetcher();
+    }
+
     /**
      * Cache implementation provided by platform.
      *
@@ -192,6 +207,20 @@ public class Controller {
             return this;
         }
 
+        /**
+         * Sets already constructed {@code transforms} (for example,
+         * a CompositeTransform) and returns a reference to this
+         * Builder so that the methods can be chained together.
+         *
+         * @param val the {@code transforms} to set
+         * @return a reference to this Builder
+         */
+        @NotNull
+        public Builder transformInstances(@NotNull List<Transform> val) {
+            transforms = new ArrayList<>(val);
+            return this;
+        }
+
         /**
          * Sets the {@code transforms} and returns a reference to this
          * Builder so that the methods can be chained together.
@@ -259,6 +288,187 @@ public class Controller {
             return this;
         }
 
+        /**
+         * Sets the {@code memoryCacheSize} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code memoryCacheSize} in bytes to set (0 to disable)
+         * @return a reference to this Builder
+         */
+        public Builder memoryCacheSize(long val) {
+            optionsBuilder.memoryCacheSize(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code ioPoolSize} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the maximum number of concurrent I/O requests to set
+         * @return a reference to this Builder
+         */
+        public Builder ioPoolSize(int val) {
+            optionsBuilder.ioPoolSize(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code cpuPoolSize} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the number of transform threads to set
+         * @return a reference to this Builder
+         */
+        public Builder cpuPoolSize(int val) {
+            optionsBuilder.cpuPoolSize(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code virtualThreads} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code virtualThreads} to set
+         * @return a reference to this Builder
+         */
+        public Builder virtualThreads(boolean val) {
+            optionsBuilder.virtualThreads(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code imagePermits} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the maximum number of in-flight images of a crawl to set
+         * @return a reference to this Builder
+         */
+        public Builder imagePermits(int val) {
+            optionsBuilder.imagePermits(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code maxRequestsPerHost} and returns a reference to this Builder so
+         * that the methods can be chained together.
+         *
+         * @param val the maximum number of concurrent requests per host to set
+         * @return a reference to this Builder
+         */
+        public Builder maxRequestsPerHost(int val) {
+            optionsBuilder.maxRequestsPerHost(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code frontierScorer} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code frontierScorer} to set
+         * @return a reference to this Builder
+         */
+        public Builder frontierScorer(CrawlFrontier.Scorer val) {
+            optionsBuilder.frontierScorer(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code spillDir} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code spillDir} to set (null to keep all crawl state in memory)
+         * @return a reference to this Builder
+         */
+        public Builder spillDir(File val) {
+            optionsBuilder.spillDir(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code spillThreshold} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code spillThreshold} to set
+         * @return a reference to this Builder
+         */
+        public Builder spillThreshold(int val) {
+            optionsBuilder.spillThreshold(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code expectedUris} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code expectedUris} to set
+         * @return a reference to this Builder
+         */
+        public Builder expectedUris(long val) {
+            optionsBuilder.expectedUris(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code visitedSet} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code visitedSet} to set
+         * @return a reference to this Builder
+         */
+        public Builder visitedSet(VisitedSet.Type val) {
+            optionsBuilder.visitedSet(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code canonicalUris} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code canonicalUris} to set
+         * @return a reference to this Builder
+         */
+        public Builder canonicalUris(boolean val) {
+            optionsBuilder.canonicalUris(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code pageParser} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code pageParser} to set
+         * @return a reference to this Builder
+         */
+        public Builder pageParser(WebPageCrawler.Parser val) {
+            optionsBuilder.pageParser(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code parallelTransformThreshold} and returns a reference to this Builder
+         * so that the methods can be chained together.
+         *
+         * @param val the pixel count above which images are transformed in parallel (0 to
+         *            disable)
+         * @return a reference to this Builder
+         */
+        public Builder parallelTransformThreshold(long val) {
+            optionsBuilder.parallelTransformThreshold(val);
+            return this;
+        }
+
+        /**
+         * Sets the {@code outputEncoder} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code outputEncoder} to set
+         * @return a reference to this Builder
+         */
+        public Builder outputEncoder(ImageEncoder val) {
+            optionsBuilder.outputEncoder(val);
+            return this;
+        }
+
         /**
          * Returns a {@code Controller} built from the parameters previously
          * set.
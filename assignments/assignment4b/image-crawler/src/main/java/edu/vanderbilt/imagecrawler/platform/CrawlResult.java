@@ -2,9 +2,10 @@ package edu.vanderbilt.imagecrawler.platform;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.net.URL;
 import java.util.function.Consumer;
 
+import edu.vanderbilt.imagecrawler.utils.CrawlUri;
+
 /**
  * Immutable data class so getters are redundant.
  */
@@ -48,7 +49,7 @@ public class CrawlResult {
      * @param state    The current crawl state.
      */
     public static void reportStatus(Consumer<CrawlResult> consumer,
-                                    URL url,
+                                    CrawlUri url,
                                     State state) {
         consumer.accept(
                 newBuilder()
@@ -66,7 +67,7 @@ public class CrawlResult {
      * @param e        An optional exception.
      */
     public static void submitError(Consumer<CrawlResult> consumer,
-                                   URL url,
+                                   CrawlUri url,
                                    String message,
                                    Exception e) {
         consumer.accept(
@@ -86,7 +87,7 @@ public class CrawlResult {
      * @param path     The cache path of the downloaded image.
      */
     public static void submitResult(Consumer<CrawlResult> consumer,
-                                    URL url,
+                                    CrawlUri url,
                                     String path) {
         consumer.accept(
                 newBuilder()
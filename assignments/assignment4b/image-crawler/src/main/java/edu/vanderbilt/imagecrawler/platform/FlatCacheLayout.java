@@ -0,0 +1,41 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The original cache layout, which uses an item's encoded key as
+ * the name of the item's file in the root cache directory.
+ */
+class FlatCacheLayout implements CacheLayout {
+    @Override
+    public File mapKeyToFile(File cacheDir, String key) {
+        return new File(cacheDir, key);
+    }
+
+    @Override
+    public String mapFileToKey(File file) {
+        // Make sure that the file has the required name format.
+        String[] parts = file.getName().split("-", 2);
+        if (parts.length != 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
+            return null;
+        }
+
+        return file.getName();
+    }
+
+    @Override
+    public boolean isMetadataFile(File file) {
+        return false;
+    }
+
+    @Override
+    public boolean createFile(File file, String key) throws IOException {
+        return file.createNewFile();
+    }
+
+    @Override
+    public boolean deleteFile(File file) {
+        return file.delete();
+    }
+}
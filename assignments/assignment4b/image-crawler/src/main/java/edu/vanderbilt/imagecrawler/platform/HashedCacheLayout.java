@@ -0,0 +1,114 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A cache layout that names each item file by the SHA-1 hash of the
+ * item's key (40 hex digits) and spreads the files over 65536 shard
+ * directories named by the first two pairs of hash digits, e.g.
+ * "3f/a2/3fa2...". Unlike the flat layout, the number of entries in
+ * any one directory stays small and file names never exceed the
+ * file system's limits no matter how long the source URL is.
+ * <p>
+ * Since a key can't be recovered from its hash, the key is stored in
+ * a metadata file next to the item file ("3fa2....key") so that the
+ * cache can be rebuilt by scanning the cache directory.
+ */
+class HashedCacheLayout implements CacheLayout {
+    /**
+     * Suffix of the metadata file holding an item's key.
+     */
+    static final String METADATA_SUFFIX = ".key";
+
+    /**
+     * Length of an item file name (hex SHA-1 digest).
+     */
+    private static final int NAME_LENGTH = 40;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * MessageDigest instances are not thread-safe.
+     */
+    private static final ThreadLocal<MessageDigest> sha1 =
+            ThreadLocal.withInitial(() -> {
+                try {
+                    return MessageDigest.getInstance("SHA-1");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+    @Override
+    public File mapKeyToFile(File cacheDir, String key) {
+        String name = hash(key);
+        File shard = new File(new File(cacheDir, name.substring(0, 2)),
+                              name.substring(2, 4));
+        return new File(shard, name);
+    }
+
+    @Override
+    public String mapFileToKey(File file) {
+        String name = file.getName();
+        if (name.length() != NAME_LENGTH) {
+            return null;
+        }
+
+        String key;
+        try {
+            key = FileUtils.readFileToString(getMetadataFile(file),
+                                             StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+
+        // Reject files whose metadata doesn't belong to them.
+        return name.equals(hash(key)) ? key : null;
+    }
+
+    @Override
+    public boolean isMetadataFile(File file) {
+        return file.getName().endsWith(METADATA_SUFFIX);
+    }
+
+    @Override
+    public boolean createFile(File file, String key) throws IOException {
+        FileUtils.forceMkdir(file.getParentFile());
+        if (!file.createNewFile()) {
+            return false;
+        }
+
+        FileUtils.writeStringToFile(getMetadataFile(file), key, StandardCharsets.UTF_8);
+        return true;
+    }
+
+    @Override
+    public boolean deleteFile(File file) {
+        //noinspection ResultOfMethodCallIgnored
+        getMetadataFile(file).delete();
+        return file.delete();
+    }
+
+    private static File getMetadataFile(File file) {
+        return new File(file.getPath() + METADATA_SUFFIX);
+    }
+
+    /**
+     * @return The lower case hex SHA-1 digest of the UTF-8 key.
+     */
+    private static String hash(String key) {
+        byte[] digest = sha1.get().digest(key.getBytes(StandardCharsets.UTF_8));
+        char[] name = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            name[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+            name[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xf];
+        }
+        return new String(name);
+    }
+}
@@ -0,0 +1,637 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Fetches http and https uris for the platforms' {@link
+ * Platform#mapUriToInputStream} implementations.
+ * <p>
+ * Every fetch is bounded in time: connecting is limited by {@code
+ * connectTimeout}, each read by {@code readTimeout}, and the whole
+ * response, from the first request byte to the last body byte, by
+ * {@code deadline}, so a stalled or trickling server can't pin the
+ * calling thread. A fetch that runs out of time fails with a {@link
+ * SocketTimeoutException}, and a response with an error status fails
+ * with a {@link StatusException}.
+ * <p>
+ * Fetches go through {@link HttpURLConnection}, whose keep-alive
+ * cache is shared by all connections of the process and reuses each
+ * connection once its response has been read and closed. A fetcher
+ * limits the number of responses that are open at the same time for
+ * each host (waiting fetches count against the deadline), which also
+ * bounds the number of connections to that host. The JDK keeps at
+ * most "http.maxConnections" (default 5) idle connections per host,
+ * so that is also the default limit.
+ * <p>
+ * Compressed (gzip or deflate) responses are requested and
+ * transparently decoded, and each body is returned as a {@link
+ * Response} stream that also holds the response's status, length,
+ * and content type. Closing the stream returns its connection.
+ * <p>
+ * All default field values are defined in the inner Builder class.
+ */
+public class HttpFetcher {
+    /**
+     * Closes the connections of fetches whose deadline passes while
+     * they wait for the response headers.
+     */
+    private static final ScheduledThreadPoolExecutor sWatchdog = newWatchdog();
+
+    /**
+     * The number of bytes of an error response that are read so that
+     * its connection can be reused.
+     */
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    private final int mConnectTimeout;
+    private final int mReadTimeout;
+    private final long mDeadline;
+    private final int mMaxConnectionsPerHost;
+    private final boolean mCompression;
+    private final String mUserAgent;
+
+    /**
+     * The open response permits of each host ("host:port").
+     */
+    private final ConcurrentHashMap<String, Semaphore> mHostPermits =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Fetch statistics.
+     */
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final AtomicInteger mErrors = new AtomicInteger();
+    private final AtomicInteger mTimeouts = new AtomicInteger();
+
+    private HttpFetcher(Builder builder) {
+        mConnectTimeout = builder.mConnectTimeout;
+        mReadTimeout = builder.mReadTimeout;
+        mDeadline = builder.mDeadline;
+        mMaxConnectionsPerHost = builder.mMaxConnectionsPerHost;
+        mCompression = builder.mCompression;
+        mUserAgent = builder.mUserAgent;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The fetcher with the default settings that is shared by
+     * the platforms.
+     */
+    public static HttpFetcher getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * @return True if {@code uri} is an http or https uri.
+     */
+    public static boolean isHttpUri(String uri) {
+        return uri.regionMatches(true, 0, "http://", 0, 7)
+               || uri.regionMatches(true, 0, "https://", 0, 8);
+    }
+
+    /**
+     * Fetches an http or https uri.
+     *
+     * @param uri The uri to fetch.
+     * @return The response body, which must be closed.
+     * @throws SocketTimeoutException if the fetch runs out of time.
+     * @throws StatusException        if the response has an error
+     *                                status.
+     */
+    public Response fetch(String uri) throws IOException {
+        mRequests.incrementAndGet();
+        long start = System.nanoTime();
+        long deadlineNanos = mDeadline > 0
+                ? start + TimeUnit.MILLISECONDS.toNanos(mDeadline)
+                : Long.MAX_VALUE;
+
+        URL url = new URL(uri);
+        Semaphore permits = acquirePermit(url, deadlineNanos);
+        AtomicBoolean expired = new AtomicBoolean();
+        HttpURLConnection connection = null;
+        ScheduledFuture<?> watchdog = null;
+
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(mConnectTimeout);
+            connection.setReadTimeout(mReadTimeout);
+            connection.setInstanceFollowRedirects(true);
+            if (mCompression) {
+                connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+            }
+            if (mUserAgent != null) {
+                connection.setRequestProperty("User-Agent", mUserAgent);
+            }
+
+            if (deadlineNanos != Long.MAX_VALUE) {
+                HttpURLConnection watched = connection;
+                watchdog = sWatchdog.schedule(() -> {
+                    expired.set(true);
+                    watched.disconnect();
+                }, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+
+            int status = connection.getResponseCode();
+            if (watchdog != null && !watchdog.cancel(false)) {
+                throw timeout(uri);
+            }
+            long headerMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            if (status < 200 || status >= 300) {
+                drain(connection.getErrorStream());
+                throw new StatusException(uri, status);
+            }
+
+            InputStream body = decode(connection.getInputStream(),
+                                      connection.getContentEncoding());
+            return new Response(body,
+                                uri,
+                                connection,
+                                status,
+                                headerMillis,
+                                deadlineNanos,
+                                permits);
+        } catch (IOException | RuntimeException e) {
+            if (watchdog != null) {
+                watchdog.cancel(false);
+            }
+            permits.release();
+            if (connection != null && !(e instanceof StatusException)) {
+                connection.disconnect();
+            }
+            if (e instanceof SocketTimeoutException || expired.get()) {
+                mTimeouts.incrementAndGet();
+                if (e instanceof SocketTimeoutException) {
+                    throw e;
+                }
+                throw timeout(uri);
+            }
+            mErrors.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The number of fetches started.
+     */
+    public int getRequestCount() {
+        return mRequests.get();
+    }
+
+    /**
+     * @return The number of fetches that failed with a status or
+     * I/O error.
+     */
+    public int getErrorCount() {
+        return mErrors.get();
+    }
+
+    /**
+     * @return The number of fetches that ran out of time.
+     */
+    public int getTimeoutCount() {
+        return mTimeouts.get();
+    }
+
+    /**
+     * @return A one line summary of the fetch statistics.
+     */
+    @Override
+    public String toString() {
+        return "HttpFetcher: requests=" + getRequestCount()
+                + " errors=" + getErrorCount()
+                + " timeouts=" + getTimeoutCount()
+                + " hosts=" + mHostPermits.size();
+    }
+
+    /**
+     * Waits until a response from {@code url}'s host may be opened.
+     *
+     * @return The host's permits, one of which has been acquired.
+     */
+    private Semaphore acquirePermit(URL url, long deadlineNanos) throws IOException {
+        String host = url.getHost().toLowerCase(Locale.ROOT)
+                + ":" + (url.getPort() >= 0 ? url.getPort() : url.getDefaultPort());
+        Semaphore permits = mHostPermits.computeIfAbsent(
+                host, key -> new Semaphore(mMaxConnectionsPerHost, true));
+
+        try {
+            if (deadlineNanos == Long.MAX_VALUE) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(deadlineNanos - System.nanoTime(),
+                                           TimeUnit.NANOSECONDS)) {
+                mTimeouts.incrementAndGet();
+                throw timeout(url.toString());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + host);
+        }
+        return permits;
+    }
+
+    private SocketTimeoutException timeout(String uri) {
+        return new SocketTimeoutException(
+                "Deadline of " + mDeadline + " ms exceeded fetching " + uri);
+    }
+
+    /**
+     * Decodes a body with the given content encoding.
+     */
+    private static InputStream decode(InputStream body, String encoding) throws IOException {
+        if (encoding == null) {
+            return body;
+        }
+
+        switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+            case "":
+            case "identity":
+                return body;
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(body);
+            case "deflate":
+                return inflate(body);
+            default:
+                body.close();
+                throw new IOException("Unsupported content encoding " + encoding);
+        }
+    }
+
+    /**
+     * Decodes a "deflate" body, which should be zlib wrapped but is
+     * sent as raw deflate data by some servers.
+     */
+    private static InputStream inflate(InputStream body) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(body, 2);
+        int cmf = in.read();
+        int flg = in.read();
+        if (flg >= 0) {
+            in.unread(flg);
+        }
+        if (cmf >= 0) {
+            in.unread(cmf);
+        }
+
+        boolean zlib = cmf >= 0 && flg >= 0
+                && (cmf & 0x0F) == 8
+                && ((cmf << 8) | flg) % 31 == 0;
+        Inflater inflater = new Inflater(!zlib);
+        return new InflaterInputStream(in, inflater) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads and closes an error body so that its connection can be
+     * reused.
+     */
+    private static void drain(InputStream body) {
+        if (body == null) {
+            return;
+        }
+
+        try (InputStream in = body) {
+            byte[] buffer = new byte[4096];
+            int total = 0;
+            int count;
+            while (total < MAX_DRAIN_BYTES && (count = in.read(buffer)) != -1) {
+                total += count;
+            }
+        } catch (IOException e) {
+            // The connection is simply not reused.
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor newWatchdog() {
+        ScheduledThreadPoolExecutor executor =
+                new ScheduledThreadPoolExecutor(1, runnable -> {
+                    Thread thread = new Thread(runnable, "http-fetcher-watchdog");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * Lazily creates the default fetcher.
+     */
+    private static class DefaultHolder {
+        static final HttpFetcher INSTANCE = newBuilder().build();
+    }
+
+    /**
+     * The (decoded) body of a successful response, which also holds
+     * the response's metadata. Reads fail with a {@link
+     * SocketTimeoutException} once the fetch's deadline has passed.
+     */
+    public class Response extends FilterInputStream {
+        private final String mUri;
+        private final HttpURLConnection mConnection;
+        private final int mStatus;
+        private final long mHeaderMillis;
+        private final long mDeadlineNanos;
+        private final Semaphore mPermits;
+        private final AtomicBoolean mClosed = new AtomicBoolean();
+
+        private Response(InputStream body,
+                         String uri,
+                         HttpURLConnection connection,
+                         int status,
+                         long headerMillis,
+                         long deadlineNanos,
+                         Semaphore permits) {
+            super(body);
+            mUri = uri;
+            mConnection = connection;
+            mStatus = status;
+            mHeaderMillis = headerMillis;
+            mDeadlineNanos = deadlineNanos;
+            mPermits = permits;
+        }
+
+        /**
+         * @return The uri that was fetched.
+         */
+        public String getUri() {
+            return mUri;
+        }
+
+        /**
+         * @return The uri of the response, which differs from {@link
+         * #getUri()} if the request was redirected.
+         */
+        public String getResponseUri() {
+            return mConnection.getURL().toString();
+        }
+
+        /**
+         * @return The HTTP status code.
+         */
+        public int getStatus() {
+            return mStatus;
+        }
+
+        /**
+         * @return The length of the body as sent (before it is
+         * decoded), or -1 if it isn't known.
+         */
+        public long getContentLength() {
+            return mConnection.getContentLengthLong();
+        }
+
+        /**
+         * @return The content type (e.g. "text/html; charset=UTF-8"),
+         * or null if it isn't known.
+         */
+        public String getContentType() {
+            return mConnection.getContentType();
+        }
+
+        /**
+         * @return The charset parameter of the content type, or null
+         * if there is none.
+         */
+        public String getCharset() {
+            String contentType = getContentType();
+            if (contentType == null) {
+                return null;
+            }
+            for (String parameter : contentType.split(";")) {
+                String[] pair = parameter.trim().split("=", 2);
+                if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("charset")) {
+                    return pair[1].trim().replace("\"", "");
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return The content encoding that the body was decoded
+         * from, or null if it wasn't encoded.
+         */
+        public String getContentEncoding() {
+            return mConnection.getContentEncoding();
+        }
+
+        /**
+         * @return The milliseconds from the start of the fetch until
+         * the response headers were received.
+         */
+        public long getHeaderMillis() {
+            return mHeaderMillis;
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkDeadline();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            checkDeadline();
+            return super.read(buffer, offset, length);
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            checkDeadline();
+            return super.skip(count);
+        }
+
+        /**
+         * Closes the body, which makes its connection available for
+         * reuse.
+         */
+        @Override
+        public void close() throws IOException {
+            if (mClosed.compareAndSet(false, true)) {
+                try {
+                    super.close();
+                } finally {
+                    mPermits.release();
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return mStatus + " " + mUri
+                    + " (" + getContentType()
+                    + ", " + getContentLength() + " bytes"
+                    + (getContentEncoding() != null ? ", " + getContentEncoding() : "")
+                    + ", headers in " + mHeaderMillis + " ms)";
+        }
+
+        private void checkDeadline() throws IOException {
+            if (System.nanoTime() - mDeadlineNanos > 0) {
+                mTimeouts.incrementAndGet();
+                mConnection.disconnect();
+                throw timeout(mUri);
+            }
+        }
+    }
+
+    /**
+     * Thrown when a response has a status other than 2xx.
+     */
+    public static class StatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int mStatus;
+
+        StatusException(String uri, int status) {
+            super("HTTP status " + status + " fetching " + uri);
+            mStatus = status;
+        }
+
+        /**
+         * @return The HTTP status code.
+         */
+        public int getStatus() {
+            return mStatus;
+        }
+    }
+
+    /**
+     * {@code HttpFetcher} builder static inner class with default
+     * values set.
+     */
+    public static final class Builder {
+        private int mConnectTimeout = 10_000;
+        private int mReadTimeout = 30_000;
+        private long mDeadline = 120_000;
+        private int mMaxConnectionsPerHost = 5;
+        private boolean mCompression = true;
+        private String mUserAgent = null;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the {@code connectTimeout} and returns a reference to this Builder so
+         * that the methods can be chained together.
+         *
+         * @param val the milliseconds allowed to connect (default 10 seconds)
+         * @return a reference to this Builder
+         */
+        public Builder connectTimeout(int val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("connectTimeout must be > 0");
+            }
+            mConnectTimeout = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code readTimeout} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the milliseconds allowed for each read (default 30 seconds)
+         * @return a reference to this Builder
+         */
+        public Builder readTimeout(int val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("readTimeout must be > 0");
+            }
+            mReadTimeout = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code deadline} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the milliseconds allowed for a whole response (default 2
+         *            minutes, 0 for no deadline)
+         * @return a reference to this Builder
+         */
+        public Builder deadline(long val) {
+            if (val < 0) {
+                throw new IllegalArgumentException("deadline must be >= 0");
+            }
+            mDeadline = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code maxConnectionsPerHost} and returns a reference to this
+         * Builder so that the methods can be chained together.
+         *
+         * @param val the maximum number of open responses per host (default 5)
+         * @return a reference to this Builder
+         */
+        public Builder maxConnectionsPerHost(int val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("maxConnectionsPerHost must be > 0");
+            }
+            mMaxConnectionsPerHost = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code compression} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val true to request gzip or deflate compressed responses (default
+         *            true)
+         * @return a reference to this Builder
+         */
+        public Builder compression(boolean val) {
+            mCompression = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code userAgent} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the User-Agent header (default null, the JDK's)
+         * @return a reference to this Builder
+         */
+        public Builder userAgent(String val) {
+            mUserAgent = val;
+            return this;
+        }
+
+        /**
+         * Returns a {@code HttpFetcher} built from the parameters previously set.
+         *
+         * @return a {@code HttpFetcher} built with parameters of this {@code
+         * HttpFetcher.Builder}
+         */
+        public HttpFetcher build() {
+            return new HttpFetcher(this);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+/**
+ * Immutable description of how images are encoded when they are
+ * written to the cache.  An encoder either keeps the format of the
+ * source image (falling back to PNG when the platform can't encode
+ * that format) or always writes a fixed {@link ImageFormat}.  PNG
+ * encoders can optionally specify a deflate level, trading CPU time
+ * for bytes written.
+ */
+public final class ImageEncoder {
+    /**
+     * Compression level used to select the platform's default.
+     */
+    public static final int DEFAULT_COMPRESSION = -1;
+
+    /**
+     * Writes PNG images with the platform's default compression.
+     */
+    private static final ImageEncoder PNG =
+            new ImageEncoder(ImageFormat.PNG, DEFAULT_COMPRESSION);
+
+    /**
+     * Writes uncompressed raw rasters.
+     */
+    private static final ImageEncoder RAW =
+            new ImageEncoder(ImageFormat.RAW, DEFAULT_COMPRESSION);
+
+    /**
+     * Keeps the format of the source image.
+     */
+    private static final ImageEncoder SOURCE =
+            new ImageEncoder(null, DEFAULT_COMPRESSION);
+
+    /**
+     * The format to write or null to keep the source format.
+     */
+    private final ImageFormat mFormat;
+
+    /**
+     * The deflate level (0-9) or DEFAULT_COMPRESSION.
+     */
+    private final int mCompressionLevel;
+
+    private ImageEncoder(ImageFormat format, int compressionLevel) {
+        mFormat = format;
+        mCompressionLevel = compressionLevel;
+    }
+
+    /**
+     * @return An encoder that writes PNG images with the platform's
+     * default compression (the original cache format).
+     */
+    public static ImageEncoder png() {
+        return PNG;
+    }
+
+    /**
+     * @param level The deflate level, from 0 (no compression and
+     *              fastest) to 9 (best compression and slowest).
+     * @return An encoder that writes PNG images with the specified
+     * deflate level.
+     */
+    public static ImageEncoder png(int level) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("PNG compression level must be 0-9");
+        }
+        return new ImageEncoder(ImageFormat.PNG, level);
+    }
+
+    /**
+     * @return An encoder that writes uncompressed raw rasters.
+     */
+    public static ImageEncoder raw() {
+        return RAW;
+    }
+
+    /**
+     * @return An encoder that keeps the source image format.
+     */
+    public static ImageEncoder source() {
+        return SOURCE;
+    }
+
+    /**
+     * @return An encoder that always writes the specified {@code
+     * format} with default settings.
+     */
+    public static ImageEncoder of(ImageFormat format) {
+        switch (format) {
+            case PNG:
+                return PNG;
+            case RAW:
+                return RAW;
+            default:
+                return new ImageEncoder(format, DEFAULT_COMPRESSION);
+        }
+    }
+
+    /**
+     * Parses an encoder specification of the form "source", "raw",
+     * "png", "png:[0-9]", or the name of any other {@link
+     * ImageFormat} (e.g., "jpg").
+     *
+     * @param spec The encoder specification.
+     * @return The matching encoder.
+     */
+    public static ImageEncoder parse(String spec) {
+        String lower = spec.trim().toLowerCase();
+        if (lower.equals("source")) {
+            return SOURCE;
+        } else if (lower.startsWith("png:")) {
+            return png(Integer.parseInt(lower.substring(4)));
+        }
+
+        ImageFormat format = ImageFormat.fromName(lower);
+        if (format == null) {
+            throw new IllegalArgumentException("Unknown image encoder: " + spec);
+        }
+        return of(format);
+    }
+
+    /**
+     * @return The format written by this encoder or null if the
+     * encoder keeps the source format.
+     */
+    public ImageFormat getFormat() {
+        return mFormat;
+    }
+
+    /**
+     * @return True if this encoder keeps the source format.
+     */
+    public boolean isSourceFormat() {
+        return mFormat == null;
+    }
+
+    /**
+     * @return The deflate level (0-9) or DEFAULT_COMPRESSION.
+     */
+    public int getCompressionLevel() {
+        return mCompressionLevel;
+    }
+
+    /**
+     * Resolves an encoder that keeps the source format to a fixed
+     * format encoder.
+     *
+     * @param sourceFormatName The source image's format name or file
+     *                         extension (may be null).
+     * @return This encoder if it has a fixed format, otherwise an
+     * encoder for the source format, or PNG if the source format is
+     * not known.
+     */
+    public ImageEncoder resolve(String sourceFormatName) {
+        if (mFormat != null) {
+            return this;
+        }
+
+        ImageFormat format = ImageFormat.fromName(sourceFormatName);
+        return format != null ? of(format) : PNG;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ImageEncoder encoder = (ImageEncoder) o;
+
+        return mFormat == encoder.mFormat
+                && mCompressionLevel == encoder.mCompressionLevel;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (mFormat != null ? mFormat.hashCode() : 0) + mCompressionLevel;
+    }
+
+    /**
+     * @return The encoder specification accepted by {@link #parse}.
+     */
+    @Override
+    public String toString() {
+        if (mFormat == null) {
+            return "source";
+        } else if (mCompressionLevel != DEFAULT_COMPRESSION) {
+            return mFormat.getName() + ":" + mCompressionLevel;
+        } else {
+            return mFormat.getName();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The encoded formats of images stored in the cache.  Each format
+ * can be recognized by the magic bytes at the start of its encoding.
+ */
+public enum ImageFormat {
+    PNG("png", new byte[]{(byte) 0x89, 'P', 'N', 'G'}),
+    JPEG("jpg", new byte[]{(byte) 0xff, (byte) 0xd8, (byte) 0xff}),
+    GIF("gif", "GIF8".getBytes(StandardCharsets.US_ASCII)),
+    BMP("bmp", "BM".getBytes(StandardCharsets.US_ASCII)),
+
+    /**
+     * An uncompressed raster used for intermediate cache entries
+     * that are cheap to write and read back.  The encoding is the
+     * magic bytes "CRAW" followed by the big-endian int width and
+     * height and then width * height big-endian non-premultiplied
+     * ARGB ints in row order.
+     */
+    RAW("raw", "CRAW".getBytes(StandardCharsets.US_ASCII));
+
+    /**
+     * The maximum number of bytes needed to detect a format.
+     */
+    public static final int HEADER_LENGTH = 4;
+
+    /**
+     * The (ImageIO) format name, which is also used as the file
+     * extension.
+     */
+    private final String mName;
+
+    /**
+     * The bytes that start every image encoded in this format.
+     */
+    private final byte[] mMagic;
+
+    ImageFormat(String name, byte[] magic) {
+        mName = name;
+        mMagic = magic;
+    }
+
+    /**
+     * @return The format name (e.g., "png").
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return The magic bytes that start this format's encoding.
+     */
+    public byte[] getMagic() {
+        return mMagic.clone();
+    }
+
+    /**
+     * Maps a format name or file extension (e.g., "jpeg") to a
+     * format.
+     *
+     * @return The matching format or null if not supported.
+     */
+    public static ImageFormat fromName(String name) {
+        if (name != null) {
+            String lower = name.toLowerCase();
+            if (lower.equals("jpeg")) {
+                return JPEG;
+            }
+
+            for (ImageFormat format : values()) {
+                if (format.mName.equals(lower)) {
+                    return format;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Detects the format of an encoded image from its first {@code
+     * length} bytes.
+     *
+     * @return The detected format or null if it is not recognized.
+     */
+    public static ImageFormat detect(byte[] header, int length) {
+        for (ImageFormat format : values()) {
+            byte[] magic = format.mMagic;
+            if (length >= magic.length) {
+                int i = 0;
+                while (i < magic.length && header[i] == magic[i]) {
+                    i++;
+                }
+                if (i == magic.length) {
+                    return format;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Detects the format of the image at the current position of an
+     * {@code inputStream} that supports mark/reset.  The stream is
+     * reset to its current position before returning.
+     *
+     * @return The detected format or null if it is not recognized.
+     */
+    public static ImageFormat detect(InputStream inputStream) throws IOException {
+        if (!inputStream.markSupported()) {
+            throw new IllegalArgumentException("Stream must support mark/reset");
+        }
+
+        byte[] header = new byte[HEADER_LENGTH];
+        inputStream.mark(HEADER_LENGTH);
+        try {
+            return detect(header, readHeader(inputStream, header));
+        } finally {
+            inputStream.reset();
+        }
+    }
+
+    /**
+     * Detects the format of the image stored in {@code file}.
+     *
+     * @return The detected format or null if it is not recognized.
+     */
+    public static ImageFormat detect(File file) {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            byte[] header = new byte[HEADER_LENGTH];
+            return detect(header, readHeader(inputStream, header));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads up to {@code header.length} bytes.
+     *
+     * @return The number of bytes read.
+     */
+    private static int readHeader(InputStream inputStream,
+                                  byte[] header) throws IOException {
+        int length = 0;
+        while (length < header.length) {
+            int count = inputStream.read(header, length, header.length - length);
+            if (count < 0) {
+                break;
+            }
+            length += count;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,192 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded in-memory cache of decoded {@link PlatformImage} objects
+ * that sits in front of the file based {@link Cache}. Entries are
+ * keyed by the same encoded key used by the file cache (see
+ * {@link Cache.Item#getKey()}) and are weighed using
+ * {@link PlatformImage#memorySize()}. When the total weight exceeds
+ * the configured byte budget, the least recently used entries are
+ * evicted.
+ * <p>
+ * Cached images are shared between threads and must therefore be
+ * treated as immutable (all transforms return new images).
+ */
+public class ImageMemoryCache {
+    /**
+     * The maximum number of bytes that can be held by this cache.
+     */
+    private final long mMaxBytes;
+
+    /**
+     * Access ordered map used to implement LRU eviction.
+     */
+    private final LinkedHashMap<String, PlatformImage> mMap =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The current number of bytes held by this cache.
+     */
+    private long mBytes;
+
+    /**
+     * Statistics counters.
+     */
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+    private final AtomicLong mEvictions = new AtomicLong();
+
+    /**
+     * Constructor initializes the byte budget.
+     *
+     * @param maxBytes The maximum number of decoded image bytes to hold.
+     */
+    public ImageMemoryCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be > 0");
+        }
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the decoded image matching {@code key} or null if
+     * the image is not in memory.
+     *
+     * @param key The encoded cache key.
+     * @return The decoded image or null.
+     */
+    public PlatformImage get(String key) {
+        PlatformImage image;
+        synchronized (mMap) {
+            image = mMap.get(key);
+        }
+
+        if (image != null) {
+            mHits.incrementAndGet();
+        } else {
+            mMisses.incrementAndGet();
+        }
+
+        return image;
+    }
+
+    /**
+     * Adds or replaces the decoded image for {@code key} and evicts
+     * least recently used entries until the cache is within budget.
+     * Images that are larger than the entire budget are not cached.
+     *
+     * @param key   The encoded cache key.
+     * @param image The decoded image.
+     */
+    public void put(String key, PlatformImage image) {
+        long size = image.memorySize();
+        if (size > mMaxBytes) {
+            return;
+        }
+
+        synchronized (mMap) {
+            PlatformImage previous = mMap.put(key, image);
+            if (previous != null) {
+                mBytes -= previous.memorySize();
+            }
+            mBytes += size;
+
+            // Evict from the least recently used end of the map.
+            Iterator<Map.Entry<String, PlatformImage>> iterator =
+                    mMap.entrySet().iterator();
+            while (mBytes > mMaxBytes && iterator.hasNext()) {
+                Map.Entry<String, PlatformImage> eldest = iterator.next();
+                mBytes -= eldest.getValue().memorySize();
+                iterator.remove();
+                mEvictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes the decoded image for {@code key} (if any).
+     *
+     * @param key The encoded cache key.
+     */
+    public void remove(String key) {
+        synchronized (mMap) {
+            PlatformImage image = mMap.remove(key);
+            if (image != null) {
+                mBytes -= image.memorySize();
+            }
+        }
+    }
+
+    /**
+     * Removes all decoded images.
+     */
+    public void clear() {
+        synchronized (mMap) {
+            mMap.clear();
+            mBytes = 0;
+        }
+    }
+
+    /**
+     * @return The configured byte budget.
+     */
+    public long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    /**
+     * @return The number of bytes currently held.
+     */
+    public long getBytes() {
+        synchronized (mMap) {
+            return mBytes;
+        }
+    }
+
+    /**
+     * @return The number of images currently held.
+     */
+    public int getCount() {
+        synchronized (mMap) {
+            return mMap.size();
+        }
+    }
+
+    /**
+     * @return The number of lookups that found a decoded image.
+     */
+    public long getHitCount() {
+        return mHits.get();
+    }
+
+    /**
+     * @return The number of lookups that did not find a decoded image.
+     */
+    public long getMissCount() {
+        return mMisses.get();
+    }
+
+    /**
+     * @return The number of images evicted to stay within budget.
+     */
+    public long getEvictionCount() {
+        return mEvictions.get();
+    }
+
+    /**
+     * @return Provides more readable string output.
+     */
+    @Override
+    public String toString() {
+        return "ImageMemoryCache(images=" + getCount()
+                + ", bytes=" + getBytes() + "/" + mMaxBytes
+                + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + ")";
+    }
+}
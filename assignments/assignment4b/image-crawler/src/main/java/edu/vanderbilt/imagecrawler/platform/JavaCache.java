@@ -24,22 +24,50 @@ public class JavaCache extends Cache {
      * platform specific root directory.
      *
      * @param cacheDir The platform dependent root cache directory.
+     * @param options  The cache storage options.
      */
-    private JavaCache(File cacheDir) throws IOException {
-        super(cacheDir);
+    private JavaCache(File cacheDir, CacheOptions options) throws IOException {
+        super(cacheDir, options);
     }
 
     /**
      * Builds singleton if it hasn't been built and returns the instance.
      */
     public static Cache instance() {
+        return instance(CacheMap.Type.SYNCHRONIZED);
+    }
+
+    /**
+     * Builds singleton using the specified {@code mapType} if it hasn't
+     * been built and returns the instance. The cache index is kept
+     * next to the cache directory (i.e., "image-cache.index"). The
+     * {@code mapType} is ignored if the singleton has already been built.
+     *
+     * @param mapType The CacheMap implementation to use.
+     */
+    public static Cache instance(CacheMap.Type mapType) {
+        return instance(CacheOptions.newBuilder()
+                                .mapType(mapType)
+                                .indexFile(new File("./image-cache.index"))
+                                .build());
+    }
+
+    /**
+     * Builds singleton using the specified {@code options} if it hasn't
+     * been built and returns the instance. The {@code options} are
+     * ignored if the singleton has already been built.
+     *
+     * @param options The cache storage options.
+     */
+    public static Cache instance(CacheOptions options) {
         if (_instance == null) {
             //noinspection SynchronizeOnNonFinalField
             synchronized (lock) {
                 if (_instance == null) {
                     try {
                         _instance = new JavaCache(
-                                new File("./image-cache").getCanonicalFile());
+                                new File("./image-cache").getCanonicalFile(),
+                                options);
                     } catch (Exception e) {
                         throw new RuntimeException(e);
                     }
@@ -49,4 +77,4 @@ public class JavaCache extends Cache {
 
         return _instance;
     }
-}
\ No newline at end of file
+}
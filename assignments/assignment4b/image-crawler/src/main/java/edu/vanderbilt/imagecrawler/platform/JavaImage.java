@@ -2,14 +2,33 @@ package edu.vanderbilt.imagecrawler.platform;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 
 import edu.vanderbilt.imagecrawler.crawlers.framework.ImageCrawler;
 import edu.vanderbilt.imagecrawler.transforms.Transform;
+import edu.vanderbilt.imagecrawler.utils.ByteBufferInputStream;
 
 /**
  * Stores platform-specific meta-data about an Image and also provides
@@ -17,10 +36,23 @@ import edu.vanderbilt.imagecrawler.transforms.Transform;
  * implementation is specific to the Java platform.
  */
 public class JavaImage implements PlatformImage {
+    /**
+     * Lookup tables holding the (truncated) weighted contribution of
+     * each red, green, and blue channel value to a grayscale value.
+     */
+    private static final int[] RED_WEIGHTS = grayWeights(0.299);
+    private static final int[] GREEN_WEIGHTS = grayWeights(0.587);
+    private static final int[] BLUE_WEIGHTS = grayWeights(0.114);
+
     /**
      * Cache item used to report progres.
      */
     Cache.Item mCacheItem;
+    /**
+     * Images with more pixels than this are transformed in parallel
+     * row bands (0 to always transform sequentially).
+     */
+    long mParallelThreshold;
     /**
      * The Bitmap our Image stores.
      */
@@ -38,12 +70,19 @@ public class JavaImage implements PlatformImage {
     }
 
     /**
-     * Private constructor only accessed internally by this class.
+     * Package only constructor that wraps an already decoded image.
      */
-    private JavaImage(BufferedImage image) {
+    JavaImage(BufferedImage image) {
         mImage = image;
     }
 
+    /**
+     * @return The decoded image.
+     */
+    BufferedImage getImage() {
+        return mImage;
+    }
+
     /**
      * Decodes a input stream into an @a Image that can be used in the rest
      * of the application.
@@ -52,7 +91,19 @@ public class JavaImage implements PlatformImage {
     public void setImage(InputStream inputStream, Cache.Item item) {
         try {
             mSize = inputStream.available();
-            mImage = ImageIO.read(inputStream);
+            if (inputStream.markSupported()
+                    && ImageFormat.detect(inputStream) == ImageFormat.RAW) {
+                // Raw rasters are only ever read back from the cache.
+                mImage = readRaw(inputStream);
+            } else if (inputStream instanceof ByteBufferInputStream) {
+                // The bytes are already in memory, so bypass the
+                // temporary file cache that ImageIO.read(InputStream)
+                // may otherwise create for the stream.
+                mImage = ImageIO.read(
+                        new MemoryCacheImageInputStream(inputStream));
+            } else {
+                mImage = ImageIO.read(inputStream);
+            }
             mCacheItem = item;
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -77,6 +128,130 @@ public class JavaImage implements PlatformImage {
         }
     }
 
+    /**
+     * Writes the image using the passed {@code encoder}.  Formats
+     * that ImageIO can't encode (e.g., JPEG images with an alpha
+     * channel) are written as PNG instead.
+     */
+    @Override
+    public ImageFormat writeImage(OutputStream outputStream,
+                                  ImageEncoder encoder)
+            throws IOException {
+        BufferedImage bufferedImage = mImage;
+        if (bufferedImage == null) {
+            System.out.println("null image");
+            return null;
+        }
+
+        ImageFormat format = encoder.getFormat();
+        switch (format) {
+            case RAW:
+                writeRaw(bufferedImage, outputStream);
+                return ImageFormat.RAW;
+
+            case PNG:
+                writePng(bufferedImage, outputStream, encoder.getCompressionLevel());
+                return ImageFormat.PNG;
+
+            default:
+                // ImageIO.write() returns false without writing
+                // anything if it has no suitable writer.
+                boolean hasAlpha = bufferedImage.getColorModel().hasAlpha();
+                if (!(format == ImageFormat.JPEG && hasAlpha)
+                        && ImageIO.write(bufferedImage, format.getName(), outputStream)) {
+                    return format;
+                }
+
+                writePng(bufferedImage, outputStream, ImageEncoder.DEFAULT_COMPRESSION);
+                return ImageFormat.PNG;
+        }
+    }
+
+    /**
+     * Writes {@code image} as a PNG using the specified deflate
+     * {@code level} if the platform's PNG writer supports it.
+     */
+    private static void writePng(BufferedImage image,
+                                 OutputStream outputStream,
+                                 int level) throws IOException {
+        if (level == ImageEncoder.DEFAULT_COMPRESSION) {
+            ImageIO.write(image, "png", outputStream);
+            return;
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        try (ImageOutputStream imageOutputStream =
+                     ImageIO.createImageOutputStream(outputStream)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                // The JDK PNG writer maps quality 1 to deflate level
+                // 0 and quality 0 to deflate level 9.
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(1f - level / 9f);
+            }
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Writes {@code image} in the {@link ImageFormat#RAW} format.
+     */
+    private static void writeRaw(BufferedImage image,
+                                 OutputStream outputStream) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[width];
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(width * 4, 12));
+
+        buffer.put(ImageFormat.RAW.getMagic()).putInt(width).putInt(height);
+        outputStream.write(buffer.array(), 0, buffer.position());
+
+        buffer.clear();
+        IntBuffer ints = buffer.asIntBuffer();
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            ints.clear();
+            ints.put(row);
+            outputStream.write(buffer.array(), 0, width * 4);
+        }
+    }
+
+    /**
+     * Reads an image in the {@link ImageFormat#RAW} format.
+     */
+    private static BufferedImage readRaw(InputStream inputStream) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        dataInputStream.skipBytes(ImageFormat.RAW.getMagic().length);
+        int width = dataInputStream.readInt();
+        int height = dataInputStream.readInt();
+
+        BufferedImage image =
+                new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        byte[] bytes = new byte[width * 4];
+        IntBuffer ints = ByteBuffer.wrap(bytes).asIntBuffer();
+        for (int y = 0; y < height; y++) {
+            dataInputStream.readFully(bytes);
+            ints.clear();
+            ints.get(pixels, y * width, width);
+        }
+
+        return image;
+    }
+
+    /**
+     * Sets the number of pixels above which the grayscale conversion
+     * of this image runs as fork-join subtasks (0 to always convert
+     * sequentially).
+     */
+    @Override
+    public void setParallelTransformThreshold(long pixels) {
+        mParallelThreshold = pixels;
+    }
+
     /**
      * Uses the Java platform color transformation values for
      * grayscale conversion using a pixel-by-pixel coloring algorithm.
@@ -100,9 +275,243 @@ public class JavaImage implements PlatformImage {
         return mSize;
     }
 
+    /**
+     * @return The number of bytes used by the decoded raster.
+     */
+    @Override
+    public long memorySize() {
+        if (mImage == null) {
+            return 0;
+        }
+
+        DataBuffer buffer = mImage.getRaster().getDataBuffer();
+        return (long) buffer.getSize()
+                * buffer.getNumBanks()
+                * DataBuffer.getDataTypeSize(buffer.getDataType())
+                / 8;
+    }
+
     private PlatformImage grayScale() {
-        // Forward to the platform-specific implementation of this transform.
-        BufferedImage originalImage = mImage;
+        BufferedImage grayScaleImage = grayScaleFast(mImage);
+        if (grayScaleImage == null) {
+            grayScaleImage = grayScaleGeneric(mImage);
+        }
+
+        // Keep reporting progress to the same item (with the same
+        // parallel threshold) if this image is transformed again
+        // (e.g., by a CompositeTransform).
+        JavaImage image = new JavaImage(grayScaleImage);
+        image.mCacheItem = mCacheItem;
+        image.mParallelThreshold = mParallelThreshold;
+        return image;
+    }
+
+    /**
+     * Converts an image with one of the common sRGB layouts to
+     * grayscale by working directly on the primitive arrays backing
+     * the source and destination rasters.  The conversion produces
+     * exactly the same pixels as {@link #grayScaleGeneric} without
+     * allocating any objects per pixel, and checks for cancellation
+     * once per row.  Images with more than {@code mParallelThreshold}
+     * pixels are converted in row bands that run as fork-join
+     * subtasks.
+     *
+     * @return The grayscale image or null if the image's layout is
+     *         not supported, in which case the generic conversion
+     *         must be used instead.
+     */
+    private BufferedImage grayScaleFast(BufferedImage originalImage) {
+        int type = originalImage.getType();
+        Raster raster = originalImage.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+
+        // Only handle rasters that are not translated sub-images of
+        // another raster.
+        if (raster.getSampleModelTranslateX() != 0
+                || raster.getSampleModelTranslateY() != 0
+                || dataBuffer.getNumBanks() != 1) {
+            return null;
+        }
+
+        int width = originalImage.getWidth();
+        int height = originalImage.getHeight();
+        BufferedImage grayScaleImage;
+        RowKernel kernel;
+
+        switch (type) {
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_BGR: {
+                if (!(dataBuffer instanceof DataBufferInt)
+                        || !(raster.getSampleModel()
+                        instanceof SinglePixelPackedSampleModel)) {
+                    return null;
+                }
+
+                grayScaleImage = new BufferedImage(width, height, type);
+                int[] src = ((DataBufferInt) dataBuffer).getData();
+                int[] dst = ((DataBufferInt) grayScaleImage
+                        .getRaster().getDataBuffer()).getData();
+                int offset = dataBuffer.getOffset();
+                int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel())
+                        .getScanlineStride();
+                kernel = row -> grayScaleIntRow
+                        (src, offset + row * stride, dst, row * width, width, type);
+                break;
+            }
+
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                if (!(dataBuffer instanceof DataBufferByte)
+                        || !(raster.getSampleModel()
+                        instanceof ComponentSampleModel)) {
+                    return null;
+                }
+
+                ComponentSampleModel sampleModel =
+                        (ComponentSampleModel) raster.getSampleModel();
+                grayScaleImage = new BufferedImage(width, height, type);
+                byte[] src = ((DataBufferByte) dataBuffer).getData();
+                byte[] dst = ((DataBufferByte) grayScaleImage
+                        .getRaster().getDataBuffer()).getData();
+                int offset = dataBuffer.getOffset();
+                int stride = sampleModel.getScanlineStride();
+                int pixelStride = sampleModel.getPixelStride();
+                int[] bandOffsets = sampleModel.getBandOffsets();
+                int dstStride = width * bandOffsets.length;
+                kernel = row -> grayScaleByteRow
+                        (src, offset + row * stride, pixelStride, bandOffsets,
+                                dst, row * dstStride, width);
+                break;
+            }
+
+            default:
+                return null;
+        }
+
+        int total = width * height;
+        AtomicInteger bytes = new AtomicInteger();
+        RowKernel reportingKernel = row -> {
+            ImageCrawler.throwExceptionIfCancelled();
+            int converted = bytes.addAndGet(kernel.apply(row));
+            mCacheItem.progress(Cache.Operation.TRANSFORM, (float) converted / total, converted);
+            return converted;
+        };
+
+        if (mParallelThreshold > 0 && total > mParallelThreshold && height > 1) {
+            // Split the rows into enough bands to keep all the workers
+            // of the pool busy.
+            int bands = ForkJoinPool.getCommonPoolParallelism() * 4;
+            int minRows = Math.max(1, height / bands);
+            RowBands task = new RowBands(reportingKernel, 0, height, minRows);
+            if (ForkJoinTask.inForkJoinPool()) {
+                task.invoke();
+            } else {
+                ForkJoinPool.commonPool().invoke(task);
+            }
+        } else {
+            for (int row = 0; row < height; ++row) {
+                reportingKernel.apply(row);
+            }
+        }
+
+        mCacheItem.progress(Cache.Operation.CLOSE, 1f, total);
+        return grayScaleImage;
+    }
+
+    /**
+     * Grayscale kernel for one row of a packed int raster.
+     *
+     * @return The number of (non-transparent) pixels converted.
+     */
+    private static int grayScaleIntRow(int[] src,
+                                       int s,
+                                       int[] dst,
+                                       int d,
+                                       int width,
+                                       int type) {
+        boolean hasTransparent = type == BufferedImage.TYPE_INT_ARGB;
+        boolean bgr = type == BufferedImage.TYPE_INT_BGR;
+        int opaque = hasTransparent ? 0xff000000 : 0;
+        int converted = 0;
+
+        for (int j = 0; j < width; ++j, ++s, ++d) {
+            int pixel = src[s];
+
+            // Leave fully transparent pixels unchanged.
+            if (hasTransparent && (pixel >>> 24) == 0) {
+                dst[d] = pixel;
+                continue;
+            }
+
+            int red = bgr ? pixel & 0xff : (pixel >> 16) & 0xff;
+            int blue = bgr ? (pixel >> 16) & 0xff : pixel & 0xff;
+            int gray = RED_WEIGHTS[red]
+                    + GREEN_WEIGHTS[(pixel >> 8) & 0xff]
+                    + BLUE_WEIGHTS[blue];
+            dst[d] = opaque | (gray << 16) | (gray << 8) | gray;
+            converted++;
+        }
+
+        return converted;
+    }
+
+    /**
+     * Grayscale kernel for one row of an interleaved byte raster with
+     * 3 (RGB) or 4 (RGBA) bands.  The destination is a newly created
+     * image of the same type and therefore has the standard BGR or
+     * ABGR layout.
+     *
+     * @return The number of (non-transparent) pixels converted.
+     */
+    private static int grayScaleByteRow(byte[] src,
+                                        int s,
+                                        int pixelStride,
+                                        int[] bandOffsets,
+                                        byte[] dst,
+                                        int d,
+                                        int width) {
+        boolean hasTransparent = bandOffsets.length == 4;
+        int redOffset = bandOffsets[0];
+        int greenOffset = bandOffsets[1];
+        int blueOffset = bandOffsets[2];
+        int alphaOffset = hasTransparent ? bandOffsets[3] : 0;
+        int dstPixelStride = hasTransparent ? 4 : 3;
+        int converted = 0;
+
+        for (int j = 0; j < width; ++j, s += pixelStride, d += dstPixelStride) {
+            if (hasTransparent) {
+                byte alpha = src[s + alphaOffset];
+
+                // Leave fully transparent pixels unchanged.
+                if (alpha == 0) {
+                    dst[d] = 0;
+                    dst[d + 1] = src[s + blueOffset];
+                    dst[d + 2] = src[s + greenOffset];
+                    dst[d + 3] = src[s + redOffset];
+                    continue;
+                }
+
+                dst[d] = (byte) 0xff;
+            }
+
+            byte gray = (byte) (RED_WEIGHTS[src[s + redOffset] & 0xff]
+                    + GREEN_WEIGHTS[src[s + greenOffset] & 0xff]
+                    + BLUE_WEIGHTS[src[s + blueOffset] & 0xff]);
+            int c = hasTransparent ? d + 1 : d;
+            dst[c] = gray;
+            dst[c + 1] = gray;
+            dst[c + 2] = gray;
+            converted++;
+        }
+
+        return converted;
+    }
+
+    /**
+     * Generic grayscale conversion that works for any color model.
+     */
+    private BufferedImage grayScaleGeneric(BufferedImage originalImage) {
         BufferedImage grayScaleImage =
                 new BufferedImage
                         (originalImage.getColorModel(),
@@ -150,6 +559,64 @@ public class JavaImage implements PlatformImage {
 
         mCacheItem.progress(Cache.Operation.CLOSE, 1f, total);
 
-        return new JavaImage(grayScaleImage);
+        return grayScaleImage;
+    }
+
+    /**
+     * A per-pixel operation applied to one row of an image.
+     */
+    private interface RowKernel {
+        /**
+         * @return The number of pixels converted in {@code row}.
+         */
+        int apply(int row);
+    }
+
+    /**
+     * A fork-join task that recursively splits a range of rows into
+     * bands of at least {@code mMinRows} rows and applies a row
+     * kernel to each row.  Each row is written by exactly one task,
+     * so no synchronization is needed on the destination raster.
+     */
+    private static class RowBands extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RowKernel mKernel;
+        private final int mFirstRow;
+        private final int mEndRow;
+        private final int mMinRows;
+
+        RowBands(RowKernel kernel, int firstRow, int endRow, int minRows) {
+            mKernel = kernel;
+            mFirstRow = firstRow;
+            mEndRow = endRow;
+            mMinRows = minRows;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = mEndRow - mFirstRow;
+            if (rows <= mMinRows) {
+                for (int row = mFirstRow; row < mEndRow; ++row) {
+                    mKernel.apply(row);
+                }
+            } else {
+                int middle = mFirstRow + rows / 2;
+                invokeAll(new RowBands(mKernel, mFirstRow, middle, mMinRows),
+                          new RowBands(mKernel, middle, mEndRow, mMinRows));
+            }
+        }
+    }
+
+    /**
+     * @return A table mapping each channel value to its truncated
+     *         weighted contribution to a grayscale value.
+     */
+    private static int[] grayWeights(double weight) {
+        int[] weights = new int[256];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = (int) (i * weight);
+        }
+        return weights;
     }
 }
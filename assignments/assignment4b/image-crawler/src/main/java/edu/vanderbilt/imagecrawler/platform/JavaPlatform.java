@@ -1,7 +1,9 @@
 package edu.vanderbilt.imagecrawler.platform;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URL;
 
 import edu.vanderbilt.imagecrawler.utils.UriUtils;
@@ -10,6 +12,27 @@ import edu.vanderbilt.imagecrawler.utils.UriUtils;
  * Java Platform helper methods.
  */
 public class JavaPlatform implements Platform {
+    /**
+     * Fetches http and https uris.
+     */
+    private final HttpFetcher mFetcher;
+
+    /**
+     * Constructor that fetches web uris with the shared default
+     * {@link HttpFetcher}.
+     */
+    public JavaPlatform() {
+        this(HttpFetcher.getDefault());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param fetcher Fetches http and https uris.
+     */
+    public JavaPlatform(HttpFetcher fetcher) {
+        mFetcher = fetcher;
+    }
 
     /**
      * Creates a new Java platform bitmap.
@@ -29,6 +52,14 @@ public class JavaPlatform implements Platform {
         return JavaCache.instance();
     }
 
+    /**
+     * @return The fetcher used for http and https uris.
+     */
+    @Override
+    public HttpFetcher getHttpFetcher() {
+        return mFetcher;
+    }
+
     /**
      * Creates an input stream for the specified uri resource.
      * This method supports both web and local uris (for example
@@ -37,7 +68,10 @@ public class JavaPlatform implements Platform {
      * resources will be located in the JAR file, but when run
      * from JUnit tests from the IDE, the resources will only be
      * accessible from the project's resources directory. This
-     * method handles both cases.
+     * method handles both cases. Web uris are fetched by the
+     * platform's {@link HttpFetcher}, so their streams are {@link
+     * HttpFetcher.Response}s. I/O failures (including timeouts and
+     * error statuses) are rethrown as {@link UncheckedIOException}s.
      */
     @Override
     public InputStream mapUriToInputStream(String uri) {
@@ -55,12 +89,15 @@ public class JavaPlatform implements Platform {
                                 + UriUtils.mapUriToRelativePath(uri);
                 String absPath = new File(relPath).getCanonicalFile().toURI().toString();
                 return new URL(absPath).openStream();
+            } else if (HttpFetcher.isHttpUri(uri)) {
+                // Web URL.
+                return mFetcher.fetch(uri);
             } else {
-                // Normal URL.
+                // Other URL (e.g. a file).
                 return new URL(uri).openStream();
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -0,0 +1,491 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers cache observer events on a dedicated thread so that slow
+ * observers (e.g., a UI) don't slow down the threads that publish
+ * the events. Publishing an event only appends it to a bounded,
+ * lock-free ring buffer, which a single daemon thread drains.
+ * <p>
+ * Progress events (DOWNLOAD, READ, WRITE and TRANSFORM events that
+ * report a progress value) are coalesced: only the latest progress of
+ * each item and operation is kept, it is queued at most once at a
+ * time, and it is delivered at most once per progress interval. The
+ * latest progress published before an item is closed or deleted is
+ * always delivered before the CLOSE or DELETE event. All other
+ * (lifecycle) events are delivered exactly once and in order; if the
+ * ring buffer is full, publishing a lifecycle event waits for the
+ * delivery thread to make room.
+ */
+class ObserverEventBus {
+    /**
+     * Operations whose events are coalesced when they report progress.
+     */
+    private static final Set<Cache.Operation> PROGRESS_OPERATIONS =
+            EnumSet.of(Cache.Operation.DOWNLOAD,
+                       Cache.Operation.READ,
+                       Cache.Operation.WRITE,
+                       Cache.Operation.TRANSFORM);
+
+    /**
+     * Number of handled events between checks for deferred progress.
+     */
+    private static final int DEFERRED_CHECK_INTERVAL = 256;
+
+    /**
+     * The longest time the delivery thread sleeps when idle.
+     */
+    private static final long MAX_IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Receives the events on the delivery thread.
+     */
+    private final Cache.Observer mSink;
+
+    /**
+     * Minimum time between two deliveries of the same progress slot.
+     */
+    private final long mIntervalNanos;
+
+    /**
+     * Events waiting to be delivered.
+     */
+    private final Ring mRing;
+
+    /**
+     * The progress slots of each item (by key) indexed by operation
+     * ordinal.
+     */
+    private final Map<String, AtomicReferenceArray<ProgressSlot>> mSlots =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Progress slots that were taken off the ring before their
+     * interval had elapsed (only accessed by the delivery thread).
+     */
+    private final Set<ProgressSlot> mDeferred = new LinkedHashSet<>();
+
+    /**
+     * Number of progress events that replaced a previous progress
+     * value before it was delivered.
+     */
+    private final LongAdder mCoalesced = new LongAdder();
+
+    /**
+     * Number of progress events that could not be queued because the
+     * ring buffer was full (their progress is delivered later).
+     */
+    private final LongAdder mDropped = new LongAdder();
+
+    /**
+     * The delivery thread.
+     */
+    private final Thread mThread;
+
+    /**
+     * True while the delivery thread is (about to be) parked.
+     */
+    private volatile boolean mWaiting;
+
+    /**
+     * Set by {@link #close} to stop the delivery thread once it has
+     * delivered the events that are already queued.
+     */
+    private volatile boolean mClosed;
+
+    /**
+     * Constructor starts the delivery thread.
+     *
+     * @param sink       Receives the events on the delivery thread.
+     * @param capacity   The ring buffer capacity (rounded up to a
+     *                   power of two).
+     * @param intervalMs Minimum time (ms) between two deliveries of
+     *                   progress for the same item and operation.
+     */
+    ObserverEventBus(Cache.Observer sink, int capacity, long intervalMs) {
+        mSink = sink;
+        mIntervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        mRing = new Ring(capacity);
+        mThread = new Thread(this::run, "Cache-events");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Publishes an event for delivery on the delivery thread. Events
+     * published by the delivery thread itself (i.e., by an observer)
+     * are delivered immediately, as are events published after the
+     * bus has been closed.
+     */
+    void publish(Cache.Item item, Cache.Operation operation, Float progress) {
+        if (Thread.currentThread() == mThread || mClosed) {
+            mSink.event(operation, item, progress);
+        } else if (progress != null
+                && progress >= 0f
+                && PROGRESS_OPERATIONS.contains(operation)) {
+            publishProgress(item, operation, progress);
+        } else if (operation == Cache.Operation.CLOSE
+                || operation == Cache.Operation.DELETE) {
+            // Later progress for the item uses new slots, so only the
+            // progress published before this event is delivered
+            // ahead of it.
+            enqueue(new Event(item, operation, progress, mSlots.remove(item.key)));
+        } else {
+            enqueue(new Event(item, operation, progress, null));
+        }
+    }
+
+    /**
+     * Waits until all events published before this call have been
+     * delivered, including deferred progress.
+     */
+    void flush() throws InterruptedException {
+        if (Thread.currentThread() == mThread || mClosed) {
+            return;
+        }
+
+        CountDownLatch latch = new CountDownLatch(1);
+        enqueue(latch);
+        latch.await();
+    }
+
+    /**
+     * Delivers all queued events (including deferred progress) and
+     * stops the delivery thread.
+     */
+    void close() throws InterruptedException {
+        if (mClosed) {
+            return;
+        }
+
+        mClosed = true;
+        LockSupport.unpark(mThread);
+        if (Thread.currentThread() != mThread) {
+            mThread.join();
+        }
+    }
+
+    /**
+     * @return The number of progress events that were replaced by a
+     * later event before being delivered.
+     */
+    long getCoalescedCount() {
+        return mCoalesced.sum();
+    }
+
+    /**
+     * @return The number of progress events that could not be queued
+     * because the ring buffer was full.
+     */
+    long getDroppedCount() {
+        return mDropped.sum();
+    }
+
+    private void publishProgress(Cache.Item item,
+                                 Cache.Operation operation,
+                                 float progress) {
+        AtomicReferenceArray<ProgressSlot> slots = mSlots.get(item.key);
+        if (slots == null) {
+            slots = mSlots.computeIfAbsent(
+                    item.key,
+                    key -> new AtomicReferenceArray<>(Cache.Operation.values().length));
+        }
+
+        int ordinal = operation.ordinal();
+        ProgressSlot slot = slots.get(ordinal);
+        if (slot == null) {
+            slots.compareAndSet(ordinal, null, new ProgressSlot(item, operation));
+            slot = slots.get(ordinal);
+        }
+
+        slot.mProgress = progress;
+        slot.mPending = true;
+        if (!slot.mQueued.compareAndSet(false, true)) {
+            // The queued slot will deliver this (latest) progress.
+            mCoalesced.increment();
+        } else if (mRing.offer(slot)) {
+            wakeUp();
+        } else {
+            // The pending progress is delivered by the next event
+            // for this slot or by the item's next lifecycle event.
+            slot.mQueued.set(false);
+            mDropped.increment();
+        }
+    }
+
+    /**
+     * Adds an element that must not be lost to the ring buffer,
+     * waiting for room if necessary.
+     */
+    private void enqueue(Object element) {
+        while (!mRing.offer(element)) {
+            wakeUp();
+            Thread.yield();
+        }
+        wakeUp();
+    }
+
+    private void wakeUp() {
+        if (mWaiting) {
+            LockSupport.unpark(mThread);
+        }
+    }
+
+    /**
+     * The delivery thread's loop, which ends when the bus is closed
+     * and its ring buffer is empty.
+     */
+    private void run() {
+        int handled = 0;
+        for (; ; ) {
+            Object element = mRing.poll();
+            if (element != null) {
+                handle(element);
+                if (++handled % DEFERRED_CHECK_INTERVAL == 0) {
+                    deliverDeferred(false);
+                }
+                continue;
+            }
+
+            if (mClosed) {
+                deliverDeferred(true);
+                if (mRing.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+
+            long wait = deliverDeferred(false);
+            mWaiting = true;
+            if (mRing.isEmpty()) {
+                LockSupport.parkNanos(this, wait > 0 ? wait : MAX_IDLE_NANOS);
+            }
+            mWaiting = false;
+        }
+    }
+
+    private void handle(Object element) {
+        try {
+            if (element instanceof ProgressSlot) {
+                ProgressSlot slot = (ProgressSlot) element;
+                if (System.nanoTime() - slot.mLastDelivery >= mIntervalNanos) {
+                    mDeferred.remove(slot);
+                    deliver(slot);
+                } else {
+                    // The slot stays queued, so later progress is
+                    // coalesced into it until it is delivered.
+                    mDeferred.add(slot);
+                }
+            } else if (element instanceof Event) {
+                Event event = (Event) element;
+                if (event.mSlots != null) {
+                    deliverSlots(event.mSlots);
+                }
+                mSink.event(event.mOperation, event.mItem, event.mProgress);
+            } else {
+                deliverDeferred(true);
+                ((CountDownLatch) element).countDown();
+            }
+        } catch (RuntimeException e) {
+            System.out.println("ObserverEventBus[WARNING]: Observer failed: " + e);
+        }
+    }
+
+    /**
+     * Delivers any pending progress in an item's detached slots.
+     */
+    private void deliverSlots(AtomicReferenceArray<ProgressSlot> slots) {
+        for (int i = 0; i < slots.length(); i++) {
+            ProgressSlot slot = slots.get(i);
+            if (slot != null) {
+                mDeferred.remove(slot);
+                deliver(slot);
+            }
+        }
+    }
+
+    /**
+     * Delivers the deferred progress whose interval has elapsed (or
+     * all deferred progress if {@code all} is true).
+     *
+     * @return The time (ns) until the next deferred progress is due,
+     * or 0 if there is none.
+     */
+    private long deliverDeferred(boolean all) {
+        long now = System.nanoTime();
+        long next = 0;
+        List<ProgressSlot> due = new ArrayList<>();
+        for (Iterator<ProgressSlot> iterator = mDeferred.iterator(); iterator.hasNext(); ) {
+            ProgressSlot slot = iterator.next();
+            long remaining = slot.mLastDelivery + mIntervalNanos - now;
+            if (all || remaining <= 0) {
+                iterator.remove();
+                due.add(slot);
+            } else if (next == 0 || remaining < next) {
+                next = remaining;
+            }
+        }
+
+        for (ProgressSlot slot : due) {
+            try {
+                deliver(slot);
+            } catch (RuntimeException e) {
+                System.out.println("ObserverEventBus[WARNING]: Observer failed: " + e);
+            }
+        }
+        return next;
+    }
+
+    private void deliver(ProgressSlot slot) {
+        // Allow the next progress to queue the slot again before
+        // reading the progress to deliver.
+        slot.mQueued.set(false);
+        if (!slot.mPending) {
+            return;
+        }
+        slot.mPending = false;
+        slot.mLastDelivery = System.nanoTime();
+        mSink.event(slot.mOperation, slot.mItem, slot.mProgress);
+    }
+
+    /**
+     * A lifecycle event.
+     */
+    private static final class Event {
+        final Cache.Item mItem;
+        final Cache.Operation mOperation;
+        final Float mProgress;
+
+        /**
+         * The item's progress slots detached by a CLOSE or DELETE
+         * event (or null).
+         */
+        final AtomicReferenceArray<ProgressSlot> mSlots;
+
+        Event(Cache.Item item,
+              Cache.Operation operation,
+              Float progress,
+              AtomicReferenceArray<ProgressSlot> slots) {
+            mItem = item;
+            mOperation = operation;
+            mProgress = progress;
+            mSlots = slots;
+        }
+    }
+
+    /**
+     * The latest progress of an item and operation.
+     */
+    private static final class ProgressSlot {
+        final Cache.Item mItem;
+        final Cache.Operation mOperation;
+
+        /**
+         * True while the slot is in the ring buffer or is deferred.
+         */
+        final AtomicBoolean mQueued = new AtomicBoolean();
+
+        /**
+         * True if mProgress has not been delivered yet.
+         */
+        volatile boolean mPending;
+
+        volatile float mProgress;
+
+        /**
+         * When the slot was last delivered (only accessed by the
+         * delivery thread).
+         */
+        long mLastDelivery;
+
+        ProgressSlot(Cache.Item item, Cache.Operation operation) {
+            mItem = item;
+            mOperation = operation;
+            mLastDelivery = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+        }
+    }
+
+    /**
+     * A bounded lock-free multi-producer single-consumer queue. Each
+     * cell has a sequence number that tells producers whether the cell
+     * is free for the current lap and tells the consumer whether it
+     * has been filled.
+     */
+    private static final class Ring {
+        private final AtomicReferenceArray<Object> mElements;
+        private final AtomicLongArray mSequences;
+        private final int mMask;
+        private final AtomicLong mTail = new AtomicLong();
+
+        /**
+         * Only accessed by the consumer.
+         */
+        private long mHead;
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+            mElements = new AtomicReferenceArray<>(size);
+            mSequences = new AtomicLongArray(size);
+            mMask = size - 1;
+            for (int i = 0; i < size; i++) {
+                mSequences.set(i, i);
+            }
+        }
+
+        /**
+         * @return false if the queue is full.
+         */
+        boolean offer(Object element) {
+            for (; ; ) {
+                long tail = mTail.get();
+                int index = (int) tail & mMask;
+                long sequence = mSequences.get(index);
+                if (sequence == tail) {
+                    if (mTail.compareAndSet(tail, tail + 1)) {
+                        mElements.set(index, element);
+                        mSequences.set(index, tail + 1);
+                        return true;
+                    }
+                } else if (sequence < tail) {
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * @return The oldest element or null if the queue is empty.
+         */
+        Object poll() {
+            int index = (int) mHead & mMask;
+            if (mSequences.get(index) != mHead + 1) {
+                return null;
+            }
+
+            Object element = mElements.get(index);
+            mElements.set(index, null);
+            mSequences.set(index, mHead + mMask + 1);
+            mHead++;
+            return element;
+        }
+
+        boolean isEmpty() {
+            return mSequences.get((int) mHead & mMask) != mHead + 1;
+        }
+    }
+}
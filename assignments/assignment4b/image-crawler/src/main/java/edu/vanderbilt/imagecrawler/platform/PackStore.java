@@ -0,0 +1,670 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only store that packs the contents of many small cache
+ * items into a few large segment files, which avoids creating,
+ * opening and closing a file (and using an inode) per item.
+ * <p>
+ * Each segment is a sequence of records: key length (4), data length
+ * (4, or -1 for a removed key), UTF-8 key, data, and a CRC32 (4) of
+ * the key and data. Records are only ever appended to the newest
+ * (active) segment, which is sealed once it reaches the segment size.
+ * The location of each key's latest record is held in memory and is
+ * rebuilt at startup by scanning the record headers of all segments
+ * (the data itself is not read). Reads are positional, so concurrent
+ * readers never contend with each other or with the writer, and the
+ * CRC is checked on every read.
+ * <p>
+ * Overwritten and removed records become dead space. A background
+ * thread compacts each sealed segment that is at least half dead by
+ * copying its live records (and any removal records that still hide
+ * a key in an older segment) to the active segment and deleting it.
+ */
+class PackStore implements Closeable {
+    /**
+     * Segment file name suffix.
+     */
+    static final String SEGMENT_SUFFIX = ".pack";
+
+    /**
+     * Length of a record's key length and data length fields.
+     */
+    private static final int HEADER_LENGTH = 8;
+
+    /**
+     * Length of a record's trailing CRC.
+     */
+    private static final int CRC_LENGTH = 4;
+
+    /**
+     * Data length of a removal record.
+     */
+    private static final int TOMBSTONE = -1;
+
+    /**
+     * Sealed segments with at least this fraction of dead bytes are
+     * compacted.
+     */
+    private static final double COMPACTION_RATIO = 0.5;
+
+    /**
+     * Directory containing the segment files.
+     */
+    private final File mDir;
+
+    /**
+     * Segments are sealed once they reach this size.
+     */
+    private final long mSegmentSize;
+
+    /**
+     * Location of the latest record of each live key.
+     */
+    private final Map<String, Location> mLocations = new ConcurrentHashMap<>();
+
+    /**
+     * All segments ordered by id (age).
+     */
+    private final ConcurrentSkipListMap<Integer, Segment> mSegments =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * The segment records are appended to (guarded by this).
+     */
+    private Segment mActive;
+
+    /**
+     * Single background thread that compacts segments (created on
+     * demand and guarded by this).
+     */
+    private ExecutorService mCompactor;
+
+    /**
+     * Set by {@link #close} to stop new compactions from being
+     * scheduled (guarded by this).
+     */
+    private boolean mClosed;
+
+    /**
+     * Constructor.
+     *
+     * @param dir         Directory containing the segment files.
+     * @param segmentSize Segments are sealed once they reach this size.
+     */
+    PackStore(File dir, long segmentSize) {
+        mDir = dir;
+        mSegmentSize = segmentSize;
+    }
+
+    /**
+     * Rebuilds the in-memory index by scanning all segments. A
+     * record that was torn by a crash is truncated.
+     *
+     * @return The data length of each stored key.
+     */
+    synchronized Map<String, Integer> load() throws IOException {
+        closeSegments();
+        mClosed = false;
+        FileUtils.forceMkdir(mDir);
+
+        File[] files = mDir.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        int[] ids = files == null
+                ? new int[0]
+                : Arrays.stream(files)
+                        .mapToInt(file -> parseId(file.getName()))
+                        .filter(id -> id > 0)
+                        .sorted()
+                        .toArray();
+
+        for (int id : ids) {
+            Segment segment = new Segment(id, getSegmentFile(id));
+            mSegments.put(id, segment);
+
+            long length = scan(segment, (key, offset, dataLength, recordLength) -> {
+                Location previous;
+                if (dataLength == TOMBSTONE) {
+                    previous = mLocations.remove(key);
+                    segment.mDead += recordLength;
+                } else {
+                    previous = mLocations.put(
+                            key, new Location(segment, offset, key, dataLength));
+                }
+                if (previous != null) {
+                    previous.mSegment.mDead += previous.getRecordLength();
+                }
+            });
+
+            if (length < segment.mChannel.size()) {
+                segment.mChannel.truncate(length);
+            }
+            segment.mSize = length;
+        }
+
+        if (mSegments.isEmpty()) {
+            mActive = newSegment(1);
+        } else {
+            mActive = mSegments.lastEntry().getValue();
+        }
+
+        for (Segment segment : mSegments.values()) {
+            scheduleCompaction(segment);
+        }
+
+        Map<String, Integer> sizes = new HashMap<>();
+        mLocations.forEach((key, location) -> sizes.put(key, location.mLength));
+        return sizes;
+    }
+
+    /**
+     * Stores the first {@code length} bytes of {@code data} as the
+     * contents of {@code key}, replacing any previous contents.
+     */
+    synchronized void put(String key, byte[] data, int length) throws IOException {
+        Location location = append(key, data, length);
+        Location previous = mLocations.put(key, location);
+        if (previous != null) {
+            markDead(previous.mSegment, previous.getRecordLength());
+        }
+    }
+
+    /**
+     * Removes the contents of {@code key}.
+     *
+     * @return false if the key was not stored.
+     */
+    synchronized boolean remove(String key) throws IOException {
+        Location previous = mLocations.remove(key);
+        if (previous == null) {
+            return false;
+        }
+
+        // The removal record must be kept until the removed record's
+        // segment has been compacted.
+        markDead(previous.mSegment, previous.getRecordLength());
+        append(key, null, 0);
+        markDead(mActive, recordLength(key, TOMBSTONE));
+        return true;
+    }
+
+    /**
+     * Reads the contents of {@code key}.
+     *
+     * @return The contents or null if the key is not stored.
+     * @throws IOException if the stored record is corrupt.
+     */
+    @Nullable
+    byte[] read(String key) throws IOException {
+        for (; ; ) {
+            Location location = mLocations.get(key);
+            if (location == null) {
+                return null;
+            }
+
+            try {
+                return location.read(key);
+            } catch (ClosedChannelException e) {
+                // Retry if the record was moved by a compaction.
+                if (e instanceof ClosedByInterruptException
+                        || mLocations.get(key) == location) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if {@code key} is stored.
+     */
+    boolean contains(String key) {
+        return mLocations.containsKey(key);
+    }
+
+    /**
+     * @return The data length of {@code key} or -1 if it is not stored.
+     */
+    int size(String key) {
+        Location location = mLocations.get(key);
+        return location != null ? location.mLength : -1;
+    }
+
+    /**
+     * @return A live view of the stored keys.
+     */
+    Set<String> keys() {
+        return mLocations.keySet();
+    }
+
+    /**
+     * @return The number of segment files.
+     */
+    int getSegmentCount() {
+        return mSegments.size();
+    }
+
+    /**
+     * @return The total size of all segment files.
+     */
+    synchronized long getDiskSize() {
+        return mSegments.values().stream().mapToLong(segment -> segment.mSize).sum();
+    }
+
+    /**
+     * Removes all keys and deletes all segment files.
+     */
+    synchronized void clear() throws IOException {
+        mLocations.clear();
+        for (Segment segment : mSegments.values()) {
+            segment.delete();
+        }
+        mSegments.clear();
+        mActive = newSegment(1);
+    }
+
+    /**
+     * Waits for all scheduled compactions to finish.
+     */
+    void awaitCompaction() throws InterruptedException {
+        ExecutorService compactor;
+        synchronized (this) {
+            compactor = mCompactor;
+        }
+
+        if (compactor != null) {
+            try {
+                compactor.submit(() -> { }).get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Stops compacting and closes all segment files.
+     */
+    @Override
+    public void close() throws IOException {
+        ExecutorService compactor;
+        synchronized (this) {
+            compactor = mCompactor;
+            mCompactor = null;
+            mClosed = true;
+        }
+
+        if (compactor != null) {
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (this) {
+            closeSegments();
+        }
+    }
+
+    private void closeSegments() throws IOException {
+        for (Segment segment : mSegments.values()) {
+            segment.close();
+        }
+        mSegments.clear();
+        mLocations.clear();
+        mActive = null;
+    }
+
+    private File getSegmentFile(int id) {
+        return new File(mDir, String.format("%08d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private static int parseId(String name) {
+        try {
+            return Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Segment newSegment(int id) throws IOException {
+        Segment segment = new Segment(id, getSegmentFile(id));
+        segment.mChannel.truncate(0);
+        mSegments.put(id, segment);
+        return segment;
+    }
+
+    private static long recordLength(String key, int dataLength) {
+        return HEADER_LENGTH
+                + key.getBytes(StandardCharsets.UTF_8).length
+                + Math.max(dataLength, 0)
+                + CRC_LENGTH;
+    }
+
+    /**
+     * Appends a record to the active segment (starting a new segment
+     * if the active one is full). Must be called while holding this
+     * object's lock.
+     *
+     * @param data The data or null to append a removal record.
+     * @return The location of the record's data or null for a
+     * removal record.
+     */
+    private Location append(String key, @Nullable byte[] data, int length)
+            throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int dataLength = data != null ? length : 0;
+        ByteBuffer record = ByteBuffer.allocate(
+                HEADER_LENGTH + keyBytes.length + dataLength + CRC_LENGTH);
+        record.putInt(keyBytes.length);
+        record.putInt(data != null ? length : TOMBSTONE);
+        record.put(keyBytes);
+        if (data != null) {
+            record.put(data, 0, length);
+        }
+        record.putInt(crc(keyBytes, data, dataLength));
+        record.flip();
+
+        if (mActive.mSize > 0 && mActive.mSize + record.remaining() > mSegmentSize) {
+            Segment sealed = mActive;
+            mActive = newSegment(sealed.mId + 1);
+            scheduleCompaction(sealed);
+        }
+
+        long offset = mActive.mSize;
+        mActive.write(record, offset);
+        mActive.mSize += record.capacity();
+
+        return data != null ? new Location(mActive, offset, key, length) : null;
+    }
+
+    /**
+     * Adds dead bytes to a segment and schedules its compaction if
+     * it has become mostly dead. Must be called while holding this
+     * object's lock.
+     */
+    private void markDead(Segment segment, long bytes) {
+        segment.mDead += bytes;
+        scheduleCompaction(segment);
+    }
+
+    /**
+     * Schedules a background compaction of a sealed segment that is
+     * mostly dead. Must be called while holding this object's lock.
+     */
+    private void scheduleCompaction(Segment segment) {
+        if (mClosed
+                || segment == mActive
+                || segment.mCompacting
+                || segment.mDead < segment.mSize * COMPACTION_RATIO) {
+            return;
+        }
+
+        segment.mCompacting = true;
+        if (mCompactor == null) {
+            mCompactor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "PackStore-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        mCompactor.execute(() -> compact(segment));
+    }
+
+    /**
+     * Copies the live records of a sealed segment to the active
+     * segment and deletes it.
+     */
+    private void compact(Segment segment) {
+        try {
+            scan(segment, (key, offset, dataLength, recordLength) -> {
+                if (dataLength == TOMBSTONE) {
+                    synchronized (this) {
+                        // Keep removal records that hide a key's record
+                        // in an older segment.
+                        if (!mLocations.containsKey(key)
+                                && mSegments.firstKey() < segment.mId) {
+                            append(key, null, 0);
+                            markDead(mActive, recordLength);
+                        }
+                    }
+                    return;
+                }
+
+                Location location = mLocations.get(key);
+                if (location == null
+                        || location.mSegment != segment
+                        || location.mOffset != offset) {
+                    return;
+                }
+
+                // Read outside the lock so that the writer is only
+                // blocked while the record is appended.
+                byte[] data;
+                try {
+                    data = location.read(key);
+                } catch (IOException e) {
+                    if (segment.isDeleted()) {
+                        throw e;
+                    }
+                    // Drop a corrupt record.
+                    data = null;
+                }
+
+                synchronized (this) {
+                    if (mLocations.get(key) == location) {
+                        if (data != null) {
+                            mLocations.put(key, append(key, data, data.length));
+                        } else {
+                            mLocations.remove(key);
+                        }
+                    }
+                }
+            });
+
+            synchronized (this) {
+                if (mSegments.remove(segment.mId, segment)) {
+                    segment.delete();
+                }
+            }
+        } catch (IOException e) {
+            // The segment was deleted by clear() or close(), or could
+            // not be read; it will be compacted again after a reload.
+            System.out.println("PackStore[WARNING]: Unable to compact "
+                                       + segment.mFile + ": " + e);
+        }
+    }
+
+    private interface RecordVisitor {
+        void visit(String key, long offset, int dataLength, long recordLength)
+                throws IOException;
+    }
+
+    /**
+     * Visits the header of each complete record in a segment.
+     *
+     * @return The length of the complete records in the segment.
+     */
+    private static long scan(Segment segment, RecordVisitor visitor) throws IOException {
+        long size = segment.mChannel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        while (position + HEADER_LENGTH <= size) {
+            header.clear();
+            segment.read(header, position);
+            header.flip();
+            int keyLength = header.getInt();
+            int dataLength = header.getInt();
+            if (keyLength <= 0 || keyLength > 0xffff || dataLength < TOMBSTONE) {
+                break;
+            }
+
+            long recordLength =
+                    HEADER_LENGTH + keyLength + Math.max(dataLength, 0) + CRC_LENGTH;
+            if (position + recordLength > size) {
+                break;
+            }
+
+            ByteBuffer key = ByteBuffer.allocate(keyLength);
+            segment.read(key, position + HEADER_LENGTH);
+            visitor.visit(new String(key.array(), StandardCharsets.UTF_8),
+                          position,
+                          dataLength,
+                          recordLength);
+            position += recordLength;
+        }
+
+        return position;
+    }
+
+    private static int crc(byte[] key, @Nullable byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(key, 0, key.length);
+        if (data != null) {
+            crc.update(data, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * The location of the data of a key's latest record.
+     */
+    private static class Location {
+        final Segment mSegment;
+        final long mOffset;
+        final int mKeyLength;
+        final int mLength;
+
+        Location(Segment segment, long offset, String key, int length) {
+            mSegment = segment;
+            mOffset = offset;
+            mKeyLength = key.getBytes(StandardCharsets.UTF_8).length;
+            mLength = length;
+        }
+
+        long getRecordLength() {
+            return HEADER_LENGTH + mKeyLength + mLength + CRC_LENGTH;
+        }
+
+        byte[] read(String key) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(mLength + CRC_LENGTH);
+            mSegment.read(buffer, mOffset + HEADER_LENGTH + mKeyLength);
+            buffer.flip();
+            byte[] data = new byte[mLength];
+            buffer.get(data);
+            if (buffer.getInt() != crc(key.getBytes(StandardCharsets.UTF_8), data, mLength)) {
+                throw new IOException("Corrupt record for " + key + " in " + mSegment.mFile);
+            }
+            return data;
+        }
+    }
+
+    /**
+     * A segment file. The size and dead byte count are guarded by the
+     * store's lock.
+     */
+    private static class Segment {
+        final int mId;
+        final File mFile;
+        long mSize;
+        long mDead;
+        boolean mCompacting;
+
+        /**
+         * The channel is reopened if it is closed by the interrupt of
+         * a thread using it.
+         */
+        private volatile FileChannel mChannel;
+        private boolean mDeleted;
+
+        Segment(int id, File file) throws IOException {
+            mId = id;
+            mFile = file;
+            mChannel = new RandomAccessFile(file, "rw").getChannel();
+        }
+
+        void read(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                FileChannel channel = mChannel;
+                try {
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new EOFException("Unexpected end of " + mFile);
+                    }
+                    position += read;
+                } catch (ClosedChannelException e) {
+                    if (!reopen(channel) || e instanceof ClosedByInterruptException) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        void write(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                FileChannel channel = mChannel;
+                try {
+                    position += channel.write(buffer, position);
+                } catch (ClosedChannelException e) {
+                    if (!reopen(channel) || e instanceof ClosedByInterruptException) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Replaces a closed channel unless the segment was deleted.
+         *
+         * @return false if the segment was deleted.
+         */
+        private synchronized boolean reopen(FileChannel closed) throws IOException {
+            if (mDeleted) {
+                return false;
+            }
+            if (mChannel == closed) {
+                mChannel = new RandomAccessFile(mFile, "rw").getChannel();
+            }
+            return true;
+        }
+
+        synchronized boolean isDeleted() {
+            return mDeleted;
+        }
+
+        synchronized void close() throws IOException {
+            mDeleted = true;
+            mChannel.close();
+        }
+
+        synchronized void delete() throws IOException {
+            close();
+            if (!mFile.delete() && mFile.exists()) {
+                throw new IOException("Unable to delete " + mFile);
+            }
+        }
+    }
+}
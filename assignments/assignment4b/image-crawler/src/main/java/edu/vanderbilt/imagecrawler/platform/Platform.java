@@ -52,6 +52,14 @@ public interface Platform {
 	 */
 	InputStream mapUriToInputStream(String uri);
 
+	/**
+	 * @return The fetcher used for http and https uris, which
+	 * defaults to the shared {@link HttpFetcher#getDefault()}.
+	 */
+	default HttpFetcher getHttpFetcher() {
+		return HttpFetcher.getDefault();
+	}
+
 	/**
 	 * Prints log using platform dependent logging if log has
 	 * been enabled.
@@ -22,6 +22,30 @@ public interface PlatformImage {
 	 */
 	void writeImage(OutputStream outputStream) throws IOException;
 
+	/**
+	 * Writes the image bytes to the output stream using the specified
+	 * {@code encoder}, which must have a fixed format (see
+	 * {@link ImageEncoder#resolve(String)}).  The default implementation
+	 * ignores the encoder and calls {@link #writeImage(OutputStream)},
+	 * which writes PNG images.
+	 *
+	 * @return The format that was actually written.
+	 */
+	default ImageFormat writeImage(OutputStream outputStream,
+								   ImageEncoder encoder) throws IOException {
+		writeImage(outputStream);
+		return ImageFormat.PNG;
+	}
+
+	/**
+	 * Sets the number of pixels above which this image (and the
+	 * images transformed from it) are transformed in parallel (0 to
+	 * always transform sequentially).  The default implementation
+	 * ignores the threshold.
+	 */
+	default void setParallelTransformThreshold(long pixels) {
+	}
+
 	/**
 	 * Applies the specified transformation {@code type} to the image.
 	 */
@@ -31,4 +55,12 @@ public interface PlatformImage {
 	 * @return Number of image bytes.
 	 */
 	int size();
+
+	/**
+	 * @return The approximate number of bytes used to hold the
+	 * decoded image in memory (defaults to {@link #size()}).
+	 */
+	default long memorySize() {
+		return size();
+	}
 }
@@ -102,6 +102,21 @@ class SynchronizedCacheMap
         }
     }
 
+    /**
+     * Removes the entry that matches the specified {@code key} only
+     * if it is currently mapped to {@code value}.
+     *
+     * @param key   The entry's key.
+     * @param value The value expected to be mapped to the key.
+     * @return {@code true} if the entry was removed.
+     */
+    @Override
+    public boolean remove(String key, Cache.Item value) {
+        synchronized(this) {
+            return map.remove(key, value);
+        }
+    }
+
     /**
      * Checks if the map contains the specified key.
      *
@@ -0,0 +1,141 @@
+package edu.vanderbilt.imagecrawler.transforms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.vanderbilt.imagecrawler.platform.Cache;
+import edu.vanderbilt.imagecrawler.platform.ImageEncoder;
+import edu.vanderbilt.imagecrawler.utils.Image;
+
+/**
+ * A Transform that chains several transforms over a single decoded
+ * image, so a multi-step pipeline (e.g., "resize then grayscale then
+ * sharpen") decodes its source once and encodes only its final
+ * result, which is stored in the cache group named after this
+ * composite.  Selected intermediate stages can optionally also be
+ * persisted, each in its own cache group.  It plays the role of the
+ * "Composite" in the Composite pattern.
+ */
+public class CompositeTransform
+        extends Transform {
+    /**
+     * Separates the parts of the cache tag used for an intermediate
+     * stage (tags can't contain spaces or '-' characters).
+     */
+    private static final String STAGE_TAG_SEPARATOR = "_";
+
+    /**
+     * The transforms applied (in order) to each image.
+     */
+    private final List<Transform> mStages;
+
+    /**
+     * The indices of the intermediate stages whose results are also
+     * written to the cache.
+     */
+    private final Set<Integer> mPersistedStages;
+
+    /**
+     * Constructs a composite that only persists its final result.
+     *
+     * @param name   The name of the composite (and its cache group).
+     * @param stages The transforms to apply in order.
+     */
+    public CompositeTransform(String name, List<Transform> stages) {
+        this(name, stages, Collections.emptySet());
+    }
+
+    /**
+     * Constructs a composite that persists its final result and the
+     * results of the intermediate stages at the specified indices.
+     * Each persisted stage is stored in the cache group returned by
+     * {@link #getStageTag(int)}.
+     *
+     * @param name            The name of the composite (and its cache
+     *                        group).
+     * @param stages          The transforms to apply in order.
+     * @param persistedStages The indices of the intermediate stages
+     *                        to persist.
+     */
+    public CompositeTransform(String name,
+                              List<Transform> stages,
+                              Collection<Integer> persistedStages) {
+        super(name);
+
+        if (stages == null || stages.isEmpty()) {
+            throw new IllegalArgumentException("A composite requires at least one stage");
+        }
+
+        for (int index : persistedStages) {
+            if (index < 0 || index >= stages.size() - 1) {
+                throw new IllegalArgumentException
+                        ("Invalid intermediate stage index: " + index);
+            }
+        }
+
+        mStages = Collections.unmodifiableList(new ArrayList<>(stages));
+        mPersistedStages = new HashSet<>(persistedStages);
+    }
+
+    /**
+     * @return The transforms applied (in order) by this composite.
+     */
+    public List<Transform> getStages() {
+        return mStages;
+    }
+
+    /**
+     * @return The cache group used to persist the result of the stage
+     * at {@code index}.
+     */
+    public String getStageTag(int index) {
+        return getName()
+                + STAGE_TAG_SEPARATOR
+                + (index + 1)
+                + STAGE_TAG_SEPARATOR
+                + mStages.get(index).getName();
+    }
+
+    /**
+     * Applies each stage to the result of the previous stage without
+     * writing any intermediate results other than those that were
+     * explicitly selected for persisting.
+     */
+    @Override
+    protected Image applyTransform(Image image, Cache.Item item) {
+        String uri = image.getSourceUrl().toString();
+
+        for (int i = 0; i < mStages.size(); i++) {
+            image = mStages.get(i).transform(image, item);
+
+            if (mPersistedStages.contains(i)) {
+                persistStage(i, uri, image, item.getCache());
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Writes the result of an intermediate stage to its own cache
+     * group unless that group already contains this image.
+     */
+    private void persistStage(int index, String uri, Image image, Cache cache) {
+        String tag = getStageTag(index);
+
+        if (cache.addItem(uri, tag)) {
+            // Use the stage's encoder (e.g., a raw encoder for cheap
+            // intermediate entries), or else the composite's.
+            ImageEncoder encoder = mStages.get(index).getEncoder();
+            if (encoder == null) {
+                encoder = getEncoder() != null ? getEncoder() : ImageEncoder.png();
+            }
+
+            TransformDecoratorWithImage.store(image, cache.getItem(uri, tag), encoder);
+        }
+    }
+}
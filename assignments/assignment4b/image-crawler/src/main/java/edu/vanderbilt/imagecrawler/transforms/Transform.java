@@ -7,6 +7,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import edu.vanderbilt.imagecrawler.platform.Cache;
+import edu.vanderbilt.imagecrawler.platform.ImageEncoder;
 import edu.vanderbilt.imagecrawler.utils.Image;
 
 /**
@@ -43,6 +44,12 @@ public abstract class Transform {
      */
     protected String mName = getClass().getSimpleName();
 
+    /**
+     * The encoder used to write images produced by this transform,
+     * or null to use the crawler's (global) output encoder.
+     */
+    private ImageEncoder mEncoder;
+
 	/**
 	 * Only available to Factory inner class to constructs a
 	 * Transform with the default name (simple class name).
@@ -92,6 +99,22 @@ public abstract class Transform {
         return mName;
     }
 
+    /**
+     * Sets the encoder used to write images produced by this
+     * transform (null to use the crawler's output encoder).
+     */
+    public void setEncoder(ImageEncoder encoder) {
+        mEncoder = encoder;
+    }
+
+    /**
+     * Gets the encoder used to write images produced by this
+     * transform, or null if the crawler's output encoder is used.
+     */
+    public ImageEncoder getEncoder() {
+        return mEncoder;
+    }
+
     /**
 	 * Factory class used to create new instances of supported transforms
 	 * or to create list of new instances each supporting a specified
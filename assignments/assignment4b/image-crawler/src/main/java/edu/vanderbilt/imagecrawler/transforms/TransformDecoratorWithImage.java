@@ -3,6 +3,7 @@ package edu.vanderbilt.imagecrawler.transforms;
 import java.io.OutputStream;
 
 import edu.vanderbilt.imagecrawler.platform.Cache;
+import edu.vanderbilt.imagecrawler.platform.ImageEncoder;
 import edu.vanderbilt.imagecrawler.utils.Image;
 
 /**
@@ -20,12 +21,33 @@ public class TransformDecoratorWithImage {
     private Image mImage;
 
     /**
-     * Constructor initializes the fields.
+     * The encoder used to write the transformed image.
+     */
+    private ImageEncoder mEncoder;
+
+    /**
+     * Constructor initializes the fields.  The transformed image is
+     * written using the transform's encoder, or as a PNG if the
+     * transform doesn't have one.
      */
     public TransformDecoratorWithImage(Transform transform,
                                        Image image) {
+        this(transform,
+             image,
+             transform.getEncoder() != null
+                 ? transform.getEncoder()
+                 : ImageEncoder.png());
+    }
+
+    /**
+     * Constructor initializes the fields.
+     */
+    public TransformDecoratorWithImage(Transform transform,
+                                       Image image,
+                                       ImageEncoder encoder) {
         mTransform = transform;
         mImage = image;
+        mEncoder = encoder;
     }
 
     /**
@@ -34,14 +56,27 @@ public class TransformDecoratorWithImage {
     public Image run(Cache.Item item) {
         Image image = mTransform.transform(mImage, item);
         // Save the image to the cache.
+        return store(image, item, mEncoder) ? image : null;
+    }
+
+    /**
+     * Writes the {@code image} to the cache {@code item} using the
+     * passed {@code encoder} and records the format that was written
+     * in the item.
+     *
+     * @return true if the image was written, false if it could not be.
+     */
+    public static boolean store(Image image,
+                                Cache.Item item,
+                                ImageEncoder encoder) {
         try (OutputStream outputStream =
                      item.getOutputStream(
                              Cache.Operation.WRITE, image.size())) {
-            image.writeImage(outputStream);
+            item.setFormat(image.writeImage(outputStream, encoder));
         } catch (Exception e) {
-            return null;
+            return false;
         }
 
-        return image;
+        return true;
     }
 }
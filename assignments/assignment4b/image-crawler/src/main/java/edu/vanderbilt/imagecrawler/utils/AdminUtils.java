@@ -22,24 +22,24 @@ public class AdminUtils {
     /**
      * HTML format string for a page title.
      */
-    private static final String titleFormat = "Images in %1$s";
+    static final String titleFormat = "Images in %1$s";
 
     /**
      * HTML format string for a image link.
      */
-    private static final String imageFormat =
+    static final String imageFormat =
             "<p><img src=\"%1$s\"></p>\n";
 
     /**
      * HTML format string for a directory/page link.
      */
-    private static final String dirFormat =
+    static final String dirFormat =
             "<li><a href=\"%1$s/index.html\">%2$s</a></li>\n";
 
     /**
      * HTML format string for index.html file.
      */
-    private static String indexFormat =
+    static final String indexFormat =
             "<html><head><meta http-equiv=\"Content-Type\" "
                     + "content=\"text/html; charset=UTF-8\">\n"
                     + "<title>%1$s</title>\n"
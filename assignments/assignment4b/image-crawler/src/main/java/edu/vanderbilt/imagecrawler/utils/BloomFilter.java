@@ -0,0 +1,105 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Bloom filter of {@link Fingerprint fingerprints}.  It
+ * answers "definitely not added" or "maybe added" using a fixed
+ * number of bits per expected value, so sets that keep their values
+ * somewhere expensive to search (e.g. on disk) can skip the search
+ * for most new values.  Bits are set with compare-and-set, so
+ * concurrent additions never block each other.
+ */
+public class BloomFilter {
+    private final AtomicLongArray mBits;
+
+    private final long mBitCount;
+
+    private final int mHashCount;
+
+    /**
+     * Constructor.
+     *
+     * @param expectedSize      The number of values the filter is sized for.
+     * @param falsePositiveRate The rate at which {@link #mightContain}
+     *                          returns true for values that were not
+     *                          added once {@code expectedSize} values
+     *                          have been added.
+     */
+    public BloomFilter(long expectedSize, double falsePositiveRate) {
+        if (expectedSize <= 0) {
+            throw new IllegalArgumentException("expectedSize must be > 0");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+        }
+
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedSize * Math.log(falsePositiveRate) / (ln2 * ln2));
+        long words = (bits + 63) / 64;
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("expectedSize is too large: " + expectedSize);
+        }
+
+        mBits = new AtomicLongArray((int) words);
+        mBitCount = words * 64;
+        mHashCount = Math.max(1, (int) Math.round((double) mBitCount / expectedSize * ln2));
+    }
+
+    /**
+     * Adds a fingerprint to the filter.
+     */
+    public void put(long fingerprint) {
+        long hash = fingerprint;
+        long step = step(fingerprint);
+        for (int i = 0; i < mHashCount; i++, hash += step) {
+            long bit = (hash & Long.MAX_VALUE) % mBitCount;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = mBits.get(word);
+            while ((current & mask) == 0
+                    && !mBits.compareAndSet(word, current, current | mask)) {
+                current = mBits.get(word);
+            }
+        }
+    }
+
+    /**
+     * @return false if the fingerprint was definitely not added, and
+     * true if it may have been added.
+     */
+    public boolean mightContain(long fingerprint) {
+        long hash = fingerprint;
+        long step = step(fingerprint);
+        for (int i = 0; i < mHashCount; i++, hash += step) {
+            long bit = (hash & Long.MAX_VALUE) % mBitCount;
+            if ((mBits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The expected false positive rate once {@code size}
+     * values have been added.
+     */
+    public double falsePositiveRate(long size) {
+        return Math.pow(1 - Math.exp(-(double) mHashCount * size / mBitCount), mHashCount);
+    }
+
+    /**
+     * @return The number of bytes used by the filter's bits.
+     */
+    public long sizeInBytes() {
+        return mBitCount / 8;
+    }
+
+    /**
+     * The increment between the filter positions of a fingerprint
+     * (double hashing), derived from the fingerprint's other bits.
+     */
+    private static long step(long fingerprint) {
+        return Fingerprint.mix(fingerprint) | 1;
+    }
+}
@@ -0,0 +1,69 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link VisitedSet} that only keeps a {@link BloomFilter} of the
+ * uris' fingerprints, trading a small chance of skipping a page for
+ * a fixed 1.2 bytes per expected uri.  The filter's bits are set
+ * lock-free; the check and the insertion of a uri are made atomic by
+ * a lock striped by fingerprint, so two threads adding the same uri
+ * never both see it as new.
+ */
+class BloomVisitedSet extends VisitedSet {
+    /**
+     * The false positive rate once the expected number of uris have
+     * been added.
+     */
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * The number of locks (a power of two).
+     */
+    private static final int STRIPES = 64;
+
+    private final BloomFilter mFilter;
+
+    private final Object[] mLocks = new Object[STRIPES];
+
+    private final AtomicLong mSize = new AtomicLong();
+
+    BloomVisitedSet(long expectedSize, boolean canonicalize) {
+        super(canonicalize);
+        mFilter = new BloomFilter(expectedSize, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < STRIPES; i++) {
+            mLocks[i] = new Object();
+        }
+    }
+
+    @Override
+    protected boolean add(String uri) {
+        long fingerprint = Fingerprint.of(uri);
+        synchronized (mLocks[(int) fingerprint & (STRIPES - 1)]) {
+            if (mFilter.mightContain(fingerprint)) {
+                return false;
+            }
+            mFilter.put(fingerprint);
+        }
+        mSize.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return The number of uris that were reported as new.
+     */
+    @Override
+    public long size() {
+        return mSize.get();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return mFilter.sizeInBytes();
+    }
+
+    @Override
+    public double falsePositiveRate() {
+        return mFilter.falsePositiveRate(size());
+    }
+}
@@ -0,0 +1,465 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A backpressured alternative to {@link FuturesCollector} for large
+ * inputs.  Rather than starting an asynchronous operation for every
+ * element at once and holding all the resulting futures until
+ * allOf() completes, at most {@code permits} operations are in
+ * flight at any time.  Each result is folded into an accumulator as
+ * soon as its future completes and the next input element is only
+ * pulled (lazily) from the source after a permit is released, so
+ * peak memory is proportional to {@code permits} rather than to the
+ * number of inputs.
+ * <p>
+ * Reductions that run at the same time (e.g., one per crawled page)
+ * can share the same cap by passing a common {@link Limiter} rather
+ * than a number of permits, which bounds the total number of
+ * operations in flight across all of them.
+ * <p>
+ * The returned future completes exceptionally with the first failure
+ * of any operation (or of the mapper itself), after which no more
+ * operations are started.  Cancelling the returned future also stops
+ * new operations from being started.
+ */
+public class BoundedFutures {
+    /**
+     * A utility class should always define a private constructor.
+     */
+    private BoundedFutures() {
+    }
+
+    /**
+     * Asynchronously maps each element of {@code inputs} with at most
+     * {@code permits} operations in flight and folds the results with
+     * {@code accumulator} in completion order.
+     *
+     * @param inputs      The (lazily evaluated) input elements
+     * @param permits     The maximum number of in-flight operations
+     * @param mapper      Starts the asynchronous operation for an element
+     * @param identity    The initial value of the accumulation
+     * @param accumulator An associative and commutative function that
+     *                    folds a result into the accumulation
+     * @return A future to the accumulated result
+     */
+    public static <T, R> CompletableFuture<R> reduce
+        (Iterator<? extends T> inputs,
+         int permits,
+         Function<? super T, ? extends CompletableFuture<? extends R>> mapper,
+         R identity,
+         BinaryOperator<R> accumulator) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be > 0");
+        }
+
+        Pipeline<T, R> pipeline =
+            new Pipeline<>(inputs, permits, null, mapper, identity, accumulator);
+        pipeline.drain();
+        return pipeline.mResult;
+    }
+
+    /**
+     * Asynchronously maps each element of {@code inputs} while the
+     * shared {@code limiter} has a permit available and folds the
+     * results with {@code accumulator} in completion order.
+     *
+     * @param inputs      The (lazily evaluated) input elements
+     * @param limiter     The permits shared with other reductions
+     * @param mapper      Starts the asynchronous operation for an element
+     * @param identity    The initial value of the accumulation
+     * @param accumulator An associative and commutative function that
+     *                    folds a result into the accumulation
+     * @return A future to the accumulated result
+     */
+    public static <T, R> CompletableFuture<R> reduce
+        (Iterator<? extends T> inputs,
+         Limiter limiter,
+         Function<? super T, ? extends CompletableFuture<? extends R>> mapper,
+         R identity,
+         BinaryOperator<R> accumulator) {
+        Pipeline<T, R> pipeline =
+            new Pipeline<>(inputs,
+                           Integer.MAX_VALUE,
+                           limiter,
+                           mapper,
+                           identity,
+                           accumulator);
+        pipeline.drain();
+        return pipeline.mResult;
+    }
+
+    /**
+     * Asynchronously maps each element of {@code inputs} with at most
+     * {@code permits} operations in flight and folds the results with
+     * {@code accumulator} in completion order.
+     *
+     * @param inputs      A stream of input elements, which is consumed
+     *                    lazily
+     * @param permits     The maximum number of in-flight operations
+     * @param mapper      Starts the asynchronous operation for an element
+     * @param identity    The initial value of the accumulation
+     * @param accumulator An associative and commutative function that
+     *                    folds a result into the accumulation
+     * @return A future to the accumulated result
+     */
+    public static <T, R> CompletableFuture<R> reduce
+        (Stream<? extends T> inputs,
+         int permits,
+         Function<? super T, ? extends CompletableFuture<? extends R>> mapper,
+         R identity,
+         BinaryOperator<R> accumulator) {
+        return reduce(inputs.iterator(), permits, mapper, identity, accumulator);
+    }
+
+    /**
+     * Convenience method that sums the integer results of at most
+     * {@code permits} in-flight operations.
+     *
+     * @param inputs  A stream of input elements, which is consumed
+     *                lazily
+     * @param permits The maximum number of in-flight operations
+     * @param mapper  Starts the asynchronous operation for an element
+     * @return A future to the sum of all results
+     */
+    public static <T> CompletableFuture<Integer> sum
+        (Stream<? extends T> inputs,
+         int permits,
+         Function<? super T, ? extends CompletableFuture<Integer>> mapper) {
+        return reduce(inputs, permits, mapper, 0, Integer::sum);
+    }
+
+    /**
+     * Convenience method that sums the integer results of operations
+     * that run while the shared {@code limiter} has a permit
+     * available.
+     *
+     * @param inputs  A stream of input elements, which is consumed
+     *                lazily
+     * @param limiter The permits shared with other reductions
+     * @param mapper  Starts the asynchronous operation for an element
+     * @return A future to the sum of all results
+     */
+    public static <T> CompletableFuture<Integer> sum
+        (Stream<? extends T> inputs,
+         Limiter limiter,
+         Function<? super T, ? extends CompletableFuture<Integer>> mapper) {
+        return reduce(inputs.iterator(), limiter, mapper, 0, Integer::sum);
+    }
+
+    /**
+     * A fixed number of permits shared by any number of concurrent
+     * reductions.  A reduction that finds no permit available never
+     * blocks a thread; it waits in a FIFO queue and is handed the
+     * next released permit.
+     */
+    public static class Limiter {
+        /**
+         * The total number of permits.
+         */
+        private final int mPermits;
+
+        /**
+         * The permits that are neither in use nor handed to a waiting
+         * reduction.  Permits are only available while no reduction
+         * is waiting.
+         */
+        private int mAvailable;
+
+        /**
+         * The reductions waiting for a permit.
+         */
+        private final Queue<Pipeline<?, ?>> mWaiting = new ArrayDeque<>();
+
+        /**
+         * Constructor initializes the fields.
+         *
+         * @param permits The maximum number of in-flight operations
+         *                across all reductions using this limiter
+         */
+        public Limiter(int permits) {
+            if (permits <= 0) {
+                throw new IllegalArgumentException("permits must be > 0");
+            }
+            mPermits = permits;
+            mAvailable = permits;
+        }
+
+        /**
+         * @return The total number of permits
+         */
+        public int getPermits() {
+            return mPermits;
+        }
+
+        /**
+         * @return The number of permits currently in use
+         */
+        public synchronized int getInUse() {
+            return mPermits - mAvailable;
+        }
+
+        /**
+         * Takes a permit if one is available, and otherwise queues
+         * {@code pipeline} to be handed the next released permit.
+         *
+         * @return True if a permit was taken
+         */
+        synchronized boolean acquire(Pipeline<?, ?> pipeline) {
+            if (mAvailable > 0) {
+                mAvailable--;
+                return true;
+            }
+            mWaiting.add(pipeline);
+            return false;
+        }
+
+        /**
+         * Hands a permit to the longest waiting reduction, or makes
+         * it available if no reduction is waiting.
+         */
+        void release() {
+            Pipeline<?, ?> next;
+            synchronized (this) {
+                next = mWaiting.poll();
+                if (next == null) {
+                    mAvailable++;
+                    return;
+                }
+            }
+            next.grant();
+        }
+    }
+
+    /**
+     * The state of a single bounded reduction.  All fields other than
+     * the final ones are guarded by this object's monitor.
+     */
+    private static class Pipeline<T, R> {
+        /**
+         * The future returned to the caller.
+         */
+        final CompletableFuture<R> mResult = new CompletableFuture<>();
+
+        /**
+         * The source of input elements.
+         */
+        private final Iterator<? extends T> mInputs;
+
+        /**
+         * The maximum number of in-flight operations.
+         */
+        private final int mPermits;
+
+        /**
+         * The permits shared with other reductions, or null.
+         */
+        private final Limiter mLimiter;
+
+        /**
+         * Starts the asynchronous operation for an element.
+         */
+        private final Function<? super T, ? extends CompletableFuture<? extends R>> mMapper;
+
+        /**
+         * Folds a completed result into the accumulation.
+         */
+        private final BinaryOperator<R> mAccumulator;
+
+        /**
+         * The accumulation of all results completed so far.
+         */
+        private R mValue;
+
+        /**
+         * The number of operations that have been started but have
+         * not yet completed.
+         */
+        private int mInFlight;
+
+        /**
+         * True while a thread is starting new operations.  This
+         * prevents futures that complete synchronously from
+         * recursing back into drain().
+         */
+        private boolean mDraining;
+
+        /**
+         * True while this reduction is queued for a permit of the
+         * limiter.
+         */
+        private boolean mWaiting;
+
+        /**
+         * The number of limiter permits that have been handed to this
+         * reduction but not yet used.
+         */
+        private int mGranted;
+
+        Pipeline(Iterator<? extends T> inputs,
+                 int permits,
+                 Limiter limiter,
+                 Function<? super T, ? extends CompletableFuture<? extends R>> mapper,
+                 R identity,
+                 BinaryOperator<R> accumulator) {
+            mInputs = inputs;
+            mPermits = permits;
+            mLimiter = limiter;
+            mMapper = mapper;
+            mValue = identity;
+            mAccumulator = accumulator;
+        }
+
+        /**
+         * Starts operations until all permits are in use or the
+         * inputs are exhausted, and completes the result once the
+         * last operation has completed.
+         */
+        void drain() {
+            synchronized (this) {
+                if (mDraining) {
+                    // The thread that is already draining will
+                    // observe the released permit.
+                    return;
+                }
+                mDraining = true;
+            }
+
+            for (;;) {
+                T input = null;
+                boolean started = false;
+                int unused = 0;
+
+                synchronized (this) {
+                    if (!mResult.isDone()) {
+                        boolean acquired = false;
+                        try {
+                            boolean hasNext = mInputs.hasNext();
+                            if (!hasNext && mInFlight == 0) {
+                                mResult.complete(mValue);
+                            } else if (hasNext
+                                       && mInFlight < mPermits
+                                       && (acquired = acquire())) {
+                                input = mInputs.next();
+                                mInFlight++;
+                                started = true;
+                            }
+                        } catch (Throwable t) {
+                            if (acquired) {
+                                unused++;
+                            }
+                            mResult.completeExceptionally(t);
+                        }
+                    }
+
+                    if (!started) {
+                        // Pass on any limiter permits that are no
+                        // longer needed.
+                        mDraining = false;
+                        unused += mGranted;
+                        mGranted = 0;
+                    }
+                }
+
+                if (!started) {
+                    release(unused);
+                    return;
+                }
+
+                CompletableFuture<? extends R> future;
+                try {
+                    future = mMapper.apply(input);
+                } catch (Throwable t) {
+                    synchronized (this) {
+                        mDraining = false;
+                        unused = mGranted + 1;
+                        mGranted = 0;
+                    }
+                    mResult.completeExceptionally(t);
+                    release(unused);
+                    return;
+                }
+
+                future.whenComplete(this::onComplete);
+            }
+        }
+
+        /**
+         * Takes a permit of the limiter (if any) for the next
+         * operation, preferring a permit that was handed to this
+         * reduction.  Must be called while holding this object's
+         * monitor.
+         *
+         * @return False if this reduction must wait for a permit
+         */
+        private boolean acquire() {
+            if (mLimiter == null) {
+                return true;
+            } else if (mGranted > 0) {
+                mGranted--;
+                return true;
+            } else if (mWaiting) {
+                return false;
+            } else if (mLimiter.acquire(this)) {
+                return true;
+            } else {
+                mWaiting = true;
+                return false;
+            }
+        }
+
+        /**
+         * Called by the limiter to hand a released permit to this
+         * waiting reduction.
+         */
+        void grant() {
+            synchronized (this) {
+                mWaiting = false;
+                mGranted++;
+            }
+            drain();
+        }
+
+        /**
+         * Returns {@code count} permits to the limiter (if any).
+         */
+        private void release(int count) {
+            if (mLimiter != null) {
+                for (int i = 0; i < count; i++) {
+                    mLimiter.release();
+                }
+            }
+        }
+
+        /**
+         * Folds the result of a completed operation into the
+         * accumulation, releases its permit, and starts the next
+         * operation (if any).
+         */
+        private void onComplete(R value, Throwable throwable) {
+            if (throwable != null) {
+                mResult.completeExceptionally(throwable);
+                release(1);
+                return;
+            }
+
+            synchronized (this) {
+                mInFlight--;
+                try {
+                    mValue = mAccumulator.apply(mValue, value);
+                } catch (Throwable t) {
+                    mResult.completeExceptionally(t);
+                }
+            }
+
+            release(1);
+            drain();
+        }
+    }
+}
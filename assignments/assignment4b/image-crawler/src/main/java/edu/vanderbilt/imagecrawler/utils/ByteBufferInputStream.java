@@ -0,0 +1,83 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.InvalidMarkException;
+
+/**
+ * An InputStream that reads from a (possibly memory mapped)
+ * ByteBuffer without copying it.  The stream reads from a duplicate
+ * of the passed buffer, so the position and limit of the original
+ * buffer are never changed.  Closing this stream has no effect.
+ */
+public class ByteBufferInputStream
+       extends InputStream {
+    /**
+     * The buffer being read.
+     */
+    private final ByteBuffer mBuffer;
+
+    /**
+     * Constructor initializes the field.
+     *
+     * @param buffer The buffer containing the bytes to read.
+     */
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        mBuffer = buffer.duplicate();
+    }
+
+    /**
+     * @return The number of unread bytes.
+     */
+    @Override
+    public int available() {
+        return mBuffer.remaining();
+    }
+
+    @Override
+    public int read() {
+        return mBuffer.hasRemaining() ? mBuffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!mBuffer.hasRemaining()) {
+            return -1;
+        }
+
+        int count = Math.min(len, mBuffer.remaining());
+        mBuffer.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, mBuffer.remaining()));
+        mBuffer.position(mBuffer.position() + count);
+        return count;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        mBuffer.mark();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        try {
+            mBuffer.reset();
+        } catch (InvalidMarkException e) {
+            throw new IOException("Stream has not been marked", e);
+        }
+    }
+}
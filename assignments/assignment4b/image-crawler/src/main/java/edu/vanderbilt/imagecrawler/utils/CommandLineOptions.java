@@ -1,5 +1,9 @@
 package edu.vanderbilt.imagecrawler.utils;
 
+import java.io.File;
+
+import edu.vanderbilt.imagecrawler.platform.ImageEncoder;
+
 /**
  * This class provides a static command line argument crawler that
  * builds an immutable options object.
@@ -34,6 +38,42 @@ public class CommandLineOptions {
                     case "-o":
                         builder.downloadPath(argv[++argc]);
                         break;
+                    case "-c":
+                        builder.memoryCacheSize(Long.valueOf(argv[++argc]));
+                        break;
+                    case "-i":
+                        builder.ioPoolSize(Integer.valueOf(argv[++argc]));
+                        break;
+                    case "-p":
+                        builder.cpuPoolSize(Integer.valueOf(argv[++argc]));
+                        break;
+                    case "-v":
+                        builder.virtualThreads(argv[++argc].equals("true"));
+                        break;
+                    case "-n":
+                        builder.imagePermits(Integer.valueOf(argv[++argc]));
+                        break;
+                    case "-r":
+                        builder.maxRequestsPerHost(Integer.valueOf(argv[++argc]));
+                        break;
+                    case "-s":
+                        builder.spillDir(new File(argv[++argc]));
+                        break;
+                    case "-k":
+                        builder.visitedSet(VisitedSet.Type.valueOf(argv[++argc].toUpperCase()));
+                        break;
+                    case "-a":
+                        builder.canonicalUris(argv[++argc].equals("true"));
+                        break;
+                    case "-j":
+                        builder.pageParser(WebPageCrawler.Parser.valueOf(argv[++argc].toUpperCase()));
+                        break;
+                    case "-t":
+                        builder.parallelTransformThreshold(Long.valueOf(argv[++argc]));
+                        break;
+                    case "-e":
+                        builder.outputEncoder(ImageEncoder.parse(argv[++argc]));
+                        break;
                     case "-h":
                     default:
                         printUsage();
@@ -55,5 +95,17 @@ public class CommandLineOptions {
                                    "or \"file://android_assets/...\" " +
                                    "or \"file://java_resources/...\"");
         System.out.println("-o [downloadPath]");
+        System.out.println("-c [memoryCacheSize] (bytes, 0 to disable)");
+        System.out.println("-i [ioPoolSize]");
+        System.out.println("-p [cpuPoolSize]");
+        System.out.println("-v [true|false] (use virtual threads for I/O)");
+        System.out.println("-n [imagePermits] (in-flight images per crawl)");
+        System.out.println("-r [maxRequestsPerHost] (frontier crawlers)");
+        System.out.println("-s [spillDir] (frontier crawlers keep large crawls on disk)");
+        System.out.println("-k [strings|fingerprints|bloom] (visited uri set)");
+        System.out.println("-a [true|false] (canonicalize visited uris)");
+        System.out.println("-j [jsoup|streaming] (web page parser)");
+        System.out.println("-t [parallelTransformThreshold] (pixels, 0 to disable)");
+        System.out.println("-e [source|png|png:<0-9>|raw|jpg|gif|bmp] (output encoder)");
     }
 }
@@ -0,0 +1,301 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * A thread-safe frontier of pages waiting to be crawled.  Workers
+ * {@link #take} the page with the lowest score (by default the
+ * shallowest page) and report back with {@link #done} once it has
+ * been crawled.  Pages are queued per host and at most {@code
+ * maxPerHost} pages of the same host are handed out at a time, so a
+ * single host never sees more concurrent requests than that, no
+ * matter how many workers drain the frontier.  Pages with equal
+ * scores are handed out in the order they were added.
+ * <p>
+ * The frontier also detects the end of a crawl: {@link #take}
+ * returns null once no page is queued or being crawled.
+ * <p>
+ * A frontier created with a spill directory keeps at most {@code
+ * maxInMemory} queued pages on the heap.  Further pages are appended
+ * to segment files in that directory and are moved back into memory
+ * in the order they were added once the pages in memory run low.
+ * Spilled pages are therefore ordered by arrival rather than by
+ * score, which for the default breadth-first scorer is nearly the
+ * same order, since pages are mostly found in depth order.
+ */
+public class CrawlFrontier {
+    /**
+     * Scores pages for the frontier; lower scores are crawled first.
+     */
+    public interface Scorer {
+        /**
+         * Breadth-first order: shallower pages are crawled first.
+         */
+        Scorer BY_DEPTH = (uri, depth) -> depth;
+
+        /**
+         * @param uri   The page uri.
+         * @param depth The depth at which the page was found.
+         * @return The page's score.
+         */
+        double score(String uri, int depth);
+    }
+
+    /**
+     * A page waiting to be crawled.
+     */
+    public static class Task {
+        public final String uri;
+        public final int depth;
+        final String host;
+        final double score;
+        final long sequence;
+
+        Task(String uri, int depth, String host, double score, long sequence) {
+            this.uri = uri;
+            this.depth = depth;
+            this.host = host;
+            this.score = score;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Orders tasks by score and then in the order they were added.
+     */
+    private static final Comparator<Task> TASK_ORDER =
+            Comparator.comparingDouble((Task task) -> task.score)
+                    .thenComparingLong(task -> task.sequence);
+
+    /**
+     * The queued tasks of one host.
+     */
+    private static class HostQueue {
+        final PriorityQueue<Task> tasks = new PriorityQueue<>(TASK_ORDER);
+        int inFlight;
+    }
+
+    private final Scorer mScorer;
+
+    private final int mMaxPerHost;
+
+    /**
+     * The queue of each host with queued or in flight tasks.
+     */
+    private final Map<String, HostQueue> mHosts = new HashMap<>();
+
+    /**
+     * The hosts that have queued tasks and fewer than {@code
+     * mMaxPerHost} tasks in flight, ordered by their best task.  A
+     * host must be removed from this set before its best task
+     * changes, and a host without tasks can't be looked up.
+     */
+    private final TreeSet<HostQueue> mReady =
+            new TreeSet<>((a, b) -> TASK_ORDER.compare(a.tasks.peek(), b.tasks.peek()));
+
+    /**
+     * The number of queued and in flight tasks.
+     */
+    private int mPending;
+
+    private long mSequence;
+
+    private boolean mClosed;
+
+    /**
+     * Holds the queued pages that don't fit in memory (null if all
+     * pages are kept in memory).
+     */
+    private final SegmentQueue mSpill;
+
+    /**
+     * The maximum number of queued pages kept in memory when the
+     * frontier has a spill directory.
+     */
+    private final int mMaxInMemory;
+
+    /**
+     * The number of queued pages in memory.
+     */
+    private int mInMemory;
+
+    /**
+     * Constructor for a frontier that keeps all pages in memory.
+     *
+     * @param scorer     Scores the added pages.
+     * @param maxPerHost The maximum number of tasks of a host that
+     *                   may be in flight at the same time.
+     */
+    public CrawlFrontier(Scorer scorer, int maxPerHost) {
+        this(scorer, maxPerHost, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructor for a frontier that spills pages to disk.
+     *
+     * @param scorer      Scores the added pages.
+     * @param maxPerHost  The maximum number of tasks of a host that
+     *                    may be in flight at the same time.
+     * @param spillDir    An empty directory for the spilled pages (null
+     *                    to keep all pages in memory).
+     * @param maxInMemory The maximum number of queued pages kept in
+     *                    memory.
+     */
+    public CrawlFrontier(Scorer scorer, int maxPerHost, File spillDir, int maxInMemory) {
+        if (maxPerHost <= 0) {
+            throw new IllegalArgumentException("maxPerHost must be > 0");
+        }
+        if (maxInMemory <= 0) {
+            throw new IllegalArgumentException("maxInMemory must be > 0");
+        }
+        mScorer = scorer;
+        mMaxPerHost = maxPerHost;
+        mMaxInMemory = maxInMemory;
+        try {
+            mSpill = spillDir != null
+                    ? new SegmentQueue(spillDir, Math.max(1, maxInMemory / 2))
+                    : null;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Queues the page {@code uri} found at {@code depth}.  The caller
+     * is responsible for not adding the same page twice.
+     */
+    public synchronized void add(String uri, int depth) {
+        if (mClosed) {
+            return;
+        }
+
+        if (mSpill != null && (mInMemory >= mMaxInMemory || !mSpill.isEmpty())) {
+            // Spill the page, keeping the spilled pages in order.
+            try {
+                mSpill.add(uri, depth);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        } else {
+            enqueue(uri, depth);
+        }
+        mPending++;
+        notifyAll();
+    }
+
+    /**
+     * Adds a page to its host's queue in memory.
+     */
+    private void enqueue(String uri, int depth) {
+        String host = UriUtils.getHost(uri);
+        HostQueue queue = mHosts.computeIfAbsent(host, key -> new HostQueue());
+        if (!queue.tasks.isEmpty()) {
+            // The new task may become the host's best task.
+            mReady.remove(queue);
+        }
+        queue.tasks.add(new Task(uri, depth, host, mScorer.score(uri, depth), mSequence++));
+        if (queue.inFlight < mMaxPerHost) {
+            mReady.add(queue);
+        }
+        mInMemory++;
+    }
+
+    /**
+     * Moves spilled pages back into memory once at most half of the
+     * in-memory capacity is used.
+     */
+    private void refill() {
+        if (mSpill == null || mInMemory > mMaxInMemory / 2) {
+            return;
+        }
+
+        try {
+            while (mInMemory < mMaxInMemory && mSpill.poll(this::enqueue)) {
+                // Keep moving pages.
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Waits until a page can be crawled without exceeding its host's
+     * limit and returns it.  The caller must call {@link #done} once
+     * it has crawled the page (or failed to).
+     *
+     * @return The next page to crawl, or null if the crawl is complete
+     * or the frontier has been closed.
+     */
+    public synchronized Task take() throws InterruptedException {
+        refill();
+        while (!mClosed && mPending > 0 && mReady.isEmpty()) {
+            wait();
+            refill();
+        }
+        if (mClosed || mPending == 0) {
+            return null;
+        }
+
+        HostQueue queue = mReady.pollFirst();
+        Task task = queue.tasks.poll();
+        queue.inFlight++;
+        mInMemory--;
+        if (!queue.tasks.isEmpty() && queue.inFlight < mMaxPerHost) {
+            mReady.add(queue);
+        }
+        return task;
+    }
+
+    /**
+     * Reports that a page returned by {@link #take} has been crawled
+     * and that any pages found on it have been added.
+     */
+    public synchronized void done(Task task) {
+        HostQueue queue = mHosts.get(task.host);
+        queue.inFlight--;
+        if (!queue.tasks.isEmpty()) {
+            mReady.add(queue);
+        } else if (queue.inFlight == 0) {
+            mHosts.remove(task.host);
+        }
+
+        mPending--;
+        notifyAll();
+    }
+
+    /**
+     * Discards all queued pages and makes {@link #take} return null,
+     * which stops the workers once they finish their current page.
+     */
+    public synchronized void close() {
+        mClosed = true;
+        notifyAll();
+        if (mSpill != null) {
+            try {
+                mSpill.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * @return The number of queued pages that have been spilled to disk.
+     */
+    public synchronized long getSpilledCount() {
+        return mSpill != null ? mSpill.size() : 0;
+    }
+
+    /**
+     * @return The number of queued and in flight pages.
+     */
+    public synchronized int size() {
+        return mPending;
+    }
+}
@@ -0,0 +1,170 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * An immutable uri of a page or image found by a crawl.  Unlike
+ * {@link URL}, whose {@code equals} and {@code hashCode} resolve the
+ * host name (a blocking DNS lookup), two CrawlUris are equal exactly
+ * when their strings are equal, and the hash code is the string's
+ * (cached) hash code.  The uri is split into its components once,
+ * when it is parsed, without any validation beyond requiring a
+ * scheme, so any uri that a platform can map to an input stream
+ * (including the assets, resources, and project uris) can be
+ * represented.  Use {@link #toUrl} where a {@link URL} is required
+ * to fetch the uri.
+ */
+public final class CrawlUri {
+    /**
+     * The complete uri.
+     */
+    private final String mUri;
+
+    /**
+     * The index of the ':' that ends the scheme.
+     */
+    private final int mSchemeEnd;
+
+    /**
+     * The bounds of the authority (both -1 if there is none).
+     */
+    private final int mAuthorityStart;
+    private final int mAuthorityEnd;
+
+    /**
+     * The index of the '?' that starts the query (or -1).
+     */
+    private final int mQueryStart;
+
+    /**
+     * The index of the '#' that starts the fragment (or the uri's
+     * length if there is none).
+     */
+    private final int mFragmentStart;
+
+    private CrawlUri(String uri, int schemeEnd) {
+        mUri = uri;
+        mSchemeEnd = schemeEnd;
+
+        int fragment = uri.indexOf('#', schemeEnd);
+        mFragmentStart = fragment < 0 ? uri.length() : fragment;
+
+        int pathStart = schemeEnd + 1;
+        if (uri.startsWith("//", pathStart)) {
+            mAuthorityStart = pathStart + 2;
+            pathStart = mAuthorityStart;
+            while (pathStart < mFragmentStart
+                   && uri.charAt(pathStart) != '/'
+                   && uri.charAt(pathStart) != '?') {
+                pathStart++;
+            }
+            mAuthorityEnd = pathStart;
+        } else {
+            mAuthorityStart = -1;
+            mAuthorityEnd = -1;
+        }
+
+        int query = uri.indexOf('?', pathStart);
+        mQueryStart = query < 0 || query > mFragmentStart ? -1 : query;
+    }
+
+    /**
+     * Parses a uri.
+     *
+     * @param uri An absolute uri.
+     * @return The parsed uri.
+     * @throws IllegalArgumentException if {@code uri} has no scheme.
+     */
+    public static CrawlUri parse(String uri) {
+        int schemeEnd = schemeEnd(uri);
+        if (schemeEnd < 0) {
+            throw new IllegalArgumentException("Not an absolute uri: '" + uri + "'");
+        }
+        return new CrawlUri(uri, schemeEnd);
+    }
+
+    /**
+     * @return The scheme (e.g. "http").
+     */
+    public String getScheme() {
+        return mUri.substring(0, mSchemeEnd);
+    }
+
+    /**
+     * @return The raw authority (e.g. "host:8080") or null if the uri
+     * has none.
+     */
+    public String getAuthority() {
+        return mAuthorityStart < 0
+                ? null
+                : mUri.substring(mAuthorityStart, mAuthorityEnd);
+    }
+
+    /**
+     * @return The raw path, which may be empty.
+     */
+    public String getPath() {
+        int start = mAuthorityEnd >= 0 ? mAuthorityEnd : mSchemeEnd + 1;
+        int end = mQueryStart >= 0 ? mQueryStart : mFragmentStart;
+        return mUri.substring(start, end);
+    }
+
+    /**
+     * @return The raw query (without the '?') or null if the uri has
+     * none.
+     */
+    public String getQuery() {
+        return mQueryStart < 0
+                ? null
+                : mUri.substring(mQueryStart + 1, mFragmentStart);
+    }
+
+    /**
+     * Converts this uri to a {@link URL}, which should only be done
+     * to fetch it.
+     *
+     * @throws MalformedURLException if the scheme has no URL handler.
+     */
+    public URL toUrl() throws MalformedURLException {
+        return new URL(mUri);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other
+                || (other instanceof CrawlUri && mUri.equals(((CrawlUri) other).mUri));
+    }
+
+    @Override
+    public int hashCode() {
+        return mUri.hashCode();
+    }
+
+    /**
+     * @return The complete uri.
+     */
+    @Override
+    public String toString() {
+        return mUri;
+    }
+
+    /**
+     * @return The index of the ':' that ends {@code uri}'s scheme,
+     * or -1 if it doesn't start with a scheme.
+     */
+    private static int schemeEnd(String uri) {
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == ':') {
+                return i > 0 ? i : -1;
+            }
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            if (!letter && (i == 0 || !((c >= '0' && c <= '9')
+                                        || c == '+' || c == '-' || c == '.'))) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
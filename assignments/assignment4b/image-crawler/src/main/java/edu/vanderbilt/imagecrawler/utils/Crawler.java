@@ -1,6 +1,7 @@
 package edu.vanderbilt.imagecrawler.utils;
 
-import java.net.URL;
+import java.util.Arrays;
+import java.util.stream.Stream;
 
 /**
  * An interface defining the operations that must be supported by
@@ -40,13 +41,43 @@ public interface Crawler {
 	 * getPage() method.
 	 */
 	interface Page {
+		/**
+		 * Returns a stream of the url strings of all children objects
+		 * of the given types.  A page extracts all its children in a
+		 * single scan the first time they are requested, so streaming
+		 * the images and then the hyperlinks of a page costs one scan
+		 * and no copies.
+		 *
+		 * @param types Types to retrieve (PAGE and/or IMAGE).
+		 * @return A stream of matching url strings.
+		 */
+		Stream<String> streamPageElementsAsStrings(Type... types);
+
+		/**
+		 * Returns a stream of the uris of all children objects of the
+		 * given types.
+		 *
+		 * @param types Types to retrieve (PAGE and/or IMAGE).
+		 * @return A stream of matching uris.
+		 */
+		default Stream<CrawlUri> streamPageElementsAsUris(Type... types) {
+			return streamPageElementsAsStrings(types).map(CrawlUri::parse);
+		}
+
 		/**
 		 * Returns all children objects of a given type (PAGE or IMAGE).
 		 *
 		 * @param types Types to retrieve (PAGE and/or IMAGE).
 		 * @return An array of matching WebPageElements.
 		 */
-		Array<WebPageElement> getPageElements(Type... types);
+		default Array<WebPageElement> getPageElements(Type... types) {
+			return Arrays.stream(types)
+					.flatMap(type -> streamPageElementsAsStrings(type)
+							.map(url -> type == Type.PAGE
+									? WebPageElement.newPageElement(url)
+									: WebPageElement.newImageElement(url)))
+					.collect(ArrayCollector.toArray());
+		}
 
 		/**
 		 * Returns all children objects of a given type (PAGE or IMAGE).
@@ -54,15 +85,21 @@ public interface Crawler {
 		 * @param types Types to retrieve (PAGE and/or IMAGE).
 		 * @return An array of matching url strings.
 		 */
-		Array<String> getPageElementsAsStrings(Type... types);
+		default Array<String> getPageElementsAsStrings(Type... types) {
+			return streamPageElementsAsStrings(types)
+					.collect(ArrayCollector.toArray());
+		}
 
 		/**
-		 * Returns the URLs for all children objects that match the specified
+		 * Returns the uris for all children objects that match the specified
 		 * type.
 		 *
 		 * @param types Types to retrieve (PAGE and/or IMAGE).
-		 * @return An array of matching URLS.
+		 * @return An array of matching uris.
 		 */
-		Array<URL> getPageElementsAsUrls(Type... types);
+		default Array<CrawlUri> getPageElementsAsUris(Type... types) {
+			return streamPageElementsAsUris(types)
+					.collect(ArrayCollector.toArray());
+		}
 	}
 }
@@ -3,10 +3,9 @@ package edu.vanderbilt.imagecrawler.utils;
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URL;
-import java.util.Arrays;
 import java.util.stream.Stream;
 
+import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.IMAGE;
 import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.PAGE;
 
 /**
@@ -32,6 +31,7 @@ public class DirectoryCrawler implements Crawler {
 	protected class DirectoryPage implements Page {
 		private String uri;
 		private File directory;
+		private PageSummary summary;
 
 		protected DirectoryPage(File directory, String uri) {
 			this.directory = directory;
@@ -39,41 +39,31 @@ public class DirectoryCrawler implements Crawler {
 		}
 
 		@Override
-		public Array<WebPageElement> getPageElements(Type... types) {
-			return getPageElementsAsStrings(types)
-					.stream()
-					.map(WebPageElement::newPageElement)
-					.collect(ArrayCollector.toArray());
+		public Stream<String> streamPageElementsAsStrings(Type... types) {
+			return getSummary().stream(types);
 		}
 
-		@Override
-		public Array<URL> getPageElementsAsUrls(Type... types) {
-			return getPageElementsAsStrings(types).stream()
-					.map(ExceptionUtils.rethrowFunction(URL::new))
-					.collect(ArrayCollector.toArray());
-		}
-
-		@Override
-		public Array<String> getPageElementsAsStrings(Type... types) {
-			File[] files = directory.listFiles();
-			if (files == null || files.length == 0) {
-				return new Array<>();
-			}
-
-			return Arrays.stream(types)
-					.flatMap(type -> {
-						if (type == PAGE) {
-							return Stream.of(files)
-									.filter(File::isDirectory)
-									.map(File::toURI)
-									.map(URI::toString);
-						} else {
-							return Stream.of(files)
-									.filter(this::isImageFile)
-									.map(File::toURI)
-									.map(URI::toString);
+		/**
+		 * @return The directory's sub-directories and images, which
+		 * are found by listing the directory once the first time
+		 * they are needed.
+		 */
+		private synchronized PageSummary getSummary() {
+			if (summary == null) {
+				PageSummary elements = new PageSummary();
+				File[] files = directory.listFiles();
+				if (files != null) {
+					for (File file : files) {
+						if (file.isDirectory()) {
+							elements.add(PAGE, file.toURI().toString());
+						} else if (isImageFile(file)) {
+							elements.add(IMAGE, file.toURI().toString());
 						}
-					}).collect(ArrayCollector.toArray());
+					}
+				}
+				summary = elements;
+			}
+			return summary;
 		}
 
 		/**
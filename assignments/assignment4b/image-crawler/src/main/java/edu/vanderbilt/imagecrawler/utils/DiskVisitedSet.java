@@ -0,0 +1,334 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of visited uris for crawls that are too large to keep every
+ * uri on the heap.  Each uri is reduced to its 64 bit {@link
+ * Fingerprint}.  Recently added fingerprints are kept in a bounded
+ * in-memory buffer, which is written to a sorted run file in the
+ * set's directory whenever it fills up.  Run files are memory mapped
+ * (so they don't use heap space) and binary searched.  Runs are
+ * merged in size tiers: whenever the newest {@code MERGE_FACTOR}
+ * runs have about the same size, they are merged into one larger
+ * run.  Each fingerprint is therefore rewritten once per tier (a
+ * logarithmic number of times), and the number of runs only grows
+ * logarithmically with the number of uris.  A fixed-size {@link
+ * BloomFilter} in front of the runs lets most new uris skip the
+ * search entirely.
+ * <p>
+ * Heap use is therefore bounded by the buffer and the filter no
+ * matter how many uris are added, although the filter's false
+ * positive rate (and with it the number of run searches) rises once
+ * more than the expected number of uris have been added.
+ */
+public class DiskVisitedSet extends VisitedSet implements Closeable {
+    /**
+     * The false positive rate of the Bloom filter at the expected size.
+     */
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * The number of runs of the same tier that are merged into one
+     * run of the next tier.  A run of tier {@code t} holds about
+     * {@code bufferLimit * MERGE_FACTOR^t} fingerprints.
+     */
+    private static final int MERGE_FACTOR = 4;
+
+    /**
+     * The directory containing the run files.
+     */
+    private final File mDir;
+
+    /**
+     * The buffer is written to a run once it holds this many
+     * fingerprints.
+     */
+    private final int mBufferLimit;
+
+    private final BloomFilter mFilter;
+
+    private final LongHashSet mBuffer;
+
+    /**
+     * The runs, each holding sorted, distinct fingerprints.
+     */
+    private final List<Run> mRuns = new ArrayList<>();
+
+    /**
+     * The number of run files created, used to name new runs.
+     */
+    private int mRunsCreated;
+
+    private long mSize;
+
+    /**
+     * The number of fingerprints rewritten by merges.
+     */
+    private long mMerged;
+
+    /**
+     * A sorted run of fingerprints in a memory mapped file.
+     */
+    private static class Run {
+        final File file;
+        final MappedByteBuffer buffer;
+        final LongBuffer fingerprints;
+
+        Run(File file) throws IOException {
+            this.file = file;
+            try (FileChannel channel =
+                         FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                fingerprints = buffer.asLongBuffer();
+            }
+        }
+
+        /**
+         * Unmaps and deletes the run file.  The run must not be used
+         * afterwards.
+         */
+        void delete() {
+            IOUtils.unmap(buffer);
+            FileUtils.deleteQuietly(file);
+        }
+
+        boolean contains(long fingerprint) {
+            int low = 0;
+            int high = fingerprints.limit() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long value = fingerprints.get(middle);
+                if (value < fingerprint) {
+                    low = middle + 1;
+                } else if (value > fingerprint) {
+                    high = middle - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dir          An empty directory for the run files,
+     *                     which is created if necessary.
+     * @param bufferLimit  The maximum number of fingerprints kept on
+     *                     the heap.
+     * @param expectedSize The number of uris the Bloom filter is
+     *                     sized for.
+     * @param canonicalize True to record the canonical form of uris.
+     */
+    public DiskVisitedSet(File dir,
+                          int bufferLimit,
+                          long expectedSize,
+                          boolean canonicalize) {
+        super(canonicalize);
+        if (bufferLimit <= 0) {
+            throw new IllegalArgumentException("bufferLimit must be > 0");
+        }
+
+        try {
+            FileUtils.forceMkdir(dir);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        mDir = dir;
+        mBufferLimit = bufferLimit;
+        mFilter = new BloomFilter(expectedSize, FALSE_POSITIVE_RATE);
+        mBuffer = new LongHashSet(bufferLimit);
+    }
+
+    @Override
+    protected synchronized boolean add(String uri) {
+        long fingerprint = Fingerprint.of(uri);
+        if (mFilter.mightContain(fingerprint)
+                && (mBuffer.contains(fingerprint) || isInRuns(fingerprint))) {
+            return false;
+        }
+
+        mFilter.put(fingerprint);
+        mBuffer.add(fingerprint);
+        mSize++;
+        if (mBuffer.size() >= mBufferLimit) {
+            spill();
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized long size() {
+        return mSize;
+    }
+
+    /**
+     * @return The heap bytes used by the filter and the buffer (the
+     * runs are kept on disk).
+     */
+    @Override
+    public synchronized long sizeInBytes() {
+        return mFilter.sizeInBytes() + mBuffer.sizeInBytes();
+    }
+
+    /**
+     * The Bloom filter only saves run searches, so like {@link
+     * Type#FINGERPRINTS} only fingerprint collisions make a new uri
+     * look visited.
+     */
+    @Override
+    public double falsePositiveRate() {
+        return size() / 0x1p64;
+    }
+
+    /**
+     * @return The number of run files.
+     */
+    public synchronized int getRunCount() {
+        return mRuns.size();
+    }
+
+    /**
+     * @return The number of fingerprints rewritten by merges.
+     */
+    synchronized long getMergedCount() {
+        return mMerged;
+    }
+
+    /**
+     * Removes all the uris and deletes the run files.
+     */
+    @Override
+    public synchronized void close() {
+        for (Run run : mRuns) {
+            run.delete();
+        }
+        mRuns.clear();
+        mBuffer.clear();
+    }
+
+    private boolean isInRuns(long fingerprint) {
+        // Search the newest runs first.
+        for (int i = mRuns.size() - 1; i >= 0; i--) {
+            if (mRuns.get(i).contains(fingerprint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the buffer to a new run and merges the newest runs while
+     * {@code MERGE_FACTOR} of them share a tier.
+     */
+    private void spill() {
+        try {
+            long[] fingerprints = mBuffer.toSortedArray();
+            File file = newRunFile();
+            try (DataOutputStream output = newOutputStream(file)) {
+                for (long fingerprint : fingerprints) {
+                    output.writeLong(fingerprint);
+                }
+            }
+            mRuns.add(new Run(file));
+            mBuffer.clear();
+
+            int merge;
+            while ((merge = sameTierRuns()) >= MERGE_FACTOR) {
+                merge(mRuns.size() - merge);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return The number of newest runs that have the same tier as
+     * the newest run.
+     */
+    private int sameTierRuns() {
+        int tier = tier(mRuns.get(mRuns.size() - 1));
+        int count = 1;
+        while (count < mRuns.size()
+                && tier(mRuns.get(mRuns.size() - 1 - count)) == tier) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The tier of a run, i.e. the number of times its size
+     * is a {@code MERGE_FACTOR} multiple of the buffer size.
+     */
+    private int tier(Run run) {
+        long size = run.fingerprints.limit() / mBufferLimit;
+        int tier = 0;
+        while (size >= MERGE_FACTOR) {
+            size /= MERGE_FACTOR;
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Merges the runs from index {@code first} on (the newest runs)
+     * into a single run, which replaces them.  The runs are disjoint
+     * since a fingerprint is only added once.
+     */
+    private void merge(int first) throws IOException {
+        List<Run> runs = mRuns.subList(first, mRuns.size());
+        File file = newRunFile();
+        int[] positions = new int[runs.size()];
+        try (DataOutputStream output = newOutputStream(file)) {
+            while (true) {
+                int smallest = -1;
+                long value = 0;
+                for (int i = 0; i < positions.length; i++) {
+                    LongBuffer fingerprints = runs.get(i).fingerprints;
+                    if (positions[i] < fingerprints.limit()
+                            && (smallest < 0 || fingerprints.get(positions[i]) < value)) {
+                        smallest = i;
+                        value = fingerprints.get(positions[i]);
+                    }
+                }
+                if (smallest < 0) {
+                    break;
+                }
+                output.writeLong(value);
+                positions[smallest]++;
+                mMerged++;
+            }
+        }
+
+        for (Run run : runs) {
+            run.delete();
+        }
+        runs.clear();
+        mRuns.add(new Run(file));
+    }
+
+    private File newRunFile() {
+        return new File(mDir, "visited-" + mRunsCreated++ + ".run");
+    }
+
+    private static DataOutputStream newOutputStream(File file) throws IOException {
+        return new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+    }
+}
@@ -0,0 +1,47 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+/**
+ * Computes 64 bit fingerprints of strings, which let sets of uris
+ * store a primitive {@code long} per uri rather than the uri string.
+ * Two distinct strings have the same fingerprint with a probability
+ * of about 2^-64, so a set of n fingerprints wrongly reports about
+ * n^2 / 2^65 uris as already present (about one in 400,000 crawls
+ * of 10 million uris skips a single uri).
+ */
+public final class Fingerprint {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * A utility class should not be instantiated.
+     */
+    private Fingerprint() {
+    }
+
+    /**
+     * @return The 64 bit fingerprint of {@code value}.
+     */
+    public static long of(CharSequence value) {
+        // FNV-1a over the UTF-16 chars followed by the MurmurHash3
+        // finalizer, which spreads every input bit over all the
+        // output bits.
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * The MurmurHash3 64 bit finalizer.
+     */
+    static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
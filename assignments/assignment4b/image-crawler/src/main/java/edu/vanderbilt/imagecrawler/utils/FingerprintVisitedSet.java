@@ -0,0 +1,63 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+/**
+ * A {@link VisitedSet} that keeps the 64 bit {@link Fingerprint} of
+ * each uri in one of several {@link LongHashSet} stripes.  The stripe
+ * is picked by the fingerprint's top bits and only that stripe is
+ * locked, so threads adding different uris rarely wait for each
+ * other.  The tables start small and double as they fill up.
+ */
+class FingerprintVisitedSet extends VisitedSet {
+    /**
+     * The number of fingerprint bits that pick the stripe.
+     */
+    private static final int STRIPE_BITS = 6;
+
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    private final LongHashSet[] mStripes = new LongHashSet[STRIPES];
+
+    FingerprintVisitedSet(boolean canonicalize) {
+        super(canonicalize);
+        for (int i = 0; i < STRIPES; i++) {
+            mStripes[i] = new LongHashSet(16);
+        }
+    }
+
+    @Override
+    protected boolean add(String uri) {
+        long fingerprint = Fingerprint.of(uri);
+        LongHashSet stripe = mStripes[(int) (fingerprint >>> (Long.SIZE - STRIPE_BITS))];
+        synchronized (stripe) {
+            return stripe.add(fingerprint);
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (LongHashSet stripe : mStripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (LongHashSet stripe : mStripes) {
+            synchronized (stripe) {
+                bytes += stripe.sizeInBytes();
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public double falsePositiveRate() {
+        // A new uri collides with one of the n fingerprints.
+        return size() / 0x1p64;
+    }
+}
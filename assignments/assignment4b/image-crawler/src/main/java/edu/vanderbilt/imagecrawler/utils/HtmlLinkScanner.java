@@ -0,0 +1,611 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.jsoup.helper.StringUtil;
+import org.jsoup.parser.Parser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.IMAGE;
+import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.PAGE;
+
+/**
+ * A streaming HTML tokenizer that scans a page for the targets of its
+ * hyperlinks ({@code <a href>}) and images ({@code <img src>})
+ * without building a document tree.  The page is read through a
+ * fixed size character buffer, markup other than start tags is
+ * skipped without being copied, and only the values of the {@code
+ * href} and {@code src} attributes of interest are ever turned into
+ * strings.
+ * <p>
+ * The scanner follows the tokenizer of the HTML5 specification as
+ * implemented by jsoup: tag and attribute names are case
+ * insensitive, attribute values may be quoted, unquoted, or missing
+ * and have their character references decoded, the last of
+ * duplicated attributes wins, comments, doctypes, and processing
+ * instructions are skipped, and the contents of raw text elements
+ * such as {@code <script>} are not tokenized.  The targets are
+ * resolved after the scan against the first {@code <base href>} of
+ * the page (or the page's own base uri), so that, as in a jsoup
+ * Document, the base applies to the whole page.  The scanner doesn't
+ * run jsoup's tree construction, so its results differ from a jsoup
+ * parse only for misnested markup that jsoup drops or duplicates
+ * (e.g. links inside a {@code <select>}).
+ */
+class HtmlLinkScanner {
+    /**
+     * The size of the character buffer.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The number of bytes at the start of a page of unknown charset
+     * that are searched for a charset declaration (as in jsoup).
+     */
+    private static final int CHARSET_PREFIX_SIZE = 5 * 1024;
+
+    /**
+     * Matches the charset of a {@code <meta charset>} or {@code <meta
+     * http-equiv="Content-Type" content="...; charset=...">} element.
+     */
+    private static final Pattern META_CHARSET = Pattern.compile(
+            "<meta\\s[^>]*?charset\\s*=\\s*[\"']?([\\w.:-]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * The kinds of start tags that the scanner handles.
+     */
+    private static final int OTHER = 0;
+    private static final int ANCHOR = 1;
+    private static final int IMG = 2;
+    private static final int BASE = 3;
+    private static final int RAW_TEXT = 4;
+    private static final int PLAIN_TEXT = 5;
+
+    /**
+     * Elements whose contents are text up to the matching end tag.
+     */
+    private static final String[] RAW_TEXT_TAGS = {
+            "script", "style", "textarea", "title", "iframe",
+            "noembed", "noframes", "xmp"
+    };
+
+    /**
+     * The character references that are decoded without calling
+     * jsoup, which allocates a new tokenizer for each value.
+     */
+    private static final String[] REFERENCE_NAMES = {"amp;", "lt;", "gt;", "quot;"};
+    private static final char[] REFERENCE_CHARS = {'&', '<', '>', '"'};
+
+    private final Reader mReader;
+
+    private final char[] mBuffer = new char[BUFFER_SIZE];
+
+    /**
+     * The position of the next character in, and the number of
+     * characters in, the buffer.
+     */
+    private int mPos;
+    private int mLimit;
+
+    /**
+     * The name of the tag or attribute being read.
+     */
+    private final StringBuilder mName = new StringBuilder();
+
+    /**
+     * The value of the attribute being read.
+     */
+    private final StringBuilder mValue = new StringBuilder();
+
+    /**
+     * The raw text element whose end tag is being looked for.
+     */
+    private String mRawTextTag;
+
+    /**
+     * The uri that targets are resolved against when the page has
+     * no base element.
+     */
+    private final String mBaseUri;
+
+    /**
+     * The resolved uri of the page's base element (or null).
+     */
+    private String mBase;
+
+    /**
+     * The unresolved hyperlink and image targets, in page order.  An
+     * image without a src is recorded as null.
+     */
+    private final List<String> mLinks = new ArrayList<>();
+    private final List<String> mImages = new ArrayList<>();
+
+    private HtmlLinkScanner(Reader reader, String baseUri) {
+        mReader = reader;
+        mBaseUri = baseUri;
+    }
+
+    /**
+     * Scans a page for its hyperlinks and images.
+     *
+     * @param inputStream The page's contents.
+     * @param charset     The name of the contents' charset, or null
+     *                    to detect it like jsoup does (see {@link
+     *                    #detectCharset}).
+     * @param baseUri     The uri that relative targets are resolved
+     *                    against.
+     * @return The page's resolved hyperlinks and images.
+     */
+    static PageSummary scan(InputStream inputStream,
+                            String charset,
+                            String baseUri) throws IOException {
+        if (charset == null) {
+            inputStream = new BufferedInputStream(inputStream, CHARSET_PREFIX_SIZE);
+            charset = detectCharset(inputStream);
+        }
+        return new HtmlLinkScanner(new InputStreamReader(inputStream, charset),
+                                   baseUri).scan();
+    }
+
+    /**
+     * Detects the charset of a page from its byte order mark (which is
+     * skipped), or else from a meta element in its first {@code
+     * CHARSET_PREFIX_SIZE} bytes, and otherwise assumes UTF-8.
+     *
+     * @param inputStream The page's contents, which must support mark.
+     * @return The name of the page's charset.
+     */
+    private static String detectCharset(InputStream inputStream) throws IOException {
+        byte[] prefix = new byte[CHARSET_PREFIX_SIZE];
+        inputStream.mark(prefix.length);
+        int length = 0;
+        int read;
+        while (length < prefix.length
+                && (read = inputStream.read(prefix, length, prefix.length - length)) > 0) {
+            length += read;
+        }
+        inputStream.reset();
+
+        if (length >= 3
+                && (prefix[0] & 0xff) == 0xef
+                && (prefix[1] & 0xff) == 0xbb
+                && (prefix[2] & 0xff) == 0xbf) {
+            skipFully(inputStream, 3);
+            return "UTF-8";
+        } else if (length >= 2
+                && (prefix[0] & 0xff) == 0xfe
+                && (prefix[1] & 0xff) == 0xff) {
+            skipFully(inputStream, 2);
+            return "UTF-16BE";
+        } else if (length >= 2
+                && (prefix[0] & 0xff) == 0xff
+                && (prefix[1] & 0xff) == 0xfe) {
+            skipFully(inputStream, 2);
+            return "UTF-16LE";
+        }
+
+        // Charset declarations are ASCII, which ISO-8859-1 decodes
+        // whatever the page's actual charset is.
+        Matcher matcher = META_CHARSET.matcher(
+                new String(prefix, 0, length, StandardCharsets.ISO_8859_1));
+        if (matcher.find()) {
+            try {
+                if (Charset.isSupported(matcher.group(1))) {
+                    return matcher.group(1);
+                }
+            } catch (IllegalCharsetNameException e) {
+                // Fall through to the default.
+            }
+        }
+        return "UTF-8";
+    }
+
+    private static void skipFully(InputStream inputStream, int bytes) throws IOException {
+        while (bytes > 0 && inputStream.read() >= 0) {
+            bytes--;
+        }
+    }
+
+    private PageSummary scan() throws IOException {
+        while (skipPast('<')) {
+            int c = read();
+            if (isLetter(c)) {
+                unread(c);
+                if (tag(false) == PLAIN_TEXT) {
+                    break;
+                }
+            } else if (c == '/') {
+                // An end tag, or a bogus comment if it isn't followed
+                // by a name.
+                c = read();
+                if (isLetter(c)) {
+                    unread(c);
+                    tag(true);
+                } else if (c != '>') {
+                    skipPast('>');
+                }
+            } else if (c == '!') {
+                markupDeclaration();
+            } else if (c == '?') {
+                skipPast('>');
+            } else {
+                // A '<' in text.
+                unread(c);
+            }
+        }
+
+        URL base = toUrl(mBase != null ? mBase : mBaseUri);
+        PageSummary summary = new PageSummary();
+        for (String link : mLinks) {
+            summary.add(PAGE, resolve(base, link));
+        }
+        for (String image : mImages) {
+            summary.add(IMAGE, image == null ? "" : resolve(base, image));
+        }
+        return summary;
+    }
+
+    /**
+     * Resolves {@code uri} against {@code base} like {@link
+     * StringUtil#resolve(String, String)}, without parsing the base
+     * again for every uri.
+     *
+     * @param base The base, or null if it isn't a valid URL.
+     * @return The absolute uri, or "" if it isn't a valid URL.
+     */
+    private static String resolve(URL base, String uri) {
+        try {
+            return base != null
+                    ? StringUtil.resolve(base, uri).toExternalForm()
+                    : new URL(uri).toExternalForm();
+        } catch (MalformedURLException e) {
+            return "";
+        }
+    }
+
+    private static URL toUrl(String uri) {
+        try {
+            return new URL(uri);
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a tag after its '<' (and '/'), records the target of an
+     * anchor, image, or base start tag, and skips the contents of a
+     * raw text element.
+     *
+     * @return The kind of the tag, or OTHER if the page ended before
+     * the tag was complete.
+     */
+    private int tag(boolean endTag) throws IOException {
+        readName(false);
+        int kind = endTag ? OTHER : kind();
+        String value = null;
+        boolean found = false;
+
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                return OTHER;
+            } else if (c == '>') {
+                break;
+            } else if (isWhitespace(c) || c == '/') {
+                continue;
+            }
+
+            unread(c);
+            readName(true);
+            boolean wanted = isWanted(kind);
+
+            c = read();
+            while (isWhitespace(c)) {
+                c = read();
+            }
+            if (c == '=') {
+                String v = readValue(wanted);
+                if (wanted) {
+                    value = v;
+                    found = true;
+                }
+            } else {
+                unread(c);
+                if (wanted) {
+                    value = "";
+                    found = true;
+                }
+            }
+        }
+
+        switch (kind) {
+            case ANCHOR:
+                if (found) {
+                    mLinks.add(value);
+                }
+                break;
+            case IMG:
+                mImages.add(value);
+                break;
+            case BASE:
+                if (found && mBase == null) {
+                    String href = StringUtil.resolve(mBaseUri, value);
+                    if (!href.isEmpty()) {
+                        mBase = href;
+                    }
+                }
+                break;
+            case RAW_TEXT:
+                skipRawText();
+                break;
+        }
+        return kind;
+    }
+
+    /**
+     * Reads a lower case tag or attribute name into {@code mName}.
+     * An attribute name may start with '=' and ends at '='.
+     */
+    private void readName(boolean attribute) throws IOException {
+        mName.setLength(0);
+        int c = read();
+        while (c != -1) {
+            if (isWhitespace(c) || c == '/' || c == '>'
+                || (attribute && c == '=' && mName.length() > 0)) {
+                break;
+            }
+            mName.append(toLowerCase(c));
+            c = read();
+        }
+        unread(c);
+    }
+
+    /**
+     * Reads an attribute value after its '='.
+     *
+     * @param wanted True to return the value, false to skip it.
+     * @return The decoded value, or null if it isn't wanted.
+     */
+    private String readValue(boolean wanted) throws IOException {
+        mValue.setLength(0);
+        int c = read();
+        while (isWhitespace(c)) {
+            c = read();
+        }
+
+        if (c == '"' || c == '\'') {
+            int quote = c;
+            while ((c = read()) != -1 && c != quote) {
+                if (wanted) {
+                    mValue.append((char) c);
+                }
+            }
+        } else {
+            // An unquoted value, which is empty if the tag ends.
+            while (c != -1 && !isWhitespace(c) && c != '>') {
+                if (wanted) {
+                    mValue.append((char) c);
+                }
+                c = read();
+            }
+            unread(c);
+        }
+
+        if (!wanted) {
+            return null;
+        }
+        String value = mValue.toString();
+        return value.indexOf('&') < 0 ? value : unescape(value);
+    }
+
+    /**
+     * Decodes the character references in an attribute value.
+     */
+    private static String unescape(String value) {
+        StringBuilder decoded = new StringBuilder(value.length());
+        int start = 0;
+        for (int amp = value.indexOf('&'); amp >= 0; amp = value.indexOf('&', start)) {
+            int reference = 0;
+            while (reference < REFERENCE_NAMES.length
+                   && !value.startsWith(REFERENCE_NAMES[reference], amp + 1)) {
+                reference++;
+            }
+            if (reference == REFERENCE_NAMES.length) {
+                return Parser.unescapeEntities(value, true);
+            }
+            decoded.append(value, start, amp).append(REFERENCE_CHARS[reference]);
+            start = amp + 1 + REFERENCE_NAMES[reference].length();
+        }
+        return decoded.append(value, start, value.length()).toString();
+    }
+
+    /**
+     * @return The kind of the start tag named by {@code mName}.
+     */
+    private int kind() {
+        if (nameIs("a")) {
+            return ANCHOR;
+        } else if (nameIs("img") || nameIs("image")) {
+            return IMG;
+        } else if (nameIs("base")) {
+            return BASE;
+        } else if (nameIs("plaintext")) {
+            return PLAIN_TEXT;
+        }
+        for (String tag : RAW_TEXT_TAGS) {
+            if (nameIs(tag)) {
+                mRawTextTag = tag;
+                return RAW_TEXT;
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * @return True if the attribute named by {@code mName} holds the
+     * target of a tag of the given kind.
+     */
+    private boolean isWanted(int kind) {
+        switch (kind) {
+            case ANCHOR:
+            case BASE:
+                return nameIs("href");
+            case IMG:
+                return nameIs("src");
+            default:
+                return false;
+        }
+    }
+
+    private boolean nameIs(String name) {
+        return name.contentEquals(mName);
+    }
+
+    /**
+     * Skips the contents of the raw text element {@code mRawTextTag}
+     * and its end tag.
+     */
+    private void skipRawText() throws IOException {
+        String tag = mRawTextTag;
+        while (skipPast('<')) {
+            int c = read();
+            if (c != '/') {
+                unread(c);
+                continue;
+            }
+            int i = 0;
+            while (i < tag.length() && toLowerCase(c = read()) == tag.charAt(i)) {
+                i++;
+            }
+            if (i < tag.length()) {
+                unread(c);
+                continue;
+            }
+            c = read();
+            unread(c);
+            if (c == -1 || isWhitespace(c) || c == '/' || c == '>') {
+                // Skip the rest of the end tag.
+                tag(true);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skips a comment, doctype, or other markup declaration after its
+     * "<!".
+     */
+    private void markupDeclaration() throws IOException {
+        int c = read();
+        if (c == '-') {
+            c = read();
+            if (c == '-') {
+                skipComment();
+                return;
+            }
+        }
+        if (c != '>') {
+            skipPast('>');
+        }
+    }
+
+    /**
+     * Skips a comment after its "<!--", which ends at "-->" or "--!>"
+     * (or at a '>' directly after the "<!--" or "<!---").
+     */
+    private void skipComment() throws IOException {
+        int dashes = 2;
+        boolean bang = false;
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '>' && (dashes >= 2 || bang)) {
+                return;
+            }
+            bang = c == '!' && dashes >= 2;
+            dashes = c == '-' ? dashes + 1 : 0;
+        }
+    }
+
+    /**
+     * Skips the characters up to and including the next {@code
+     * target}.
+     *
+     * @return False if the page ended first.
+     */
+    private boolean skipPast(char target) throws IOException {
+        while (true) {
+            for (int i = mPos; i < mLimit; i++) {
+                if (mBuffer[i] == target) {
+                    mPos = i + 1;
+                    return true;
+                }
+            }
+            mPos = mLimit;
+            if (!fill()) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return The next character, or -1 at the end of the page.
+     */
+    private int read() throws IOException {
+        if (mPos == mLimit && !fill()) {
+            return -1;
+        }
+        return mBuffer[mPos++];
+    }
+
+    /**
+     * Pushes back the character {@code c} that was just read.
+     */
+    private void unread(int c) {
+        if (c != -1) {
+            mPos--;
+        }
+    }
+
+    /**
+     * Refills the buffer.
+     *
+     * @return False at the end of the page.
+     */
+    private boolean fill() throws IOException {
+        int count;
+        do {
+            count = mReader.read(mBuffer, 0, mBuffer.length);
+        } while (count == 0);
+        if (count < 0) {
+            return false;
+        }
+        mPos = 0;
+        mLimit = count;
+        return true;
+    }
+
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static char toLowerCase(int c) {
+        return (char) (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+    }
+}
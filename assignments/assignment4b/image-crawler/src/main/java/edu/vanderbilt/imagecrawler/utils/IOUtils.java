@@ -2,10 +2,14 @@ package edu.vanderbilt.imagecrawler.utils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
 
 /**
  * A Utility class that provides IO helper methods.
@@ -58,13 +62,51 @@ public class IOUtils {
     }
 
     /**
-     * Copies data from the passed file into a new byte array.
+     * Copies data from the passed file into a new byte array that is
+     * pre-sized to the file length (avoiding intermediate copies).
      *
      * @param file An file object.
      * @return A byte array containing all the bytes in the passed file.
      * @throws IOException
      */
     public static byte[] toBytes(File file) throws IOException {
-        return toBytes(new FileInputStream(file));
+        return Files.readAllBytes(file.toPath());
+    }
+
+    /**
+     * Releases the memory mapping of a buffer right away instead of
+     * when it is garbage collected, so that the disk space of a
+     * deleted file is freed immediately.  There is no public API for
+     * this, so the JDK's internal cleaner is called (reflectively,
+     * since it differs between Java 8 and later versions).  The
+     * buffer (and any view of it) must not be accessed afterwards.
+     *
+     * @param buffer A memory mapped buffer.
+     * @return false if the buffer couldn't be unmapped (e.g. on
+     * Android), in which case it's unmapped when it's collected.
+     */
+    public static boolean unmap(MappedByteBuffer buffer) {
+        try {
+            try {
+                // Java 9 and later.
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner =
+                        unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                // Java 8.
+                Method cleaner = buffer.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                Object bufferCleaner = cleaner.invoke(buffer);
+                if (bufferCleaner != null) {
+                    bufferCleaner.getClass().getMethod("clean").invoke(bufferCleaner);
+                }
+            }
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
     }
 }
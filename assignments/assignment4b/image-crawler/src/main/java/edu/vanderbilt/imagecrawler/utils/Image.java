@@ -2,9 +2,10 @@ package edu.vanderbilt.imagecrawler.utils;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.net.URL;
 
 import edu.vanderbilt.imagecrawler.platform.Cache;
+import edu.vanderbilt.imagecrawler.platform.ImageEncoder;
+import edu.vanderbilt.imagecrawler.platform.ImageFormat;
 import edu.vanderbilt.imagecrawler.platform.PlatformImage;
 import edu.vanderbilt.imagecrawler.transforms.Transform;
 
@@ -29,7 +30,7 @@ public class Image {
 	/**
 	 * The source url.
 	 */
-	private URL mSourceUrl;
+	private CrawlUri mSourceUrl;
 
 	/**
 	 * Constructs a new Image object used for wrapping
@@ -45,7 +46,7 @@ public class Image {
 	 * Construct an Image that wraps a PlatformImage {@code image}
 	 * which was downloaded from a URL {@code sourceUrl}.
 	 */
-	public Image(URL sourceUrl, PlatformImage image) {
+	public Image(CrawlUri sourceUrl, PlatformImage image) {
 		// Initialize other data members.
 		mSourceUrl = sourceUrl;
 		mFilterName = null;
@@ -61,14 +62,14 @@ public class Image {
 	 * Modifies the source URL of this result. Necessary for when the
 	 * result is constructed before it is associated with data.
 	 */
-	public void setSourceURL(URL url) {
+	public void setSourceURL(CrawlUri url) {
 		throw new RuntimeException("Not currently supported.");
 	}
 
 	/**
 	 * Returns the source URL for this image.
 	 */
-	public URL getSourceUrl() {
+	public CrawlUri getSourceUrl() {
 		return mSourceUrl;
 	}
 
@@ -105,10 +106,8 @@ public class Image {
 	 * Returns the format of the image from the URL in string form.
 	 */
 	public String getFormatName() {
-		URL url = getSourceUrl();
-		String format =
-				url.getFile().substring
-						(url.getFile().lastIndexOf('.') + 1);
+		String path = getSourceUrl().getPath();
+		String format = path.substring(path.lastIndexOf('.') + 1);
 		return format.equalsIgnoreCase("jpeg") ? "jpg" : format;
 	}
 
@@ -121,7 +120,9 @@ public class Image {
 	public Image applyTransform(Transform.Type type, Cache.Item item) {
 		PlatformImage platformImage =
 				mImage.applyTransform(type, item);
-		return new Image(platformImage);
+		// Keep the source url so that the result can be transformed
+		// again (e.g., by a CompositeTransform).
+		return new Image(mSourceUrl, platformImage);
 	}
 
 	/**
@@ -133,4 +134,20 @@ public class Image {
 	public void writeImage(OutputStream outputStream) throws IOException {
 		mImage.writeImage(outputStream);
 	}
+
+	/**
+	 * Writes the image bytes to the output stream using the specified
+	 * {@code encoder}.  An encoder that keeps the source format uses
+	 * the format of this image's source url.
+	 *
+	 * @param outputStream Output stream to write to.
+	 * @param encoder The encoder to use.
+	 * @return The format that was actually written.
+	 * @throws IOException
+	 */
+	public ImageFormat writeImage(OutputStream outputStream,
+								  ImageEncoder encoder) throws IOException {
+		String sourceFormat = mSourceUrl != null ? getFormatName() : null;
+		return mImage.writeImage(outputStream, encoder.resolve(sourceFormat));
+	}
 }
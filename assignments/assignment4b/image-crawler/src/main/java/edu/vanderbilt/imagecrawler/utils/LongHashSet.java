@@ -0,0 +1,160 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive {@code long} values stored in a single array
+ * using open addressing with linear probing, which needs 8 to 16
+ * bytes per value instead of the 50+ bytes per entry of a
+ * {@code HashSet<Long>}.  The values are expected to be well spread
+ * (e.g. {@link Fingerprint fingerprints}).  This class is not
+ * thread-safe.
+ */
+public class LongHashSet {
+    /**
+     * The table grows once it is this full.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Marks an empty slot (the value 0 is tracked separately).
+     */
+    private static final long EMPTY = 0L;
+
+    private long[] mTable;
+
+    private boolean mHasZero;
+
+    private int mSize;
+
+    /**
+     * Constructor.
+     *
+     * @param expectedSize The number of values the set should hold
+     *                     without growing.
+     */
+    public LongHashSet(int expectedSize) {
+        mTable = new long[tableSize(expectedSize)];
+    }
+
+    /**
+     * Adds {@code value} to the set.
+     *
+     * @return true if the value was not already in the set.
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (mHasZero) {
+                return false;
+            }
+            mHasZero = true;
+            mSize++;
+            return true;
+        }
+
+        int mask = mTable.length - 1;
+        for (int slot = slot(value, mask); ; slot = (slot + 1) & mask) {
+            long current = mTable[slot];
+            if (current == value) {
+                return false;
+            }
+            if (current == EMPTY) {
+                mTable[slot] = value;
+                if (++mSize > mTable.length * LOAD_FACTOR) {
+                    resize(mTable.length * 2);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return true if {@code value} is in the set.
+     */
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return mHasZero;
+        }
+
+        int mask = mTable.length - 1;
+        for (int slot = slot(value, mask); ; slot = (slot + 1) & mask) {
+            long current = mTable[slot];
+            if (current == value) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return The number of values in the set.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return The number of bytes used by the set's table.
+     */
+    public long sizeInBytes() {
+        return (long) mTable.length * Long.BYTES;
+    }
+
+    /**
+     * Removes all values without shrinking the table.
+     */
+    public void clear() {
+        Arrays.fill(mTable, EMPTY);
+        mHasZero = false;
+        mSize = 0;
+    }
+
+    /**
+     * @return The values in the set in ascending (signed) order.
+     */
+    public long[] toSortedArray() {
+        long[] values = new long[mSize];
+        int count = 0;
+        if (mHasZero) {
+            values[count++] = 0;
+        }
+        for (long value : mTable) {
+            if (value != EMPTY) {
+                values[count++] = value;
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    private void resize(int newLength) {
+        long[] table = mTable;
+        mTable = new long[newLength];
+        int mask = newLength - 1;
+        for (long value : table) {
+            if (value != EMPTY) {
+                int slot = slot(value, mask);
+                while (mTable[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                mTable[slot] = value;
+            }
+        }
+    }
+
+    private static int slot(long value, int mask) {
+        // Fibonacci hashing so that values that only differ in their
+        // high bits still land in different slots.
+        return (int) ((value * 0x9e3779b97f4a7c15L) >>> 32) & mask;
+    }
+
+    private static int tableSize(int expectedSize) {
+        long size = Math.max(16, (long) Math.ceil(expectedSize / LOAD_FACTOR));
+        if (size > 1 << 30) {
+            throw new IllegalArgumentException("expectedSize is too large: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) size - 1) << 1;
+    }
+}
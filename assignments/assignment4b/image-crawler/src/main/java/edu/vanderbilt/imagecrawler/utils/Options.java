@@ -1,5 +1,9 @@
 package edu.vanderbilt.imagecrawler.utils;
 
+import java.io.File;
+
+import edu.vanderbilt.imagecrawler.platform.ImageEncoder;
+
 /**
  * Immutable data class containing all crawling options. To avoid
  * unnecessary boiler-plate code, this class and all final
@@ -39,11 +43,161 @@ public class Options {
      */
     public final String downloadDirName;
 
+    /**
+     * Byte budget of the in-memory decoded image cache (0 disables
+     * the in-memory tier).
+     * <p>
+     * Default: 0.
+     */
+    public final long memoryCacheSize;
+
+    /**
+     * Maximum number of concurrent blocking I/O requests (page
+     * fetches and image downloads) made by crawlers that use a
+     * dedicated I/O executor.
+     * <p>
+     * Default: 16.
+     */
+    public final int ioPoolSize;
+
+    /**
+     * Number of threads used to run image transforms by crawlers
+     * that use a dedicated CPU executor.
+     * <p>
+     * Default: the number of available processors.
+     */
+    public final int cpuPoolSize;
+
+    /**
+     * Controls whether crawlers that use a dedicated I/O executor run
+     * each I/O request in a virtual thread (when supported by the
+     * JDK) rather than in a fixed-size thread pool.
+     * <p>
+     * Default: true.
+     */
+    public final boolean virtualThreads;
+
+    /**
+     * Maximum number of images that crawlers using bounded pipelines
+     * download and transform concurrently, shared by all the pages
+     * being crawled.  Peak memory use of those crawlers is
+     * proportional to this value rather than to the number of pages
+     * or images.
+     * <p>
+     * Default: 32.
+     */
+    public final int imagePermits;
+
+    /**
+     * Maximum number of concurrent requests (page fetches and image
+     * downloads) that frontier based crawlers make to the same host.
+     * The frontier also hands out at most this many pages of the
+     * same host at a time.
+     * <p>
+     * Default: 4.
+     */
+    public final int maxRequestsPerHost;
+
+    /**
+     * Scores the pages queued by frontier based crawlers; pages with
+     * lower scores are crawled first.
+     * <p>
+     * Default: {@link CrawlFrontier.Scorer#BY_DEPTH} (breadth-first).
+     */
+    public final CrawlFrontier.Scorer frontierScorer;
+
+    /**
+     * Directory in which frontier based crawlers keep the queued
+     * pages and visited uris that don't fit in memory (null to keep
+     * them all in memory).  Each crawl uses (and then deletes) its
+     * own sub-directory.
+     * <p>
+     * Default: null.
+     */
+    public final File spillDir;
+
+    /**
+     * Maximum number of queued pages and of recently visited uris
+     * that a crawler using a {@code spillDir} keeps in memory.
+     * <p>
+     * Default: 262,144.
+     */
+    public final int spillThreshold;
+
+    /**
+     * Number of distinct uris a crawl is expected to visit, which is
+     * used to size the compact in-memory filters of visited uris.
+     * Crawls that visit more uris still work, but make more disk
+     * accesses.
+     * <p>
+     * Default: 1,000,000.
+     */
+    public final long expectedUris;
+
+    /**
+     * How crawlers record the uris they have visited (see {@link
+     * VisitedSet.Type} for the memory use and accuracy of each).
+     * <p>
+     * Default: {@link VisitedSet.Type#FINGERPRINTS}.
+     */
+    public final VisitedSet.Type visitedSet;
+
+    /**
+     * Whether visited uris are recorded in their canonical form (see
+     * {@link UriUtils#canonicalize}), so that different spellings of
+     * a page are only crawled once.  Canonicalization is opt-in, so
+     * by default uris are compared as exact strings like the
+     * crawlers have always done.
+     * <p>
+     * Default: false.
+     */
+    public final boolean canonicalUris;
+
+    /**
+     * How web pages are read to find their hyperlinks and images
+     * (see {@link WebPageCrawler.Parser}).
+     * <p>
+     * Default: {@link WebPageCrawler.Parser#JSOUP}.
+     */
+    public final WebPageCrawler.Parser pageParser;
+
+    /**
+     * Encoder used to write downloaded images and the results of
+     * transforms that don't specify their own encoder.
+     * <p>
+     * Default: PNG with the platform's default compression.
+     */
+    public final ImageEncoder outputEncoder;
+
+    /**
+     * Images with more pixels than this threshold are transformed
+     * in parallel row bands using the common fork-join pool (0
+     * disables parallel transforms).
+     * <p>
+     * Default: 0.
+     */
+    public final long parallelTransformThreshold;
+
     private Options(Builder builder) {
         maxDepth = builder.mMaxDepth;
         rootUrl = builder.mRootUrl;
         downloadDirName = builder.mDownloadDirName;
+        memoryCacheSize = builder.mMemoryCacheSize;
+        ioPoolSize = builder.mIoPoolSize;
+        cpuPoolSize = builder.mCpuPoolSize;
+        virtualThreads = builder.mVirtualThreads;
+        imagePermits = builder.mImagePermits;
+        maxRequestsPerHost = builder.mMaxRequestsPerHost;
+        frontierScorer = builder.mFrontierScorer;
+        spillDir = builder.mSpillDir;
+        spillThreshold = builder.mSpillThreshold;
+        expectedUris = builder.mExpectedUris;
+        visitedSet = builder.mVisitedSet;
+        canonicalUris = builder.mCanonicalUris;
+        pageParser = builder.mPageParser;
+        outputEncoder = builder.mOutputEncoder;
         debug = builder.mDiagnosticsEnabled;
+        parallelTransformThreshold = builder.mParallelTransformThreshold;
     }
 
     public static Builder newBuilder() {
@@ -58,6 +212,21 @@ public class Options {
         private String mRootUrl = DEFAULT_WEB_URL;
         private String mDownloadDirName = DEFAULT_DOWNLOAD_DIR_NAME;
         private boolean mDiagnosticsEnabled = false;
+        private long mMemoryCacheSize = 0;
+        private int mIoPoolSize = 16;
+        private int mCpuPoolSize = Runtime.getRuntime().availableProcessors();
+        private boolean mVirtualThreads = true;
+        private int mImagePermits = 32;
+        private int mMaxRequestsPerHost = 4;
+        private CrawlFrontier.Scorer mFrontierScorer = CrawlFrontier.Scorer.BY_DEPTH;
+        private File mSpillDir = null;
+        private int mSpillThreshold = 1 << 18;
+        private long mExpectedUris = 1_000_000;
+        private VisitedSet.Type mVisitedSet = VisitedSet.Type.FINGERPRINTS;
+        private boolean mCanonicalUris = false;
+        private WebPageCrawler.Parser mPageParser = WebPageCrawler.Parser.JSOUP;
+        private long mParallelTransformThreshold = 0;
+        private ImageEncoder mOutputEncoder = ImageEncoder.png();
 
         private Builder() {
         }
@@ -115,6 +284,219 @@ public class Options {
             return this;
         }
 
+        /**
+         * Sets the {@code memoryCacheSize} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code memoryCacheSize} in bytes to set (0 to disable)
+         * @return a reference to this Builder
+         */
+        public Builder memoryCacheSize(long val) {
+            if (val < 0) {
+                throw new IllegalArgumentException("memoryCacheSize must be >= 0");
+            }
+            mMemoryCacheSize = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code ioPoolSize} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the maximum number of concurrent I/O requests to set
+         * @return a reference to this Builder
+         */
+        public Builder ioPoolSize(int val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("ioPoolSize must be > 0");
+            }
+            mIoPoolSize = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code cpuPoolSize} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the number of transform threads to set
+         * @return a reference to this Builder
+         */
+        public Builder cpuPoolSize(int val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("cpuPoolSize must be > 0");
+            }
+            mCpuPoolSize = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code virtualThreads} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code virtualThreads} to set
+         * @return a reference to this Builder
+         */
+        public Builder virtualThreads(boolean val) {
+            mVirtualThreads = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code imagePermits} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the maximum number of in-flight images of a crawl to set
+         * @return a reference to this Builder
+         */
+        public Builder imagePermits(int val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("imagePermits must be > 0");
+            }
+            mImagePermits = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code maxRequestsPerHost} and returns a reference to this Builder so
+         * that the methods can be chained together.
+         *
+         * @param val the maximum number of concurrent requests per host to set
+         * @return a reference to this Builder
+         */
+        public Builder maxRequestsPerHost(int val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("maxRequestsPerHost must be > 0");
+            }
+            mMaxRequestsPerHost = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code frontierScorer} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code frontierScorer} to set
+         * @return a reference to this Builder
+         */
+        public Builder frontierScorer(CrawlFrontier.Scorer val) {
+            if (val != null) {
+                mFrontierScorer = val;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the {@code spillDir} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code spillDir} to set (null to keep all crawl state in memory)
+         * @return a reference to this Builder
+         */
+        public Builder spillDir(File val) {
+            mSpillDir = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code spillThreshold} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code spillThreshold} to set
+         * @return a reference to this Builder
+         */
+        public Builder spillThreshold(int val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("spillThreshold must be > 0");
+            }
+            mSpillThreshold = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code expectedUris} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code expectedUris} to set
+         * @return a reference to this Builder
+         */
+        public Builder expectedUris(long val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("expectedUris must be > 0");
+            }
+            mExpectedUris = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code visitedSet} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code visitedSet} to set
+         * @return a reference to this Builder
+         */
+        public Builder visitedSet(VisitedSet.Type val) {
+            if (val != null) {
+                mVisitedSet = val;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the {@code canonicalUris} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code canonicalUris} to set
+         * @return a reference to this Builder
+         */
+        public Builder canonicalUris(boolean val) {
+            mCanonicalUris = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code pageParser} and returns a reference to this Builder so that
+         * the methods can be chained together.
+         *
+         * @param val the {@code pageParser} to set
+         * @return a reference to this Builder
+         */
+        public Builder pageParser(WebPageCrawler.Parser val) {
+            if (val != null) {
+                mPageParser = val;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the {@code parallelTransformThreshold} and returns a reference to this Builder
+         * so that the methods can be chained together.
+         *
+         * @param val the pixel count above which images are transformed in parallel (0 to
+         *            disable)
+         * @return a reference to this Builder
+         */
+        public Builder parallelTransformThreshold(long val) {
+            if (val < 0) {
+                throw new IllegalArgumentException("parallelTransformThreshold must be >= 0");
+            }
+            mParallelTransformThreshold = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code outputEncoder} and returns a reference to this Builder so that the
+         * methods can be chained together.
+         *
+         * @param val the {@code outputEncoder} to set
+         * @return a reference to this Builder
+         */
+        public Builder outputEncoder(ImageEncoder val) {
+            if (val != null) {
+                mOutputEncoder = val;
+            }
+            return this;
+        }
+
         /**
          * Returns a {@code Options} built from the parameters previously set.
          *
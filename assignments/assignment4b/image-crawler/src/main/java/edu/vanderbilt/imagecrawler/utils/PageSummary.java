@@ -0,0 +1,43 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.PAGE;
+
+/**
+ * The hyperlink and image uris of a page, which a {@link
+ * Crawler.Page} extracts together in a single scan of its contents
+ * and then hands out as streams over the collected uris, so that
+ * asking for the images and then for the hyperlinks neither scans
+ * the page twice nor copies the uris.
+ */
+class PageSummary {
+    private final List<String> mLinks = new ArrayList<>();
+
+    private final List<String> mImages = new ArrayList<>();
+
+    /**
+     * Adds a uri of the given type, in page order.
+     */
+    void add(Crawler.Type type, String uri) {
+        (type == PAGE ? mLinks : mImages).add(uri);
+    }
+
+    /**
+     * @return A stream of the uris of the given types, in page order
+     * for each type.
+     */
+    Stream<String> stream(Crawler.Type... types) {
+        if (types.length == 1) {
+            return uris(types[0]).stream();
+        }
+        return Arrays.stream(types).flatMap(type -> uris(type).stream());
+    }
+
+    private List<String> uris(Crawler.Type type) {
+        return type == PAGE ? mLinks : mImages;
+    }
+}
@@ -0,0 +1,175 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A first-in first-out queue of (uri, depth) records stored in a
+ * sequence of segment files, so that the number of queued records is
+ * limited by disk space rather than by the heap.  Records are
+ * appended to the newest segment, which is closed once it holds
+ * {@code segmentSize} records, and are read from the oldest segment,
+ * which is deleted once it has been read.  Only the buffers of the
+ * segments being written and read use heap space.  This class is not
+ * thread-safe.
+ */
+class SegmentQueue implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File mDir;
+
+    private final int mSegmentSize;
+
+    /**
+     * The closed segments that have not been read yet, oldest first.
+     */
+    private final Deque<File> mSegments = new ArrayDeque<>();
+
+    /**
+     * The number of records in each closed segment.
+     */
+    private final Deque<Integer> mSegmentCounts = new ArrayDeque<>();
+
+    private DataOutputStream mWriter;
+    private File mWriteFile;
+    private int mWriteCount;
+
+    private DataInputStream mReader;
+    private File mReadFile;
+    private int mReadRemaining;
+
+    private long mSize;
+
+    private int mSegmentsCreated;
+
+    /**
+     * Constructor.
+     *
+     * @param dir         The directory for the segment files, which is
+     *                    created if necessary.
+     * @param segmentSize The number of records per segment.
+     */
+    SegmentQueue(File dir, int segmentSize) throws IOException {
+        FileUtils.forceMkdir(dir);
+        mDir = dir;
+        mSegmentSize = segmentSize;
+    }
+
+    /**
+     * Appends a record to the queue.
+     */
+    void add(String uri, int depth) throws IOException {
+        if (mWriter == null) {
+            mWriteFile = new File(mDir, "frontier-" + mSegmentsCreated++ + ".seg");
+            mWriter = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(mWriteFile), BUFFER_SIZE));
+            mWriteCount = 0;
+        }
+
+        byte[] bytes = uri.getBytes(StandardCharsets.UTF_8);
+        mWriter.writeInt(depth);
+        mWriter.writeInt(bytes.length);
+        mWriter.write(bytes);
+        mSize++;
+
+        if (++mWriteCount == mSegmentSize) {
+            closeWriter();
+        }
+    }
+
+    /**
+     * Removes the oldest record and passes it to {@code consumer}.
+     *
+     * @return false if the queue is empty.
+     */
+    boolean poll(ObjIntConsumer<String> consumer) throws IOException {
+        if (mSize == 0) {
+            return false;
+        }
+
+        if (mReader == null) {
+            if (mSegments.isEmpty()) {
+                // Only the segment being written has records.
+                closeWriter();
+            }
+            mReadFile = mSegments.removeFirst();
+            mReadRemaining = mSegmentCounts.removeFirst();
+            mReader = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(mReadFile), BUFFER_SIZE));
+        }
+
+        int depth = mReader.readInt();
+        byte[] bytes = new byte[mReader.readInt()];
+        mReader.readFully(bytes);
+        mSize--;
+
+        if (--mReadRemaining == 0) {
+            mReader.close();
+            mReader = null;
+            FileUtils.deleteQuietly(mReadFile);
+        }
+
+        consumer.accept(new String(bytes, StandardCharsets.UTF_8), depth);
+        return true;
+    }
+
+    /**
+     * @return The number of queued records.
+     */
+    long size() {
+        return mSize;
+    }
+
+    /**
+     * @return true if there are no queued records.
+     */
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Discards all records and deletes the segment files.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (mWriter != null) {
+                mWriter.close();
+                FileUtils.deleteQuietly(mWriteFile);
+            }
+            if (mReader != null) {
+                mReader.close();
+                FileUtils.deleteQuietly(mReadFile);
+            }
+        } finally {
+            mWriter = null;
+            mReader = null;
+            for (File segment : mSegments) {
+                FileUtils.deleteQuietly(segment);
+            }
+            mSegments.clear();
+            mSegmentCounts.clear();
+            mSize = 0;
+        }
+    }
+
+    private void closeWriter() throws IOException {
+        mWriter.close();
+        mWriter = null;
+        mSegments.addLast(mWriteFile);
+        mSegmentCounts.addLast(mWriteCount);
+    }
+}
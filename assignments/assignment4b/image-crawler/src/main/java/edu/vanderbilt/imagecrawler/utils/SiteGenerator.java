@@ -0,0 +1,454 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.apache.commons.io.FileUtils;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import javax.imageio.ImageIO;
+
+import edu.vanderbilt.imagecrawler.platform.Platform;
+
+import static edu.vanderbilt.imagecrawler.utils.AdminUtils.dirFormat;
+import static edu.vanderbilt.imagecrawler.utils.AdminUtils.imageFormat;
+import static edu.vanderbilt.imagecrawler.utils.AdminUtils.indexFormat;
+import static edu.vanderbilt.imagecrawler.utils.AdminUtils.titleFormat;
+
+/**
+ * Generates a deterministic synthetic web site (in the same format
+ * as the pages built by {@link AdminUtils#indexDirectory(File)}) for
+ * scale testing the crawlers.
+ * <p>
+ * The site's pages form a tree with the configured fan-out that is
+ * filled breadth-first, level by level, until either the page count
+ * or the depth limit is reached. Each page is an index.html file in
+ * its own directory. Pages can also link back to one of their
+ * ancestors (creating cycles) and repeat links (which the crawlers
+ * must filter). Images are drawn from a shared pool of PNG images,
+ * so the same image is typically referenced by many pages.
+ * <p>
+ * The site is written to the "[name]" sub-directory of a web pages
+ * directory. All links are root relative ("/[name]/..."), so when the
+ * site is written to the project's web-pages directory it can be
+ * crawled by every crawler using {@link #getRootUri()} (a {@link
+ * Platform#PROJECT_URI_PREFIX} uri) or served over HTTP from that
+ * directory. Each page and image is generated from its own seeded
+ * random number generator, so the same configuration always
+ * produces the same bytes and generation can run in parallel.
+ * <p>
+ * All default field values are defined in the inner Builder class.
+ */
+public class SiteGenerator {
+    /**
+     * The sub-directory of the site containing the image pool.
+     */
+    private static final String IMAGES_DIR_NAME = "images";
+
+    /**
+     * Maximum number of pool images stored in a single directory.
+     */
+    private static final int IMAGES_PER_DIR = 1000;
+
+    private final String mName;
+    private final long mSeed;
+    private final int mPageCount;
+    private final int mFanOut;
+    private final int mDepth;
+    private final double mCycleRate;
+    private final double mDuplicateLinkRate;
+    private final int mImageCount;
+    private final int mImagesPerPage;
+    private final int mMinImageSize;
+    private final int mMaxImageSize;
+
+    private SiteGenerator(Builder builder) {
+        mName = builder.mName;
+        mSeed = builder.mSeed;
+        mFanOut = builder.mFanOut;
+        mDepth = builder.mDepth;
+        mPageCount = pageCount(builder.mPageCount, mFanOut, mDepth);
+        mCycleRate = builder.mCycleRate;
+        mDuplicateLinkRate = builder.mDuplicateLinkRate;
+        mImageCount = builder.mImageCount;
+        mImagesPerPage = mImageCount > 0 ? builder.mImagesPerPage : 0;
+        mMinImageSize = builder.mMinImageSize;
+        mMaxImageSize = builder.mMaxImageSize;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The name of the site (and of its directory).
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return The number of pages in the site, which may be less than
+     * the requested page count if the tree is limited by its depth.
+     */
+    public int getPageCount() {
+        return mPageCount;
+    }
+
+    /**
+     * @return The number of images in the shared image pool.
+     */
+    public int getImageCount() {
+        return mImageCount;
+    }
+
+    /**
+     * @return The uri of the site's root page when the site has been
+     * generated in the project's web-pages directory.
+     */
+    public String getRootUri() {
+        return Platform.PROJECT_URI_PREFIX + "/" + mName + "/index.html";
+    }
+
+    /**
+     * @return The directory containing the site in the specified web
+     * pages directory.
+     */
+    public File getSiteDir(File webPagesDir) {
+        return new File(webPagesDir, mName);
+    }
+
+    /**
+     * Writes all pages and images of the site into the site directory
+     * inside {@code webPagesDir}, replacing any existing contents.
+     *
+     * @param webPagesDir The web pages directory (for example, the
+     *                    project's web-pages directory).
+     * @return The site directory.
+     */
+    public File generate(File webPagesDir) throws IOException {
+        File siteDir = getSiteDir(webPagesDir);
+        if (siteDir.exists()) {
+            FileUtils.deleteDirectory(siteDir);
+        }
+
+        try {
+            IntStream.range(0, mImageCount)
+                    .parallel()
+                    .forEach(image -> writeImage(siteDir, image));
+
+            IntStream.range(0, mPageCount)
+                    .parallel()
+                    .forEach(page -> writePage(siteDir, page));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        return siteDir;
+    }
+
+    /**
+     * @return The number of pages in a tree with the specified
+     * fan-out and depth that is limited to {@code maxPages} pages.
+     */
+    private static int pageCount(int maxPages, int fanOut, int depth) {
+        long total = 0;
+        long level = 1;
+        for (int i = 0; i < depth && total < maxPages; i++) {
+            total += level;
+            level = Math.min(level * fanOut, maxPages);
+        }
+        return (int) Math.min(total, maxPages);
+    }
+
+    /**
+     * @return The index of the parent of the (non root) {@code page}.
+     */
+    private int parent(int page) {
+        return (page - 1) / mFanOut;
+    }
+
+    /**
+     * @return The root relative path of the directory of {@code page}.
+     */
+    private String pagePath(int page) {
+        StringBuilder path = new StringBuilder();
+        for (int i = page; i > 0; i = parent(i)) {
+            path.insert(0, "/p" + i);
+        }
+        return path.insert(0, "/" + mName).toString();
+    }
+
+    /**
+     * @return The root relative path of pool image {@code image}.
+     */
+    private String imagePath(int image) {
+        return "/" + mName
+                + "/" + IMAGES_DIR_NAME
+                + "/" + image / IMAGES_PER_DIR
+                + "/img" + image + ".png";
+    }
+
+    /**
+     * @return A random number generator for the specified item that
+     * only depends on the seed (so items can be generated in any
+     * order).
+     */
+    private Random random(int kind, int index) {
+        return new Random(mSeed * 0x9E3779B97F4A7C15L + kind * 0x100000000L + index);
+    }
+
+    /**
+     * Writes the index.html file of {@code page}.
+     */
+    private void writePage(File siteDir, int page) {
+        Random random = random(0, page);
+        StringBuilder links = new StringBuilder();
+        StringBuilder images = new StringBuilder();
+
+        // Links to the children of this page.
+        long firstChild = (long) page * mFanOut + 1;
+        for (long child = firstChild;
+             child < firstChild + mFanOut && child < mPageCount;
+             child++) {
+            appendLink(links, (int) child, random);
+        }
+
+        // A link back to an ancestor (which creates a cycle).
+        if (page > 0 && random.nextDouble() < mCycleRate) {
+            int ancestor = parent(page);
+            for (int hops = random.nextInt(8); hops > 0 && ancestor > 0; hops--) {
+                ancestor = parent(ancestor);
+            }
+            appendLink(links, ancestor, random);
+        }
+
+        // Images from the shared pool.
+        for (int i = 0; i < mImagesPerPage; i++) {
+            String path = imagePath(random.nextInt(mImageCount));
+            images.append(String.format(imageFormat, path));
+            if (random.nextDouble() < mDuplicateLinkRate) {
+                images.append(String.format(imageFormat, path));
+            }
+        }
+
+        String title = String.format(titleFormat, "page " + page);
+        String html = String.format(indexFormat, title, links, images);
+
+        File dir = new File(siteDir.getParentFile(), pagePath(page));
+        write(new File(dir, "index.html"), html.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends a link to {@code page}, which is repeated with the
+     * configured duplicate link rate.
+     */
+    private void appendLink(StringBuilder links, int page, Random random) {
+        String link = String.format(dirFormat, pagePath(page), "p" + page);
+        links.append(link);
+        if (random.nextDouble() < mDuplicateLinkRate) {
+            links.append(link);
+        }
+    }
+
+    /**
+     * Writes pool image {@code image}, whose width and height are
+     * drawn from a log-uniform distribution (so there are many more
+     * small images than large ones, as on typical sites).
+     */
+    private void writeImage(File siteDir, int image) {
+        Random random = random(1, image);
+        int width = nextSize(random);
+        int height = nextSize(random);
+
+        // A cheap deterministic pattern that compresses like a
+        // simple graphic rather than like noise.
+        int base = random.nextInt();
+        int dx = random.nextInt(16) + 1;
+        int dy = random.nextInt(16) + 1;
+        int[] row = new int[width];
+        BufferedImage bufferedImage =
+                new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                row[x] = base + ((x / dx) << 16) + ((y / dy) << 8) + (x ^ y);
+            }
+            bufferedImage.setRGB(0, y, width, 1, row, 0, width);
+        }
+
+        File file = new File(siteDir.getParentFile(), imagePath(image));
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            file.getParentFile().mkdirs();
+            if (!ImageIO.write(bufferedImage, "png", file)) {
+                throw new IOException("No PNG writer available");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int nextSize(Random random) {
+        double min = Math.log(mMinImageSize);
+        double max = Math.log(mMaxImageSize);
+        return (int) Math.round(Math.exp(min + random.nextDouble() * (max - min)));
+    }
+
+    private static void write(File file, byte[] bytes) {
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * {@code SiteGenerator} builder static inner class with default
+     * values set.
+     */
+    public static final class Builder {
+        private String mName = "synthetic";
+        private long mSeed = 0;
+        private int mPageCount = 1000;
+        private int mFanOut = 10;
+        private int mDepth = Integer.MAX_VALUE;
+        private double mCycleRate = 0.1;
+        private double mDuplicateLinkRate = 0.05;
+        private int mImageCount = 100;
+        private int mImagesPerPage = 5;
+        private int mMinImageSize = 16;
+        private int mMaxImageSize = 256;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the name of the site, which is also the name of its
+         * directory (default: "synthetic").
+         */
+        public Builder name(String val) {
+            if (val == null || !val.matches("[A-Za-z0-9_.]+")) {
+                throw new IllegalArgumentException("Invalid site name: " + val);
+            }
+            mName = val;
+            return this;
+        }
+
+        /**
+         * Sets the seed that determines the generated site (default:
+         * 0).
+         */
+        public Builder seed(long val) {
+            mSeed = val;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of pages (default: 1000).
+         */
+        public Builder pageCount(int val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("pageCount must be > 0");
+            }
+            mPageCount = val;
+            return this;
+        }
+
+        /**
+         * Sets the number of child pages linked from each page
+         * (default: 10).
+         */
+        public Builder fanOut(int val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("fanOut must be > 0");
+            }
+            mFanOut = val;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of levels in the page tree, where
+         * the root page is level 1 (default: unlimited).
+         */
+        public Builder depth(int val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("depth must be > 0");
+            }
+            mDepth = val;
+            return this;
+        }
+
+        /**
+         * Sets the fraction (0-1) of pages that link back to one of
+         * their ancestors (default: 0.1).
+         */
+        public Builder cycleRate(double val) {
+            mCycleRate = checkRate(val);
+            return this;
+        }
+
+        /**
+         * Sets the fraction (0-1) of page and image links that are
+         * repeated on the same page (default: 0.05).
+         */
+        public Builder duplicateLinkRate(double val) {
+            mDuplicateLinkRate = checkRate(val);
+            return this;
+        }
+
+        /**
+         * Sets the number of images in the shared image pool (default:
+         * 100).
+         */
+        public Builder imageCount(int val) {
+            if (val < 0) {
+                throw new IllegalArgumentException("imageCount must be >= 0");
+            }
+            mImageCount = val;
+            return this;
+        }
+
+        /**
+         * Sets the number of pool images referenced by each page
+         * (default: 5).
+         */
+        public Builder imagesPerPage(int val) {
+            if (val < 0) {
+                throw new IllegalArgumentException("imagesPerPage must be >= 0");
+            }
+            mImagesPerPage = val;
+            return this;
+        }
+
+        /**
+         * Sets the range of image widths and heights in pixels
+         * (default: 16 to 256).
+         */
+        public Builder imageSize(int min, int max) {
+            if (min <= 0 || max < min) {
+                throw new IllegalArgumentException("Invalid image size range");
+            }
+            mMinImageSize = min;
+            mMaxImageSize = max;
+            return this;
+        }
+
+        public SiteGenerator build() {
+            return new SiteGenerator(this);
+        }
+
+        private static double checkRate(double val) {
+            if (val < 0 || val > 1) {
+                throw new IllegalArgumentException("rate must be between 0 and 1");
+            }
+            return val;
+        }
+    }
+}
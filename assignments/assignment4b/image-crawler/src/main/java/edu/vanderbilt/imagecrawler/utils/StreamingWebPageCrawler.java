@@ -0,0 +1,72 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import edu.vanderbilt.imagecrawler.platform.HttpFetcher;
+
+/**
+ * A WebPageCrawler that reads each page with a streaming {@link
+ * HtmlLinkScanner} instead of parsing it into a jsoup Document.  The
+ * scanner keeps only the resolved targets of the page's hyperlinks
+ * and images, so reading a page neither builds nor retains a
+ * document tree, which makes it faster and allocates a fraction of
+ * the memory of a full parse (see HtmlParserBenchmark).
+ */
+public class StreamingWebPageCrawler extends WebPageCrawler {
+    /**
+     * Constructor.
+     *
+     * @param mapUrlToStream A platform dependent function that maps a
+     *                       uri string to an InputStream, or null to
+     *                       fetch remote web pages.
+     */
+    public StreamingWebPageCrawler(Function<String, InputStream> mapUrlToStream) {
+        super(mapUrlToStream);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param mapUrlToStream A platform dependent function that maps a
+     *                       uri string to an InputStream, or null to
+     *                       fetch remote web pages.
+     * @param fetcher        Fetches remote web pages.
+     */
+    public StreamingWebPageCrawler(Function<String, InputStream> mapUrlToStream,
+                                   HttpFetcher fetcher) {
+        super(mapUrlToStream, fetcher);
+    }
+
+    /**
+     * Reads a page by scanning its {@code inputStream} for its
+     * hyperlinks and images.
+     */
+    @Override
+    protected Page newPage(InputStream inputStream,
+                           String baseUri,
+                           String uri) throws IOException {
+        return new SummaryPage(HtmlLinkScanner.scan(inputStream,
+                                                    charsetOf(inputStream),
+                                                    baseUri));
+    }
+
+    /**
+     * A page whose hyperlinks and images were extracted while it was
+     * read.
+     */
+    private static class SummaryPage implements Page {
+        private final PageSummary mSummary;
+
+        SummaryPage(PageSummary summary) {
+            mSummary = summary;
+        }
+
+        @Override
+        public Stream<String> streamPageElementsAsStrings(Type... types) {
+            return mSummary.stream(types);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link VisitedSet} that keeps every uri string in a {@link
+ * ConcurrentHashSet}.
+ */
+class StringVisitedSet extends VisitedSet {
+    /**
+     * Estimated heap bytes of a map entry other than the uri's
+     * characters: the map node, its table slot, and the String and
+     * its (Latin-1) byte array headers.
+     */
+    private static final int ENTRY_OVERHEAD = 32 + 8 + 24 + 16;
+
+    private final ConcurrentHashSet<String> mUris = new ConcurrentHashSet<>();
+
+    /**
+     * The total length of the uris in the set.
+     */
+    private final AtomicLong mChars = new AtomicLong();
+
+    StringVisitedSet(boolean canonicalize) {
+        super(canonicalize);
+    }
+
+    @Override
+    protected boolean add(String uri) {
+        if (!mUris.putIfAbsent(uri)) {
+            return false;
+        }
+        mChars.addAndGet(uri.length());
+        return true;
+    }
+
+    @Override
+    public long size() {
+        return mUris.size();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return size() * ENTRY_OVERHEAD + mChars.get();
+    }
+
+    @Override
+    public double falsePositiveRate() {
+        return 0;
+    }
+}
@@ -2,6 +2,9 @@ package edu.vanderbilt.imagecrawler.utils;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 import edu.vanderbilt.imagecrawler.platform.Platform;
 
@@ -33,6 +36,113 @@ public class UriUtils {
         }
     }
 
+    /**
+     * Returns the host (and port) that serves a uri, which identifies
+     * the server that a crawler must not overload.  All uris without
+     * an authority, such as assets and resources uris that can't be
+     * parsed, share the empty host.
+     *
+     * @param uri Any supported URI (see Platform Interface).
+     * @return The uri's authority or an empty string.
+     */
+    public static String getHost(String uri) {
+        try {
+            String authority = new URI(uri).getRawAuthority();
+            return authority != null ? authority.toLowerCase() : "";
+        } catch (URISyntaxException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Reduces the different spellings of a page's uri to a single
+     * canonical form, which is only used to decide whether two uris
+     * refer to the same page (the original uri is still fetched).
+     * The fragment is dropped, the scheme and the authority are
+     * lowercased, default http(s) ports, "." and ".." path segments,
+     * a trailing "index.html" (or "index.htm") and a trailing "/" are
+     * removed, and an empty path becomes "/".  Uris without a scheme
+     * only lose their fragment.
+     *
+     * @param uri Any supported URI (see Platform Interface).
+     * @return The canonical form of the uri.
+     */
+    public static String canonicalize(String uri) {
+        int end = uri.indexOf('#');
+        if (end < 0) {
+            end = uri.length();
+        }
+
+        int schemeEnd = uri.indexOf("://");
+        if (schemeEnd <= 0 || schemeEnd > end) {
+            return uri.substring(0, end);
+        }
+        String scheme = uri.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+
+        int authorityStart = schemeEnd + 3;
+        int pathStart = authorityStart;
+        while (pathStart < end
+               && uri.charAt(pathStart) != '/'
+               && uri.charAt(pathStart) != '?') {
+            pathStart++;
+        }
+        String authority = uri.substring(authorityStart, pathStart).toLowerCase(Locale.ROOT);
+        if ((scheme.equals("http") && authority.endsWith(":80"))
+            || (scheme.equals("https") && authority.endsWith(":443"))) {
+            authority = authority.substring(0, authority.lastIndexOf(':'));
+        }
+
+        int queryStart = uri.indexOf('?', pathStart);
+        if (queryStart < 0 || queryStart > end) {
+            queryStart = end;
+        }
+        String path = removeDotSegments(uri.substring(pathStart, queryStart));
+        if (path.endsWith("/index.html")) {
+            path = path.substring(0, path.length() - "index.html".length());
+        } else if (path.endsWith("/index.htm")) {
+            path = path.substring(0, path.length() - "index.htm".length());
+        }
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+
+        return scheme
+               + "://"
+               + authority
+               + (path.isEmpty() ? "/" : path)
+               + uri.substring(queryStart, end);
+    }
+
+    /**
+     * Resolves the "." and ".." segments of a uri path.
+     */
+    private static String removeDotSegments(String path) {
+        if (!path.contains("/.")) {
+            return path;
+        }
+
+        List<String> segments = new ArrayList<>();
+        String[] split = path.split("/", -1);
+        for (int i = 0; i < split.length; i++) {
+            String segment = split[i];
+            boolean last = i == split.length - 1;
+            if (segment.equals("..")) {
+                // Never remove the empty segment before the leading "/".
+                if (segments.size() > 1) {
+                    segments.remove(segments.size() - 1);
+                }
+            } else if (!segment.equals(".")) {
+                segments.add(segment);
+                continue;
+            }
+            if (last) {
+                // "/a/b/.." and "/a/." refer to a directory.
+                segments.add("");
+            }
+        }
+        return String.join("/", segments);
+    }
+
     /**
      * Checks if a uri refers to an object in the application's assets.
      *
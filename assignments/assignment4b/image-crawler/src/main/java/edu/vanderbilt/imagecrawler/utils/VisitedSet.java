@@ -0,0 +1,145 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import java.util.Locale;
+
+/**
+ * The set of uris that a crawl has already visited.  Crawlers call
+ * {@link #putIfAbsent} to atomically check and record a uri so that
+ * every page is crawled only once.
+ * <p>
+ * Uris are optionally reduced to a canonical form (see {@link
+ * UriUtils#canonicalize}) before they are recorded, so that
+ * spellings of the same page such as {@code http://Host:80/a/} and
+ * {@code http://host/a/index.html} count as one uri.
+ * <p>
+ * Implementations differ in how much memory they use per uri and in
+ * whether they may report a uri that was never added as visited
+ * (which makes the crawl skip that page).
+ */
+public abstract class VisitedSet {
+    /**
+     * The available implementations.
+     */
+    public enum Type {
+        /**
+         * Records the uri strings in a {@link ConcurrentHashSet}.
+         * Exact, but uses 100+ bytes per uri.
+         */
+        STRINGS,
+
+        /**
+         * Records 64 bit {@link Fingerprint fingerprints} in striped
+         * open-addressing tables, which use 11 to 22 bytes per uri.
+         * A new uri is wrongly reported as visited with a probability
+         * of about n / 2^64 when n uris have been visited.
+         */
+        FINGERPRINTS,
+
+        /**
+         * Records uris in a {@link BloomFilter} sized for the
+         * expected number of uris, which uses 1.2 bytes per uri.  A
+         * new uri is wrongly reported as visited about 1% of the
+         * time once the expected number of uris have been visited.
+         */
+        BLOOM
+    }
+
+    /**
+     * Whether uris are canonicalized before they are recorded.
+     */
+    private final boolean mCanonicalize;
+
+    /**
+     * Constructor.
+     *
+     * @param canonicalize True to record the canonical form of uris.
+     */
+    protected VisitedSet(boolean canonicalize) {
+        mCanonicalize = canonicalize;
+    }
+
+    /**
+     * Atomically records {@code uri} as visited.
+     *
+     * @return true if the uri was not visited before (and must be
+     * crawled), false if it was.
+     */
+    public final boolean putIfAbsent(String uri) {
+        return add(mCanonicalize ? UriUtils.canonicalize(uri) : uri);
+    }
+
+    /**
+     * Atomically records an already canonicalized (if enabled) uri.
+     *
+     * @return true if the uri was not in the set.
+     */
+    protected abstract boolean add(String uri);
+
+    /**
+     * @return The number of uris in the set.
+     */
+    public abstract long size();
+
+    /**
+     * @return The (estimated) number of heap bytes used by the set.
+     */
+    public abstract long sizeInBytes();
+
+    /**
+     * @return The probability that a uri which was never added is
+     * currently reported as visited.
+     */
+    public abstract double falsePositiveRate();
+
+    /**
+     * Reports the set's memory use per uri and its false positive
+     * rate.
+     */
+    @Override
+    public String toString() {
+        long size = size();
+        return String.format(Locale.US,
+                             "%s: %d uris, %d KB (%.1f bytes/uri), false positive rate %.2g",
+                             getClass().getSimpleName(),
+                             size,
+                             sizeInBytes() / 1024,
+                             size > 0 ? (double) sizeInBytes() / size : 0.0,
+                             falsePositiveRate());
+    }
+
+    /**
+     * A factory class that creates visited sets.
+     */
+    public static class Factory {
+        /**
+         * A utility class should not be instantiated.
+         */
+        private Factory() {
+        }
+
+        /**
+         * Creates a new empty visited set.
+         *
+         * @param type         The implementation to use.
+         * @param expectedSize The number of uris the set is sized for
+         *                     (only used by {@link Type#BLOOM}).
+         * @param canonicalize True to record the canonical form of
+         *                     uris.
+         * @return A new visited set.
+         */
+        public static VisitedSet newVisitedSet(Type type,
+                                               long expectedSize,
+                                               boolean canonicalize) {
+            switch (type) {
+                case STRINGS:
+                    return new StringVisitedSet(canonicalize);
+                case FINGERPRINTS:
+                    return new FingerprintVisitedSet(canonicalize);
+                case BLOOM:
+                    return new BloomVisitedSet(expectedSize, canonicalize);
+                default:
+                    throw new IllegalArgumentException("Unknown visited set type " + type);
+            }
+        }
+    }
+}
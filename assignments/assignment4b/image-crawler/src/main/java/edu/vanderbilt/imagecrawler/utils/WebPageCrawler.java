@@ -2,13 +2,20 @@ package edu.vanderbilt.imagecrawler.utils;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
-import java.util.Arrays;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import edu.vanderbilt.imagecrawler.platform.Controller;
+import edu.vanderbilt.imagecrawler.platform.HttpFetcher;
 
 import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.IMAGE;
 import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.PAGE;
@@ -19,19 +26,59 @@ import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.PAGE;
  * filesystem crawling transparent out-of-the-box..
  */
 public class WebPageCrawler implements Crawler {
+    /**
+     * The ways that web pages can be read.
+     */
+    public enum Parser {
+        /**
+         * Parses each page into a jsoup Document and then extracts
+         * its hyperlinks and images from the document tree.
+         */
+        JSOUP,
+
+        /**
+         * Scans each page with a streaming tokenizer that only
+         * records the targets of its hyperlinks and images (see
+         * {@link StreamingWebPageCrawler}), which neither builds nor
+         * retains a document tree.
+         */
+        STREAMING
+    }
+
     /**
      * Platform dependent function that mas a uri string to an InputStream.
      */
     private Function<String, InputStream> mMapUrlToStream;
 
+    /**
+     * Fetches remote web pages when there is no {@code mMapUrlToStream}.
+     */
+    private final HttpFetcher mFetcher;
+
     /**
      * Constructor required for handling platform dependent local crawling.
+     * Remote web pages are fetched with the shared {@link
+     * HttpFetcher#getDefault()}.
      *
      * @param mapUrlToStream A platform dependent function that mas a uri
      *                       string to an InputStream.
      */
     public WebPageCrawler(Function<String, InputStream> mapUrlToStream) {
+        this(mapUrlToStream, HttpFetcher.getDefault());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param mapUrlToStream A platform dependent function that mas a uri
+     *                       string to an InputStream.
+     * @param fetcher        Fetches remote web pages (usually the
+     *                       platform's fetcher).
+     */
+    public WebPageCrawler(Function<String, InputStream> mapUrlToStream,
+                          HttpFetcher fetcher) {
         mMapUrlToStream = mapUrlToStream;
+        mFetcher = fetcher;
     }
 
     /**
@@ -72,12 +119,10 @@ public class WebPageCrawler implements Crawler {
                 System.out.println("***************************************");
             }
 
-            // Map the uri to an input stream and call Jsoup to
-            // read in stream contents and return a DocumentPage.
+            // Map the uri to an input stream and read in the stream
+            // contents to return a page.
             try (InputStream inputStream = mMapUrlToStream.apply(uri)) {
-                return new DocumentPage(
-                        Jsoup.parse(inputStream, "UTF-8", baseUri),
-                        uri);
+                return newPage(inputStream, baseUri, uri);
             } catch (Exception e) {
                 System.out.println("!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!");
                 System.out.println("getContainer Exception: " + e);
@@ -85,17 +130,98 @@ public class WebPageCrawler implements Crawler {
                 throw new RuntimeException(e);
             }
         } else {
-            // Web page is a remote URL.
+            // Web page is a remote URL, which is fetched with the
+            // crawler's HttpFetcher. Relative links are resolved against
+            // the uri of the (possibly redirected) response.
+            try (HttpFetcher.Response response = mFetcher.fetch(uri)) {
+                return newPage(response, response.getResponseUri(), uri);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads a page from its {@code inputStream} by calling Jsoup to
+     * parse the stream into a DocumentPage.  Subclasses override this
+     * to read pages in other ways.
+     *
+     * @param inputStream The page's contents (see {@link #charsetOf}).
+     * @param baseUri     The uri that relative links are resolved against.
+     * @param uri         The page's uri.
+     * @return The page.
+     */
+    protected Page newPage(InputStream inputStream,
+                           String baseUri,
+                           String uri) throws IOException {
+        return new DocumentPage(Jsoup.parse(inputStream, charsetOf(inputStream), baseUri),
+                                uri);
+    }
+
+    /**
+     * @return The charset of a page's {@code inputStream}, which is
+     * the charset of its HTTP response if that is known and
+     * supported, and otherwise null, in which case the parsers
+     * detect it from the page (see {@link HtmlLinkScanner#scan}).
+     */
+    protected static String charsetOf(InputStream inputStream) {
+        if (inputStream instanceof HttpFetcher.Response) {
+            String charset = ((HttpFetcher.Response) inputStream).getCharset();
+            try {
+                if (charset != null && Charset.isSupported(charset)) {
+                    return charset;
+                }
+            } catch (IllegalCharsetNameException e) {
+                // Fall through to detection.
+            }
+        }
+        return null;
+    }
 
-            // This function (1) connects to a URL and gets its
-            // contents and (2) converts checked exceptions to runtime
-            // exceptions.
-            Function<String, Document> connect =
-                    ExceptionUtils.rethrowFunction(
-                            url -> Jsoup.connect(url).get());
+    /**
+     * Factory for web page crawlers.
+     */
+    public static class Factory {
+        /**
+         * A utility class should not be instantiated.
+         */
+        private Factory() {
+        }
 
-            Document apply = connect.apply(uri);
-            return new DocumentPage(apply, uri);
+        /**
+         * Creates a new web page crawler.
+         *
+         * @param parser         The way that pages are read.
+         * @param mapUrlToStream A platform dependent function that maps a
+         *                       uri string to an InputStream.
+         * @return A new web page crawler.
+         */
+        public static WebPageCrawler newWebPageCrawler(Parser parser,
+                                                       Function<String, InputStream> mapUrlToStream) {
+            return newWebPageCrawler(parser, mapUrlToStream, HttpFetcher.getDefault());
+        }
+
+        /**
+         * Creates a new web page crawler.
+         *
+         * @param parser         The way that pages are read.
+         * @param mapUrlToStream A platform dependent function that maps a
+         *                       uri string to an InputStream.
+         * @param fetcher        Fetches remote web pages (usually the
+         *                       platform's fetcher).
+         * @return A new web page crawler.
+         */
+        public static WebPageCrawler newWebPageCrawler(Parser parser,
+                                                       Function<String, InputStream> mapUrlToStream,
+                                                       HttpFetcher fetcher) {
+            switch (parser) {
+                case JSOUP:
+                    return new WebPageCrawler(mapUrlToStream, fetcher);
+                case STREAMING:
+                    return new StreamingWebPageCrawler(mapUrlToStream, fetcher);
+                default:
+                    throw new IllegalArgumentException("Unknown page parser " + parser);
+            }
         }
     }
 
@@ -105,6 +231,7 @@ public class WebPageCrawler implements Crawler {
     protected class DocumentPage implements Page {
         private String uri;
         private Document document;
+        private PageSummary summary;
 
         protected DocumentPage(Document document, String uri) {
             if (Controller.loggingEnabled()) {
@@ -122,34 +249,41 @@ public class WebPageCrawler implements Crawler {
         }
 
         @Override
-        public Array<WebPageElement> getPageElements(Type... types) {
-            return Arrays.stream(types)
-                    .flatMap(type -> {
-                        if (type == PAGE) {
-                            return document.select("a[href]")
-                                    .stream()
-                                    .map(element -> element.attr("abs:href"))
-                                    .map(WebPageElement::newPageElement);
-                        } else {
-                            return document.select("img").stream()
-                                    .map(element -> element.attr("abs:src"))
-                                    .map(WebPageElement::newImageElement);
-                        }
-                    }).collect(ArrayCollector.toArray());
+        public Stream<String> streamPageElementsAsStrings(Type... types) {
+            return getSummary().stream(types);
         }
 
-        @Override
-        public Array<URL> getPageElementsAsUrls(Type... types) {
-            return getPageElementsAsStrings(types).stream()
-                    .map(ExceptionUtils.rethrowFunction(URL::new))
-                    .collect(ArrayCollector.toArray());
-        }
+        /**
+         * @return The page's hyperlinks and images, which are
+         * extracted by a single traversal of the document the first
+         * time they are needed.
+         */
+        private synchronized PageSummary getSummary() {
+            if (summary == null) {
+                PageSummary elements = new PageSummary();
+                new NodeTraversor(new NodeVisitor() {
+                    @Override
+                    public void head(Node node, int depth) {
+                        if (!(node instanceof Element)) {
+                            return;
+                        }
+                        Element element = (Element) node;
+                        if (element.tagName().equals("a")) {
+                            if (element.hasAttr("href")) {
+                                elements.add(PAGE, element.absUrl("href"));
+                            }
+                        } else if (element.tagName().equals("img")) {
+                            elements.add(IMAGE, element.absUrl("src"));
+                        }
+                    }
 
-        @Override
-        public Array<String> getPageElementsAsStrings(Type... types) {
-            return getPageElements(types).stream()
-                    .map(element -> element.url)
-                    .collect(ArrayCollector.toArray());
+                    @Override
+                    public void tail(Node node, int depth) {
+                    }
+                }).traverse(document);
+                summary = elements;
+            }
+            return summary;
         }
 
         private void __printSearchResultsStarting(Type type, String uri, Document doc) {
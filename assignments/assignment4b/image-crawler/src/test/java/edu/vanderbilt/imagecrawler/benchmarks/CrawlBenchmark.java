@@ -0,0 +1,93 @@
+package edu.vanderbilt.imagecrawler.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.vanderbilt.imagecrawler.crawlers.framework.ImageCrawler;
+import edu.vanderbilt.imagecrawler.helpers.LocalWebServer;
+import edu.vanderbilt.imagecrawler.platform.Cache;
+import edu.vanderbilt.imagecrawler.platform.Controller;
+import edu.vanderbilt.imagecrawler.platform.JavaPlatform;
+
+import static edu.vanderbilt.imagecrawler.helpers.AdminHelpers.getDefaultLocalServerRootUrl;
+
+/**
+ * Compares crawler strategies against a LocalWebServer that serves
+ * the local web-pages corpus with production-like latency, bandwidth
+ * and failures. Each crawl starts with an empty cache.
+ * <p>
+ * Usage: CrawlBenchmark [crawler type ...]
+ * <p>
+ * The server is configured with these system properties:
+ * <ul>
+ * <li>latency.median - median request latency in ms (default 20)</li>
+ * <li>latency.sigma - log-normal shape of the latency (default 0.5)</li>
+ * <li>tail.rate - fraction of requests that take tail.millis (default 0.01)</li>
+ * <li>tail.millis - latency of tail requests in ms (default 1000)</li>
+ * <li>bytesPerSecond - per response bandwidth cap (default 1000000, 0 = none)</li>
+ * <li>errorRate - fraction of requests that fail with a 503 (default 0)</li>
+ * <li>abortRate - fraction of bodies aborted half way (default 0)</li>
+ * <li>maxConnections - concurrent request limit (default 8)</li>
+ * <li>runs - crawls per crawler type (default 3)</li>
+ * </ul>
+ */
+public class CrawlBenchmark {
+    public static void main(String[] args) throws Exception {
+        List<ImageCrawler.Type> types = new ArrayList<>();
+        for (String arg : args) {
+            types.add(ImageCrawler.Type.valueOf(arg));
+        }
+        if (types.isEmpty()) {
+            types.add(ImageCrawler.Type.SEQUENTIAL_LOOPS);
+            types.add(ImageCrawler.Type.DEDICATED_EXECUTORS);
+            types.add(ImageCrawler.Type.FRONTIER);
+        }
+
+        int runs = Integer.getInteger("runs", 3);
+        LocalWebServer.Latency latency = LocalWebServer.Latency
+                .logNormal(doubleProperty("latency.median", 20),
+                           doubleProperty("latency.sigma", 0.5))
+                .withTail(doubleProperty("tail.rate", 0.01),
+                          LocalWebServer.Latency.fixed(Long.getLong("tail.millis", 1000)));
+
+        try (LocalWebServer server = LocalWebServer.newBuilder()
+                .latency(latency)
+                .bytesPerSecond(Long.getLong("bytesPerSecond", 1_000_000))
+                .errorRate(doubleProperty("errorRate", 0))
+                .abortRate(doubleProperty("abortRate", 0))
+                .maxConnections(Integer.getInteger("maxConnections", 8))
+                .seed(Long.getLong("seed", 0))
+                .start()) {
+            System.out.printf("Serving %s%n", getDefaultLocalServerRootUrl(server));
+            System.out.printf("%-26s %10s %8s  %s%n", "crawler", "ms", "cached", "server");
+
+            for (ImageCrawler.Type type : types) {
+                for (int run = 0; run < runs; run++) {
+                    Controller controller = Controller.newBuilder()
+                            .platform(new JavaPlatform())
+                            .rootUrl(getDefaultLocalServerRootUrl(server))
+                            .maxDepth(3)
+                            .consumer(result -> { })
+                            .build();
+
+                    Cache cache = controller.getCache();
+                    cache.removeTagged(Cache.NOTAG);
+                    controller.transforms.forEach(it -> cache.removeTagged(it.getName()));
+                    server.resetStatistics();
+
+                    long start = System.nanoTime();
+                    ImageCrawler.Factory.newCrawler(type, controller).run();
+                    long millis = (System.nanoTime() - start) / 1_000_000L;
+
+                    System.out.printf("%-26s %10d %8d  %s%n",
+                                      type, millis, cache.getCacheSize(), server);
+                }
+            }
+        }
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+}
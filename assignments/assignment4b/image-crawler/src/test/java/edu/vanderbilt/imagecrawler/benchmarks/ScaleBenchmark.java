@@ -0,0 +1,83 @@
+package edu.vanderbilt.imagecrawler.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+
+import edu.vanderbilt.imagecrawler.crawlers.framework.ImageCrawler;
+import edu.vanderbilt.imagecrawler.platform.Cache;
+import edu.vanderbilt.imagecrawler.platform.Controller;
+import edu.vanderbilt.imagecrawler.platform.JavaPlatform;
+import edu.vanderbilt.imagecrawler.platform.Platform;
+import edu.vanderbilt.imagecrawler.utils.SiteGenerator;
+
+/**
+ * Crawls a generated synthetic site to see how a crawler scales with
+ * the number of pages (crawl time, heap used, and cache size). The
+ * site is generated in the project's web-pages directory (the working
+ * directory must be the project root) and deleted afterwards.
+ * <p>
+ * Usage: ScaleBenchmark [pages] [crawler type] [fan-out] [images]
+ * <p>
+ * Defaults: 100000 pages, DEDICATED_EXECUTORS, fan-out 10, 1000
+ * images. Set the {@code spillDir} system property to have crawlers
+ * that support it keep their state in that directory.
+ */
+public class ScaleBenchmark {
+    public static void main(String[] args) throws Exception {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        ImageCrawler.Type type = args.length > 1
+                ? ImageCrawler.Type.valueOf(args[1])
+                : ImageCrawler.Type.DEDICATED_EXECUTORS;
+        int fanOut = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int images = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        SiteGenerator site = SiteGenerator.newBuilder()
+                .name("scale_" + pages)
+                .pageCount(pages)
+                .fanOut(fanOut)
+                .imageCount(images)
+                .build();
+
+        File webPagesDir = new File(Platform.LOCAL_WEB_PAGES_DIR_NAME);
+        long start = System.nanoTime();
+        File siteDir = site.generate(webPagesDir);
+        System.out.printf("Generated %d pages and %d images in %d ms%n",
+                          site.getPageCount(),
+                          site.getImageCount(),
+                          (System.nanoTime() - start) / 1_000_000L);
+
+        try {
+            String spillDir = System.getProperty("spillDir");
+            Controller controller = Controller.newBuilder()
+                    .platform(new JavaPlatform())
+                    .rootUrl(site.getRootUri())
+                    .maxDepth(Integer.MAX_VALUE)
+                    .spillDir(spillDir != null ? new File(spillDir) : null)
+                    .consumer(result -> { })
+                    .build();
+
+            Cache cache = controller.getCache();
+            cache.removeTagged(Cache.NOTAG);
+            controller.transforms.forEach(it -> cache.removeTagged(it.getName()));
+
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+            start = System.nanoTime();
+            ImageCrawler.Factory.newCrawler(type, controller).run();
+            long millis = (System.nanoTime() - start) / 1_000_000L;
+
+            long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+            System.out.printf("%s: %d ms, heap +%d MB, %d cache items, %d MB cached%n",
+                              type,
+                              millis,
+                              (heapAfter - heapBefore) >> 20,
+                              cache.getCacheSize(),
+                              FileUtils.sizeOfDirectory(cache.getCacheDir()) >> 20);
+        } finally {
+            FileUtils.deleteDirectory(siteDir);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package edu.vanderbilt.imagecrawler.crawlers;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.vanderbilt.imagecrawler.crawlers.framework.ImageCrawler;
+import edu.vanderbilt.imagecrawler.platform.Cache;
+import edu.vanderbilt.imagecrawler.platform.Controller;
+import edu.vanderbilt.imagecrawler.platform.JavaPlatform;
+
+import static edu.vanderbilt.imagecrawler.helpers.Controllers.buildAssignment3bController;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Crawls the local web-pages corpus with the frontier based crawler.
+ */
+public class FrontierCrawlerTest {
+    /**
+     * Starting from an empty cache, the frontier crawler must process
+     * the same number of images as the sequential crawler.
+     */
+    @Test
+    public void testSameImageCountAsSequentialLoops() throws Exception {
+        Controller controller = buildAssignment3bController(true);
+        String rootUrl = controller.options.rootUrl;
+
+        clearCache(controller);
+        int expected = ((SequentialLoopsCrawler) ImageCrawler.Factory
+                .newCrawler(ImageCrawler.Type.SEQUENTIAL_LOOPS, controller))
+                .performCrawl(rootUrl, 1);
+
+        clearCache(controller);
+        int actual = ((FrontierCrawler) ImageCrawler.Factory
+                .newCrawler(ImageCrawler.Type.FRONTIER, controller))
+                .performCrawl(rootUrl, 1);
+
+        assertTrue(expected > 0);
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * A crawl that keeps its state on disk must process the same
+     * number of images as an in-memory crawl and must remove its
+     * state afterwards.
+     */
+    @Test
+    public void testSpilledCrawl() throws Exception {
+        File spillDir = Files.createTempDirectory("spill").toFile();
+        try {
+            Controller controller = buildAssignment3bController(true);
+            String rootUrl = controller.options.rootUrl;
+
+            clearCache(controller);
+            int expected = ((FrontierCrawler) ImageCrawler.Factory
+                    .newCrawler(ImageCrawler.Type.FRONTIER, controller))
+                    .performCrawl(rootUrl, 1);
+
+            Controller spillController = Controller.newBuilder()
+                    .platform(controller.platform)
+                    .rootUrl(rootUrl)
+                    .maxDepth(controller.options.maxDepth)
+                    .spillDir(spillDir)
+                    .spillThreshold(2)
+                    .build();
+            clearCache(spillController);
+            int actual = ((FrontierCrawler) ImageCrawler.Factory
+                    .newCrawler(ImageCrawler.Type.FRONTIER, spillController))
+                    .performCrawl(rootUrl, 1);
+
+            assertEquals(expected, actual);
+            assertEquals(0, spillDir.list().length);
+        } finally {
+            FileUtils.deleteQuietly(spillDir);
+        }
+    }
+
+    /**
+     * Page fetches and image downloads must share the per host limit,
+     * so a crawl of the local corpus (which has a single host) never
+     * has more than one open request with a limit of one.
+     */
+    @Test
+    public void testImageDownloadsAreLimitedPerHost() throws Exception {
+        CountingPlatform platform = new CountingPlatform();
+        Controller controller = Controller.newBuilder()
+                .platform(platform)
+                .rootUrl(buildAssignment3bController(true).options.rootUrl)
+                .maxDepth(2)
+                .ioPoolSize(4)
+                .maxRequestsPerHost(1)
+                .build();
+
+        clearCache(controller);
+        int images = ((FrontierCrawler) ImageCrawler.Factory
+                .newCrawler(ImageCrawler.Type.FRONTIER, controller))
+                .performCrawl(controller.options.rootUrl, 1);
+
+        assertTrue(images > 0);
+        assertTrue(platform.mRequests.get() > images);
+        assertEquals(0, platform.mInFlight.get());
+        assertEquals(1, platform.mMaxInFlight.get());
+    }
+
+    /**
+     * Counts the concurrently open input streams.
+     */
+    private static class CountingPlatform extends JavaPlatform {
+        final AtomicInteger mRequests = new AtomicInteger();
+        final AtomicInteger mInFlight = new AtomicInteger();
+        final AtomicInteger mMaxInFlight = new AtomicInteger();
+
+        @Override
+        public InputStream mapUriToInputStream(String uri) {
+            mRequests.incrementAndGet();
+            mMaxInFlight.accumulateAndGet(mInFlight.incrementAndGet(), Math::max);
+            InputStream inputStream;
+            try {
+                // Give other workers a chance to overlap.
+                Thread.sleep(2);
+                inputStream = super.mapUriToInputStream(uri);
+            } catch (InterruptedException e) {
+                mInFlight.decrementAndGet();
+                throw new RuntimeException(e);
+            } catch (RuntimeException e) {
+                mInFlight.decrementAndGet();
+                throw e;
+            }
+
+            AtomicBoolean closed = new AtomicBoolean();
+            return new FilterInputStream(inputStream) {
+                @Override
+                public void close() throws IOException {
+                    if (closed.compareAndSet(false, true)) {
+                        mInFlight.decrementAndGet();
+                    }
+                    super.close();
+                }
+            };
+        }
+    }
+
+    private static void clearCache(Controller controller) {
+        Cache cache = controller.getCache();
+        cache.removeTagged(Cache.NOTAG);
+        controller.transforms.forEach(transform -> cache.removeTagged(transform.getName()));
+    }
+}
@@ -0,0 +1,151 @@
+package edu.vanderbilt.imagecrawler.crawlers;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+
+import edu.vanderbilt.imagecrawler.crawlers.framework.ImageCrawler;
+import edu.vanderbilt.imagecrawler.helpers.LocalWebServer;
+import edu.vanderbilt.imagecrawler.platform.Controller;
+import edu.vanderbilt.imagecrawler.utils.IOUtils;
+
+import static edu.vanderbilt.imagecrawler.helpers.AdminHelpers.getCacheKeyPrefix;
+import static edu.vanderbilt.imagecrawler.helpers.AdminHelpers.removeCachedItems;
+import static edu.vanderbilt.imagecrawler.helpers.Controllers.buildAssignment3bController;
+import static edu.vanderbilt.imagecrawler.helpers.Controllers.buildLocalServerController;
+import static edu.vanderbilt.imagecrawler.helpers.Directories.getJavaGroundTruthDir;
+import static edu.vanderbilt.imagecrawler.helpers.Directories.getJavaLocalWebPagesDir;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Crawls the local web-pages corpus over HTTP through a
+ * LocalWebServer (no internet connection required).
+ */
+public class LocalWebServerCrawlTest {
+    /**
+     * A crawl through a server that injects no faults must cache
+     * exactly the same images as a crawl of the local web-pages
+     * directory (which is what the ground-truth directory contains).
+     */
+    @Test
+    public void testCrawlMatchesLocalCrawl() throws Exception {
+        Controller localController = buildAssignment3bController(true);
+        ImageCrawler.Factory
+                .newCrawler(ImageCrawler.Type.SEQUENTIAL_LOOPS, localController)
+                .run();
+
+        try (LocalWebServer server = LocalWebServer.newBuilder()
+                .siteDir(getJavaLocalWebPagesDir())
+                .latency(LocalWebServer.Latency.uniform(0, 5))
+                .start()) {
+            Controller controller = buildLocalServerController(server);
+
+            try {
+                ImageCrawler.Factory
+                        .newCrawler(ImageCrawler.Type.DEDICATED_EXECUTORS, controller)
+                        .run();
+
+                // Local crawl items are named like the ground-truth
+                // files and server items have an extra host prefix.
+                Map<String, File> expected = listFiles(controller.getCacheDir(), "");
+                expected.keySet().removeIf(name -> !name.contains("-www."));
+                Map<String, File> actual =
+                        listFiles(controller.getCacheDir(), getCacheKeyPrefix(server));
+
+                assertEquals(listFiles(getJavaGroundTruthDir(), "").size(), actual.size());
+                assertEquals(expected.keySet(), actual.keySet());
+                for (Map.Entry<String, File> entry : expected.entrySet()) {
+                    assertArrayEquals(entry.getKey(),
+                            Files.readAllBytes(entry.getValue().toPath()),
+                            Files.readAllBytes(actual.get(entry.getKey()).toPath()));
+                }
+            } finally {
+                removeCachedItems(controller.getCache(), server);
+            }
+        }
+    }
+
+    /**
+     * A crawl through a slow, failing, connection limited server must
+     * still complete, and the server must enforce its limits.
+     */
+    @Test
+    public void testCrawlWithInjectedFaults() throws Exception {
+        try (LocalWebServer server = LocalWebServer.newBuilder()
+                .siteDir(getJavaLocalWebPagesDir())
+                .latency(LocalWebServer.Latency.exponential(5)
+                                 .withTail(0.05, LocalWebServer.Latency.fixed(100)))
+                .errorRate(0.2)
+                .maxConnections(2)
+                .seed(42)
+                .start()) {
+            Controller controller = buildLocalServerController(server);
+
+            try {
+                ImageCrawler.Factory
+                        .newCrawler(ImageCrawler.Type.DEDICATED_EXECUTORS, controller)
+                        .run();
+
+                assertTrue(server.getErrorCount() > 0);
+                assertTrue(server.getPeakConcurrentRequests() <= 2);
+                assertTrue(listFiles(controller.getCacheDir(), getCacheKeyPrefix(server)).size()
+                                   < listFiles(getJavaGroundTruthDir(), "").size());
+            } finally {
+                removeCachedItems(controller.getCache(), server);
+            }
+        }
+    }
+
+    /**
+     * Latency is added before the response and bodies are written no
+     * faster than the bandwidth cap.
+     */
+    @Test
+    public void testLatencyAndBandwidth() throws Exception {
+        File page = new File(getJavaLocalWebPagesDir(), "index.html");
+        long length = page.length();
+        long bytesPerSecond = Math.max(1, length * 4);
+
+        try (LocalWebServer server = LocalWebServer.newBuilder()
+                .siteDir(getJavaLocalWebPagesDir())
+                .latency(LocalWebServer.Latency.fixed(100))
+                .bytesPerSecond(bytesPerSecond)
+                .start()) {
+            long start = System.nanoTime();
+            byte[] body;
+            try (InputStream inputStream =
+                         new URL(server.getBaseUrl() + "/index.html").openStream()) {
+                body = IOUtils.toBytes(inputStream);
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+            assertArrayEquals(Files.readAllBytes(page.toPath()), body);
+            // 100ms of latency plus at least 250ms to send the body.
+            assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 100 + 250 - 20);
+        }
+    }
+
+    /**
+     * Maps the names of the files in {@code dir} containing {@code
+     * prefix} (with the prefix removed) to the files.
+     */
+    private static Map<String, File> listFiles(File dir, String prefix) {
+        Map<String, File> files = new TreeMap<>();
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File file : children) {
+                if (file.getName().contains(prefix)) {
+                    files.put(file.getName().replace(prefix, ""), file);
+                }
+            }
+        }
+        return files;
+    }
+}
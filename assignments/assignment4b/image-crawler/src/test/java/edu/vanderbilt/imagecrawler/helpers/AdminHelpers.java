@@ -11,10 +11,13 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import edu.vanderbilt.imagecrawler.crawlers.framework.ImageCrawler;
+import edu.vanderbilt.imagecrawler.platform.Cache;
 import edu.vanderbilt.imagecrawler.platform.Controller;
 import edu.vanderbilt.imagecrawler.platform.JavaCache;
 import edu.vanderbilt.imagecrawler.platform.Platform;
@@ -254,6 +257,49 @@ public class AdminHelpers {
         return Platform.PROJECT_URI_PREFIX + "/" + uri.getHost() + uri.getPath();
     }
 
+    /**
+     * @return The url at which the passed local web {@code server}
+     * serves the default web site.
+     */
+    public static String getDefaultLocalServerRootUrl(LocalWebServer server) {
+        return server.getUrl(Options.DEFAULT_WEB_URL);
+    }
+
+    /**
+     * @return The encoded prefix that the cache adds to the key of
+     * every item downloaded from the local web {@code server}
+     * ("127.0.0.1:port/").
+     */
+    public static String getCacheKeyPrefix(LocalWebServer server) {
+        return server.getBaseUrl().replace("http://", "").replace(":", "%3A") + "%2F";
+    }
+
+    /**
+     * @return The cache files of all items downloaded from the local
+     * web {@code server}.
+     */
+    public static List<File> getCachedFiles(Cache cache, LocalWebServer server) {
+        String prefix = getCacheKeyPrefix(server);
+        File[] files = cache.getCacheDir().listFiles();
+        return files == null
+                ? Collections.emptyList()
+                : Stream.of(files)
+                        .filter(file -> file.getName().contains(prefix))
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * Removes all items downloaded from the local web {@code server}
+     * from the {@code cache}.
+     */
+    public static void removeCachedItems(Cache cache, LocalWebServer server) {
+        for (File file : getCachedFiles(cache, server)) {
+            if (cache.remove(cache.mapFileToKey(file)) == null) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
 
     /**
      * Helper to make printing output less verbose.
@@ -5,6 +5,7 @@ import edu.vanderbilt.imagecrawler.platform.JavaPlatform;
 
 import static edu.vanderbilt.imagecrawler.helpers.AdminHelpers.getDefaultJavaLocalRootUrl;
 import static edu.vanderbilt.imagecrawler.helpers.AdminHelpers.getDefaultWebRootUrl;
+import static edu.vanderbilt.imagecrawler.helpers.AdminHelpers.getDefaultLocalServerRootUrl;
 
 /**
  * Centralizes all controllers used for assignment creation
@@ -29,4 +30,23 @@ public class Controllers {
                 // Build the controller.
                 .build();
     }
+
+    /**
+     * @return A controller that crawls the local copy of the default
+     * web site served by the passed {@code server}.
+     */
+    public static Controller buildLocalServerController(LocalWebServer server) throws Exception {
+        return Controller.newBuilder()
+                // Use a Java platform dependant helper object.
+                .platform(new JavaPlatform())
+
+                // Set the crawler to use the local web server.
+                .rootUrl(getDefaultLocalServerRootUrl(server))
+
+                // The maximum crawl depth.
+                .maxDepth(3)
+
+                // Build the controller.
+                .build();
+    }
 }
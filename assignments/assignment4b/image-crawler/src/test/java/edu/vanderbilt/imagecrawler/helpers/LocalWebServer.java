@@ -0,0 +1,611 @@
+package edu.vanderbilt.imagecrawler.helpers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import edu.vanderbilt.imagecrawler.platform.Platform;
+
+/**
+ * An embedded HTTP server (built on the JDK's com.sun.net.httpserver
+ * package) that serves a local site, by default the project's
+ * web-pages directory, so that crawls can be benchmarked against a
+ * real network stack without depending on any outside service.
+ * <p>
+ * A page that lives at "http://host/path" on the web is stored in
+ * "[site directory]/host/path" and is served at
+ * "http://127.0.0.1:[port]/host/path" (see {@link #getUrl(String)}).
+ * <p>
+ * To reproduce production behaviour, the server can inject a
+ * per-request latency drawn from a {@link Latency} distribution
+ * (applied before the response headers are sent), cap the bandwidth
+ * of each response body, fail a fraction of requests with an error
+ * status or by aborting the body part way through, and limit the
+ * number of requests that are served concurrently (requests over the
+ * limit wait, just as they would in a server's accept queue). Text
+ * responses can be gzip compressed for clients that accept it.
+ * <p>
+ * All default field values are defined in the inner Builder class.
+ */
+public class LocalWebServer implements AutoCloseable {
+    /**
+     * Size of the chunks in which bandwidth limited bodies are
+     * written.
+     */
+    private static final int CHUNK_SIZE = 4 * 1024;
+
+    /**
+     * The directory containing the site being served.
+     */
+    private final File mSiteDir;
+
+    /**
+     * The per-request latency distribution.
+     */
+    private final Latency mLatency;
+
+    /**
+     * The maximum bytes per second written for each response body
+     * (0 for unlimited).
+     */
+    private final long mBytesPerSecond;
+
+    /**
+     * The fraction of requests that fail with {@link #mErrorStatus}.
+     */
+    private final double mErrorRate;
+
+    /**
+     * The HTTP status returned for injected errors.
+     */
+    private final int mErrorStatus;
+
+    /**
+     * The fraction of requests whose body is aborted half way.
+     */
+    private final double mAbortRate;
+
+    /**
+     * Limits the number of concurrently served requests.
+     */
+    private final Semaphore mConnections;
+
+    /**
+     * Whether text responses are gzip compressed when the client
+     * accepts it.
+     */
+    private final boolean mCompression;
+
+    /**
+     * The source of all injected randomness.
+     */
+    private final Random mRandom;
+
+    /**
+     * The underlying JDK server.
+     */
+    private final HttpServer mServer;
+
+    /**
+     * The threads that serve requests.
+     */
+    private final ExecutorService mExecutor;
+
+    /**
+     * Request statistics.
+     */
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final AtomicInteger mErrors = new AtomicInteger();
+    private final AtomicInteger mActive = new AtomicInteger();
+    private final AtomicInteger mPeakActive = new AtomicInteger();
+    private final AtomicLong mBytesSent = new AtomicLong();
+    private final Set<InetSocketAddress> mClients = ConcurrentHashMap.newKeySet();
+
+    private LocalWebServer(Builder builder) throws IOException {
+        mSiteDir = builder.mSiteDir.getCanonicalFile();
+        mLatency = builder.mLatency;
+        mBytesPerSecond = builder.mBytesPerSecond;
+        mErrorRate = builder.mErrorRate;
+        mErrorStatus = builder.mErrorStatus;
+        mAbortRate = builder.mAbortRate;
+        mConnections = new Semaphore(builder.mMaxConnections, true);
+        mCompression = builder.mCompression;
+        mRandom = new Random(builder.mSeed);
+
+        mServer = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), builder.mPort),
+                0);
+        mServer.createContext("/", this::handle);
+
+        // Serving threads mostly sleep (latency and bandwidth), so
+        // don't let them be the bottleneck; mConnections enforces
+        // the configured limit.
+        mExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "local-web-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mServer.setExecutor(mExecutor);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts serving requests.
+     *
+     * @return This server so that calls can be chained.
+     */
+    public LocalWebServer start() {
+        mServer.start();
+        return this;
+    }
+
+    /**
+     * Stops the server, abandoning any in-progress requests.
+     */
+    @Override
+    public void close() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * @return The port the server is listening on.
+     */
+    public int getPort() {
+        return mServer.getAddress().getPort();
+    }
+
+    /**
+     * @return The url of the root of the served site.
+     */
+    public String getBaseUrl() {
+        return "http://"
+                + mServer.getAddress().getAddress().getHostAddress()
+                + ":"
+                + getPort();
+    }
+
+    /**
+     * Maps the url of a page on the web, or a {@link
+     * Platform#PROJECT_URI_PREFIX} uri, to the url at which this
+     * server serves its local copy. This is the value to pass to
+     * Controller.Builder.rootUrl().
+     *
+     * @param url A web or project uri (e.g., Options.DEFAULT_WEB_URL).
+     * @return The matching url on this server.
+     */
+    public String getUrl(String url) {
+        String path;
+        if (url.startsWith(Platform.PROJECT_URI_PREFIX)) {
+            path = url.substring(Platform.PROJECT_URI_PREFIX.length());
+        } else {
+            URI uri = URI.create(url);
+            path = "/" + uri.getHost() + uri.getRawPath();
+        }
+
+        return getBaseUrl() + (path.startsWith("/") ? path : "/" + path);
+    }
+
+    /**
+     * @return The total number of requests received.
+     */
+    public int getRequestCount() {
+        return mRequests.get();
+    }
+
+    /**
+     * @return The number of requests that failed (injected errors,
+     * aborted bodies, and missing files).
+     */
+    public int getErrorCount() {
+        return mErrors.get();
+    }
+
+    /**
+     * @return The largest number of requests served concurrently.
+     */
+    public int getPeakConcurrentRequests() {
+        return mPeakActive.get();
+    }
+
+    /**
+     * @return The number of distinct client connections that sent
+     * requests (fewer than the requests if connections are kept
+     * alive).
+     */
+    public int getConnectionCount() {
+        return mClients.size();
+    }
+
+    /**
+     * @return The number of body bytes sent.
+     */
+    public long getBytesSent() {
+        return mBytesSent.get();
+    }
+
+    /**
+     * Resets all request statistics.
+     */
+    public void resetStatistics() {
+        mRequests.set(0);
+        mErrors.set(0);
+        mPeakActive.set(0);
+        mBytesSent.set(0);
+        mClients.clear();
+    }
+
+    /**
+     * @return A one line summary of the request statistics.
+     */
+    @Override
+    public String toString() {
+        return "requests=" + getRequestCount()
+                + " errors=" + getErrorCount()
+                + " peakConcurrent=" + getPeakConcurrentRequests()
+                + " bytes=" + getBytesSent()
+                + " connections=" + getConnectionCount();
+    }
+
+    /**
+     * Serves a single request, injecting any configured faults.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        mRequests.incrementAndGet();
+        mClients.add(exchange.getRemoteAddress());
+
+        try {
+            mConnections.acquire();
+        } catch (InterruptedException e) {
+            exchange.close();
+            return;
+        }
+
+        mPeakActive.accumulateAndGet(mActive.incrementAndGet(), Math::max);
+
+        try {
+            // Time to first byte.
+            sleep(mLatency.nextMillis(mRandom));
+
+            if (mErrorRate > 0 && mRandom.nextDouble() < mErrorRate) {
+                mErrors.incrementAndGet();
+                exchange.sendResponseHeaders(mErrorStatus, -1);
+                return;
+            }
+
+            File file = mapPathToFile(exchange.getRequestURI());
+            if (file == null) {
+                mErrors.incrementAndGet();
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            byte[] body = Files.readAllBytes(file.toPath());
+            String contentType = contentType(file);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (mCompression
+                && contentType.startsWith("text/")
+                && accept != null
+                && accept.contains("gzip")) {
+                body = gzip(body);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+
+            int length = body.length;
+            if (mAbortRate > 0 && mRandom.nextDouble() < mAbortRate) {
+                // Send half the promised body and then drop the
+                // connection, which the client sees as a premature
+                // end of stream.
+                mErrors.incrementAndGet();
+                length /= 2;
+            }
+
+            writeBody(exchange.getResponseBody(), body, length);
+        } catch (InterruptedException e) {
+            // The server is shutting down.
+        } finally {
+            mActive.decrementAndGet();
+            mConnections.release();
+            exchange.close();
+        }
+    }
+
+    /**
+     * Writes the first {@code length} bytes of {@code body} at no more
+     * than the configured bandwidth.
+     */
+    private void writeBody(OutputStream out, byte[] body, int length)
+            throws IOException, InterruptedException {
+        if (mBytesPerSecond <= 0) {
+            out.write(body, 0, length);
+            mBytesSent.addAndGet(length);
+            return;
+        }
+
+        long start = System.nanoTime();
+        for (int offset = 0; offset < length; offset += CHUNK_SIZE) {
+            int count = Math.min(CHUNK_SIZE, length - offset);
+
+            // Hold each chunk back until all of its bytes would have
+            // arrived over a link with the configured bandwidth.
+            long dueNanos = (offset + count) * 1_000_000_000L / mBytesPerSecond;
+            long aheadNanos = dueNanos - (System.nanoTime() - start);
+            if (aheadNanos > 0) {
+                Thread.sleep(aheadNanos / 1_000_000L, (int) (aheadNanos % 1_000_000L));
+            }
+
+            out.write(body, offset, count);
+            out.flush();
+            mBytesSent.addAndGet(count);
+        }
+    }
+
+    /**
+     * Maps a request path to a file in the site directory. Requests
+     * for a directory are mapped to its index.html file.
+     *
+     * @return The file or null if there is no such file (or the path
+     * escapes the site directory).
+     */
+    private File mapPathToFile(URI uri) throws IOException {
+        File file = new File(mSiteDir, uri.getPath()).getCanonicalFile();
+        if (file.isDirectory()) {
+            file = new File(file, "index.html");
+        }
+
+        if (!file.getPath().startsWith(mSiteDir.getPath()) || !file.isFile()) {
+            return null;
+        }
+        return file;
+    }
+
+    private static String contentType(File file) {
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".html") || name.endsWith(".htm")) {
+            return "text/html; charset=UTF-8";
+        } else if (name.endsWith(".png")) {
+            return "image/png";
+        } else if (name.endsWith(".jpg") || name.endsWith(".jpeg")) {
+            return "image/jpeg";
+        } else if (name.endsWith(".gif")) {
+            return "image/gif";
+        } else {
+            return "application/octet-stream";
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    /**
+     * A distribution of per-request latencies.
+     */
+    @FunctionalInterface
+    public interface Latency {
+        /**
+         * @param random The source of randomness to use.
+         * @return The next latency in milliseconds.
+         */
+        long nextMillis(Random random);
+
+        /**
+         * @return No added latency.
+         */
+        static Latency none() {
+            return random -> 0;
+        }
+
+        /**
+         * @return The same latency for every request.
+         */
+        static Latency fixed(long millis) {
+            return random -> millis;
+        }
+
+        /**
+         * @return A latency uniformly distributed between {@code
+         * minMillis} and {@code maxMillis} (inclusive).
+         */
+        static Latency uniform(long minMillis, long maxMillis) {
+            if (maxMillis < minMillis) {
+                throw new IllegalArgumentException("maxMillis must be >= minMillis");
+            }
+            return random -> minMillis
+                    + (long) (random.nextDouble() * (maxMillis - minMillis + 1));
+        }
+
+        /**
+         * @return An exponentially distributed latency with the
+         * specified mean.
+         */
+        static Latency exponential(double meanMillis) {
+            return random -> Math.round(-meanMillis * Math.log(1 - random.nextDouble()));
+        }
+
+        /**
+         * @return A log-normally distributed latency with the
+         * specified median and shape {@code sigma}, a common model of
+         * production response times with a long tail.
+         */
+        static Latency logNormal(double medianMillis, double sigma) {
+            return random -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+        }
+
+        /**
+         * @return A distribution that uses this distribution except
+         * for a fraction {@code probability} of requests, which use
+         * the {@code tail} distribution instead (e.g., 1% of requests
+         * taking 2 seconds).
+         */
+        default Latency withTail(double probability, Latency tail) {
+            return random -> random.nextDouble() < probability
+                    ? tail.nextMillis(random)
+                    : nextMillis(random);
+        }
+    }
+
+    /**
+     * {@code LocalWebServer} builder static inner class with default
+     * values set.
+     */
+    public static final class Builder {
+        private File mSiteDir = new File(Platform.LOCAL_WEB_PAGES_DIR_NAME);
+        private int mPort = 0;
+        private Latency mLatency = Latency.none();
+        private long mBytesPerSecond = 0;
+        private double mErrorRate = 0;
+        private int mErrorStatus = 503;
+        private double mAbortRate = 0;
+        private int mMaxConnections = Integer.MAX_VALUE;
+        private boolean mCompression = false;
+        private long mSeed = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the directory containing the site to serve (default:
+         * the web-pages directory in the working directory).
+         */
+        public Builder siteDir(File val) {
+            mSiteDir = val;
+            return this;
+        }
+
+        /**
+         * Sets the port to listen on (default: 0, which picks a free
+         * port).
+         */
+        public Builder port(int val) {
+            mPort = val;
+            return this;
+        }
+
+        /**
+         * Sets the per-request latency distribution (default: none).
+         */
+        public Builder latency(Latency val) {
+            mLatency = val;
+            return this;
+        }
+
+        /**
+         * Sets the maximum bytes per second written for each response
+         * body (default: 0, unlimited).
+         */
+        public Builder bytesPerSecond(long val) {
+            if (val < 0) {
+                throw new IllegalArgumentException("bytesPerSecond must be >= 0");
+            }
+            mBytesPerSecond = val;
+            return this;
+        }
+
+        /**
+         * Sets the fraction (0-1) of requests that fail with the
+         * error status (default: 0).
+         */
+        public Builder errorRate(double val) {
+            mErrorRate = checkRate(val);
+            return this;
+        }
+
+        /**
+         * Sets the HTTP status returned for injected errors (default:
+         * 503).
+         */
+        public Builder errorStatus(int val) {
+            mErrorStatus = val;
+            return this;
+        }
+
+        /**
+         * Sets the fraction (0-1) of successful requests whose body is
+         * aborted half way (default: 0).
+         */
+        public Builder abortRate(double val) {
+            mAbortRate = checkRate(val);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests served concurrently
+         * (default: unlimited).
+         */
+        public Builder maxConnections(int val) {
+            if (val <= 0) {
+                throw new IllegalArgumentException("maxConnections must be > 0");
+            }
+            mMaxConnections = val;
+            return this;
+        }
+
+        /**
+         * Sets whether text responses are gzip compressed for
+         * clients that accept it (default: false).
+         */
+        public Builder compression(boolean val) {
+            mCompression = val;
+            return this;
+        }
+
+        /**
+         * Sets the seed of the random number generator used to
+         * inject latency and faults (default: 0).
+         */
+        public Builder seed(long val) {
+            mSeed = val;
+            return this;
+        }
+
+        /**
+         * Builds and starts the server.
+         */
+        public LocalWebServer start() throws IOException {
+            if (!mSiteDir.isDirectory()) {
+                throw new IllegalStateException("Site directory not found: " + mSiteDir);
+            }
+            return new LocalWebServer(this).start();
+        }
+
+        private static double checkRate(double val) {
+            if (val < 0 || val > 1) {
+                throw new IllegalArgumentException("rate must be between 0 and 1");
+            }
+            return val;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the BlobStore content addressed storage.
+ */
+public class BlobStoreTest {
+    private File mDir;
+    private BlobStore mStore;
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = Files.createTempDirectory("blobs").toFile();
+        mStore = new BlobStore(mDir);
+        mStore.load();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(mDir);
+    }
+
+    private String store(String contents) throws Exception {
+        byte[] data = contents.getBytes(StandardCharsets.UTF_8);
+        File temp = mStore.newTempFile();
+        FileUtils.writeByteArrayToFile(temp, data);
+        String digest = BlobStore.toHex(BlobStore.newDigest().digest(data));
+        mStore.store(temp, digest);
+        assertFalse(temp.exists());
+        return digest;
+    }
+
+    @Test
+    public void testIdenticalContentsAreStoredOnce() throws Exception {
+        String a = store("image");
+        String b = store("image");
+        String c = store("other image");
+
+        assertEquals(a, b);
+        assertTrue(BlobStore.isDigest(a));
+        assertEquals(2, mStore.getBlobCount());
+        assertEquals(2, mStore.getReferenceCount(a));
+        assertArrayEquals("image".getBytes(StandardCharsets.UTF_8),
+                          Files.readAllBytes(mStore.getFile(a).toPath()));
+
+        // The blob is only deleted with its last reference.
+        mStore.release(a);
+        assertTrue(mStore.getFile(a).exists());
+        mStore.release(a);
+        assertFalse(mStore.getFile(a).exists());
+        assertFalse(mStore.acquire(a));
+        assertTrue(mStore.acquire(c));
+        assertEquals(2, mStore.getReferenceCount(c));
+    }
+
+    @Test
+    public void testDerivedBlobsAreReused() throws Exception {
+        String source = store("image");
+        String result = store("gray image");
+        mStore.putDerived(source, "GrayScaleTransform", result);
+
+        assertNull(mStore.acquireDerived(source, "NullTransform"));
+        assertEquals(result, mStore.acquireDerived(source, "GrayScaleTransform"));
+        assertEquals(2, mStore.getReferenceCount(result));
+
+        // A deleted result is no longer reused.
+        mStore.release(result);
+        mStore.release(result);
+        assertNull(mStore.acquireDerived(source, "GrayScaleTransform"));
+    }
+
+    @Test
+    public void testReferencesAndSweep() throws Exception {
+        String source = store("image");
+        String result = store("gray image");
+
+        File reference = new File(mDir, "reference");
+        BlobStore.writeReference(reference, result, source);
+        assertArrayEquals(new String[]{result, source}, BlobStore.readReference(reference));
+        BlobStore.writeReference(reference, source, null);
+        assertArrayEquals(new String[]{source, null}, BlobStore.readReference(reference));
+
+        // Image contents are not references.
+        FileUtils.writeStringToFile(reference, "\u0089PNG", StandardCharsets.ISO_8859_1);
+        assertNull(BlobStore.readReference(reference));
+        FileUtils.forceDelete(reference);
+
+        // Only referenced blobs survive a reload and sweep.
+        mStore.load();
+        mStore.addReference(result);
+        assertEquals(1, mStore.sweep());
+        assertFalse(mStore.getFile(source).exists());
+        assertTrue(mStore.getFile(result).exists());
+    }
+}
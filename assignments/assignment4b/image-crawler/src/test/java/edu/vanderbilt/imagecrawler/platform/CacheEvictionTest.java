@@ -0,0 +1,153 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a cache with byte budgets or an item TTL evicts items in
+ * the background and notifies its observers of the evictions.
+ */
+public class CacheEvictionTest {
+    private static final String HOST = "http://host/images/";
+    private static final byte[] DATA = new byte[1024];
+    private static final long TIMEOUT_MS = 10_000;
+
+    private File mDir;
+    private Cache mCache;
+
+    /**
+     * The keys of the items that observers were notified were deleted.
+     */
+    private final Set<String> mDeleted = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Observers are weakly referenced, so the test holds on to it.
+     */
+    private final Cache.Observer mObserver =
+            (operation, item, progress) -> mDeleted.add(item.getKey());
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = Files.createTempDirectory("cache").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (mCache != null) {
+            mCache.close();
+        }
+        FileUtils.deleteQuietly(mDir);
+    }
+
+    @Test
+    public void testItemsOverByteBudgetAreEvicted() throws Exception {
+        newCache(CacheOptions.newBuilder().maxBytes(3 * DATA.length));
+        List<Cache.Item> items = write(null, 5);
+
+        waitFor(() -> mDeleted.size() == 2);
+        assertEquals(3, mCache.getCacheSize());
+        assertEvicted(items, 2);
+    }
+
+    @Test
+    public void testItemsOverTagBudgetAreEvicted() throws Exception {
+        newCache(CacheOptions.newBuilder().tagBudget("Budgeted", 2 * DATA.length));
+        List<Cache.Item> budgeted = write("Budgeted", 4);
+        List<Cache.Item> unbudgeted = write("Unbudgeted", 4);
+
+        waitFor(() -> mDeleted.size() == 2);
+        assertEquals(6, mCache.getCacheSize());
+        assertEvicted(budgeted, 2);
+        assertEvicted(unbudgeted, 0);
+    }
+
+    @Test
+    public void testExpiredItemsAreEvicted() throws Exception {
+        newCache(CacheOptions.newBuilder().itemTtl(200));
+        List<Cache.Item> items = write(null, 3);
+
+        waitFor(() -> mDeleted.size() == 3);
+        assertEquals(0, mCache.getCacheSize());
+        assertEvicted(items, 3);
+    }
+
+    /**
+     * Creates the cache with a short eviction interval and starts
+     * watching for DELETE notifications, which are delivered by the
+     * asynchronous event bus.
+     */
+    private void newCache(CacheOptions.Builder options) {
+        mCache = TestCaches.newCache(
+                new File(mDir, "image-cache"),
+                options.evictionInterval(50)
+                        .dispatchMode(Cache.DispatchMode.ASYNCHRONOUS)
+                        .build());
+        mCache.startWatching(mObserver, false, Cache.Operation.DELETE);
+    }
+
+    /**
+     * Adds {@code count} items with the passed {@code tag} and writes
+     * {@code DATA} to each of them.
+     *
+     * @return The written items.
+     */
+    private List<Cache.Item> write(String tag, int count) throws Exception {
+        List<Cache.Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String uri = HOST + tag + "-" + i + ".png";
+            assertTrue(mCache.addItem(uri, tag));
+            Cache.Item item = mCache.getItem(uri, tag);
+            try (OutputStream outputStream =
+                         item.getOutputStream(Cache.Operation.WRITE, DATA.length)) {
+                outputStream.write(DATA);
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Asserts that {@code count} of the passed {@code items} were
+     * evicted (i.e., their files were deleted) and that a DELETE
+     * notification was delivered for each of those items (and only
+     * for those).
+     */
+    private void assertEvicted(List<Cache.Item> items, int count) {
+        int evicted = 0;
+        for (Cache.Item item : items) {
+            boolean exists = item.getFile().exists();
+            assertEquals(!exists, mDeleted.contains(item.getKey()));
+            if (!exists) {
+                evicted++;
+            }
+        }
+        assertEquals(count, evicted);
+    }
+
+    /**
+     * Waits until the background eviction passes (and the delivery of
+     * their DELETE notifications) satisfy {@code condition}.
+     */
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out waiting for eviction",
+                       System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the CacheEvictor eviction policy.
+ */
+public class CacheEvictorTest {
+    private static final long NOW = 1_000_000L;
+
+    private static Cache.Item newItem(String tag, String name, int size, long lastAccess) {
+        Cache.Item item = TestCaches.newItem(tag + "-" + name, 0);
+        item.size = size;
+        item.created = lastAccess;
+        item.lastAccess = lastAccess;
+        return item;
+    }
+
+    @Test
+    public void testNothingIsEvictedWithinBudget() {
+        CacheEvictor evictor = new CacheEvictor(300, Collections.emptyMap(), 0);
+        List<Cache.Item> items = Arrays.asList(
+                newItem(Cache.NOTAG, "a", 100, NOW - 3),
+                newItem(Cache.NOTAG, "b", 100, NOW - 2),
+                newItem(Cache.NOTAG, "c", 100, NOW - 1));
+
+        assertTrue(evictor.select(items, NOW).isEmpty());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvictedFirst() {
+        CacheEvictor evictor = new CacheEvictor(250, Collections.emptyMap(), 0);
+        Cache.Item a = newItem(Cache.NOTAG, "a", 100, NOW - 2);
+        Cache.Item b = newItem(Cache.NOTAG, "b", 100, NOW - 3);
+        Cache.Item c = newItem(Cache.NOTAG, "c", 100, NOW - 1);
+
+        assertEquals(Collections.singletonList(b),
+                     evictor.select(Arrays.asList(a, b, c), NOW));
+    }
+
+    @Test
+    public void testFrequentlyUsedItemsAreEvictedLast() {
+        CacheEvictor evictor = new CacheEvictor(150, Collections.emptyMap(), 0);
+        Cache.Item a = newItem(Cache.NOTAG, "a", 100, NOW - 3);
+        Cache.Item b = newItem(Cache.NOTAG, "b", 100, NOW - 1);
+        a.hits = 5;
+        b.hits = 1;
+
+        assertEquals(Collections.singletonList(b),
+                     evictor.select(Arrays.asList(a, b), NOW));
+
+        // Use counts are halved by each pass.
+        assertEquals(2, a.hits);
+        assertEquals(0, b.hits);
+    }
+
+    @Test
+    public void testBusyItemsAreNeverEvicted() {
+        CacheEvictor evictor = new CacheEvictor(150, Collections.emptyMap(), 1);
+        Cache.Item a = newItem(Cache.NOTAG, "a", 100, NOW - 3);
+        Cache.Item b = newItem(Cache.NOTAG, "b", 100, NOW - 1);
+        a.busy = true;
+
+        // The busy item is both expired and the least recently used.
+        assertEquals(Collections.singletonList(b),
+                     evictor.select(Arrays.asList(a, b), NOW));
+    }
+
+    @Test
+    public void testExpiredItemsAreEvicted() {
+        CacheEvictor evictor = new CacheEvictor(0, Collections.emptyMap(), 10);
+        Cache.Item a = newItem(Cache.NOTAG, "a", 100, NOW - 11);
+        Cache.Item b = newItem(Cache.NOTAG, "b", 100, NOW - 10);
+
+        assertEquals(Collections.singletonList(a),
+                     evictor.select(Arrays.asList(a, b), NOW));
+    }
+
+    @Test
+    public void testTagBudgets() {
+        Map<String, Long> budgets = new HashMap<>();
+        budgets.put("thumb", 100L);
+        CacheEvictor evictor = new CacheEvictor(0, budgets, 0);
+        Cache.Item a = newItem("thumb", "a", 60, NOW - 2);
+        Cache.Item b = newItem("thumb", "b", 60, NOW - 1);
+        Cache.Item c = newItem(Cache.NOTAG, "c", 1000, NOW - 3);
+
+        // Only the items with the tag that exceeds its budget are evicted.
+        assertEquals(Collections.singletonList(a),
+                     evictor.select(Arrays.asList(a, b, c), NOW));
+    }
+}
@@ -0,0 +1,144 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the CacheIndex journal.
+ */
+public class CacheIndexTest {
+    private File mFile;
+    private CacheIndex mIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = File.createTempFile("cache", ".index");
+        //noinspection ResultOfMethodCallIgnored
+        mFile.delete();
+        mIndex = new CacheIndex(mFile);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mIndex.close();
+        //noinspection ResultOfMethodCallIgnored
+        mFile.delete();
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        assertNull(mIndex.load());
+        mIndex.rewrite(new ArrayList<>());
+
+        mIndex.put(new CacheIndex.Entry("__notag__-a", 0, 1L, null));
+        mIndex.put(new CacheIndex.Entry("__notag__-b", 0, 2L, null));
+        mIndex.put(new CacheIndex.Entry("__notag__-a", 10, 1L, ImageFormat.PNG));
+        mIndex.put(new CacheIndex.Entry("Gray-a", 20, 3L, ImageFormat.RAW, "d2", "d1"));
+        mIndex.remove("__notag__-b");
+        mIndex.close();
+
+        Map<String, CacheIndex.Entry> entries = mIndex.load();
+        assertNotNull(entries);
+        assertEquals(Arrays.asList("__notag__-a", "Gray-a"), new ArrayList<>(entries.keySet()));
+
+        CacheIndex.Entry a = entries.get("__notag__-a");
+        assertEquals(10, a.size);
+        assertEquals(1L, a.time);
+        assertEquals(ImageFormat.PNG, a.format);
+        assertNull(a.digest);
+        assertNull(a.sourceDigest);
+
+        CacheIndex.Entry gray = entries.get("Gray-a");
+        assertEquals(ImageFormat.RAW, gray.format);
+        assertEquals("d2", gray.digest);
+        assertEquals("d1", gray.sourceDigest);
+    }
+
+    @Test
+    public void testTornRecordIsDiscarded() throws Exception {
+        mIndex.rewrite(Arrays.asList(new CacheIndex.Entry("__notag__-a", 10, 1L, null)));
+        mIndex.put(new CacheIndex.Entry("__notag__-b", 5, 2L, null));
+        mIndex.close();
+
+        // Simulate a crash part way through appending the last record.
+        long length = mFile.length();
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+            file.setLength(length - 3);
+        }
+
+        Map<String, CacheIndex.Entry> entries = mIndex.load();
+        assertNotNull(entries);
+        assertEquals(1, entries.size());
+        assertTrue(entries.containsKey("__notag__-a"));
+
+        // Appending continues after the last complete record.
+        mIndex.put(new CacheIndex.Entry("__notag__-c", 7, 3L, null));
+        mIndex.close();
+        entries = mIndex.load();
+        assertNotNull(entries);
+        assertEquals(Arrays.asList("__notag__-a", "__notag__-c"), new ArrayList<>(entries.keySet()));
+    }
+
+    @Test
+    public void testCorruptIndexIsRejected() throws Exception {
+        mIndex.rewrite(Arrays.asList(new CacheIndex.Entry("__notag__-a", 10, 1L, null),
+                                     new CacheIndex.Entry("__notag__-b", 10, 1L, null)));
+        mIndex.close();
+
+        byte[] bytes = Files.readAllBytes(mFile.toPath());
+        bytes[12] ^= 1;
+        Files.write(mFile.toPath(), bytes);
+        assertNull(mIndex.load());
+
+        Files.write(mFile.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertNull(mIndex.load());
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        mIndex.rewrite(new ArrayList<>());
+        int count = 3000;
+        for (int i = 0; i < count; i++) {
+            String key = "__notag__-" + i;
+            mIndex.put(new CacheIndex.Entry(key, 0, i, null));
+            mIndex.put(new CacheIndex.Entry(key, 100, i, ImageFormat.PNG));
+            if (i % 2 == 0) {
+                mIndex.remove(key);
+            }
+        }
+        assertTrue(mIndex.needsCompaction());
+        mIndex.close();
+
+        Map<String, CacheIndex.Entry> entries = mIndex.load();
+        assertNotNull(entries);
+        assertEquals(count / 2, entries.size());
+        assertTrue(mIndex.needsCompaction());
+
+        long length = mFile.length();
+        List<CacheIndex.Entry> live = new ArrayList<>(entries.values());
+        mIndex.rewrite(live);
+        assertFalse(mIndex.needsCompaction());
+        assertTrue(mFile.length() < length / 4);
+
+        entries = mIndex.load();
+        assertNotNull(entries);
+        assertEquals(count / 2, entries.size());
+        assertEquals(100, entries.get("__notag__-1").size);
+        assertFalse(mIndex.needsCompaction());
+    }
+}
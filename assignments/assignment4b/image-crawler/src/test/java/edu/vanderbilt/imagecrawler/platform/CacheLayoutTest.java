@@ -0,0 +1,110 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the cache layouts and layout migration.
+ */
+public class CacheLayoutTest {
+    private File mDir;
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = Files.createTempDirectory("cache").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(mDir);
+    }
+
+    @Test
+    public void testHashedLayout() throws Exception {
+        CacheLayout layout = Cache.newCacheLayout(CacheLayout.Type.HASHED);
+
+        // A key far longer than any file system allows in a file name.
+        char[] path = new char[2000];
+        Arrays.fill(path, 'x');
+        String key = Cache.NOTAG + "-www.foo.bar%2F" + new String(path);
+
+        File file = layout.mapKeyToFile(mDir, key);
+        assertEquals(40, file.getName().length());
+        String name = file.getName();
+        assertEquals(new File(new File(new File(mDir, name.substring(0, 2)),
+                                       name.substring(2, 4)), name),
+                     file);
+
+        assertTrue(layout.createFile(file, key));
+        assertFalse(layout.createFile(file, key));
+        assertEquals(key, layout.mapFileToKey(file));
+
+        File[] files = file.getParentFile().listFiles();
+        assertEquals(2, files.length);
+        File metadata = files[0].equals(file) ? files[1] : files[0];
+        assertTrue(layout.isMetadataFile(metadata));
+        assertFalse(layout.isMetadataFile(file));
+
+        // Metadata that does not belong to the file is rejected.
+        File other = new File(file.getParentFile(),
+                              layout.mapKeyToFile(mDir, "x-y").getName());
+        assertTrue(other.createNewFile());
+        Files.copy(metadata.toPath(), new File(other.getPath() + ".key").toPath());
+        assertNull(layout.mapFileToKey(other));
+
+        assertTrue(layout.deleteFile(file));
+        assertFalse(file.exists());
+        assertFalse(metadata.exists());
+    }
+
+    @Test
+    public void testMigration() throws Exception {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String key = (i % 2 == 0 ? Cache.NOTAG : "GrayScaleTransform")
+                    + "-www.foo.bar%2Fimage" + i + ".png";
+            keys.add(key);
+            FileUtils.writeStringToFile(new File(mDir, key), key, StandardCharsets.UTF_8);
+        }
+        FileUtils.writeStringToFile(new File(mDir, "junk"), "junk", StandardCharsets.UTF_8);
+
+        assertEquals(50, Cache.migrateLayout(mDir, CacheLayout.Type.FLAT, CacheLayout.Type.HASHED));
+
+        CacheLayout hashed = Cache.newCacheLayout(CacheLayout.Type.HASHED);
+        for (String key : keys) {
+            File file = hashed.mapKeyToFile(mDir, key);
+            assertEquals(key, hashed.mapFileToKey(file));
+            assertEquals(key, FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+        }
+        // Only the shard directories and the unknown file remain.
+        assertTrue(Arrays.stream(mDir.listFiles())
+                           .allMatch(file -> file.isDirectory() || file.getName().equals("junk")));
+
+        assertEquals(50, Cache.migrateLayout(mDir, CacheLayout.Type.HASHED, CacheLayout.Type.FLAT));
+        assertEquals(0, Cache.migrateLayout(mDir, CacheLayout.Type.HASHED, CacheLayout.Type.FLAT));
+
+        List<String> names = new ArrayList<>(Arrays.asList(mDir.list()));
+        Collections.sort(names);
+        keys.add("junk");
+        Collections.sort(keys);
+        assertEquals(keys, names);
+        for (String name : names) {
+            assertEquals(name, FileUtils.readFileToString(new File(mDir, name), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the NIO read path of cached items.
+ */
+public class CacheReadTest {
+    private File mDir;
+    private Cache mCache;
+    private final List<Cache.Operation> mOperations = new ArrayList<>();
+    private final List<Float> mProgress = new ArrayList<>();
+
+    /**
+     * Observers are weakly referenced, so the test holds on to it.
+     */
+    private final Cache.Observer mObserver = (operation, item, progress) -> {
+        synchronized (mOperations) {
+            mOperations.add(operation);
+            mProgress.add(progress);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = Files.createTempDirectory("cache").toFile();
+        mCache = TestCaches.newCache(new File(mDir, "image-cache"),
+                                     CacheOptions.newBuilder().build());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mCache.close();
+        FileUtils.deleteQuietly(mDir);
+    }
+
+    @Test
+    public void testSmallItemIsRead() throws Exception {
+        byte[] data = randomBytes(Cache.MAP_THRESHOLD - 1);
+        Cache.Item item = write("http://host/small.png", data);
+
+        assertArrayEquals(data, item.readAllBytes());
+
+        ByteBuffer buffer = item.readBuffer();
+        assertFalse(buffer instanceof MappedByteBuffer);
+        assertTrue(buffer.isReadOnly());
+        assertArrayEquals(data, toArray(buffer));
+    }
+
+    @Test
+    public void testLargeItemIsMapped() throws Exception {
+        byte[] data = randomBytes(Cache.MAP_THRESHOLD * 2 + 7);
+        Cache.Item item = write("http://host/large.png", data);
+
+        assertArrayEquals(data, item.readAllBytes());
+
+        ByteBuffer buffer = item.readBuffer();
+        assertTrue(buffer instanceof MappedByteBuffer);
+        assertTrue(buffer.isReadOnly());
+        assertArrayEquals(data, toArray(buffer));
+
+        // Exactly at the threshold.
+        data = randomBytes(Cache.MAP_THRESHOLD);
+        item = write("http://host/threshold.png", data);
+        buffer = item.readBuffer();
+        assertTrue(buffer instanceof MappedByteBuffer);
+        assertArrayEquals(data, toArray(buffer));
+    }
+
+    @Test
+    public void testEmptyItem() throws Exception {
+        Cache.Item item = write("http://host/empty.png", new byte[0]);
+        assertEquals(0, item.readAllBytes().length);
+        assertEquals(0, item.readBuffer().remaining());
+    }
+
+    @Test
+    public void testReadNotificationsAreCoalesced() throws Exception {
+        byte[] data = randomBytes(Cache.MAP_THRESHOLD * 8);
+        Cache.Item item = write("http://host/observed.png", data);
+        mCache.startWatching(mObserver, false, Cache.Operation.READ, Cache.Operation.CLOSE);
+
+        // A few READ progress notifications followed by one CLOSE,
+        // rather than one READ per read call.
+        item.readAllBytes();
+        int reads = mOperations.size() - 1;
+        assertTrue(reads >= 1 && reads <= 4);
+        for (int i = 0; i < reads; i++) {
+            assertEquals(Cache.Operation.READ, mOperations.get(i));
+        }
+        assertEquals(1f, mProgress.get(reads - 1), 0f);
+        assertEquals(Cache.Operation.CLOSE, mOperations.get(reads));
+
+        // Mapping sends exactly one READ and one CLOSE.
+        mOperations.clear();
+        mProgress.clear();
+        item.mapReadOnly();
+        assertEquals(2, mOperations.size());
+        assertEquals(Cache.Operation.READ, mOperations.get(0));
+        assertEquals(Cache.Operation.CLOSE, mOperations.get(1));
+
+        mCache.stopWatching(mObserver);
+    }
+
+    /**
+     * Adds an item for {@code uri} and writes {@code data} to it.
+     */
+    private Cache.Item write(String uri, byte[] data) throws Exception {
+        assertTrue(mCache.addItem(uri, null));
+        Cache.Item item = mCache.getItem(uri, null);
+        try (OutputStream outputStream =
+                     item.getOutputStream(Cache.Operation.WRITE, data.length)) {
+            outputStream.write(data);
+        }
+        return item;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,113 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that items loaded from the cache index are verified against
+ * their files the first time they are used, and that items that were
+ * added but never written are swept when the index is loaded.
+ */
+public class CacheVerifyTest {
+    private static final String HOST = "http://host/images/";
+    private static final byte[] DATA = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    private File mDir;
+    private File mCacheDir;
+    private CacheOptions mOptions;
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = Files.createTempDirectory("cache").toFile();
+        mCacheDir = new File(mDir, "image-cache");
+        mOptions = CacheOptions.newBuilder()
+                .indexFile(new File(mDir, "image-cache.index"))
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(mDir);
+    }
+
+    @Test
+    public void testStaleItemsAreDroppedOnFirstUse() throws Exception {
+        File missing;
+        File resized;
+        try (Cache cache = TestCaches.newCache(mCacheDir, mOptions)) {
+            missing = write(cache, "missing");
+            resized = write(cache, "resized");
+            write(cache, "valid");
+        }
+
+        assertTrue(missing.delete());
+        try (OutputStream outputStream = new FileOutputStream(resized, true)) {
+            outputStream.write(DATA);
+        }
+
+        // Stale items are loaded from the index without being checked.
+        try (Cache cache = TestCaches.newCache(mCacheDir, mOptions)) {
+            assertEquals(3, cache.getCacheSize());
+
+            assertNull(cache.getItem(HOST + "missing", null));
+            assertFalse(cache.containsKey(HOST + "resized", null));
+            assertFalse(resized.exists());
+            assertArrayEquals(DATA, cache.getItem(HOST + "valid", null).readAllBytes());
+            assertEquals(1, cache.getCacheSize());
+        }
+
+        // The removals were recorded in the index.
+        try (Cache cache = TestCaches.newCache(mCacheDir, mOptions)) {
+            assertEquals(1, cache.getCacheSize());
+            assertNotNull(cache.getItem(HOST + "valid", null));
+        }
+    }
+
+    @Test
+    public void testUnwrittenItemsAreSwept() throws Exception {
+        File unwritten;
+        try (Cache cache = TestCaches.newCache(mCacheDir, mOptions)) {
+            write(cache, "written");
+            assertTrue(cache.addItem(HOST + "unwritten", null));
+            unwritten = cache.getItem(HOST + "unwritten", null).getFile();
+            assertTrue(unwritten.exists());
+        }
+
+        try (Cache cache = TestCaches.newCache(mCacheDir, mOptions)) {
+            assertEquals(1, cache.getCacheSize());
+            assertFalse(cache.containsKey(HOST + "unwritten", null));
+            assertFalse(unwritten.exists());
+            assertTrue(cache.containsKey(HOST + "written", null));
+        }
+    }
+
+    /**
+     * Adds an item named {@code name} to {@code cache} and writes
+     * {@code DATA} to it.
+     *
+     * @return The item's file.
+     */
+    private static File write(Cache cache, String name) throws Exception {
+        assertTrue(cache.addItem(HOST + name, null));
+        Cache.Item item = cache.getItem(HOST + name, null);
+        try (OutputStream outputStream =
+                     item.getOutputStream(Cache.Operation.WRITE, DATA.length)) {
+            outputStream.write(DATA);
+        }
+        return item.getFile();
+    }
+}
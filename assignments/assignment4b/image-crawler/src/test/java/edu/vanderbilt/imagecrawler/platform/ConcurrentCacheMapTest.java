@@ -0,0 +1,110 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the striped ConcurrentCacheMap implementation.
+ */
+public class ConcurrentCacheMapTest {
+    /**
+     * Number of distinct keys used by the contention test.
+     */
+    private static final int KEYS = 1000;
+
+    /**
+     * Number of threads racing to add each key.
+     */
+    private static final int THREADS = 8;
+
+    @Test
+    public void testBasicOperations() {
+        ConcurrentCacheMap map = new ConcurrentCacheMap(4);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertNull(map.get("a"));
+        assertFalse(map.containsKey("a"));
+
+        // A mapper returning null must not add an entry.
+        assertNull(map.computeIfAbsent("a", key -> {
+            calls.incrementAndGet();
+            return null;
+        }));
+        assertFalse(map.containsKey("a"));
+        assertEquals(1, calls.get());
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testMapperCalledOncePerKey() throws Exception {
+        ConcurrentCacheMap map = new ConcurrentCacheMap();
+        Cache.Item[] items = newItems();
+        AtomicInteger[] calls = new AtomicInteger[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            calls[i] = new AtomicInteger();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Cache.Item[][] results = new Cache.Item[THREADS][KEYS];
+
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                for (int i = 0; i < KEYS; i++) {
+                    final int index = i;
+                    results[thread][i] =
+                        map.computeIfAbsent("key" + i, key -> {
+                            calls[index].incrementAndGet();
+                            return items[index];
+                        });
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(KEYS, map.size());
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(1, calls[i].get());
+            assertSame(items[i], map.get("key" + i));
+            for (int t = 0; t < THREADS; t++) {
+                assertSame(items[i], results[t][i]);
+            }
+        }
+
+        // Removing while iterating must be supported.
+        map.forEach((key, item) -> map.remove(key));
+        assertEquals(0, map.size());
+    }
+
+    /**
+     * @return An array of distinct cache items that are never
+     * written to disk.
+     */
+    private static Cache.Item[] newItems() {
+        Cache.Item[] items = new Cache.Item[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            items[i] = TestCaches.newItem("key" + i, i);
+        }
+        return items;
+    }
+}
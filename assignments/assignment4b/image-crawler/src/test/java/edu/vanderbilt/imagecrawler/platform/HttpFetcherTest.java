@@ -0,0 +1,259 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.vanderbilt.imagecrawler.helpers.LocalWebServer;
+import edu.vanderbilt.imagecrawler.utils.Crawler;
+import edu.vanderbilt.imagecrawler.utils.WebPageCrawler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the HttpFetcher against a LocalWebServer.
+ */
+public class HttpFetcherTest {
+    private File mSiteDir;
+    private byte[] mPage;
+    private byte[] mImage;
+
+    @Before
+    public void setUp() throws Exception {
+        mSiteDir = Files.createTempDirectory("site").toFile();
+
+        StringBuilder html = new StringBuilder("<html><body>");
+        for (int i = 0; i < 1000; i++) {
+            html.append("<p><a href=\"page").append(i).append(".html\">Page ").append(i)
+                    .append("</a> <img src=\"img").append(i).append(".png\"></p>\n");
+        }
+        mPage = html.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8);
+        FileUtils.writeByteArrayToFile(new File(mSiteDir, "host/index.html"), mPage);
+
+        mImage = new byte[64 * 1024];
+        new Random(0).nextBytes(mImage);
+        FileUtils.writeByteArrayToFile(new File(mSiteDir, "host/image.png"), mImage);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(mSiteDir);
+    }
+
+    @Test
+    public void testMetadataAndKeepAlive() throws Exception {
+        HttpFetcher fetcher = HttpFetcher.newBuilder().build();
+        try (LocalWebServer server = newServer().start()) {
+            for (int i = 0; i < 10; i++) {
+                try (HttpFetcher.Response response = fetcher.fetch(server.getUrl("http://host/"))) {
+                    assertArrayEquals(mPage, IOUtils.toByteArray(response));
+                    assertEquals(200, response.getStatus());
+                    assertEquals("text/html; charset=UTF-8", response.getContentType());
+                    assertEquals("UTF-8", response.getCharset());
+                    assertEquals(mPage.length, response.getContentLength());
+                    assertNull(response.getContentEncoding());
+                }
+            }
+
+            // Every response was read and closed, so all requests were
+            // sent over one connection.
+            assertEquals(10, server.getRequestCount());
+            assertEquals(1, server.getConnectionCount());
+            assertEquals(10, fetcher.getRequestCount());
+        }
+    }
+
+    @Test
+    public void testCompression() throws Exception {
+        try (LocalWebServer server = newServer().compression(true).start()) {
+            HttpFetcher fetcher = HttpFetcher.newBuilder().build();
+            try (HttpFetcher.Response response = fetcher.fetch(server.getUrl("http://host/"))) {
+                assertArrayEquals(mPage, IOUtils.toByteArray(response));
+                assertEquals("gzip", response.getContentEncoding());
+                assertTrue(response.getContentLength() < mPage.length / 4);
+            }
+
+            // Images aren't compressed.
+            try (HttpFetcher.Response response =
+                         fetcher.fetch(server.getUrl("http://host/image.png"))) {
+                assertArrayEquals(mImage, IOUtils.toByteArray(response));
+                assertEquals("image/png", response.getContentType());
+                assertNull(response.getContentEncoding());
+            }
+
+            fetcher = HttpFetcher.newBuilder().compression(false).build();
+            try (HttpFetcher.Response response = fetcher.fetch(server.getUrl("http://host/"))) {
+                assertArrayEquals(mPage, IOUtils.toByteArray(response));
+                assertNull(response.getContentEncoding());
+            }
+        }
+    }
+
+    @Test
+    public void testConnectionsPerHostAreLimited() throws Exception {
+        HttpFetcher fetcher = HttpFetcher.newBuilder().maxConnectionsPerHost(2).build();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (LocalWebServer server = newServer()
+                .latency(LocalWebServer.Latency.fixed(100))
+                .start()) {
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    try (InputStream response = fetcher.fetch(server.getUrl("http://host/image.png"))) {
+                        return IOUtils.toByteArray(response);
+                    }
+                }));
+            }
+            for (Future<byte[]> future : futures) {
+                assertArrayEquals(mImage, future.get());
+            }
+
+            assertEquals(8, server.getRequestCount());
+            assertEquals(2, server.getPeakConcurrentRequests());
+            assertTrue(server.getConnectionCount() <= 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStalledServerTimesOut() throws Exception {
+        // The server doesn't respond within the read timeout.
+        HttpFetcher fetcher = HttpFetcher.newBuilder().readTimeout(200).build();
+        try (LocalWebServer server = newServer()
+                .latency(LocalWebServer.Latency.fixed(5_000))
+                .start()) {
+            assertTimesOut(fetcher, server.getUrl("http://host/"), 2_000);
+        }
+
+        // The server doesn't respond within the deadline.
+        fetcher = HttpFetcher.newBuilder().deadline(300).build();
+        try (LocalWebServer server = newServer()
+                .latency(LocalWebServer.Latency.fixed(5_000))
+                .start()) {
+            assertTimesOut(fetcher, server.getUrl("http://host/"), 2_000);
+        }
+        assertEquals(1, fetcher.getTimeoutCount());
+    }
+
+    @Test
+    public void testTricklingServerTimesOut() throws Exception {
+        // Each chunk of the 8 second body arrives well within the
+        // read timeout, but the whole body doesn't arrive within the
+        // deadline.
+        HttpFetcher fetcher = HttpFetcher.newBuilder()
+                .readTimeout(5_000)
+                .deadline(1_000)
+                .build();
+        try (LocalWebServer server = newServer().bytesPerSecond(8 * 1024).start()) {
+            assertTimesOut(fetcher, server.getUrl("http://host/image.png"), 3_000);
+        }
+        assertEquals(1, fetcher.getTimeoutCount());
+    }
+
+    @Test
+    public void testErrorStatus() throws Exception {
+        HttpFetcher fetcher = HttpFetcher.newBuilder().maxConnectionsPerHost(1).build();
+        try (LocalWebServer server = newServer().start()) {
+            try {
+                fetcher.fetch(server.getUrl("http://host/missing.png"));
+                fail("Expected a StatusException");
+            } catch (HttpFetcher.StatusException e) {
+                assertEquals(404, e.getStatus());
+            }
+
+            // The failed fetch returned its connection permit.
+            try (InputStream response = fetcher.fetch(server.getUrl("http://host/"))) {
+                assertArrayEquals(mPage, IOUtils.toByteArray(response));
+            }
+        }
+
+        try (LocalWebServer server = newServer().errorRate(1).start()) {
+            try {
+                fetcher.fetch(server.getUrl("http://host/"));
+                fail("Expected a StatusException");
+            } catch (HttpFetcher.StatusException e) {
+                assertEquals(503, e.getStatus());
+            }
+        }
+        assertEquals(2, fetcher.getErrorCount());
+    }
+
+    @Test
+    public void testPlatformFetchesWebUris() throws Exception {
+        HttpFetcher fetcher = HttpFetcher.newBuilder().build();
+        try (LocalWebServer server = newServer().start();
+             InputStream inputStream = new JavaPlatform(fetcher)
+                     .mapUriToInputStream(server.getUrl("http://host/image.png"))) {
+            assertTrue(inputStream instanceof HttpFetcher.Response);
+            assertArrayEquals(mImage, IOUtils.toByteArray(inputStream));
+            assertEquals(1, fetcher.getRequestCount());
+        }
+    }
+
+    @Test
+    public void testPlatformRethrowsFetchErrorsAsIOExceptions() throws Exception {
+        JavaPlatform platform = new JavaPlatform(HttpFetcher.newBuilder().build());
+        try (LocalWebServer server = newServer().errorRate(1).start()) {
+            platform.mapUriToInputStream(server.getUrl("http://host/image.png"));
+            fail("Expected an UncheckedIOException");
+        } catch (UncheckedIOException e) {
+            assertTrue(e.getCause() instanceof HttpFetcher.StatusException);
+        }
+    }
+
+    @Test
+    public void testPageCrawlersUseTheirFetcher() throws Exception {
+        HttpFetcher fetcher = HttpFetcher.newBuilder().build();
+        int defaultRequests = HttpFetcher.getDefault().getRequestCount();
+        try (LocalWebServer server = newServer().start()) {
+            for (WebPageCrawler.Parser parser : WebPageCrawler.Parser.values()) {
+                Crawler.Page page = WebPageCrawler.Factory
+                        .newWebPageCrawler(parser, null, fetcher)
+                        .getPage(server.getUrl("http://host/"));
+                assertEquals(1000, page.streamPageElementsAsStrings(Crawler.Type.PAGE).count());
+            }
+        }
+        assertEquals(2, fetcher.getRequestCount());
+        assertEquals(defaultRequests, HttpFetcher.getDefault().getRequestCount());
+    }
+
+    private LocalWebServer.Builder newServer() {
+        return LocalWebServer.newBuilder().siteDir(mSiteDir);
+    }
+
+    /**
+     * Asserts that fetching and reading {@code uri} fails with a
+     * SocketTimeoutException within {@code maxMillis}.
+     */
+    private static void assertTimesOut(HttpFetcher fetcher, String uri, long maxMillis)
+            throws Exception {
+        long start = System.currentTimeMillis();
+        try (InputStream response = fetcher.fetch(uri)) {
+            IOUtils.toByteArray(response);
+            fail("Expected a SocketTimeoutException");
+        } catch (SocketTimeoutException e) {
+            long millis = System.currentTimeMillis() - start;
+            assertTrue(millis + " ms", millis < maxMillis);
+        }
+    }
+}
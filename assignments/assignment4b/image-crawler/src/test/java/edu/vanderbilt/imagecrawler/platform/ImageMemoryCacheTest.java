@@ -0,0 +1,83 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import edu.vanderbilt.imagecrawler.transforms.Transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for the bounded LRU ImageMemoryCache.
+ */
+public class ImageMemoryCacheTest {
+    @Test
+    public void testLruEvictionAndCounters() {
+        ImageMemoryCache cache = new ImageMemoryCache(300);
+        PlatformImage a = new FakeImage(100);
+        PlatformImage b = new FakeImage(100);
+        PlatformImage c = new FakeImage(100);
+        PlatformImage d = new FakeImage(100);
+
+        cache.put("a", a);
+        cache.put("b", b);
+        cache.put("c", c);
+        assertEquals(300, cache.getBytes());
+
+        // Touch "a" so that "b" becomes the least recently used.
+        assertSame(a, cache.get("a"));
+
+        cache.put("d", d);
+        assertEquals(3, cache.getCount());
+        assertEquals(300, cache.getBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get("b"));
+        assertSame(c, cache.get("c"));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // Images larger than the entire budget are never held.
+        cache.put("huge", new FakeImage(301));
+        assertNull(cache.get("huge"));
+
+        cache.remove("a");
+        assertEquals(200, cache.getBytes());
+        cache.clear();
+        assertEquals(0, cache.getBytes());
+        assertEquals(0, cache.getCount());
+    }
+
+    /**
+     * Minimal PlatformImage with a fixed memory size.
+     */
+    private static class FakeImage implements PlatformImage {
+        private final int mSize;
+
+        FakeImage(int size) {
+            mSize = size;
+        }
+
+        @Override
+        public void setImage(InputStream inputStream, Cache.Item item) {
+        }
+
+        @Override
+        public void writeImage(OutputStream outputStream) {
+        }
+
+        @Override
+        public PlatformImage applyTransform(Transform.Type type, Cache.Item item) {
+            return this;
+        }
+
+        @Override
+        public int size() {
+            return mSize;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import edu.vanderbilt.imagecrawler.transforms.Transform;
+import edu.vanderbilt.imagecrawler.utils.ByteBufferInputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the primitive grayscale kernels produce exactly the same
+ * pixels as the original per-pixel Color based conversion, and that
+ * images survive a round trip through each encoder.
+ */
+public class JavaImageTest {
+    private static final int WIDTH = 67;
+    private static final int HEIGHT = 23;
+
+    @Test
+    public void testGrayScaleMatchesReference() {
+        assertGrayScaleMatchesReference(0);
+    }
+
+    @Test
+    public void testParallelGrayScaleMatchesReference() {
+        assertGrayScaleMatchesReference(1);
+    }
+
+    @Test
+    public void testEncodersRoundTrip() throws Exception {
+        BufferedImage original = newRandomImage(BufferedImage.TYPE_INT_ARGB);
+        JavaImage image = new JavaImage(original);
+
+        ImageEncoder[] encoders = {
+                ImageEncoder.raw(),
+                ImageEncoder.png(),
+                ImageEncoder.png(0),
+                ImageEncoder.png(9),
+                // JPEG can't encode alpha, so PNG is written instead.
+                ImageEncoder.of(ImageFormat.JPEG)
+        };
+        ImageFormat[] written = {
+                ImageFormat.RAW,
+                ImageFormat.PNG,
+                ImageFormat.PNG,
+                ImageFormat.PNG,
+                ImageFormat.PNG
+        };
+
+        for (int i = 0; i < encoders.length; i++) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            assertEquals(written[i], image.writeImage(outputStream, encoders[i]));
+
+            byte[] bytes = outputStream.toByteArray();
+            assertEquals(written[i], ImageFormat.detect(bytes, bytes.length));
+
+            JavaImage decoded = new JavaImage(
+                    new ByteBufferInputStream(ByteBuffer.wrap(bytes)), null);
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    assertEquals(encoders[i] + " at " + x + "," + y,
+                                 original.getRGB(x, y),
+                                 decoded.getImage().getRGB(x, y));
+                }
+            }
+        }
+
+        assertEquals(ImageEncoder.png(6), ImageEncoder.parse("png:6"));
+        assertEquals(ImageEncoder.of(ImageFormat.JPEG),
+                     ImageEncoder.source().resolve("jpeg"));
+        assertEquals(ImageEncoder.png(), ImageEncoder.source().resolve("webp"));
+    }
+
+    /**
+     * Converts images of all supported types using the specified
+     * parallel transform {@code threshold}.
+     */
+    private static void assertGrayScaleMatchesReference(long threshold) {
+        int[] types = {
+                BufferedImage.TYPE_INT_ARGB,
+                BufferedImage.TYPE_INT_RGB,
+                BufferedImage.TYPE_INT_BGR,
+                BufferedImage.TYPE_3BYTE_BGR,
+                BufferedImage.TYPE_4BYTE_ABGR,
+                // Not handled by a fast path.
+                BufferedImage.TYPE_INT_ARGB_PRE
+        };
+
+        for (int type : types) {
+            BufferedImage original = newRandomImage(type);
+            BufferedImage expected = referenceGrayScale(original);
+
+            JavaImage image = new JavaImage(original);
+            image.mCacheItem = TestCaches.newItem("test", 0);
+            image.setParallelTransformThreshold(threshold);
+            BufferedImage actual = ((JavaImage) image.applyTransform
+                    (Transform.Type.GRAY_SCALE_TRANSFORM, null)).getImage();
+
+            assertEquals(type, actual.getType());
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    assertEquals("type " + type + " at " + x + "," + y,
+                                 expected.getRGB(x, y),
+                                 actual.getRGB(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return An image of the given {@code type} with random pixels,
+     * including fully transparent and translucent ones.
+     */
+    private static BufferedImage newRandomImage(int type) {
+        Random random = new Random(type);
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int argb = random.nextInt();
+                if (random.nextInt(4) == 0) {
+                    argb &= 0x00ffffff;
+                }
+                image.setRGB(x, y, argb);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * The original per-pixel conversion used as the reference result.
+     */
+    private static BufferedImage referenceGrayScale(BufferedImage original) {
+        BufferedImage image =
+                new BufferedImage(original.getColorModel(),
+                                  original.copyData(null),
+                                  original.getColorModel().isAlphaPremultiplied(),
+                                  null);
+        boolean hasTransparent = image.getColorModel().hasAlpha();
+        for (int i = 0; i < image.getHeight(); ++i) {
+            for (int j = 0; j < image.getWidth(); ++j) {
+                if (hasTransparent && (image.getRGB(j, i) >> 24) == 0x00) {
+                    continue;
+                }
+                Color c = new Color(image.getRGB(j, i));
+                int gray = (int) (c.getRed() * 0.299)
+                        + (int) (c.getGreen() * 0.587)
+                        + (int) (c.getBlue() * 0.114);
+                image.setRGB(j, i, new Color(gray, gray, gray).getRGB());
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,163 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the asynchronous ObserverEventBus.
+ */
+public class ObserverEventBusTest {
+    /**
+     * A delivered event.
+     */
+    private static class Event {
+        final Cache.Operation operation;
+        final Float progress;
+
+        Event(Cache.Operation operation, Float progress) {
+            this.operation = operation;
+            this.progress = progress;
+        }
+    }
+
+    private final Map<String, List<Event>> mEvents = new ConcurrentHashMap<>();
+
+    private void record(Cache.Operation operation, Cache.Item item, Float progress) {
+        mEvents.computeIfAbsent(item.getKey(), key -> new ArrayList<>())
+                .add(new Event(operation, progress));
+    }
+
+    @Test
+    public void testLifecycleEventsAreNeverDropped() throws Exception {
+        // A tiny buffer and a slow observer.
+        ObserverEventBus bus = new ObserverEventBus((operation, item, progress) -> {
+            record(operation, item, progress);
+            if (operation == Cache.Operation.CREATE) {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }, 4, 0);
+
+        int threads = 4;
+        int updates = 500;
+        List<Cache.Item> items = new ArrayList<>();
+        List<Thread> publishers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Cache.Item item = TestCaches.newItem("__notag__-bus" + t, t);
+            items.add(item);
+            publishers.add(new Thread(() -> {
+                bus.publish(item, Cache.Operation.CREATE, -1f);
+                for (int i = 1; i <= updates; i++) {
+                    bus.publish(item, Cache.Operation.WRITE, (float) i / updates);
+                }
+                bus.publish(item, Cache.Operation.CLOSE, 1f);
+                bus.publish(item, Cache.Operation.DELETE, -1f);
+            }));
+        }
+        publishers.forEach(Thread::start);
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+        bus.flush();
+
+        int delivered = 0;
+        for (Cache.Item item : items) {
+            List<Event> events = mEvents.get(item.getKey());
+            int last = events.size() - 1;
+            assertEquals(Cache.Operation.CREATE, events.get(0).operation);
+            assertEquals(Cache.Operation.DELETE, events.get(last).operation);
+            assertEquals(Cache.Operation.CLOSE, events.get(last - 1).operation);
+
+            // Progress is delivered in order and the latest progress
+            // is delivered before the item is closed.
+            assertEquals(Cache.Operation.WRITE, events.get(last - 2).operation);
+            assertEquals(1f, events.get(last - 2).progress, 0f);
+            float previous = 0f;
+            for (Event event : events.subList(1, last - 1)) {
+                assertEquals(Cache.Operation.WRITE, event.operation);
+                assertTrue(event.progress >= previous);
+                previous = event.progress;
+            }
+            delivered += last - 2;
+        }
+
+        assertTrue(delivered < threads * updates);
+        assertTrue(bus.getCoalescedCount() + bus.getDroppedCount() > 0);
+    }
+
+    @Test
+    public void testProgressIsRateLimited() throws Exception {
+        ObserverEventBus bus = new ObserverEventBus(this::record, 1024, 10_000);
+        Cache.Item item = TestCaches.newItem("__notag__-rate", 0);
+
+        for (int i = 1; i <= 1000; i++) {
+            bus.publish(item, Cache.Operation.READ, i / 1000f);
+        }
+        bus.flush();
+
+        // The first progress is delivered immediately, and the latest
+        // is delivered when flushed.
+        List<Event> events = mEvents.get(item.getKey());
+        assertTrue(events.size() <= 2);
+        assertEquals(1f, events.get(events.size() - 1).progress, 0f);
+        assertEquals(1000 - events.size(), bus.getCoalescedCount());
+    }
+
+    @Test
+    public void testObserverCanPublish() throws Exception {
+        Cache.Item item = TestCaches.newItem("__notag__-nested", 0);
+        ObserverEventBus[] bus = new ObserverEventBus[1];
+        bus[0] = new ObserverEventBus((operation, eventItem, progress) -> {
+            record(operation, eventItem, progress);
+            if (operation == Cache.Operation.CREATE) {
+                // Delivered immediately rather than waiting for room.
+                for (int i = 0; i < 10; i++) {
+                    bus[0].publish(eventItem, Cache.Operation.LOAD, -1f);
+                }
+            }
+        }, 2, 0);
+
+        bus[0].publish(item, Cache.Operation.CREATE, -1f);
+        bus[0].flush();
+        assertEquals(11, mEvents.get(item.getKey()).size());
+    }
+
+    @Test
+    public void testCloseDeliversPendingEventsAndStops() throws Exception {
+        long threads = countDeliveryThreads();
+        ObserverEventBus bus = new ObserverEventBus(this::record, 1024, 10_000);
+        Cache.Item item = TestCaches.newItem("__notag__-close", 0);
+
+        bus.publish(item, Cache.Operation.LOAD, -1f);
+        for (int i = 1; i <= 10; i++) {
+            bus.publish(item, Cache.Operation.READ, i / 10f);
+        }
+        bus.close();
+
+        // The rate limited progress was delivered when closing.
+        List<Event> events = mEvents.get(item.getKey());
+        assertEquals(Cache.Operation.LOAD, events.get(0).operation);
+        assertEquals(1f, events.get(events.size() - 1).progress, 0f);
+        assertEquals(threads, countDeliveryThreads());
+
+        // Events published after closing are delivered immediately.
+        bus.publish(item, Cache.Operation.DELETE, -1f);
+        assertEquals(Cache.Operation.DELETE, events.get(events.size() - 1).operation);
+    }
+
+    private static long countDeliveryThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("Cache-events"))
+                .count();
+    }
+}
@@ -0,0 +1,151 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the PackStore segment storage.
+ */
+public class PackStoreTest {
+    private File mDir;
+    private PackStore mStore;
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = Files.createTempDirectory("packs").toFile();
+        mStore = new PackStore(mDir, 4096);
+        assertTrue(mStore.load().isEmpty());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mStore.close();
+        FileUtils.deleteDirectory(mDir);
+    }
+
+    private static byte[] data(String key, int length) {
+        byte[] data = new byte[length];
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < length; i++) {
+            data[i] = bytes[i % bytes.length];
+        }
+        return data;
+    }
+
+    private PackStore reload() throws Exception {
+        mStore.close();
+        mStore = new PackStore(mDir, 4096);
+        return mStore;
+    }
+
+    @Test
+    public void testPutReadRemoveReload() throws Exception {
+        mStore.put("__notag__-a", data("a1", 100), 100);
+        mStore.put("__notag__-b", data("b", 50), 50);
+        mStore.put("__notag__-a", data("a2", 120), 120);
+        assertTrue(mStore.remove("__notag__-b"));
+        assertFalse(mStore.remove("__notag__-b"));
+
+        assertArrayEquals(data("a2", 120), mStore.read("__notag__-a"));
+        assertNull(mStore.read("__notag__-b"));
+        assertEquals(120, mStore.size("__notag__-a"));
+        assertEquals(-1, mStore.size("__notag__-b"));
+
+        Map<String, Integer> sizes = reload().load();
+        assertEquals(1, sizes.size());
+        assertEquals(Integer.valueOf(120), sizes.get("__notag__-a"));
+        assertArrayEquals(data("a2", 120), mStore.read("__notag__-a"));
+        assertFalse(mStore.contains("__notag__-b"));
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws Exception {
+        mStore.put("__notag__-a", data("a", 100), 100);
+        mStore.put("__notag__-b", data("b", 100), 100);
+        mStore.close();
+
+        // Simulate a crash part way through appending the last record.
+        File segment = mDir.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 10);
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList("__notag__-a")),
+                     reload().load().keySet());
+
+        mStore.put("__notag__-c", data("c", 10), 10);
+        assertEquals(new HashSet<>(Arrays.asList("__notag__-a", "__notag__-c")),
+                     reload().load().keySet());
+        assertArrayEquals(data("c", 10), mStore.read("__notag__-c"));
+    }
+
+    @Test
+    public void testCompactionDuringReads() throws Exception {
+        int count = 200;
+        for (int i = 0; i < count; i++) {
+            mStore.put("__notag__-" + i, data("item" + i, 200), 200);
+        }
+        int segments = mStore.getSegmentCount();
+        long diskSize = mStore.getDiskSize();
+        assertTrue(segments > 5);
+
+        // Readers of the surviving items must never fail while their
+        // records are being moved.
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    for (int i = 0; i < count; i += 10) {
+                        assertArrayEquals(data("item" + i, 200),
+                                          mStore.read("__notag__-" + i));
+                    }
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < count; i++) {
+            if (i % 10 != 0) {
+                mStore.remove("__notag__-" + i);
+            }
+        }
+        mStore.awaitCompaction();
+        mStore.awaitCompaction();
+        done.set(true);
+        reader.join();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        assertTrue(mStore.getSegmentCount() < segments);
+        assertTrue(mStore.getDiskSize() < diskSize / 2);
+
+        // Removed items must not be resurrected from older segments.
+        Map<String, Integer> sizes = reload().load();
+        assertEquals(count / 10, sizes.size());
+        for (int i = 0; i < count; i += 10) {
+            assertArrayEquals(data("item" + i, 200), mStore.read("__notag__-" + i));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package edu.vanderbilt.imagecrawler.platform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * Creates caches and items for tests without loading or modifying
+ * the application's cache (i.e., the JavaCache singleton and its
+ * "./image-cache" directory and index).
+ */
+public final class TestCaches {
+    /**
+     * The empty cache that owns detached items.
+     */
+    private static Cache sDetachedCache;
+
+    private TestCaches() {
+    }
+
+    /**
+     * Creates a cache that is independent of the application's cache.
+     *
+     * @param cacheDir The cache directory.
+     * @param options  The cache storage options.
+     * @return A new cache.
+     */
+    public static Cache newCache(File cacheDir, CacheOptions options) {
+        return new Cache(cacheDir, options, false);
+    }
+
+    /**
+     * Creates an item that belongs to no cache directory, has no
+     * file, and is never written.
+     *
+     * @param key       The item key ("tag-name").
+     * @param timeStamp The item's time stamp.
+     * @return A new detached item.
+     */
+    public static Cache.Item newItem(String key, long timeStamp) {
+        return detachedCache().new Item(key, null, timeStamp);
+    }
+
+    private static synchronized Cache detachedCache() {
+        if (sDetachedCache == null) {
+            try {
+                File dir = Files.createTempDirectory("detached-cache").toFile();
+                dir.deleteOnExit();
+                sDetachedCache = newCache(dir, CacheOptions.newBuilder().build());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return sDetachedCache;
+    }
+}
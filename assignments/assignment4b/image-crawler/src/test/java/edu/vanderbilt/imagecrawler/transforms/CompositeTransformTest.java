@@ -0,0 +1,207 @@
+package edu.vanderbilt.imagecrawler.transforms;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import edu.vanderbilt.imagecrawler.platform.Cache;
+import edu.vanderbilt.imagecrawler.platform.CacheOptions;
+import edu.vanderbilt.imagecrawler.platform.ImageEncoder;
+import edu.vanderbilt.imagecrawler.platform.JavaPlatform;
+import edu.vanderbilt.imagecrawler.platform.TestCaches;
+import edu.vanderbilt.imagecrawler.utils.CrawlUri;
+import edu.vanderbilt.imagecrawler.utils.Image;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a CompositeTransform produces the same pixels as its
+ * stages applied one by one, and that it only persists the selected
+ * intermediate stages.
+ */
+public class CompositeTransformTest {
+    private static final String URI = "http://host/images/a.png";
+
+    private File mDir;
+    private Cache mCache;
+    private JavaPlatform mPlatform;
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = Files.createTempDirectory("cache").toFile();
+        mCache = TestCaches.newCache(new File(mDir, "image-cache"),
+                                     CacheOptions.newBuilder().build());
+        mPlatform = new JavaPlatform();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mCache.close();
+        FileUtils.deleteQuietly(mDir);
+    }
+
+    @Test
+    public void testFusedChainMatchesStages() throws Exception {
+        CompositeTransform composite = new CompositeTransform(
+                "Pipeline",
+                Arrays.asList(new InvertTransform("Invert"),
+                              new GrayScaleTransform("GrayScale")));
+        Cache.Item item = newItem("Pipeline");
+
+        Image fused = composite.transform(newImage(item), item);
+        Image expected = new GrayScaleTransform("GrayScale").transform(
+                new InvertTransform("Invert").transform(newImage(item), item), item);
+
+        assertArrayEquals(toRaw(expected), toRaw(fused));
+        assertEquals("Pipeline", fused.getFilterName());
+        assertEquals(URI, fused.getSourceUrl().toString());
+
+        // Only the composite's own item exists; no stage was persisted.
+        assertEquals(1, mCache.getCacheSize());
+        assertFalse(mCache.containsKey(URI, composite.getStageTag(0)));
+    }
+
+    @Test
+    public void testSelectedStagesArePersisted() throws Exception {
+        InvertTransform invert = new InvertTransform("Invert");
+        invert.setEncoder(ImageEncoder.raw());
+        CompositeTransform composite = new CompositeTransform(
+                "Pipeline",
+                Arrays.asList(invert,
+                              new GrayScaleTransform("GrayScale"),
+                              new InvertTransform("Invert")),
+                Collections.singleton(0));
+        assertEquals("Pipeline_1_Invert", composite.getStageTag(0));
+        assertEquals("Pipeline_2_GrayScale", composite.getStageTag(1));
+
+        Cache.Item item = newItem("Pipeline");
+        composite.transform(newImage(item), item);
+
+        // The persisted stage holds the (raw encoded) result of the
+        // first stage.
+        Cache.Item stage = mCache.getItem(URI, "Pipeline_1_Invert");
+        assertArrayEquals(toRaw(invert.transform(newImage(item), item)),
+                          stage.readAllBytes());
+        assertFalse(mCache.containsKey(URI, "Pipeline_2_GrayScale"));
+        assertFalse(mCache.containsKey(URI, "Pipeline_3_Invert"));
+        assertEquals(2, mCache.getCacheSize());
+    }
+
+    @Test
+    public void testExistingStageIsNotRewritten() throws Exception {
+        CompositeTransform composite = new CompositeTransform(
+                "Pipeline",
+                Arrays.asList(new InvertTransform("Invert"),
+                              new GrayScaleTransform("GrayScale")),
+                Collections.singleton(0));
+
+        byte[] existing = "existing".getBytes(StandardCharsets.UTF_8);
+        Cache.Item stage = newItem(composite.getStageTag(0));
+        try (OutputStream outputStream =
+                     stage.getOutputStream(Cache.Operation.WRITE, existing.length)) {
+            outputStream.write(existing);
+        }
+
+        Cache.Item item = newItem("Pipeline");
+        composite.transform(newImage(item), item);
+
+        assertArrayEquals(existing, mCache.getItem(URI, composite.getStageTag(0)).readAllBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFinalStageCantBePersisted() {
+        new CompositeTransform("Pipeline",
+                               Arrays.asList(new InvertTransform("Invert"),
+                                             new GrayScaleTransform("GrayScale")),
+                               Collections.singleton(1));
+    }
+
+    /**
+     * Adds and returns the item for {@code URI} in the {@code tag}
+     * cache group.
+     */
+    private Cache.Item newItem(String tag) {
+        assertTrue(mCache.addItem(URI, tag));
+        return mCache.getItem(URI, tag);
+    }
+
+    /**
+     * @return A new decoded random image that reports its progress to
+     * {@code item}.
+     */
+    private Image newImage(Cache.Item item) throws IOException {
+        BufferedImage image = new BufferedImage(31, 17, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(42);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return new Image(CrawlUri.parse(URI),
+                         mPlatform.newImage(new ByteArrayInputStream(toPng(image)), item));
+    }
+
+    /**
+     * @return The pixels of {@code image} in the raw encoding.
+     */
+    private static byte[] toRaw(Image image) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        image.writeImage(outputStream, ImageEncoder.raw());
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] toPng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * A transform that inverts the color channels of an image, which
+     * (unlike a grayscale conversion) changes the result of any
+     * stage that follows it.
+     */
+    private class InvertTransform extends Transform {
+        InvertTransform(String name) {
+            super(name);
+        }
+
+        @Override
+        protected Image applyTransform(Image image, Cache.Item item) {
+            try {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                image.writeImage(outputStream, ImageEncoder.png());
+                BufferedImage pixels = ImageIO.read(
+                        new ByteArrayInputStream(outputStream.toByteArray()));
+                for (int y = 0; y < pixels.getHeight(); y++) {
+                    for (int x = 0; x < pixels.getWidth(); x++) {
+                        pixels.setRGB(x, y, pixels.getRGB(x, y) ^ 0x00ffffff);
+                    }
+                }
+                return new Image(image.getSourceUrl(),
+                                 mPlatform.newImage(new ByteArrayInputStream(toPng(pixels)),
+                                                    item));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the BoundedFutures backpressured reduction.
+ */
+public class BoundedFuturesTest {
+    @Test
+    public void testInFlightNeverExceedsPermits() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        try {
+            int sum = BoundedFutures
+                .sum(IntStream.rangeClosed(1, 1000).boxed(),
+                     3,
+                     i -> CompletableFuture.supplyAsync(() -> {
+                             int current = inFlight.incrementAndGet();
+                             maxInFlight.accumulateAndGet(current, Math::max);
+                             Thread.yield();
+                             inFlight.decrementAndGet();
+                             return i;
+                         }, executor))
+                .join();
+
+            assertEquals(500500, sum);
+            assertTrue(maxInFlight.get() <= 3);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSynchronousCompletionAndEmptyInput() {
+        // Already completed futures must not recurse once per input.
+        assertEquals(100000, (int) BoundedFutures
+                     .sum(IntStream.range(0, 100000).boxed(),
+                          1,
+                          i -> CompletableFuture.completedFuture(1))
+                     .join());
+
+        assertEquals(0, (int) BoundedFutures
+                     .sum(IntStream.range(0, 0).boxed(),
+                          4,
+                          i -> CompletableFuture.completedFuture(1))
+                     .join());
+    }
+
+    @Test
+    public void testFailureStopsPipeline() {
+        AtomicInteger started = new AtomicInteger();
+
+        try {
+            BoundedFutures
+                .sum(IntStream.range(0, 100).boxed(),
+                     1,
+                     i -> {
+                         started.incrementAndGet();
+                         if (i == 5) {
+                             throw new IllegalStateException("boom");
+                         }
+                         return CompletableFuture.completedFuture(i);
+                     })
+                .join();
+            fail("Expected a CompletionException");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        assertEquals(6, started.get());
+    }
+
+    @Test
+    public void testLimiterIsSharedByConcurrentPages() {
+        // Like a crawl: many pages, each reducing its own images, are
+        // started concurrently from several threads and share one cap.
+        ExecutorService pageExecutor = Executors.newFixedThreadPool(8);
+        ExecutorService imageExecutor = Executors.newFixedThreadPool(16);
+        BoundedFutures.Limiter limiter = new BoundedFutures.Limiter(4);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        int pages = 50;
+        int images = 40;
+
+        try {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int page = 0; page < pages; page++) {
+                futures.add(CompletableFuture
+                    .supplyAsync(() -> BoundedFutures
+                                 .sum(IntStream.range(0, images).boxed(),
+                                      limiter,
+                                      i -> CompletableFuture.supplyAsync(() -> {
+                                              int current = inFlight.incrementAndGet();
+                                              maxInFlight.accumulateAndGet(current, Math::max);
+                                              Thread.yield();
+                                              inFlight.decrementAndGet();
+                                              return 1;
+                                          }, imageExecutor)),
+                                 pageExecutor)
+                    .thenCompose(future -> future));
+            }
+
+            int total = futures.stream().mapToInt(CompletableFuture::join).sum();
+            assertEquals(pages * images, total);
+            assertTrue("max in flight " + maxInFlight.get(), maxInFlight.get() <= 4);
+            assertEquals(0, limiter.getInUse());
+        } finally {
+            pageExecutor.shutdownNow();
+            imageExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailureReturnsLimiterPermits() {
+        BoundedFutures.Limiter limiter = new BoundedFutures.Limiter(2);
+        CompletableFuture<Integer> never = new CompletableFuture<>();
+
+        // One reduction holds a permit, the other fails while its
+        // last operation is still in flight.
+        CompletableFuture<Integer> pending = BoundedFutures
+            .sum(IntStream.range(0, 1).boxed(), limiter, i -> never);
+        CompletableFuture<Integer> failing = new CompletableFuture<>();
+        CompletableFuture<Integer> failed = BoundedFutures
+            .sum(IntStream.range(0, 3).boxed(),
+                 limiter,
+                 i -> i == 0 ? failing : CompletableFuture.completedFuture(i));
+        assertEquals(2, limiter.getInUse());
+
+        failing.completeExceptionally(new IllegalStateException("boom"));
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(1, limiter.getInUse());
+
+        // The mapper itself failing also returns its permit.
+        try {
+            BoundedFutures
+                .sum(IntStream.range(0, 3).boxed(),
+                     limiter,
+                     i -> {
+                         throw new IllegalStateException("boom");
+                     })
+                .join();
+            fail("Expected a CompletionException");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, limiter.getInUse());
+
+        never.complete(1);
+        assertEquals(1, (int) pending.join());
+        assertEquals(0, limiter.getInUse());
+    }
+}
@@ -0,0 +1,101 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the ByteBufferInputStream.
+ */
+public class ByteBufferInputStreamTest {
+    private static final byte[] BYTES = {0, 1, 2, (byte) 0xff, 4, 5, 6, 7, 8, 9};
+
+    @Test
+    public void testRead() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(BYTES);
+        InputStream inputStream = new ByteBufferInputStream(buffer);
+
+        assertEquals(10, inputStream.available());
+        assertEquals(0, inputStream.read());
+        assertEquals(1, inputStream.read());
+
+        byte[] bytes = new byte[4];
+        assertEquals(0, inputStream.read(bytes, 0, 0));
+        assertEquals(3, inputStream.read(bytes, 1, 3));
+        assertArrayEquals(new byte[]{0, 2, (byte) 0xff, 4}, bytes);
+        assertEquals(5, inputStream.available());
+
+        bytes = new byte[8];
+        assertEquals(5, inputStream.read(bytes, 0, 8));
+        assertEquals(0, inputStream.available());
+        assertEquals(-1, inputStream.read());
+        assertEquals(-1, inputStream.read(bytes, 0, 8));
+
+        // Reading never moves the passed buffer.
+        assertEquals(0, buffer.position());
+        assertEquals(10, buffer.remaining());
+    }
+
+    @Test
+    public void testUnsignedBytes() throws Exception {
+        InputStream inputStream = new ByteBufferInputStream(ByteBuffer.wrap(BYTES));
+        assertEquals(3, inputStream.skip(3));
+        assertEquals(0xff, inputStream.read());
+    }
+
+    @Test
+    public void testReadsFromPosition() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(BYTES);
+        buffer.position(8);
+        InputStream inputStream = new ByteBufferInputStream(buffer.asReadOnlyBuffer());
+        assertEquals(2, inputStream.available());
+        assertEquals(8, inputStream.read());
+        assertEquals(9, inputStream.read());
+        assertEquals(-1, inputStream.read());
+    }
+
+    @Test
+    public void testSkip() throws Exception {
+        InputStream inputStream = new ByteBufferInputStream(ByteBuffer.wrap(BYTES));
+        assertEquals(0, inputStream.skip(-5));
+        assertEquals(0, inputStream.skip(0));
+        assertEquals(4, inputStream.skip(4));
+        assertEquals(4, inputStream.read());
+        assertEquals(5, inputStream.skip(Long.MAX_VALUE));
+        assertEquals(0, inputStream.available());
+        assertEquals(0, inputStream.skip(1));
+    }
+
+    @Test
+    public void testMarkAndReset() throws Exception {
+        InputStream inputStream = new ByteBufferInputStream(ByteBuffer.wrap(BYTES));
+        assertTrue(inputStream.markSupported());
+
+        try {
+            inputStream.reset();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // Expected.
+        }
+
+        inputStream.skip(2);
+        inputStream.mark(0);
+        assertEquals(2, inputStream.read());
+        assertEquals(0xff, inputStream.read());
+        inputStream.reset();
+        assertEquals(8, inputStream.available());
+        assertEquals(2, inputStream.read());
+
+        // The mark remains until it is replaced.
+        inputStream.skip(5);
+        inputStream.reset();
+        assertEquals(2, inputStream.read());
+    }
+}
@@ -0,0 +1,174 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the CrawlFrontier scheduler.
+ */
+public class CrawlFrontierTest {
+    @Test
+    public void testShallowPagesFirst() throws Exception {
+        CrawlFrontier frontier = new CrawlFrontier(CrawlFrontier.Scorer.BY_DEPTH, 10);
+        frontier.add("http://a.com/deep", 3);
+        frontier.add("http://a.com/root", 1);
+        frontier.add("http://b.com/middle", 2);
+        frontier.add("http://a.com/root2", 1);
+
+        List<String> order = new ArrayList<>();
+        CrawlFrontier.Task task;
+        while ((task = frontier.take()) != null) {
+            order.add(task.uri);
+            frontier.done(task);
+        }
+
+        assertEquals(4, order.size());
+        assertEquals("http://a.com/root", order.get(0));
+        assertEquals("http://a.com/root2", order.get(1));
+        assertEquals("http://b.com/middle", order.get(2));
+        assertEquals("http://a.com/deep", order.get(3));
+    }
+
+    @Test
+    public void testCustomScorer() throws Exception {
+        CrawlFrontier frontier =
+                new CrawlFrontier((uri, depth) -> uri.endsWith("important") ? 0 : depth, 1);
+        frontier.add("http://a.com/shallow", 1);
+        frontier.add("http://a.com/important", 5);
+
+        assertEquals("http://a.com/important", frontier.take().uri);
+    }
+
+    @Test
+    public void testHostLimit() throws Exception {
+        CrawlFrontier frontier = new CrawlFrontier(CrawlFrontier.Scorer.BY_DEPTH, 1);
+        frontier.add("http://a.com/1", 1);
+        frontier.add("http://a.com/2", 1);
+        frontier.add("http://b.com/3", 2);
+
+        // The second page of a.com has to wait until the first is done.
+        CrawlFrontier.Task first = frontier.take();
+        CrawlFrontier.Task second = frontier.take();
+        assertEquals("http://a.com/1", first.uri);
+        assertEquals("http://b.com/3", second.uri);
+
+        frontier.done(first);
+        assertEquals("http://a.com/2", frontier.take().uri);
+    }
+
+    @Test
+    public void testConcurrentCrawl() throws Exception {
+        int maxPerHost = 2;
+        CrawlFrontier frontier = new CrawlFrontier(CrawlFrontier.Scorer.BY_DEPTH, maxPerHost);
+        frontier.add("http://host0.com/0", 0);
+
+        Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger crawled = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            workers.add(new Thread(() -> {
+                try {
+                    CrawlFrontier.Task task;
+                    while ((task = frontier.take()) != null) {
+                        String host = UriUtils.getHost(task.uri);
+                        int count = inFlight.computeIfAbsent(host, key -> new AtomicInteger())
+                                .incrementAndGet();
+                        peak.accumulateAndGet(count, Math::max);
+
+                        // Each page links to 3 pages on 3 hosts.
+                        if (task.depth < 5) {
+                            for (int link = 0; link < 3; link++) {
+                                frontier.add("http://host" + link + ".com/"
+                                                     + task.uri.hashCode() + "/" + link,
+                                             task.depth + 1);
+                            }
+                        }
+                        Thread.sleep(1);
+
+                        crawled.incrementAndGet();
+                        inFlight.get(host).decrementAndGet();
+                        frontier.done(task);
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(1 + 3 + 9 + 27 + 81 + 243, crawled.get());
+        assertTrue(peak.get() <= maxPerHost);
+        assertEquals(0, frontier.size());
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        File dir = Files.createTempDirectory("frontier").toFile();
+        try {
+            CrawlFrontier frontier =
+                    new CrawlFrontier(CrawlFrontier.Scorer.BY_DEPTH, 100, dir, 10);
+            for (int i = 0; i < 1000; i++) {
+                frontier.add("http://a.com/" + i, 1);
+            }
+            assertEquals(1000, frontier.size());
+            assertEquals(990, frontier.getSpilledCount());
+
+            // Spilled pages are handed out in the order they were added.
+            for (int i = 0; i < 1000; i++) {
+                CrawlFrontier.Task task = frontier.take();
+                assertEquals("http://a.com/" + i, task.uri);
+                frontier.done(task);
+            }
+            assertNull(frontier.take());
+            assertEquals(0, dir.list().length);
+            frontier.close();
+        } finally {
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+
+    @Test
+    public void testCloseStopsWorkers() throws Exception {
+        CrawlFrontier frontier = new CrawlFrontier(CrawlFrontier.Scorer.BY_DEPTH, 1);
+        frontier.add("http://a.com/1", 1);
+        frontier.add("http://a.com/2", 1);
+        frontier.take();
+
+        // Blocked since a.com is at its limit.
+        Thread waiter = new Thread(() -> {
+            try {
+                assertNull(frontier.take());
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        waiter.start();
+        frontier.close();
+        waiter.join(5000);
+        assertTrue(!waiter.isAlive());
+    }
+
+    @Test
+    public void testGetHost() {
+        assertEquals("www.dre.vanderbilt.edu", UriUtils.getHost("http://www.dre.vanderbilt.edu/~schmidt/imgs"));
+        assertEquals("localhost:8080", UriUtils.getHost("http://LOCALHOST:8080/index.html"));
+        assertEquals("java_resources", UriUtils.getHost("file://java_resources/web-pages/index.html"));
+        assertEquals("", UriUtils.getHost("not a uri"));
+    }
+}
@@ -0,0 +1,78 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for the CrawlUri value type.
+ */
+public class CrawlUriTest {
+    @Test
+    public void testComponents() throws Exception {
+        CrawlUri uri = CrawlUri.parse("http://user@Host:8080/a/b.png?x=1&y=2#top");
+        assertEquals("http", uri.getScheme());
+        assertEquals("user@Host:8080", uri.getAuthority());
+        assertEquals("/a/b.png", uri.getPath());
+        assertEquals("x=1&y=2", uri.getQuery());
+        assertEquals("http://user@Host:8080/a/b.png?x=1&y=2#top", uri.toString());
+        assertEquals(uri.toString(), uri.toUrl().toString());
+
+        uri = CrawlUri.parse("file://project_root/imgs?#");
+        assertEquals("project_root", uri.getAuthority());
+        assertEquals("/imgs", uri.getPath());
+        assertEquals("", uri.getQuery());
+
+        uri = CrawlUri.parse("http://host#a?b");
+        assertEquals("host", uri.getAuthority());
+        assertEquals("", uri.getPath());
+        assertNull(uri.getQuery());
+
+        uri = CrawlUri.parse("mailto:someone@example.com");
+        assertNull(uri.getAuthority());
+        assertEquals("someone@example.com", uri.getPath());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRelativeUriIsRejected() {
+        CrawlUri.parse("imgs/a.png");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyUriIsRejected() {
+        CrawlUri.parse("");
+    }
+
+    @Test
+    public void testEqualityIsByString() {
+        // URL would consider these equal if both hosts resolve to the
+        // same address.
+        assertNotEquals(CrawlUri.parse("http://localhost/a.png"),
+                        CrawlUri.parse("http://127.0.0.1/a.png"));
+        assertEquals(CrawlUri.parse("http://a.com/a.png"),
+                     CrawlUri.parse("http://a.com/a.png"));
+
+        assertEquals(2, Arrays.asList("http://a.com/1.png",
+                                      "http://a.com/2.png",
+                                      "http://a.com/1.png")
+                .stream()
+                .map(CrawlUri::parse)
+                .distinct()
+                .collect(Collectors.toList())
+                .size());
+    }
+
+    @Test
+    public void testImageFormatName() {
+        assertEquals("jpg", new Image(CrawlUri.parse("http://a.com/b.JPEG?size=2"), null)
+                .getFormatName()
+                .toLowerCase());
+        assertEquals("png", new Image(CrawlUri.parse("http://a.com/b.png#x"), null)
+                .getFormatName());
+    }
+}
@@ -0,0 +1,122 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the DiskVisitedSet and the structures it is built from.
+ */
+public class DiskVisitedSetTest {
+    private File mDir;
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = Files.createTempDirectory("visited").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(mDir);
+    }
+
+    @Test
+    public void testMatchesHashSet() {
+        // A tiny buffer and filter so that the uris are spread over
+        // many runs, which are merged several times.
+        DiskVisitedSet visited = new DiskVisitedSet(mDir, 100, 1000, false);
+        Set<String> expected = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            String uri = "http://host" + random.nextInt(10) + ".com/page/" + random.nextInt(8000);
+            assertEquals(uri, expected.add(uri), visited.putIfAbsent(uri));
+        }
+
+        assertEquals(expected.size(), visited.size());
+        assertTrue(visited.getRunCount() > 0);
+        for (String uri : expected) {
+            assertFalse(visited.putIfAbsent(uri));
+        }
+
+        visited.close();
+        assertEquals(0, mDir.list().length);
+    }
+
+    @Test
+    public void testTieredMerges() {
+        int uris = 10_000;
+        DiskVisitedSet visited = new DiskVisitedSet(mDir, 10, uris, false);
+        for (int i = 0; i < uris; i++) {
+            assertTrue(visited.putIfAbsent("http://host.com/page/" + i));
+        }
+
+        // 1000 runs of 10 fingerprints are merged in 5 tiers of
+        // factor 4, so no fingerprint is rewritten more than 5 times
+        // (merging all runs every few spills would rewrite ~50 times
+        // as many), and each tier holds at most 3 runs.
+        assertTrue("merged " + visited.getMergedCount(),
+                   visited.getMergedCount() <= 5L * uris);
+        assertTrue("runs " + visited.getRunCount(), visited.getRunCount() <= 3 * 6);
+        assertEquals(visited.getRunCount(), mDir.list().length);
+        for (int i = 0; i < uris; i++) {
+            assertFalse(visited.putIfAbsent("http://host.com/page/" + i));
+        }
+
+        visited.close();
+        assertEquals(0, mDir.list().length);
+    }
+
+    @Test
+    public void testLongHashSet() {
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 10_000; i++) {
+            long value = i % 10 == 0 ? 0 : random.nextInt(5000) * 0x100000000L;
+            assertEquals(expected.add(value), set.add(value));
+        }
+
+        assertEquals(expected.size(), set.size());
+        long[] sorted = set.toSortedArray();
+        for (int i = 1; i < sorted.length; i++) {
+            assertTrue(sorted[i - 1] < sorted[i]);
+        }
+        for (long value : sorted) {
+            assertTrue(set.contains(value));
+        }
+        assertFalse(set.contains(1));
+    }
+
+    @Test
+    public void testBloomFilter() {
+        int size = 100_000;
+        BloomFilter filter = new BloomFilter(size, 0.01);
+        for (int i = 0; i < size; i++) {
+            filter.put(Fingerprint.of("added/" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < size; i++) {
+            assertTrue(filter.mightContain(Fingerprint.of("added/" + i)));
+            if (filter.mightContain(Fingerprint.of("other/" + i))) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue("false positives " + falsePositives, falsePositives < size * 0.015);
+        assertEquals(0.01, filter.falsePositiveRate(size), 0.002);
+    }
+}
@@ -0,0 +1,90 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.IMAGE;
+import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.PAGE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that web and directory pages extract their hyperlinks and
+ * images in a single pass.
+ */
+public class PageSummaryTest {
+    private static final String HTML =
+            "<html><body>"
+            + "<a href='a.html'>a</a><IMG SRC='x.png'>"
+            + "<div><a name='anchor'>no href</a><img alt='no src'>"
+            + "<A HREF='http://other.com/b.html'><img src='/y.jpg'></A></div>"
+            + "</body></html>";
+
+    @Test
+    public void testWebPage() {
+        AtomicInteger opened = new AtomicInteger();
+        WebPageCrawler crawler = new WebPageCrawler(uri -> {
+            opened.incrementAndGet();
+            return new ByteArrayInputStream(HTML.getBytes(StandardCharsets.UTF_8));
+        });
+        Crawler.Page page = crawler.getPage("http://host.com/dir/index.html");
+
+        assertEquals(Arrays.asList("http://host.com/dir/a.html",
+                                   "http://other.com/b.html"),
+                     page.streamPageElementsAsStrings(PAGE).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("http://host.com/dir/x.png",
+                                   "",
+                                   "http://host.com/y.jpg"),
+                     page.streamPageElementsAsStrings(IMAGE).collect(Collectors.toList()));
+        assertEquals(5, page.streamPageElementsAsStrings(IMAGE, PAGE).count());
+
+        // The array views match the streams.
+        assertEquals(2, page.getPageElementsAsStrings(PAGE).size());
+        Array<WebPageElement> elements = page.getPageElements(PAGE, IMAGE);
+        assertEquals(5, elements.size());
+        assertEquals(PAGE, elements.get(1).type);
+        assertEquals(IMAGE, elements.get(2).type);
+        assertEquals(1, opened.get());
+    }
+
+    @Test
+    public void testDirectoryPage() throws Exception {
+        File dir = Files.createTempDirectory("page").toFile();
+        try {
+            FileUtils.forceMkdir(new File(dir, "sub"));
+            FileUtils.touch(new File(dir, "a.png"));
+            FileUtils.touch(new File(dir, "b.jpg"));
+            FileUtils.touch(new File(dir, "notes.txt"));
+
+            Crawler.Page page = new DirectoryCrawler().getPage(dir.toURI().toString());
+
+            List<String> pages = page.streamPageElementsAsStrings(PAGE)
+                    .collect(Collectors.toList());
+            assertEquals(1, pages.size());
+            assertTrue(pages.get(0).endsWith("/sub/"));
+
+            List<String> images = page.streamPageElementsAsStrings(IMAGE)
+                    .map(uri -> uri.substring(uri.lastIndexOf('/') + 1))
+                    .sorted()
+                    .collect(Collectors.toList());
+            assertEquals(Arrays.asList("a.png", "b.jpg"), images);
+
+            // The directory was listed once, so files created since
+            // then are not seen.
+            FileUtils.touch(new File(dir, "c.png"));
+            assertEquals(2, page.getPageElementsAsUris(IMAGE).size());
+            assertEquals(IMAGE, page.getPageElements(IMAGE).get(0).type);
+        } finally {
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.vanderbilt.imagecrawler.crawlers.framework.ImageCrawler;
+import edu.vanderbilt.imagecrawler.helpers.LocalWebServer;
+import edu.vanderbilt.imagecrawler.platform.Cache;
+import edu.vanderbilt.imagecrawler.platform.Controller;
+import edu.vanderbilt.imagecrawler.platform.JavaPlatform;
+
+import static edu.vanderbilt.imagecrawler.helpers.AdminHelpers.getCachedFiles;
+import static edu.vanderbilt.imagecrawler.helpers.AdminHelpers.removeCachedItems;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the synthetic site generator.
+ */
+public class SiteGeneratorTest {
+    private static final Pattern IMAGE_SRC = Pattern.compile("<img src=\"([^\"]+)\"");
+
+    private File mDir;
+
+    @Before
+    public void setUp() throws Exception {
+        mDir = Files.createTempDirectory("sites").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(mDir);
+    }
+
+    private static SiteGenerator.Builder newSite() {
+        return SiteGenerator.newBuilder()
+                .pageCount(200)
+                .fanOut(4)
+                .cycleRate(0.3)
+                .duplicateLinkRate(0.2)
+                .imageCount(30)
+                .imagesPerPage(2)
+                .imageSize(8, 64);
+    }
+
+    @Test
+    public void testGenerationIsDeterministic() throws Exception {
+        File first = newSite().seed(7).build().generate(new File(mDir, "a"));
+        File second = newSite().seed(7).build().generate(new File(mDir, "b"));
+
+        Collection<File> files = FileUtils.listFiles(first, null, true);
+        assertEquals(200 + 30, files.size());
+        assertEquals(files.size(), FileUtils.listFiles(second, null, true).size());
+
+        for (File file : files) {
+            File other = new File(second, first.toPath().relativize(file.toPath()).toString());
+            assertArrayEquals(file.getPath(),
+                              Files.readAllBytes(file.toPath()),
+                              Files.readAllBytes(other.toPath()));
+        }
+    }
+
+    @Test
+    public void testDepthLimitsPageCount() {
+        // 1 + 4 + 16 pages fit in 3 levels.
+        assertEquals(21, newSite().depth(3).build().getPageCount());
+        assertEquals(200, newSite().build().getPageCount());
+    }
+
+    /**
+     * Every page and every referenced image must be reached exactly
+     * once despite the cycles and duplicate links.
+     */
+    @Test
+    public void testCrawlVisitsEveryPageOnce() throws Exception {
+        SiteGenerator site = newSite().seed(3).build();
+        File siteDir = site.generate(mDir);
+
+        Set<String> images = new HashSet<>();
+        for (File page : FileUtils.listFiles(siteDir, new String[]{"html"}, true)) {
+            Matcher matcher = IMAGE_SRC.matcher(new String(Files.readAllBytes(page.toPath()), "UTF-8"));
+            while (matcher.find()) {
+                images.add(matcher.group(1));
+            }
+        }
+
+        try (LocalWebServer server = LocalWebServer.newBuilder().siteDir(mDir).start()) {
+            Controller controller = Controller.newBuilder()
+                    .platform(new JavaPlatform())
+                    .rootUrl(server.getUrl(site.getRootUri()))
+                    .maxDepth(Integer.MAX_VALUE)
+                    .build();
+            Cache cache = controller.getCache();
+
+            try {
+                ImageCrawler.Factory
+                        .newCrawler(ImageCrawler.Type.SEQUENTIAL_LOOPS, controller)
+                        .run();
+
+                assertEquals(site.getPageCount() + images.size(), server.getRequestCount());
+                assertEquals(0, server.getErrorCount());
+                assertTrue(getCachedFiles(cache, server).stream()
+                                   .allMatch(file -> file.length() > 0));
+                assertEquals(images.size() * (1 + controller.transforms.size()),
+                             getCachedFiles(cache, server).size());
+            } finally {
+                removeCachedItems(cache, server);
+            }
+        }
+    }
+}
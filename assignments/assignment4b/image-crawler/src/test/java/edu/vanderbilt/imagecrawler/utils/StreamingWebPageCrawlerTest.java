@@ -0,0 +1,190 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static edu.vanderbilt.imagecrawler.helpers.Directories.getJavaLocalWebPagesDir;
+import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.IMAGE;
+import static edu.vanderbilt.imagecrawler.utils.Crawler.Type.PAGE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the streaming page parser finds the same hyperlinks and
+ * images as a jsoup parse.
+ */
+public class StreamingWebPageCrawlerTest {
+    private static final String BASE_URI = "http://host.com/dir/index.html";
+
+    private static final String HTML =
+            "<!DOCTYPE html><html><head><title>a <img src='title.png'></title>"
+            + "<script>var s = '</scr' + 'ipt><img src=script.png>';</script >"
+            + "<style>a { background: url(<img src=style.png>) }</style>"
+            + "<!-- <a href='comment.html'> --><!--><img src=c1.png>"
+            + "<!-- a --!><img src=c2.png><?php <a href=php.html> ?>"
+            + "</head><body>"
+            + "<A HREF=\"Upper.html\">x</A><a name=anchor>no href</a>"
+            + "<a\nhref\n=\n unquoted.html >y</a><a href>empty</a>"
+            + "<a href='first.html' href='last.html'>dup</a>"
+            + "<a href=' spaces.html '><a href='?q=1&amp;r=2&copy=3'>"
+            + "<a href='//cdn.com/p.html'><a href='http://other.com/a.html'>"
+            + "<a href='#top'><a href='mailto:x@y.com'><a href='javascript:void(0)'>"
+            + "<img src=a.png/><img/src=b.png><image src=c.png><img alt='no src'>"
+            + "<IMG SRC='/root.jpg' ALT=\"a > b\"><img src=\"&lt;d&gt;.png\">"
+            + "< img src=text.png><a href=x.html title='<img src=attr.png>'>"
+            + "<textarea><img src=textarea.png></textarea>"
+            + "<noscript><img src=noscript.png></noscript>"
+            + "<iframe><a href=iframe.html></iframe><img src=after.png>"
+            + "</a title='>'><img src=end.png>"
+            + "</body></html>";
+
+    @Test
+    public void testMatchesJsoup() throws Exception {
+        assertSameElements(HTML);
+
+        Crawler.Page page = streamingCrawler(HTML).getPage(BASE_URI);
+        assertEquals(Arrays.asList("http://host.com/dir/Upper.html",
+                                   "http://host.com/dir/unquoted.html",
+                                   "http://host.com/dir/",
+                                   "http://host.com/dir/last.html",
+                                   "http://host.com/dir/spaces.html",
+                                   "http://host.com/dir/?q=1&r=2&copy=3",
+                                   "http://cdn.com/p.html",
+                                   "http://other.com/a.html",
+                                   "http://host.com/dir/#top",
+                                   "mailto:x@y.com",
+                                   "",
+                                   "http://host.com/dir/x.html"),
+                     page.streamPageElementsAsStrings(PAGE).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("http://host.com/dir/c1.png",
+                                   "http://host.com/dir/c2.png",
+                                   "http://host.com/dir/a.png/",
+                                   "http://host.com/dir/b.png",
+                                   "http://host.com/dir/c.png",
+                                   "",
+                                   "http://host.com/root.jpg",
+                                   "http://host.com/dir/<d>.png",
+                                   "http://host.com/dir/noscript.png",
+                                   "http://host.com/dir/after.png",
+                                   "http://host.com/dir/end.png"),
+                     page.streamPageElementsAsStrings(IMAGE).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testBaseHref() throws Exception {
+        // The first base with an href applies to the whole page,
+        // including the links that precede it.
+        String html = "<a href=before.html><base target=_top>"
+                      + "<base href='../other/'><base href='http://ignored.com/'>"
+                      + "<img src=a.png><a href=/root.html>";
+        assertSameElements(html);
+
+        Crawler.Page page = streamingCrawler(html).getPage(BASE_URI);
+        assertEquals(Arrays.asList("http://host.com/other/before.html",
+                                   "http://host.com/root.html"),
+                     page.streamPageElementsAsStrings(PAGE).collect(Collectors.toList()));
+        assertEquals("http://host.com/other/a.png",
+                     page.getPageElementsAsStrings(IMAGE).get(0));
+    }
+
+    @Test
+    public void testTruncatedPage() throws Exception {
+        for (String html : new String[]{"<a href=x.html><img src='y.png",
+                                        "<a href=x.html><script><img src=y.png>",
+                                        "<a href=x.html><!-- <img src=y.png>",
+                                        "<a href=x.html><img src=y.png"}) {
+            assertSameElements(html);
+            assertEquals(1, streamingCrawler(html).getPage(BASE_URI)
+                    .streamPageElementsAsStrings(PAGE, IMAGE)
+                    .count());
+        }
+    }
+
+    @Test
+    public void testCorpusPagesMatchJsoup() throws Exception {
+        List<File> pages = Files.walk(getJavaLocalWebPagesDir().toPath())
+                .map(path -> path.toFile())
+                .filter(file -> file.getName().equals("index.html"))
+                .collect(Collectors.toList());
+        assertTrue(pages.size() > 1);
+
+        Function<String, InputStream> mapper =
+                ExceptionUtils.rethrowFunction(uri -> new FileInputStream(new File(URI.create(uri))));
+        Crawler jsoup = WebPageCrawler.Factory.newWebPageCrawler(WebPageCrawler.Parser.JSOUP, mapper);
+        Crawler streaming = WebPageCrawler.Factory.newWebPageCrawler(WebPageCrawler.Parser.STREAMING, mapper);
+        assertTrue(streaming instanceof StreamingWebPageCrawler);
+
+        for (File file : pages) {
+            String uri = file.toURI().toString();
+            Crawler.Page expected = jsoup.getPage(uri);
+            Crawler.Page actual = streaming.getPage(uri);
+            assertEquals(uri,
+                         expected.streamPageElementsAsStrings(PAGE, IMAGE)
+                                 .collect(Collectors.toList()),
+                         actual.streamPageElementsAsStrings(PAGE, IMAGE)
+                                 .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Pages read without a known charset are decoded in the charset
+     * that they declare, like jsoup does.
+     */
+    @Test
+    public void testDetectsCharset() throws Exception {
+        String body = "<a href='caf\u00e9.html'><img src='\u00fc.png'>";
+        byte[][] pages = {
+                ("<meta charset=\"ISO-8859-1\">" + body).getBytes(StandardCharsets.ISO_8859_1),
+                ("<meta http-equiv=Content-Type content='text/html; charset=windows-1252'>" + body)
+                        .getBytes("windows-1252"),
+                ("\ufeff" + body).getBytes(StandardCharsets.UTF_16LE),
+                ("\ufeff" + body).getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8)
+        };
+
+        for (byte[] html : pages) {
+            Crawler.Page expected =
+                    new WebPageCrawler(uri -> new ByteArrayInputStream(html)).getPage(BASE_URI);
+            Crawler.Page actual =
+                    new StreamingWebPageCrawler(uri -> new ByteArrayInputStream(html)).getPage(BASE_URI);
+            for (Crawler.Page page : Arrays.asList(expected, actual)) {
+                assertEquals(Arrays.asList("http://host.com/dir/caf\u00e9.html",
+                                           "http://host.com/dir/\u00fc.png"),
+                             page.streamPageElementsAsStrings(PAGE, IMAGE)
+                                     .collect(Collectors.toList()));
+            }
+        }
+    }
+
+    /**
+     * Asserts that both parsers find the same elements in {@code html}.
+     */
+    private static void assertSameElements(String html) {
+        Crawler.Page expected = new WebPageCrawler(uri -> toStream(html)).getPage(BASE_URI);
+        Crawler.Page actual = streamingCrawler(html).getPage(BASE_URI);
+        for (Crawler.Type type : Crawler.Type.values()) {
+            assertEquals(html,
+                         expected.streamPageElementsAsStrings(type).collect(Collectors.toList()),
+                         actual.streamPageElementsAsStrings(type).collect(Collectors.toList()));
+        }
+    }
+
+    private static Crawler streamingCrawler(String html) {
+        return new StreamingWebPageCrawler(uri -> toStream(html));
+    }
+
+    private static InputStream toStream(String html) {
+        return new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8));
+    }
+}
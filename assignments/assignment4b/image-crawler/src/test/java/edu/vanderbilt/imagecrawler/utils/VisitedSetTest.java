@@ -0,0 +1,112 @@
+package edu.vanderbilt.imagecrawler.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the VisitedSet implementations and uri canonicalization.
+ */
+public class VisitedSetTest {
+    @Test
+    public void testCanonicalize() {
+        assertEquals("http://www.dre.vanderbilt.edu/~schmidt/imgs",
+                     UriUtils.canonicalize("HTTP://WWW.dre.vanderbilt.edu:80/~schmidt/imgs/index.html#top"));
+        assertEquals("https://a.com/",
+                     UriUtils.canonicalize("https://a.com:443"));
+        assertEquals("http://a.com:8080/",
+                     UriUtils.canonicalize("http://a.com:8080/index.htm"));
+        assertEquals("http://a.com/c/d",
+                     UriUtils.canonicalize("http://a.com/a/../b/./../c/d/"));
+        assertEquals("http://a.com/?q=Index.html",
+                     UriUtils.canonicalize("http://a.com?q=Index.html"));
+        assertEquals("http://a.com/Page.HTML",
+                     UriUtils.canonicalize("http://a.com/Page.HTML"));
+        assertEquals("file://project_root/web/imgs",
+                     UriUtils.canonicalize("file://project_root/web/imgs/"));
+        assertEquals("not a uri", UriUtils.canonicalize("not a uri#fragment"));
+    }
+
+    @Test
+    public void testSpellingsOfAPageAreVisitedOnce() {
+        for (VisitedSet.Type type : VisitedSet.Type.values()) {
+            VisitedSet visited = VisitedSet.Factory.newVisitedSet(type, 1000, true);
+            assertTrue(visited.putIfAbsent("http://a.com/imgs/"));
+            assertFalse(visited.putIfAbsent("http://A.com/imgs/index.html"));
+            assertFalse(visited.putIfAbsent("http://a.com:80/imgs#top"));
+            assertEquals(1, visited.size());
+
+            visited = VisitedSet.Factory.newVisitedSet(type, 1000, false);
+            assertTrue(visited.putIfAbsent("http://a.com/imgs/"));
+            assertTrue(visited.putIfAbsent("http://a.com/imgs/index.html"));
+        }
+    }
+
+    @Test
+    public void testExactSets() {
+        for (VisitedSet.Type type : new VisitedSet.Type[]{VisitedSet.Type.STRINGS,
+                                                          VisitedSet.Type.FINGERPRINTS}) {
+            VisitedSet visited = VisitedSet.Factory.newVisitedSet(type, 1, true);
+            for (int i = 0; i < 100_000; i++) {
+                assertTrue(visited.putIfAbsent("http://host" + i % 7 + ".com/" + i));
+            }
+            for (int i = 0; i < 100_000; i++) {
+                assertFalse(visited.putIfAbsent("http://host" + i % 7 + ".com/" + i));
+            }
+            assertEquals(100_000, visited.size());
+            assertTrue(visited.sizeInBytes() > 0);
+        }
+    }
+
+    @Test
+    public void testBloomFalsePositiveRate() {
+        int size = 100_000;
+        VisitedSet visited = VisitedSet.Factory.newVisitedSet(VisitedSet.Type.BLOOM, size, true);
+        int skipped = 0;
+        for (int i = 0; i < size; i++) {
+            if (!visited.putIfAbsent("http://a.com/" + i)) {
+                skipped++;
+            }
+        }
+
+        // Uris are only skipped once the filter fills up, so far
+        // fewer than 1% are skipped on the way there.
+        assertTrue("skipped " + skipped, skipped < size * 0.01);
+        assertEquals(size - skipped, visited.size());
+        assertEquals(0.01, visited.falsePositiveRate(), 0.003);
+        assertTrue(visited.sizeInBytes() < size * 2);
+    }
+
+    @Test
+    public void testConcurrentAddsReportEachUriOnce() throws Exception {
+        for (VisitedSet.Type type : VisitedSet.Type.values()) {
+            VisitedSet visited = VisitedSet.Factory.newVisitedSet(type, 1_000_000, true);
+            AtomicInteger added = new AtomicInteger();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        if (visited.putIfAbsent("http://a.com/" + i)) {
+                            added.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(type.toString(), visited.size(), added.get());
+            if (type != VisitedSet.Type.BLOOM) {
+                assertEquals(20_000, added.get());
+            }
+        }
+    }
+}